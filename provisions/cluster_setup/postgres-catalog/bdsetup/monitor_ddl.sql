@@ -17,3 +17,16 @@ CREATE TABLE IF NOT EXISTS migrationstats (
   countLoaded bigint,
   message varchar(1000)
 );
+
+CREATE TABLE IF NOT EXISTS migrationchunks (
+  fromLoc varchar(250),
+  toLoc varchar(250),
+  objectFrom varchar(250),
+  objectTo varchar(250),
+  chunk integer,
+  condition varchar(1000),
+  done boolean,
+  countLoaded bigint,
+  endTime bigint,
+  PRIMARY KEY (fromLoc, toLoc, objectFrom, objectTo, chunk)
+);
@@ -11,6 +11,7 @@ import org.glassfish.jersey.server.ResourceConfig;
 
 import istc.bigdawg.catalog.CatalogInstance;
 import istc.bigdawg.migration.MigratorTask;
+import istc.bigdawg.migration.ReplicaCache;
 import istc.bigdawg.monitoring.MonitoringTask;
 import istc.bigdawg.postgresql.PostgreSQLHandler;
 import istc.bigdawg.properties.BigDawgConfigProperties;
@@ -95,6 +96,10 @@ public class Main {
 		logger.info("Checking registered database connections");
 		checkDatabaseConnections();
 
+		// Replicas of migrated objects left by the previous run of this server
+		// (only if the replica cache is enabled)
+		ReplicaCache.INSTANCE.sweep();
+
         // Monitor
         MonitoringTask relationalTask = new MonitoringTask();
 		relationalTask.run();
@@ -128,6 +133,7 @@ public class Main {
         System.in.read();
 
         // Shutdown
+        ReplicaCache.INSTANCE.sweep();
         CatalogInstance.INSTANCE.closeCatalog();
 		migratorTask.close();
 		// ZooKeeperUtils.unregisterNodeInZooKeeper();
@@ -3,8 +3,8 @@ package istc.bigdawg.cast;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 
@@ -88,10 +88,8 @@ public class CastOverseer {
 		logger.debug(String.format("CAST query string: %s", cast.getQueryString()));
 		
 		// migrate
-		if (!tempTableInfo.containsKey(targetConnInfo)) {
-			tempTableInfo.put(targetConnInfo, new HashSet<>());
-		}
-		tempTableInfo.get(targetConnInfo).add(remoteName);
+		// independent casts of a query run concurrently
+		tempTableInfo.computeIfAbsent(targetConnInfo, k -> ConcurrentHashMap.newKeySet()).add(remoteName);
 		if (connectionInfoMap.get(source) instanceof AccumuloConnectionInfo) {
 			TextScan ts = ((TextScan) source.getRemainder(0));
 			logger.debug(String.format("Migrate from Accumulo: srcTbl: %s, rmtNm: %s, queryStr: %s, range: %s", 
@@ -103,10 +101,7 @@ public class CastOverseer {
 				throw new CastException(e.getMessage(), e);
 			}
 		} else {
-			if (!tempTableInfo.containsKey(connectionInfoMap.get(source))) {
-				tempTableInfo.put(connectionInfoMap.get(source), new HashSet<>());
-			}
-			tempTableInfo.get(connectionInfoMap.get(source)).add(source.getName());
+			tempTableInfo.computeIfAbsent(connectionInfoMap.get(source), k -> ConcurrentHashMap.newKeySet()).add(source.getName());
 			try {
 				Migrator.migrate(connectionInfoMap.get(source), source.getName(), targetConnInfo, remoteName, new MigrationParams(cast.getQueryString()));
 			} catch (MigrationException e) {
@@ -0,0 +1,787 @@
+package istc.bigdawg.catalog;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import istc.bigdawg.exceptions.BigDawgCatalogException;
+import istc.bigdawg.exceptions.BigDawgException;
+import istc.bigdawg.islands.IslandAndCastResolver;
+import istc.bigdawg.islands.IslandAndCastResolver.Engine;
+import istc.bigdawg.properties.BigDawgConfigProperties;
+import istc.bigdawg.query.ConnectionInfo;
+
+/**
+ * Read-through, in-memory copy of the catalog (engines, databases, islands,
+ * shims, casts and objects), so that the lookups done for every query by
+ * CatalogViewer do not need a round trip to the catalog database.
+ *
+ * The copy is reloaded when it is older than the TTL or when its version is
+ * behind the current one. CatalogModifier bumps the version on every write;
+ * objects (added and removed for every intermediate result) are applied to
+ * the copy in place instead of forcing a reload.
+ *
+ * Lookups which miss in the copy (e.g. an object registered by another
+ * BigDAWG instance) fall back to the catalog database.
+ */
+public enum CatalogCache {
+
+	INSTANCE;
+
+	private Logger logger = Logger.getLogger(CatalogCache.class.getName());
+
+	/**
+	 * A lookup against the catalog database, used when the cache misses.
+	 */
+	@FunctionalInterface
+	interface Lookup<T> {
+		T load() throws BigDawgCatalogException, SQLException;
+	}
+
+	/**
+	 * A lookup against the catalog database of the names (or name patterns)
+	 * which are not in the cache.
+	 */
+	@FunctionalInterface
+	interface NamesLookup<T> {
+		T load(List<String> names) throws BigDawgCatalogException, SQLException;
+	}
+
+	/**
+	 * A lookup against the catalog database of the pairs of names (or name
+	 * patterns) which are not in the cache.
+	 */
+	@FunctionalInterface
+	interface PairsLookup<T> {
+		T load(List<String> first, List<String> second)
+				throws BigDawgCatalogException, SQLException;
+	}
+
+	private final AtomicLong version = new AtomicLong(0);
+	private final Object loadLock = new Object();
+	private volatile Snapshot snapshot = null;
+	private final long ttl;
+
+	/** Notified when the catalog changes (other than the objects). */
+	private final List<Runnable> invalidationListeners = new CopyOnWriteArrayList<>();
+
+	/* metrics */
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+	private final AtomicLong reloads = new AtomicLong(0);
+
+	CatalogCache() {
+		ttl = BigDawgConfigProperties.INSTANCE.getCatalogCacheTtl();
+	}
+
+	/**
+	 * Drop the cached copy of the catalog; it is reloaded on the next lookup.
+	 */
+	public void invalidate() {
+		version.incrementAndGet();
+		for (Runnable listener : invalidationListeners) {
+			listener.run();
+		}
+	}
+
+	/**
+	 * Register an action to be run whenever the catalog is changed (e.g. to
+	 * drop what was derived from it). Objects added and removed for the
+	 * intermediate results do not trigger it.
+	 */
+	public void addInvalidationListener(Runnable listener) {
+		invalidationListeners.add(listener);
+	}
+
+	/**
+	 * Record an object inserted into catalog.objects (after the commit).
+	 */
+	void objectAdded(int oid, String name, int physicalDB) {
+		ObjectEntry object = new ObjectEntry(oid, name, physicalDB);
+		synchronized (loadLock) {
+			long current = version.incrementAndGet();
+			Snapshot s = snapshot;
+			if (s != null && s.version == current - 1) {
+				s.addObject(object);
+				s.version = current;
+			}
+		}
+	}
+
+	/**
+	 * Record objects removed from catalog.objects (after the commit).
+	 */
+	void objectsDeleted(Collection<Integer> oids) {
+		synchronized (loadLock) {
+			long current = version.incrementAndGet();
+			Snapshot s = snapshot;
+			if (s != null && s.version == current - 1) {
+				s.removeObjects(oids);
+				s.version = current;
+			}
+		}
+	}
+
+	/**
+	 * @return the engine of the database or null if the database is not in
+	 *         the cache
+	 */
+	Engine getEngineOfDB(int dbid) throws BigDawgCatalogException,
+			SQLException {
+		Snapshot s = current();
+		DatabaseEntry database = s.databases.get(dbid);
+		EngineEntry engine = (database == null) ? null
+				: s.engines.get(database.engineId);
+		if (engine == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		try {
+			return IslandAndCastResolver
+					.getEngineEnum(engine.connectionProperties);
+		} catch (BigDawgException ex) {
+			throw new BigDawgCatalogException(
+					"Unsupported engine: " + engine.connectionProperties);
+		}
+	}
+
+	/**
+	 * @return connection information of the database, loaded from the catalog
+	 *         on a miss
+	 */
+	ConnectionInfo getConnectionInfo(int dbid, Lookup<ConnectionInfo> onMiss)
+			throws BigDawgCatalogException, SQLException {
+		Snapshot s = current();
+		ConnectionInfo info = s.connectionInfos.get(dbid);
+		if (info != null) {
+			hits.incrementAndGet();
+			return info;
+		}
+		misses.incrementAndGet();
+		info = onMiss.load();
+		s.connectionInfos.putIfAbsent(dbid, info);
+		return info;
+	}
+
+	/**
+	 * @see CatalogViewer#getDBMappingByObj(List,
+	 *      IslandAndCastResolver.Scope)
+	 * @param onMiss
+	 *            loads the mapping of the objects which are not in the cache
+	 * @return the mapping from the objects (in the given island) to the
+	 *         databases which hold them
+	 */
+	HashMap<String, List<String>> getDBMappingByObj(List<String> inputs,
+			String islandName,
+			NamesLookup<HashMap<String, List<String>>> onMiss)
+			throws BigDawgCatalogException, SQLException {
+		Snapshot s = current();
+		HashMap<String, List<String>> extraction = new HashMap<>();
+		for (ObjectEntry object : s.getObjectsByNames(toLowerCase(inputs))) {
+			DatabaseEntry database = s.databases.get(object.physicalDB);
+			if (database == null) {
+				continue;
+			}
+			for (ShimEntry shim : s.shimsOfEngine(database.engineId)) {
+				IslandEntry island = s.islands.get(shim.islandId);
+				if (island != null && islandName.equals(island.scopeName)) {
+					extraction
+							.computeIfAbsent(object.name,
+									k -> new ArrayList<String>())
+							.add(String.valueOf(object.physicalDB));
+				}
+			}
+		}
+		List<String> missing = new ArrayList<>();
+		for (String input : inputs) {
+			if (!s.hasObject(input.trim().toLowerCase())) {
+				missing.add(input);
+			}
+		}
+		if (count(missing)) {
+			extraction.putAll(onMiss.load(missing));
+		}
+		return extraction;
+	}
+
+	/**
+	 * @see CatalogViewer#getObjectsFromList(String)
+	 * @param onMiss
+	 *            loads the names of the objects which are not in the cache
+	 */
+	String getObjectsFromList(List<String> names,
+			NamesLookup<List<String>> onMiss)
+			throws BigDawgCatalogException, SQLException {
+		Snapshot s = current();
+		Set<String> objects = new TreeSet<>();
+		for (ObjectEntry object : s.getObjectsByNames(toLowerCase(names))) {
+			objects.add(object.name);
+		}
+		List<String> missing = new ArrayList<>();
+		for (String name : names) {
+			if (!s.hasObject(name.trim().toLowerCase())) {
+				missing.add(name);
+			}
+		}
+		if (count(missing)) {
+			objects.addAll(onMiss.load(missing));
+		}
+		return String.join("\t", objects);
+	}
+
+	/**
+	 * @see CatalogViewer#getOneStepCastsUseObjects(List)
+	 * @param onMiss
+	 *            loads the casts of the objects (patterns) which do not match
+	 *            any object in the cache
+	 */
+	List<String> getOneStepCastsUseObjects(List<String> objs,
+			NamesLookup<List<String>> onMiss)
+			throws BigDawgCatalogException, SQLException {
+		Snapshot s = current();
+		List<List<String>> rows = new ArrayList<>();
+		for (ObjectEntry object : s.getObjects()) {
+			if (!containsAny(object.name, objs)) {
+				continue;
+			}
+			DatabaseEntry database = s.databases.get(object.physicalDB);
+			if (database == null) {
+				continue;
+			}
+			for (CastEntry cast : s.casts) {
+				EngineEntry src = s.engines.get(cast.srcEid);
+				EngineEntry dst = s.engines.get(cast.dstEid);
+				if (cast.srcEid == database.engineId
+						&& cast.srcEid != cast.dstEid && src != null
+						&& dst != null) {
+					rows.add(row(object.name, src.name, dst.name,
+							cast.accessMethod));
+				}
+			}
+		}
+		List<String> missing = new ArrayList<>();
+		for (String obj : objs) {
+			if (!matchesAny(obj, s.getObjectNames())) {
+				missing.add(obj);
+			}
+		}
+		if (count(missing)) {
+			addRows(rows, onMiss.load(missing));
+		}
+		return sorted(rows, true);
+	}
+
+	/**
+	 * @see CatalogViewer#getOneStepCastsUseEngineNames(List, List)
+	 * @param onMiss
+	 *            loads the casts of the pairs of engines which are not in the
+	 *            cache
+	 */
+	List<String> getOneStepCastsUseEngineNames(List<String> srcEngines,
+			List<String> dstEngines, PairsLookup<List<String>> onMiss)
+			throws BigDawgCatalogException, SQLException {
+		Snapshot s = current();
+		List<List<String>> rows = new ArrayList<>();
+		for (CastEntry cast : s.casts) {
+			EngineEntry src = s.engines.get(cast.srcEid);
+			EngineEntry dst = s.engines.get(cast.dstEid);
+			if (src != null && dst != null && containsAnyPair(src.name,
+					dst.name, srcEngines, dstEngines)) {
+				rows.add(row(src.name, dst.name, cast.accessMethod));
+			}
+		}
+		Set<String> engineNames = s.getEngineNames();
+		addMissingRows(rows, srcEngines, dstEngines, engineNames, engineNames,
+				onMiss);
+		return sorted(rows, true);
+	}
+
+	/**
+	 * @see CatalogViewer#getOneStepCastsUseDbToDb(List, List)
+	 * @param onMiss
+	 *            loads the casts of the pairs of databases which are not in
+	 *            the cache
+	 */
+	List<String> getOneStepCastsUseDbToDb(List<String> srcDBs,
+			List<String> dstDBs, PairsLookup<List<String>> onMiss)
+			throws BigDawgCatalogException, SQLException {
+		Snapshot s = current();
+		List<List<String>> rows = new ArrayList<>();
+		for (CastEntry cast : s.casts) {
+			EngineEntry src = s.engines.get(cast.srcEid);
+			EngineEntry dst = s.engines.get(cast.dstEid);
+			if (src == null || dst == null) {
+				continue;
+			}
+			for (DatabaseEntry srcDB : s.databasesOfEngine(cast.srcEid)) {
+				for (DatabaseEntry dstDB : s.databasesOfEngine(cast.dstEid)) {
+					if (containsAnyPair(srcDB.name, dstDB.name, srcDBs,
+							dstDBs)) {
+						rows.add(row(srcDB.name, dstDB.name, src.name,
+								dst.name, cast.accessMethod));
+					}
+				}
+			}
+		}
+		Set<String> databaseNames = s.getDatabaseNames();
+		addMissingRows(rows, srcDBs, dstDBs, databaseNames, databaseNames,
+				onMiss);
+		return sorted(rows, true);
+	}
+
+	/**
+	 * @see CatalogViewer#getOneStepCastDbsUseObjectsIslands(List, List)
+	 * @param onMiss
+	 *            loads the casts of the pairs of objects and islands which are
+	 *            not in the cache
+	 */
+	List<String> getOneStepCastDbsUseObjectsIslands(List<String> objs,
+			List<String> islands, PairsLookup<List<String>> onMiss)
+			throws BigDawgCatalogException, SQLException {
+		Snapshot s = current();
+		List<List<String>> rows = new ArrayList<>();
+		for (ObjectEntry object : s.getObjects()) {
+			DatabaseEntry srcDB = s.databases.get(object.physicalDB);
+			if (srcDB == null || !s.engines.containsKey(srcDB.engineId)) {
+				continue;
+			}
+			for (CastEntry cast : s.casts) {
+				if (cast.srcEid != srcDB.engineId
+						|| !s.engines.containsKey(cast.dstEid)) {
+					continue;
+				}
+				for (DatabaseEntry dstDB : s.databasesOfEngine(cast.dstEid)) {
+					for (ShimEntry shim : s.shimsOfEngine(cast.dstEid)) {
+						IslandEntry island = s.islands.get(shim.islandId);
+						if (island != null && containsAnyPair(object.name,
+								island.scopeName, objs, islands)) {
+							rows.add(row(object.name, srcDB.name, dstDB.name,
+									island.scopeName, cast.accessMethod));
+						}
+					}
+				}
+			}
+		}
+		addMissingRows(rows, objs, islands, s.getObjectNames(),
+				s.getIslandNames(), onMiss);
+		return sorted(rows, false);
+	}
+
+	/**
+	 * @return number of lookups answered from the cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return number of lookups that had to go to the catalog database
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return number of times the whole catalog was loaded
+	 */
+	public long getReloads() {
+		return reloads.get();
+	}
+
+	/**
+	 * @return the up to date copy of the catalog (loaded if necessary)
+	 */
+	private Snapshot current() throws BigDawgCatalogException, SQLException {
+		Snapshot s = snapshot;
+		if (isFresh(s)) {
+			return s;
+		}
+		synchronized (loadLock) {
+			s = snapshot;
+			if (isFresh(s)) {
+				return s;
+			}
+			s = load(version.get());
+			snapshot = s;
+			reloads.incrementAndGet();
+			return s;
+		}
+	}
+
+	private boolean isFresh(Snapshot s) {
+		return s != null && s.version == version.get()
+				&& System.currentTimeMillis() - s.loadedAt < ttl;
+	}
+
+	private Snapshot load(long loadVersion)
+			throws BigDawgCatalogException, SQLException {
+		Catalog cc = CatalogInstance.INSTANCE.getCatalog();
+		CatalogUtilities.checkConnection(cc);
+		Snapshot s = new Snapshot(loadVersion);
+		ResultSet rs = null;
+		try {
+			rs = cc.execRet("select eid, name, host, port, connection_properties from catalog.engines");
+			while (rs.next()) {
+				s.engines.put(rs.getInt("eid"), new EngineEntry(rs.getString("name"),
+						rs.getString("connection_properties")));
+			}
+			rs.close();
+			rs = cc.execRet("select dbid, engine_id, name from catalog.databases");
+			while (rs.next()) {
+				s.databases.put(rs.getInt("dbid"),
+						new DatabaseEntry(rs.getInt("engine_id"), rs.getString("name")));
+			}
+			rs.close();
+			rs = cc.execRet("select iid, scope_name from catalog.islands");
+			while (rs.next()) {
+				s.islands.put(rs.getInt("iid"), new IslandEntry(rs.getString("scope_name")));
+			}
+			rs.close();
+			rs = cc.execRet("select island_id, engine_id from catalog.shims");
+			while (rs.next()) {
+				s.shims.add(new ShimEntry(rs.getInt("island_id"), rs.getInt("engine_id")));
+			}
+			rs.close();
+			rs = cc.execRet("select src_eid, dst_eid, access_method from catalog.casts");
+			while (rs.next()) {
+				s.casts.add(new CastEntry(rs.getInt("src_eid"), rs.getInt("dst_eid"),
+						rs.getString("access_method")));
+			}
+			rs.close();
+			rs = cc.execRet("select oid, name, physical_db from catalog.objects order by oid");
+			while (rs.next()) {
+				s.addObject(new ObjectEntry(rs.getInt("oid"), rs.getString("name"),
+						rs.getInt("physical_db")));
+			}
+		} catch (SQLException e) {
+			cc.rollback();
+			throw e;
+		} finally {
+			if (rs != null) rs.close();
+		}
+		logger.debug("Catalog cache loaded: " + s.engines.size() + " engines, "
+				+ s.databases.size() + " databases, " + s.getObjects().size()
+				+ " objects.");
+		return s;
+	}
+
+	private static Set<String> toLowerCase(Collection<String> names) {
+		Set<String> result = new HashSet<>();
+		for (String name : names) {
+			result.add(name.trim().toLowerCase());
+		}
+		return result;
+	}
+
+	/** The ilike '%pattern%' of the catalog queries. */
+	private static boolean contains(String value, String pattern) {
+		return value != null
+				&& value.toLowerCase().contains(pattern.toLowerCase());
+	}
+
+	private static boolean containsAny(String value, List<String> patterns) {
+		for (String pattern : patterns) {
+			if (contains(value, pattern)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean containsAnyPair(String first, String second,
+			List<String> firstPatterns, List<String> secondPatterns) {
+		for (int i = 0; i < firstPatterns.size(); ++i) {
+			if (contains(first, firstPatterns.get(i))
+					&& contains(second, secondPatterns.get(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean matchesAny(String pattern,
+			Collection<String> values) {
+		for (String value : values) {
+			if (contains(value, pattern)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Count the lookup as a hit or a miss.
+	 *
+	 * @return true if some of the names are missing from the cache
+	 */
+	private boolean count(List<String> missing) {
+		(missing.isEmpty() ? hits : misses).incrementAndGet();
+		return !missing.isEmpty();
+	}
+
+	/**
+	 * Add the rows (TSV strings) loaded from the catalog database.
+	 */
+	private static void addRows(List<List<String>> rows, List<String> loaded) {
+		for (String line : loaded) {
+			rows.add(row(line.split("\t", -1)));
+		}
+	}
+
+	/**
+	 * Load from the catalog database the rows of the pairs of patterns which
+	 * do not match the names in the cache (e.g. an engine registered by
+	 * another BigDAWG instance).
+	 */
+	private void addMissingRows(List<List<String>> rows, List<String> first,
+			List<String> second, Collection<String> firstNames,
+			Collection<String> secondNames, PairsLookup<List<String>> onMiss)
+			throws BigDawgCatalogException, SQLException {
+		List<String> missingFirst = new ArrayList<>();
+		List<String> missingSecond = new ArrayList<>();
+		for (int i = 0; i < first.size(); ++i) {
+			if (!matchesAny(first.get(i), firstNames)
+					|| !matchesAny(second.get(i), secondNames)) {
+				missingFirst.add(first.get(i));
+				missingSecond.add(second.get(i));
+			}
+		}
+		if (count(missingFirst)) {
+			addRows(rows, onMiss.load(missingFirst, missingSecond));
+		}
+	}
+
+	private static List<String> row(String... fields) {
+		List<String> row = new ArrayList<>(fields.length);
+		Collections.addAll(row, fields);
+		return row;
+	}
+
+	/**
+	 * Order the rows by their fields (as the "order by" of the catalog
+	 * queries) and format them as TSV strings.
+	 */
+	private static List<String> sorted(List<List<String>> rows,
+			boolean distinct) {
+		Comparator<String> field = Comparator
+				.nullsLast(Comparator.<String> naturalOrder());
+		Comparator<List<String>> byFields = (a, b) -> {
+			for (int i = 0; i < a.size(); ++i) {
+				int cmp = field.compare(a.get(i), b.get(i));
+				if (cmp != 0) {
+					return cmp;
+				}
+			}
+			return 0;
+		};
+		Collection<List<String>> ordered;
+		if (distinct) {
+			ordered = new TreeSet<>(byFields);
+			ordered.addAll(rows);
+		} else {
+			rows.sort(byFields);
+			ordered = rows;
+		}
+		List<String> extraction = new ArrayList<>();
+		for (List<String> row : ordered) {
+			extraction.add(String.join("\t", row));
+		}
+		return extraction;
+	}
+
+	/**
+	 * Copy of the catalog tables. Everything but the objects is immutable
+	 * once loaded.
+	 */
+	private static class Snapshot {
+		private volatile long version;
+		private final long loadedAt = System.currentTimeMillis();
+
+		private final Map<Integer, EngineEntry> engines = new HashMap<>();
+		private final Map<Integer, DatabaseEntry> databases = new HashMap<>();
+		private final Map<Integer, IslandEntry> islands = new HashMap<>();
+		private final List<ShimEntry> shims = new ArrayList<>();
+		private final List<CastEntry> casts = new ArrayList<>();
+		private final Map<Integer, ConnectionInfo> connectionInfos = new ConcurrentHashMap<>();
+
+		/* guarded by this */
+		private final Map<Integer, ObjectEntry> objects = new LinkedHashMap<>();
+		private final Map<String, List<ObjectEntry>> objectsByName = new HashMap<>();
+
+		Snapshot(long version) {
+			this.version = version;
+		}
+
+		synchronized void addObject(ObjectEntry object) {
+			objects.put(object.oid, object);
+			String name = (object.name == null) ? null
+					: object.name.toLowerCase();
+			objectsByName.computeIfAbsent(name, k -> new ArrayList<>())
+					.add(object);
+		}
+
+		synchronized void removeObjects(Collection<Integer> oids) {
+			for (Integer oid : oids) {
+				ObjectEntry object = objects.remove(oid);
+				if (object != null) {
+					String name = (object.name == null) ? null
+							: object.name.toLowerCase();
+					List<ObjectEntry> sameName = objectsByName.get(name);
+					sameName.remove(object);
+					if (sameName.isEmpty()) {
+						objectsByName.remove(name);
+					}
+				}
+			}
+		}
+
+		synchronized List<ObjectEntry> getObjects() {
+			return new ArrayList<>(objects.values());
+		}
+
+		synchronized boolean hasObject(String lowerCaseName) {
+			return objectsByName.containsKey(lowerCaseName);
+		}
+
+		synchronized Set<String> getObjectNames() {
+			Set<String> names = new HashSet<>();
+			for (ObjectEntry object : objects.values()) {
+				names.add(object.name);
+			}
+			return names;
+		}
+
+		Set<String> getEngineNames() {
+			Set<String> names = new HashSet<>();
+			for (EngineEntry engine : engines.values()) {
+				names.add(engine.name);
+			}
+			return names;
+		}
+
+		Set<String> getDatabaseNames() {
+			Set<String> names = new HashSet<>();
+			for (DatabaseEntry database : databases.values()) {
+				names.add(database.name);
+			}
+			return names;
+		}
+
+		Set<String> getIslandNames() {
+			Set<String> names = new HashSet<>();
+			for (IslandEntry island : islands.values()) {
+				names.add(island.scopeName);
+			}
+			return names;
+		}
+
+		synchronized List<ObjectEntry> getObjectsByNames(Set<String> names) {
+			List<ObjectEntry> result = new ArrayList<>();
+			for (String name : names) {
+				List<ObjectEntry> sameName = objectsByName.get(name);
+				if (sameName != null) {
+					result.addAll(sameName);
+				}
+			}
+			return result;
+		}
+
+		List<ShimEntry> shimsOfEngine(int eid) {
+			List<ShimEntry> result = new ArrayList<>();
+			for (ShimEntry shim : shims) {
+				if (shim.engineId == eid) {
+					result.add(shim);
+				}
+			}
+			return result;
+		}
+
+		List<DatabaseEntry> databasesOfEngine(int eid) {
+			List<DatabaseEntry> result = new ArrayList<>();
+			for (DatabaseEntry database : databases.values()) {
+				if (database.engineId == eid) {
+					result.add(database);
+				}
+			}
+			return result;
+		}
+	}
+
+	private static class EngineEntry {
+		private final String name;
+		private final String connectionProperties;
+
+		EngineEntry(String name, String connectionProperties) {
+			this.name = name;
+			this.connectionProperties = connectionProperties;
+		}
+	}
+
+	private static class DatabaseEntry {
+		private final int engineId;
+		private final String name;
+
+		DatabaseEntry(int engineId, String name) {
+			this.engineId = engineId;
+			this.name = name;
+		}
+	}
+
+	private static class IslandEntry {
+		private final String scopeName;
+
+		IslandEntry(String scopeName) {
+			this.scopeName = scopeName;
+		}
+	}
+
+	private static class ShimEntry {
+		private final int islandId;
+		private final int engineId;
+
+		ShimEntry(int islandId, int engineId) {
+			this.islandId = islandId;
+			this.engineId = engineId;
+		}
+	}
+
+	private static class CastEntry {
+		private final int srcEid;
+		private final int dstEid;
+		private final String accessMethod;
+
+		CastEntry(int srcEid, int dstEid, String accessMethod) {
+			this.srcEid = srcEid;
+			this.dstEid = dstEid;
+			this.accessMethod = accessMethod;
+		}
+	}
+
+	private static class ObjectEntry {
+		private final int oid;
+		private final String name;
+		private final int physicalDB;
+
+		ObjectEntry(int oid, String name, int physicalDB) {
+			this.oid = oid;
+			this.name = name;
+			this.physicalDB = physicalDB;
+		}
+	}
+}
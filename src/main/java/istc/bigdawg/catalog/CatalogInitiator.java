@@ -2,9 +2,10 @@ package istc.bigdawg.catalog;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
+import istc.bigdawg.utils.ConnectionPool;
+
 /**
  * 
  * @author Jack
@@ -28,7 +29,8 @@ public class CatalogInitiator {
 			cc.stmt.close();
 		}
 		//Class.forName("org.postgresql.Driver");
-		cc.connection = DriverManager.getConnection(url, username, password);
+		cc.connection = ConnectionPool.getConnection(url, username, password,
+				null);
 		cc.stmt 	  = cc.connection.createStatement();
 		cc.initiated  = true;
 		cc.connected  = true;
@@ -36,6 +38,7 @@ public class CatalogInitiator {
 		cc.setLastURL(url);
 		cc.setLastUsername(username);
 		cc.setLastPassword(password);
+		CatalogCache.INSTANCE.invalidate();
 	}
 	
 	public static void close(Catalog cc) throws SQLException {
@@ -73,6 +76,7 @@ public class CatalogInitiator {
 		bufferedReader.close();
 		cc.execNoRet(createAllTables);
 		cc.commit();
+		CatalogCache.INSTANCE.invalidate();
 	}
 	
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package istc.bigdawg.catalog;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.Objects;
 import java.util.Set;
 
@@ -62,6 +63,7 @@ public class CatalogModifier {
 		
         // commit
 		cc.commit();
+		CatalogCache.INSTANCE.invalidate();
 
 	}
 	
@@ -109,6 +111,7 @@ public class CatalogModifier {
 
         // commit
 		cc.commit();
+		CatalogCache.INSTANCE.invalidate();
 
 	}
 	
@@ -140,6 +143,7 @@ public class CatalogModifier {
 
         // commit
 		cc.commit();
+		CatalogCache.INSTANCE.invalidate();
 			
 	}
 	
@@ -167,6 +171,7 @@ public class CatalogModifier {
 
         // commit
 		cc.commit();
+		CatalogCache.INSTANCE.invalidate();
 			
 	}
 	
@@ -202,6 +207,7 @@ public class CatalogModifier {
 
         // commit
 		cc.commit();
+		CatalogCache.INSTANCE.invalidate();
 	}
 	
 	public static int addObject(String newName, String newFields, int newLogDB, int newPhyDB) throws SQLException, BigDawgCatalogException {
@@ -220,6 +226,7 @@ public class CatalogModifier {
 								+ "logical_db = "	+ newLogDB 					+ " AND "
 								+ "physical_db = "	+ newPhyDB					+ ";");
 		int newpos  = 0;
+		boolean inserted = false;
 		if ( !rs.next() ) {
 			// add new record
         	rs 	= cc.execRet("SELECT max(oid) m from catalog.objects;");
@@ -230,11 +237,13 @@ public class CatalogModifier {
 	    					+ "\'"	+ newFields.toLowerCase() 	+ "\', "
 	    							+ newLogDB 					+ ", "
 	    							+ newPhyDB 					+ ");");
+        	inserted = true;
         }
         rs.close();
 
         // commit
 		cc.commit();
+		if (inserted) CatalogCache.INSTANCE.objectAdded(newpos, newName.toLowerCase(), newPhyDB);
 		
 		return newpos;
 	}
@@ -249,6 +258,7 @@ public class CatalogModifier {
 
         // commit
 		cc.commit();
+		CatalogCache.INSTANCE.objectsDeleted(Collections.singleton(oid));
 	}
 	
 	public static void deleteMultipleObjects(Set<Integer> oids) throws Exception {
@@ -267,6 +277,7 @@ public class CatalogModifier {
 
         // commit
 		cc.commit();
+		CatalogCache.INSTANCE.objectsDeleted(oids);
 	}
 
 	/**
@@ -304,6 +315,7 @@ public class CatalogModifier {
 //			addObject("LINEITEM","L_ORDERKEY,L_PARTKEY,L_SUPPKEY,L_LINENUMBER,L_QUANTITY,L_EXTENDEDPRICE,L_DISCOUNT,L_TAX,L_RETURNFLAG,L_LINESTATUS,L_SHIPDATE,L_COMMITDATE,L_RECEIPTDATE,L_SHIPINSTRUCT,L_SHIPMODE,L_COMMENT",10,10);
 			
 			cc.commit();
+			CatalogCache.INSTANCE.invalidate();
 			System.out.println("Update complete!");
 			
 		} catch (Exception e) {
@@ -200,9 +200,10 @@ public class CatalogUtilities {
 				System.out.printf("catalog query: %s %s\n", parsedResult.get(i), parsedResult.get(i+1));
 				
 				if (isCatalogSQL(parsedResult.get(i))) {
-					if (parsedResult.get(i).equalsIgnoreCase("update") || parsedResult.get(i).equalsIgnoreCase("insert") || parsedResult.get(i).equalsIgnoreCase("delete"))
+					if (parsedResult.get(i).equalsIgnoreCase("update") || parsedResult.get(i).equalsIgnoreCase("insert") || parsedResult.get(i).equalsIgnoreCase("delete")) {
 						cc.execNoRet(String.format("%s %s", parsedResult.get(i), parsedResult.get(i+1)));
-					else
+						CatalogCache.INSTANCE.invalidate();
+					} else
 						rs = cc.execRet(String.format("%s %s", parsedResult.get(i), parsedResult.get(i+1)));
 				} else {
 					String columns = parsedResult.get(i+1).length() > 0 ? parsedResult.get(i+1) : "*";
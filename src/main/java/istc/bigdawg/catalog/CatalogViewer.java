@@ -18,6 +18,9 @@ import istc.bigdawg.query.ConnectionInfo;
 public class CatalogViewer {
 	
 	public static Engine getEngineOfDB(int dbid) throws BigDawgCatalogException, SQLException {
+		Engine cached = CatalogCache.INSTANCE.getEngineOfDB(dbid);
+		if (cached != null) return cached;
+		
 		Catalog cc = CatalogInstance.INSTANCE.getCatalog();
 		// input check
 		CatalogUtilities.checkConnection(cc);
@@ -57,10 +60,12 @@ public class CatalogViewer {
 	 */
 	public static ConnectionInfo getConnectionInfo(int dbid) throws BigDawgCatalogException, SQLException {
 		
-		Catalog cc = CatalogInstance.INSTANCE.getCatalog();
-		Engine e = getEngineOfDB(dbid);
-		
-		return IslandAndCastResolver.getQConnectionInfo(cc, e, dbid);
+		return CatalogCache.INSTANCE.getConnectionInfo(dbid, () -> {
+			Catalog cc = CatalogInstance.INSTANCE.getCatalog();
+			Engine e = getEngineOfDB(dbid);
+			
+			return IslandAndCastResolver.getQConnectionInfo(cc, e, dbid);
+		});
 	}
 	
 	/**
@@ -116,6 +121,18 @@ public class CatalogViewer {
 		CatalogUtilities.checkConnection(cc);
 		if (inputs.size() == 0) throw new BigDawgCatalogException("Empty inputs from getDBMapping");
 		
+		String islandName = IslandAndCastResolver.getCatalogIslandSelectionPredicate(scope); 
+		
+		// objects registered elsewhere are not in the cache yet
+		HashMap<String, List<String>> extraction = CatalogCache.INSTANCE.getDBMappingByObj(inputs, islandName,
+				(missing) -> getDBMappingByObjFromCatalog(cc, missing, islandName));
+		
+		if (extraction.isEmpty()) throw new BigDawgCatalogException("Cannot find inputs: "+inputs+"; in scope: "+scope.name()+"\n");
+		
+		return extraction;
+	};
+	
+	private static HashMap<String,List<String>> getDBMappingByObjFromCatalog(Catalog cc, List<String> inputs, String islandName) throws SQLException {
 		int len = inputs.size();
 		HashMap<String, List<String>> extraction = new HashMap<>();
 		
@@ -125,8 +142,6 @@ public class CatalogViewer {
 		}
 		wherePred += ")";
 		
-		String islandName = IslandAndCastResolver.getCatalogIslandSelectionPredicate(scope); 
-		
 		ResultSet rs = null;
 		try {
 			rs = cc.execRet("select o.name obj, string_agg(cast(physical_db as varchar), ',') db, count(o.name) c, scope_name island "
@@ -148,10 +163,8 @@ public class CatalogViewer {
 			if (rs != null) rs.close();
 		}
 		
-		if (extraction.isEmpty()) throw new BigDawgCatalogException("Cannot find inputs: "+inputs+"; in scope: "+scope.name()+"\n");
-		
 		return extraction;
-	};
+	}
 	
 	/**
 	 * With a CSV String of terms, fetch those that stands for an object. Used
@@ -170,23 +183,27 @@ public class CatalogViewer {
 		if (csvstr.length() == 0)
 			return "";
 
-		String[] strs = csvstr.split(",");
-		int len = strs.length;
-		String extraction = new String("");
+		List<String> names = new ArrayList<>();
+		for (String str : csvstr.split(","))
+			names.add(str.trim());
+		
+		return CatalogCache.INSTANCE.getObjectsFromList(names, (missing) -> getObjectsFromCatalog(cc, missing));
+	}
+	
+	private static List<String> getObjectsFromCatalog(Catalog cc, List<String> names) throws SQLException {
+		List<String> extraction = new ArrayList<String>();
 
-		String wherePred = new String(" lower(o.name) = lower(\'" + strs[0].trim() + "\') ");
-		for (int i = 1; i < len; i++) {
-			wherePred = wherePred + "or lower(o.name) = lower(\'" + strs[i].trim() + "\') ";
+		String wherePred = new String(" lower(o.name) = lower(\'" + names.get(0) + "\') ");
+		for (int i = 1; i < names.size(); i++) {
+			wherePred = wherePred + "or lower(o.name) = lower(\'" + names.get(i) + "\') ";
 		}
 
 		ResultSet rs = null;
 		try {
 			rs = cc.execRet(
 					"select distinct o.name obj " + "from catalog.objects o " + "where " + wherePred + "order by o.name;");
-			if (rs.next())
-				extraction = extraction + rs.getString("obj");
 			while (rs.next()) {
-				extraction = extraction + "\t" + rs.getString("obj");
+				extraction.add(rs.getString("obj"));
 			}
 		} catch (SQLException e) {
 			cc.rollback();
@@ -252,6 +269,33 @@ public class CatalogViewer {
 	}
 	
 	
+	/**
+	 * @return the dbids of all the databases registered in the catalog
+	 * @throws BigDawgCatalogException
+	 * @throws SQLException
+	 */
+	public static List<Integer> getAllDbids() throws BigDawgCatalogException, SQLException {
+		Catalog cc = CatalogInstance.INSTANCE.getCatalog();
+		// input check
+		CatalogUtilities.checkConnection(cc);
+
+		List<Integer> extraction = new ArrayList<Integer>();
+
+		ResultSet rs = null;
+		try {
+			rs = cc.execRet("select dbid from catalog.databases order by dbid;");
+			while (rs.next()) {
+				extraction.add(rs.getInt("dbid"));
+			}
+		} catch (SQLException e) {
+			cc.rollback();
+			throw e;
+		} finally {
+			if (rs != null) rs.close();
+		}
+		return extraction;
+	}
+	
 	private static List<String> getAllEngines() throws Exception {
 		Catalog cc = CatalogInstance.INSTANCE.getCatalog();
 		// input check
@@ -412,12 +456,14 @@ public class CatalogViewer {
 		for (String objName : objs)
 			CatalogUtilities.checkLength(objName, 15);
 
+		return CatalogCache.INSTANCE.getOneStepCastsUseObjects(objs, (missing) -> getOneStepCastsUseObjectsFromCatalog(cc, missing));
+	}
+
+	private static List<String> getOneStepCastsUseObjectsFromCatalog(Catalog cc, List<String> objs) throws SQLException {
 		List<String> extraction = new ArrayList<String>();
-		List<String> objsdup = new ArrayList<String>();
-		objsdup.addAll(objs.subList(1, objs.size()));
 		String wherePred = new String(" o.name ilike \'%" + objs.get(0) + "%\' ");
-		for (String objName : objsdup) {
-			wherePred = wherePred + "or o.name ilike \'%" + objName + "%\' ";
+		for (int i = 1; i < objs.size(); i++) {
+			wherePred = wherePred + "or o.name ilike \'%" + objs.get(i) + "%\' ";
 		}
 
 		ResultSet rs = cc.execRet("select distinct o.name obj, e1.name src, e2.name dst, c.access_method "
@@ -459,16 +505,17 @@ public class CatalogViewer {
 		for (String eName : dst_e)
 			CatalogUtilities.checkLength(eName, 15);
 
+		return CatalogCache.INSTANCE.getOneStepCastsUseEngineNames(src_e, dst_e,
+				(src, dst) -> getOneStepCastsUseEngineNamesFromCatalog(cc, src, dst));
+	}
+
+	private static List<String> getOneStepCastsUseEngineNamesFromCatalog(Catalog cc, List<String> src_e, List<String> dst_e) throws SQLException {
 		List<String> extraction = new ArrayList<String>();
-		List<String> srcdup = new ArrayList<String>();
-		srcdup.addAll(src_e.subList(1, src_e.size()));
-		List<String> dstdup = new ArrayList<String>();
-		dstdup.addAll(dst_e.subList(1, dst_e.size()));
 		String wherePred = new String(
 				"(e1.name ilike \'%" + src_e.get(0) + "%\' and e2.name ilike \'%" + dst_e.get(0) + "%\') ");
-		for (String eName : srcdup) {
-			wherePred = wherePred + "or (e1.name ilike \'%" + eName + "%\' and e2.name ilike \'%"
-					+ dstdup.get(srcdup.indexOf(eName)) + "%\') ";
+		for (int i = 1; i < src_e.size(); i++) {
+			wherePred = wherePred + "or (e1.name ilike \'%" + src_e.get(i) + "%\' and e2.name ilike \'%"
+					+ dst_e.get(i) + "%\') ";
 		}
 
 		ResultSet rs = cc.execRet("select distinct e1.name src, e2.name dst, c.access_method "
@@ -508,16 +555,17 @@ public class CatalogViewer {
 		for (String dbName : dst_db)
 			CatalogUtilities.checkLength(dbName, 15);
 
+		return CatalogCache.INSTANCE.getOneStepCastsUseDbToDb(src_db, dst_db,
+				(src, dst) -> getOneStepCastsUseDbToDbFromCatalog(cc, src, dst));
+	}
+
+	private static List<String> getOneStepCastsUseDbToDbFromCatalog(Catalog cc, List<String> src_db, List<String> dst_db) throws SQLException {
 		List<String> extraction = new ArrayList<String>();
-		List<String> srcdup	 = new ArrayList<String>();
-		srcdup.addAll(src_db.subList(1, src_db.size()));
-		List<String> dstdup 	= new ArrayList<String>();
-		dstdup.addAll(dst_db.subList(1, dst_db.size()));
 		String wherePred = new String(
 				"(d1.name ilike \'%" + src_db.get(0) + "%\' and d2.name ilike \'%" + dst_db.get(0) + "%\') ");
-		for (String dbName : srcdup) {
-			wherePred = wherePred + "or (d1.name ilike \'%" + dbName + "%\' and d2.name ilike \'%"
-					+ dstdup.get(srcdup.indexOf(dbName)) + "%\') ";
+		for (int i = 1; i < src_db.size(); i++) {
+			wherePred = wherePred + "or (d1.name ilike \'%" + src_db.get(i) + "%\' and d2.name ilike \'%"
+					+ dst_db.get(i) + "%\') ";
 		}
 
 		ResultSet rs = cc.execRet(
@@ -562,16 +610,17 @@ public class CatalogViewer {
 		for (String iName : islands)
 			CatalogUtilities.checkLength(iName, 15);
 
+		return CatalogCache.INSTANCE.getOneStepCastDbsUseObjectsIslands(objs, islands,
+				(o, i) -> getOneStepCastDbsUseObjectsIslandsFromCatalog(cc, o, i));
+	}
+
+	private static List<String> getOneStepCastDbsUseObjectsIslandsFromCatalog(Catalog cc, List<String> objs, List<String> islands) throws SQLException {
 		List<String> extraction = new ArrayList<String>();
-		List<String> objdup = new ArrayList<String>();
-		objdup.addAll(objs.subList(1, objs.size()));
-		List<String> isldup = new ArrayList<String>();
-		isldup.addAll(islands.subList(1, islands.size()));
 		String wherePred = new String(
 				"(o.name ilike \'%" + objs.get(0) + "%\' and i.scope_name ilike \'%" + islands.get(0) + "%\') ");
-		for (String objName : objdup) {
-			wherePred = wherePred + "or (o.name ilike \'%" + objName + "%\' and i.scope_name ilike \'%"
-					+ isldup.get(objdup.indexOf(objName)) + "%\') ";
+		for (int i = 1; i < objs.size(); i++) {
+			wherePred = wherePred + "or (o.name ilike \'%" + objs.get(i) + "%\' and i.scope_name ilike \'%"
+					+ islands.get(i) + "%\') ";
 		}
 
 		ResultSet rs = cc
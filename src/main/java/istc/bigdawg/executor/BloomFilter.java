@@ -0,0 +1,101 @@
+package istc.bigdawg.executor;
+
+/**
+ * A Bloom filter over the join keys of an operand, which can be evaluated by PostgreSQL.
+ *
+ * The keys are not hashed in Java: each key is given by two 32-bit hashes computed by PostgreSQL (see
+ * {@link #HASH1} and {@link #HASH2}), so the engine which builds the filter and the engine which evaluates it hash
+ * the keys the same way. The keys are hashed by their text form, so only the keys whose equal values have the same text
+ * form can be added (see {@link SemiJoinReduction#isReducible(long)}). The positions of the bits of a key are derived from the two hashes by double hashing and
+ * the bits are stored in the order of the PostgreSQL function get_bit (bit n is the bit n % 8 of the byte n / 8).
+ */
+class BloomFilter {
+    /** The first hash of the key (an SQL expression, %s is the key). */
+    static final String HASH1 = "hashtext((%s)::text)";
+
+    /** The second hash of the key (an SQL expression, %s is the key). */
+    static final String HASH2 = "hashtext((%s)::text || ':')";
+
+    private final byte[] bits;
+    private final int numBits;
+    private final int numHashes;
+
+    /**
+     * @param expectedKeys
+     *            number of distinct keys which will be added to the filter
+     * @param falsePositiveRate
+     *            the probability that a key which was not added passes the filter
+     */
+    BloomFilter(long expectedKeys, double falsePositiveRate) {
+        double ln2 = Math.log(2);
+        long optimalBits = (long) Math.ceil(-Math.max(1, expectedKeys) * Math.log(falsePositiveRate) / (ln2 * ln2));
+        // whole bytes, so the filter can be sent as a bytea value
+        this.numBits = (int) Math.min(Integer.MAX_VALUE - 7, Math.max(64, (optimalBits + 7) / 8 * 8));
+        this.numHashes = (int) Math.max(1, Math.round((double) numBits / Math.max(1, expectedKeys) * ln2));
+        this.bits = new byte[numBits / 8];
+    }
+
+    private long getPosition(int hash1, int hash2, int i) {
+        return Math.floorMod(hash1 + (long) i * hash2, (long) numBits);
+    }
+
+    void add(int hash1, int hash2) {
+        for (int i = 0; i < numHashes; i++) {
+            long position = getPosition(hash1, hash2, i);
+            bits[(int) (position >>> 3)] |= 1 << (position & 7);
+        }
+    }
+
+    boolean mightContain(int hash1, int hash2) {
+        for (int i = 0; i < numHashes; i++) {
+            long position = getPosition(hash1, hash2, i);
+            if ((bits[(int) (position >>> 3)] & (1 << (position & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int getNumBits() {
+        return numBits;
+    }
+
+    int getNumHashes() {
+        return numHashes;
+    }
+
+    /**
+     * @return the filter as a PostgreSQL bytea expression
+     */
+    String toPostgreSQLBytea() {
+        StringBuilder hex = new StringBuilder(bits.length * 2 + 32);
+        hex.append("decode('");
+        for (byte b : bits) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.append("', 'hex')").toString();
+    }
+
+    /**
+     * @param filter
+     *            the SQL expression with the filter (see {@link #toPostgreSQLBytea()})
+     * @param key
+     *            the SQL expression with the key
+     * @return the condition which is true for the keys which might have been added to the filter (null keys do not
+     *         pass the filter)
+     */
+    String getPostgreSQLCondition(String filter, String key) {
+        String hash1 = String.format(HASH1, key);
+        String hash2 = String.format(HASH2, key);
+        StringBuilder condition = new StringBuilder();
+        for (int i = 0; i < numHashes; i++) {
+            if (i > 0) {
+                condition.append(" AND ");
+            }
+            // the remainder in PostgreSQL has the sign of the dividend, as in Java
+            condition.append(String.format("get_bit(%s, ((((%s)::bigint + %d * (%s)::bigint) %% %d + %d) %% %d)::int) = 1",
+                    filter, hash1, i, hash2, numBits, numBits, numBits));
+        }
+        return condition.toString();
+    }
+}
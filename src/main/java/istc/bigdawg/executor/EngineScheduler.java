@@ -0,0 +1,206 @@
+package istc.bigdawg.executor;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.jcabi.log.VerboseThreads;
+
+import istc.bigdawg.properties.BigDawgConfigProperties;
+import istc.bigdawg.query.ConnectionInfo;
+
+/**
+ * Dispatches tasks that are ready to run (all of their dependencies have
+ * completed) onto a shared thread pool, while bounding the number of tasks
+ * that run concurrently against any single engine. Tasks submitted beyond the
+ * limit wait in a per-engine FIFO queue and are started as soon as a running
+ * task for the same engine finishes.
+ *
+ * Queue depth and the time spent waiting in the queue are tracked per engine.
+ */
+public class EngineScheduler {
+    static final EngineScheduler INSTANCE = new EngineScheduler(
+            BigDawgConfigProperties.INSTANCE.getExecutorEngineConcurrency());
+
+    private final ExecutorService threadPool = java.util.concurrent.Executors.newCachedThreadPool(new VerboseThreads());
+    private final Map<ConnectionInfo, EngineQueue> queues = new ConcurrentHashMap<>();
+    private final int concurrencyPerEngine;
+
+    /**
+     * @param concurrencyPerEngine
+     *            the maximum number of tasks that can run at the same time
+     *            against a single engine
+     */
+    EngineScheduler(int concurrencyPerEngine) {
+        this.concurrencyPerEngine = Math.max(1, concurrencyPerEngine);
+    }
+
+    /**
+     * @return the scheduler shared by all the plans executed in this instance
+     */
+    public static EngineScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs the task against the given engine, as soon as the engine has a free
+     * slot.
+     *
+     * @param engine
+     *            the engine the task is going to query
+     * @param task
+     *            the work to be done
+     * @return a future that completes with the result of the task
+     */
+    <T> CompletableFuture<T> submit(ConnectionInfo engine, Supplier<T> task) {
+        return queues.computeIfAbsent(engine, e -> new EngineQueue()).submit(task);
+    }
+
+    /**
+     * Runs the task on the shared thread pool without taking a slot of any
+     * engine. Used for tasks that only coordinate the work of other tasks (and
+     * therefore would deadlock if they held a slot while waiting on them).
+     */
+    <T> CompletableFuture<T> submitUnbounded(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, threadPool);
+    }
+
+    /**
+     * @return the maximum number of tasks that run concurrently per engine
+     */
+    public int getConcurrencyPerEngine() {
+        return concurrencyPerEngine;
+    }
+
+    /**
+     * @return the number of tasks waiting for a free slot of the engine
+     */
+    public int getQueueDepth(ConnectionInfo engine) {
+        final EngineQueue queue = queues.get(engine);
+        return queue == null ? 0 : queue.getQueueDepth();
+    }
+
+    /**
+     * @return the number of tasks currently running against the engine
+     */
+    public int getRunning(ConnectionInfo engine) {
+        final EngineQueue queue = queues.get(engine);
+        return queue == null ? 0 : queue.getRunning();
+    }
+
+    /**
+     * @return the average time (in ms) that the tasks for the engine waited
+     *         in the queue before they were started
+     */
+    public double getAverageWaitTime(ConnectionInfo engine) {
+        final EngineQueue queue = queues.get(engine);
+        return queue == null ? 0 : queue.getAverageWaitTime();
+    }
+
+    /**
+     * @return the longest time (in ms) that a task for the engine waited in
+     *         the queue before it was started
+     */
+    public long getMaxWaitTime(ConnectionInfo engine) {
+        final EngineQueue queue = queues.get(engine);
+        return queue == null ? 0 : queue.getMaxWaitTime();
+    }
+
+    /**
+     * @return the queue depth of every engine that has been used so far
+     */
+    public Map<ConnectionInfo, Integer> getQueueDepths() {
+        final Map<ConnectionInfo, Integer> depths = new HashMap<>();
+        queues.forEach((engine, queue) -> depths.put(engine, queue.getQueueDepth()));
+        return Collections.unmodifiableMap(depths);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("EngineScheduler {");
+        queues.forEach((engine, queue) -> sb.append(String.format(" [%s:%s running: %d, queued: %d, avg wait: %.1f ms, max wait: %d ms]",
+                engine.getHost(), engine.getPort(), queue.getRunning(), queue.getQueueDepth(),
+                queue.getAverageWaitTime(), queue.getMaxWaitTime())));
+        return sb.append(" }").toString();
+    }
+
+    /**
+     * Slots and pending tasks of a single engine.
+     */
+    private class EngineQueue {
+        private final Queue<Runnable> pending = new ArrayDeque<>();
+        private int running = 0;
+
+        private long started = 0;
+        private long totalWaitNanos = 0;
+        private long maxWaitNanos = 0;
+
+        <T> CompletableFuture<T> submit(Supplier<T> task) {
+            final CompletableFuture<T> result = new CompletableFuture<>();
+            final long enqueued = System.nanoTime();
+
+            final Runnable runnable = () -> {
+                recordWait(System.nanoTime() - enqueued);
+                try {
+                    result.complete(task.get());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    release();
+                }
+            };
+
+            synchronized (this) {
+                if (running < concurrencyPerEngine) {
+                    running++;
+                    threadPool.execute(runnable);
+                } else {
+                    pending.add(runnable);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Hands the slot of a finished task over to the next pending task, or
+         * frees it if nothing is waiting.
+         */
+        private synchronized void release() {
+            final Runnable next = pending.poll();
+            if (next != null) {
+                threadPool.execute(next);
+            } else {
+                running--;
+            }
+        }
+
+        private synchronized void recordWait(long waitNanos) {
+            started++;
+            totalWaitNanos += waitNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+        }
+
+        synchronized int getQueueDepth() {
+            return pending.size();
+        }
+
+        synchronized int getRunning() {
+            return running;
+        }
+
+        synchronized double getAverageWaitTime() {
+            return started == 0 ? 0 : (double) TimeUnit.NANOSECONDS.toMicros(totalWaitNanos) / started / 1000;
+        }
+
+        synchronized long getMaxWaitTime() {
+            return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+        }
+    }
+}
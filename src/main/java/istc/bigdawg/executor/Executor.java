@@ -17,6 +17,15 @@ public class Executor {
         return new PlanExecutor(plan).executePlan(Optional.of(new ImmutablePair<>(sig, index))).orElse(null);
     }
 
+    /**
+     * Executes the plan and returns the final result as a {@link StreamingQueryResult}
+     * when the terminal engine supports it. The caller has to consume or close the
+     * result: the intermediate tables of the plan are dropped only then.
+     */
+    public static QueryResult executePlanStreaming(QueryExecutionPlan plan, Signature sig, int index) throws ExecutorEngine.LocalQueryExecutionException, MigrationException {
+        return new PlanExecutor(plan, true).executePlan(Optional.of(new ImmutablePair<>(sig, index))).orElse(null);
+    }
+
     public static QueryResult executePlan(QueryExecutionPlan plan) throws ExecutorEngine.LocalQueryExecutionException, MigrationException {
         return new PlanExecutor(plan).executePlan(Optional.empty()).orElse(null);
     }
@@ -7,8 +7,26 @@ import java.util.Optional;
  */
 public interface ExecutorEngine {
     Optional<QueryResult> execute(String query) throws LocalQueryExecutionException;
+
+    /**
+     * Executes the query without reading the returned rows into memory: they are
+     * fetched in batches of fetchSize rows while the caller consumes the result,
+     * which must be closed afterwards (see {@link StreamingQueryResult}). Engines
+     * that cannot stream their results fall back to {@link #execute(String)}.
+     */
+    default Optional<QueryResult> executeStreaming(String query, int fetchSize) throws LocalQueryExecutionException {
+        return execute(query);
+    }
     
     void dropDataSetIfExists(String dataSetName) throws Exception;
+
+    /**
+     * Cancels the query that is being executed by this engine (called from a
+     * different thread than the one blocked in {@link #execute(String)}). Engines
+     * that cannot interrupt a running query ignore the request.
+     */
+    default void cancel() {
+    }
     
     class LocalQueryExecutionException extends Exception {
 		
@@ -6,12 +6,14 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -27,18 +29,25 @@ import com.jcabi.log.VerboseThreads;
 import istc.bigdawg.exceptions.MigrationException;
 import istc.bigdawg.executor.plan.BinaryJoinExecutionNode;
 import istc.bigdawg.executor.plan.ExecutionNode;
+import istc.bigdawg.executor.plan.LocalQueryExecutionNode;
 import istc.bigdawg.executor.plan.QueryExecutionPlan;
 import istc.bigdawg.executor.shuffle.ShuffleJoinExecutor;
+import istc.bigdawg.migration.FromPostgresQueryToPostgres;
 import istc.bigdawg.migration.MigrationResult;
 import istc.bigdawg.migration.Migrator;
 import istc.bigdawg.monitoring.Monitor;
+import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
+import istc.bigdawg.properties.BigDawgConfigProperties;
 import istc.bigdawg.query.ConnectionInfo;
 import istc.bigdawg.signature.Signature;
 
 /**
+ * Executes a single QueryExecutionPlan. A failure of any node or migration fails
+ * the whole plan right away: the remaining nodes are not executed, in-flight
+ * queries are cancelled and the intermediate results are dropped.
+ *
  * TODO:
  *   shuffle joins
- *   better exception/error handling in the event of failure
  *
  * @author ankush
  */
@@ -49,9 +58,16 @@ class PlanExecutor {
     private final Multimap<ExecutionNode, ConnectionInfo> resultLocations = Multimaps.synchronizedSetMultimap(HashMultimap.create());
     private final Multimap<ConnectionInfo, String> temporaryTables = Multimaps.synchronizedSetMultimap(HashMultimap.create());
     private final Map<Pair<String, ConnectionInfo>, CompletableFuture<MigrationResult>> migrations = new ConcurrentHashMap<>();
-    private final Map<ExecutionNode, CountDownLatch> locks = new ConcurrentHashMap<>();
+    private final Map<ExecutionNode, AtomicInteger> pendingDependencies = new ConcurrentHashMap<>();
+    private final Map<ExecutionNode, CompletableFuture<Optional<QueryResult>>> nodeResults = new ConcurrentHashMap<>();
+    private final Map<ExecutionNode, ExecutorEngine> runningQueries = new ConcurrentHashMap<>();
+    private final Map<ExecutionNode, FromPostgresQueryToPostgres> runningStreams = new ConcurrentHashMap<>();
+    private final Map<ExecutionNode, SemiJoinReduction> semiJoinReductions = new ConcurrentHashMap<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final EngineScheduler scheduler = EngineScheduler.INSTANCE;
 
     private final QueryExecutionPlan plan;
+    private final boolean streamResult;
 
     /**
      * Class responsible for handling the execution of a single QueryExecutionPlan
@@ -61,7 +77,21 @@ class PlanExecutor {
      *            with edges pointing to dependencies
      */
     public PlanExecutor(QueryExecutionPlan plan) {
+        this(plan, false);
+    }
+
+    /**
+     * @param plan
+     *            a data structure of the queries to be run and their ordering,
+     *            with edges pointing to dependencies
+     * @param streamResult
+     *            if true, the result of the terminal node is returned as a
+     *            {@link StreamingQueryResult} (when its engine supports it) and
+     *            the temporary tables are dropped only once it is closed
+     */
+    public PlanExecutor(QueryExecutionPlan plan, boolean streamResult) {
         this.plan = plan;
+        this.streamResult = streamResult;
         Logger.info(this, "PlanExecutor received plan %s", plan.getSerializedName());
         if (plan.vertexSet().isEmpty()) System.out.printf("\n---> vertex set is empty\n");
 
@@ -77,11 +107,12 @@ class PlanExecutor {
                     .filter(Optional::isPresent).map(Optional::get).map(s -> s.replaceAll("[\"']", "*"))
                     .collect(Collectors.joining(" \n ---- then ---- \n ")));
         
-        // initialize countdown latches to the proper counts
+        // initialize dependency counters to the proper counts
         for(ExecutionNode node : plan) {
-            int latchSize = plan.inDegreeOf(node);
-            Logger.debug(this, "Node %s lock initialized with %d dependencies", node, latchSize);
-            this.locks.put(node, new CountDownLatch(latchSize));
+            int dependencies = plan.inDegreeOf(node);
+            Logger.debug(this, "Node %s initialized with %d dependencies", node, dependencies);
+            this.pendingDependencies.put(node, new AtomicInteger(dependencies));
+            this.nodeResults.put(node, new CompletableFuture<>());
         }
     }
 
@@ -93,11 +124,15 @@ class PlanExecutor {
         Logger.info(this, "Executing query plan %s...", plan.getSerializedName());
 
         CompletableFuture<Optional<QueryResult>> finalResult = CompletableFuture.completedFuture(Optional.empty());
-        for (ExecutionNode node : plan) {
-            CompletableFuture<Optional<QueryResult>> result = CompletableFuture.supplyAsync(() -> this.executeNode(node), threadPool);
+        if (plan.getTerminalTableNode() != null && nodeResults.containsKey(plan.getTerminalTableNode())) {
+            finalResult = nodeResults.get(plan.getTerminalTableNode());
+        }
 
-            if (plan.getTerminalTableNode().equals(node)) {
-                finalResult = result;
+        // only the nodes without dependencies can start right away, the rest are
+        // dispatched by markNodeAsCompleted once their last dependency completes
+        for (ExecutionNode node : plan) {
+            if (pendingDependencies.get(node).get() == 0) {
+                dispatchNode(node);
             }
         }
 
@@ -107,6 +142,7 @@ class PlanExecutor {
             result = finalResult.get();
         } catch (InterruptedException e) {
             Logger.error(this, "Execution of query plan %s was interrupted: %[exception]s", plan.getSerializedName(), e);
+            failPlan(plan.getTerminalTableNode(), e);
             Thread.currentThread().interrupt();
         } catch (ExecutionException e) {
             Logger.error(this, "Error retrieving results of final query node %s: %[exception]s", plan.getSerializedName(), e);
@@ -118,11 +154,26 @@ class PlanExecutor {
 //		} catch (IOException e1) {
 //			e1.printStackTrace();
 //		}
-        dropTemporaryTables();
+        final Optional<StreamingQueryResult> stream = result
+                .filter(r -> r instanceof StreamingQueryResult)
+                .map(r -> (StreamingQueryResult) r);
+        if (stream.isPresent() && !isFailed()) {
+            // the cursor still reads from the intermediate tables, drop them once the result is consumed
+            stream.get().onClose(this::dropTemporaryTablesQuietly);
+        } else {
+            stream.ifPresent(StreamingQueryResult::close);
+            dropTemporaryTables();
+        }
+
+        if (isFailed()) {
+            throw new ExecutorEngine.LocalQueryExecutionException(
+                    String.format("Execution of query plan %s failed", plan.getSerializedName()), failure.get());
+        }
 
         // Log timing results
         final long end = System.currentTimeMillis();
         Logger.info(this, "Finished executing query plan %s, in %d ms.", plan.getSerializedName(), (end - start));
+        Logger.debug(this, "Scheduler state after query plan %s: %s", plan.getSerializedName(), scheduler);
         if (reportValues.isPresent()) {
             Logger.info(this, "Sending timing to monitor...");
             try {
@@ -137,81 +188,313 @@ class PlanExecutor {
         return result;
     }
     
+    /**
+     * Hands the node over to the scheduler. Must only be called once all of the
+     * node's dependencies have completed.
+     *
+     * @param node the ExecutionNode ready to be executed
+     */
+    private void dispatchNode(ExecutionNode node) {
+        Logger.debug(this, "Dispatching node %s to %s (%d queued for this engine)", node, node.getEngine(), scheduler.getQueueDepth(node.getEngine()));
+
+        // shuffle joins execute a plan of their own, so they must not hold a slot of the engine while they wait for it
+        final CompletableFuture<Optional<QueryResult>> execution = isShuffleJoin(node)
+                ? scheduler.submitUnbounded(() -> this.executeNode(node))
+                : scheduler.submit(node.getEngine(), () -> this.executeNode(node));
+
+        final CompletableFuture<Optional<QueryResult>> result = nodeResults.get(node);
+        execution.whenComplete((r, e) -> {
+            if (e != null) {
+                // an unexpected error of the node must not leave its dependants waiting forever
+                final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                Logger.error(this, "Unexpected error executing node %s: %[exception]s", node, cause);
+                failPlan(node, cause);
+                result.completeExceptionally(cause);
+            } else {
+                result.complete(r);
+            }
+        });
+    }
+
+    private static boolean isShuffleJoin(ExecutionNode node) {
+        if (node instanceof BinaryJoinExecutionNode) {
+            BinaryJoinExecutionNode joinNode = (BinaryJoinExecutionNode) node;
+            return joinNode.isEquiJoin() && joinNode.getHint().orElse(BinaryJoinExecutionNode.JoinAlgorithms.BROADCAST) == BinaryJoinExecutionNode.JoinAlgorithms.SHUFFLE;
+        }
+        return false;
+    }
+
     private Optional<QueryResult> executeNode(ExecutionNode node) {
 
         // perform shuffle join if equijoin and hint doesn't specify otherwise
-        if (node instanceof BinaryJoinExecutionNode) {
+        if (isShuffleJoin(node)) {
             BinaryJoinExecutionNode joinNode = (BinaryJoinExecutionNode) node;
-            if(joinNode.isEquiJoin() && joinNode.getHint().orElse(BinaryJoinExecutionNode.JoinAlgorithms.BROADCAST) == BinaryJoinExecutionNode.JoinAlgorithms.SHUFFLE) {
-                try {
-                    Logger.info(this, "Attempting to perform Shuffle Join for %s...", joinNode.getTableName().get());
-                    Optional<QueryResult> result = new ShuffleJoinExecutor(joinNode).execute();
-                    Logger.info(this, "Completed Shuffle Join for %s!", joinNode.getTableName().get());
-                    markNodeAsCompleted(node);
-                    return result;
-                } catch (Exception e) {
-                    Logger.error(this, "Error executing Shuffle Join for %s: %[exception]s", joinNode, e);
-                    return Optional.empty();
-                }
+            try {
+                Logger.info(this, "Attempting to perform Shuffle Join for %s...", joinNode.getTableName().get());
+                Optional<QueryResult> result = new ShuffleJoinExecutor(joinNode).execute();
+                Logger.info(this, "Completed Shuffle Join for %s!", joinNode.getTableName().get());
+                markNodeAsCompleted(node);
+                return result;
+            } catch (Exception e) {
+                Logger.error(this, "Error executing Shuffle Join for %s: %[exception]s", joinNode, e);
+                failPlan(node, e);
+                return Optional.empty();
             }
         }
 
         // otherwise execute as local query execution (same as broadcast join)
-        // colocate dependencies, blocking until completed
-        colocateDependencies(node, Collections.emptySet());
+        if (node instanceof BinaryJoinExecutionNode) {
+            reduceJoinOperand((BinaryJoinExecutionNode) node);
+        }
 
-        Logger.debug(this, "Executing query node %s...", node);
+        // colocate dependencies, blocking until the migrations are completed
         try {
+            colocateDependencies(node, Collections.emptySet());
+        } catch (CompletionException | CancellationException e) {
+            Logger.error(this, "Error colocating dependencies of node %s: %[exception]s", node, e);
+            failPlan(node, e);
+            return Optional.empty();
+        }
+
+        final Optional<ExecutionNode> consumer = getPipelineConsumer(node);
+        if (consumer.isPresent()) {
+            return streamNode(node, consumer.get());
+        }
+
+        if (!node.getQueryString().isPresent()) {
+            // a node without a query (e.g. a TableExecutionNode) refers to a table which already exists
+            Logger.debug(this, "Node %s has no query to execute", node);
+            markNodeAsCompleted(node);
+            return Optional.empty();
+        }
+
+        Logger.debug(this, "Executing query node %s...", node);
         return node.getQueryString().flatMap((query) -> {
             try {
-                final Optional<QueryResult> result = node.getEngine().getLocalQueryExecutor().execute(query);
+                final ExecutorEngine engine = node.getEngine().getLocalQueryExecutor();
+
+                // register the engine before checking for failure, so failPlan either sees it or we see the failure
+                runningQueries.put(node, engine);
+                final Optional<QueryResult> result;
+                try {
+                    if (isFailed()) {
+                        Logger.debug(this, "Not executing node %s because query plan %s has failed", node, plan.getSerializedName());
+                        return Optional.empty();
+                    }
+                    if (streamResult && node.equals(plan.getTerminalTableNode())) {
+                        result = engine.executeStreaming(query, BigDawgConfigProperties.INSTANCE.getExecutorResultFetchSize());
+                    } else {
+                        result = engine.execute(query);
+                    }
+                } finally {
+                    runningQueries.remove(node);
+                }
+
                 Logger.info(this, "Successfully executed node %s", node);
+                markNodeAsCompleted(node);
+                if (isFailed() && result.isPresent() && result.get() instanceof StreamingQueryResult) {
+                    // nobody is going to read the result of a failed plan
+                    ((StreamingQueryResult) result.get()).close();
+                }
                 return result;
             } catch (ConnectionInfo.LocalQueryExecutorLookupException e) {
                 Logger.error(this, "Error looking up ExecutorEngine for node %s: %[exception]s", node, e);
+                failPlan(node, e);
                 return Optional.empty();
             } catch (ExecutorEngine.LocalQueryExecutionException e) {
                 Logger.error(this, "Error executing node %s: %[exception]s", node, e);
+                failPlan(node, e);
                 return Optional.empty();
-            } finally {
-                // TODO: if error is actually bad, don't markNodeAsCompleted, and instead fail the QEP gracefully.
-                markNodeAsCompleted(node);
             }
         });
+    }
+
+    /**
+     * @return the only dependant of the node, if the result of the node should be streamed straight to the engine of
+     * the dependant (see {@link #streamNode}): both engines are PostgreSQL instances and the node creates its table
+     * with a SELECT INTO statement
+     */
+    private Optional<ExecutionNode> getPipelineConsumer(ExecutionNode node) {
+        if (!BigDawgConfigProperties.INSTANCE.isExecutorPipelinedMigration() || node.equals(plan.getTerminalTableNode())
+                || !(node instanceof LocalQueryExecutionNode) || !(node.getEngine() instanceof PostgreSQLConnectionInfo)
+                || !node.getQueryString().isPresent() || !node.getTableName().isPresent()) {
+            return Optional.empty();
+        }
+        final Collection<ExecutionNode> dependants = plan.getDependents(node);
+        if (dependants.size() != 1) {
+            return Optional.empty();
+        }
+        final ExecutionNode consumer = dependants.iterator().next();
+        if (isShuffleJoin(consumer) || !(consumer.getEngine() instanceof PostgreSQLConnectionInfo)
+                || consumer.getEngine().equals(node.getEngine())
+                || !FromPostgresQueryToPostgres.getQueryOfSelectInto(node.getQueryString().get(), node.getTableName().get()).isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(consumer);
+    }
+
+    /**
+     * Executes the query of the node with COPY (query) TO STDOUT and loads its rows straight to the table of the node
+     * on the engine of the consumer, instead of storing the result on the engine of the node and migrating it when
+     * the consumer is dispatched. The consumer finds the result already colocated.
+     */
+    private Optional<QueryResult> streamNode(ExecutionNode node, ExecutionNode consumer) {
+        final String table = node.getTableName().get();
+        final String query = FromPostgresQueryToPostgres.getQueryOfSelectInto(node.getQueryString().get(), table).get();
+        final FromPostgresQueryToPostgres stream = new FromPostgresQueryToPostgres((PostgreSQLConnectionInfo) node.getEngine(), query,
+                (PostgreSQLConnectionInfo) consumer.getEngine(), table);
+
+        // register the stream before checking for failure, so failPlan either cancels it or we see the failure
+        runningStreams.put(node, stream);
+        final MigrationResult result;
+        try {
+            if (isFailed()) {
+                Logger.debug(this, "Not executing node %s because query plan %s has failed", node, plan.getSerializedName());
+                return Optional.empty();
+            }
+            Logger.debug(this, "Streaming the result of node %s to %s...", node, consumer.getEngine());
+            result = stream.migrate();
         } catch (Exception e) {
-        	e.printStackTrace();
-        	throw e;
+            Logger.error(this, "Error streaming the result of node %s to %s: %[exception]s", node, consumer.getEngine(), e);
+            failPlan(node, e);
+            return Optional.empty();
+        } finally {
+            runningStreams.remove(node);
         }
+
+        Logger.info(this, "Successfully streamed the result of node %s to %s: %s", node, consumer.getEngine(), result);
+        markNodeAsCompleted(node, consumer.getEngine());
+        return Optional.empty();
     }
 
     private void markNodeAsCompleted(ExecutionNode node) {
+        markNodeAsCompleted(node, node.getEngine());
+    }
+
+    /**
+     * @param location the engine which stores the result of the node
+     */
+    private void markNodeAsCompleted(ExecutionNode node, ConnectionInfo location) {
         Logger.debug(this, "Completed execution of %s.", node);
 
+        // the table of a node without a query is not an intermediate result, it must not be dropped
+        final Optional<String> intermediateTable = node.getQueryString().isPresent() ? node.getTableName() : Optional.empty();
+
+        if (isFailed()) {
+            // the plan failed while this node was running: nothing depends on its result anymore
+            intermediateTable.ifPresent((table) -> temporaryTables.put(location, table));
+            dropTemporaryTablesQuietly();
+            return;
+        }
+
         if (!plan.getTerminalTableNode().equals(node)) {
             // clean up the intermediate table later
-            node.getTableName().ifPresent((table) -> temporaryTables.put(node.getEngine(), table));
+            intermediateTable.ifPresent((table) -> temporaryTables.put(location, table));
 
-            // update nodeLocations to reflect that the results are located on this node's engine
-            resultLocations.put(node, node.getEngine());
+            // update nodeLocations to reflect that the results are located on this engine
+            resultLocations.put(node, location);
 
             final Collection<ExecutionNode> dependants = plan.getDependents(node);
             Logger.debug(this, "Examining dependants %s of %s", dependants, node);
 
             for (ExecutionNode dependent : dependants) {
-                Logger.debug(this, "Decrementing lock of %s because %s completed.", dependent, node);
-                this.locks.get(dependent).countDown();
-                Logger.debug(this, "%s is now waiting on %d dependencies.", dependent, this.locks.get(dependent).getCount());
+                final int remaining = this.pendingDependencies.get(dependent).decrementAndGet();
+                Logger.debug(this, "%s is now waiting on %d dependencies because %s completed.", dependent, remaining, node);
+                if (remaining == 0) {
+                    dispatchNode(dependent);
+                }
             }
 
             Logger.debug(this, "Completed examination of dependants %s of %s", dependants, node);
         }
     }
 
+    private boolean isFailed() {
+        return failure.get() != null;
+    }
+
+    /**
+     * Fails the whole plan because of an error in the given node. The nodes that
+     * have not been dispatched yet will never be, the queued ones skip their work,
+     * pending migrations are cancelled and the queries that are still running are
+     * interrupted. Only the first failure is recorded.
+     *
+     * @param node the ExecutionNode that failed
+     * @param cause the reason of the failure
+     */
+    private void failPlan(ExecutionNode node, Throwable cause) {
+        if (!failure.compareAndSet(null, cause)) {
+            return;
+        }
+        Logger.error(this, "Node %s failed, cancelling the rest of query plan %s: %[exception]s", node, plan.getSerializedName(), cause);
+
+        // unblocks executePlan (and with it the cleanup of the temporary tables) right away
+        for (CompletableFuture<Optional<QueryResult>> result : nodeResults.values()) {
+            result.completeExceptionally(cause);
+        }
+
+        synchronized (migrations) {
+            for (CompletableFuture<MigrationResult> migration : migrations.values()) {
+                migration.cancel(true);
+            }
+        }
+
+        for (Map.Entry<ExecutionNode, ExecutorEngine> running : runningQueries.entrySet()) {
+            Logger.debug(this, "Cancelling in-flight query of node %s", running.getKey());
+            running.getValue().cancel();
+        }
+
+        for (Map.Entry<ExecutionNode, FromPostgresQueryToPostgres> running : runningStreams.entrySet()) {
+            Logger.debug(this, "Cancelling the stream of the result of node %s", running.getKey());
+            running.getValue().cancel();
+        }
+    }
+
+    /**
+     * Drops the temporary tables, logging instead of throwing errors. Used for the
+     * clean up that happens outside of executePlan: results of work that finished
+     * after the plan had already failed, or intermediate tables kept until a
+     * streamed result has been read.
+     */
+    private void dropTemporaryTablesQuietly() {
+        try {
+            dropTemporaryTables();
+        } catch (ExecutorEngine.LocalQueryExecutionException e) {
+            Logger.error(this, "Error cleaning up after failed query plan %s: %[exception]s", plan.getSerializedName(), e);
+        }
+    }
+
+
+    /**
+     * Filters the larger operand of the join with the join keys of the smaller one before it is migrated (see
+     * {@link SemiJoinReduction}); the whole operand is migrated if it cannot be reduced.
+     *
+     * @param node the join whose dependencies are about to be colocated
+     */
+    private void reduceJoinOperand(BinaryJoinExecutionNode node) {
+        // the result of a dependency streamed to the engine of the join is not on the engine of the dependency
+        if (plan.getDependencies(node).stream()
+                .anyMatch(d -> !d.getEngine().equals(node.getEngine()) && resultLocations.containsEntry(d, node.getEngine()))) {
+            return;
+        }
+        try {
+            SemiJoinReduction.reduce(plan, node).ifPresent((reduction) -> {
+                temporaryTables.put(reduction.dependency.getEngine(), reduction.reducedTable);
+                semiJoinReductions.put(reduction.dependency, reduction);
+            });
+        } catch (SQLException e) {
+            Logger.warn(this, "Could not reduce the operands of %s, migrating them as they are: %[exception]s", node, e);
+        }
+    }
 
     /**
      * Colocates the dependencies for the given ExecutionNode onto that node's engine.
      *
-     * Waits for any incomplete dependencies, and blocks the current thread until completion.
+     * Must only be called once all of the dependencies have been executed; blocks
+     * the current thread until their results are migrated.
+     *
+     * @throws CompletionException if any of the migrations failed
+     * @throws CancellationException if the migrations were cancelled because the plan failed
      *
      * @param node the ExecutionNOde whose dependencies we want to colocate
      * @param ignoreTables table names that we wish to ignore
@@ -219,17 +502,6 @@ class PlanExecutor {
     private void colocateDependencies(ExecutionNode node, final Collection<String> ignoreTables) {
         final Collection<String> ignoreCopy = new HashSet<>(ignoreTables);
 
-        // Block until dependencies are all resolved
-        try {
-            Logger.debug(this, "Waiting for %d dependencies of query node %s to be resolved...", this.locks.get(node).getCount(), node);
-            while(!this.locks.get(node).await(10, TimeUnit.SECONDS)) {
-                Logger.debug(this, "Still waiting for %d dependencies of query node %s to be resolved...", this.locks.get(node).getCount(), node);
-            }
-        } catch (InterruptedException e) {
-            Logger.error(this, "Execution of query node %s was interrupted while waiting for dependencies: %[exception]s", node, e);
-            Thread.currentThread().interrupt();
-        }
-
         Logger.debug(this, "Colocating dependencies of %s to\n%s", node, node.getEngine());
 
         ignoreCopy.addAll(plan.getDependencies(node).stream()
@@ -271,6 +543,9 @@ class PlanExecutor {
             synchronized (migrations) {
                 if (!migrations.containsKey(migrationKey)) {
                    final CompletableFuture<MigrationResult> migration = CompletableFuture.supplyAsync(() -> {
+                        if (isFailed()) {
+                            throw new CancellationException(String.format("Query plan %s has failed", plan.getSerializedName()));
+                        }
                         Logger.debug(PlanExecutor.this, "Started migrating dependency %s of node %s", d, node);
                         final MigrationResult result = colocateSingleDependency(d, node);
                         Logger.debug(PlanExecutor.this, "Finished migrating dependency %s of node %s: %s", d, node, result);
@@ -298,7 +573,13 @@ class PlanExecutor {
     private MigrationResult colocateSingleDependency(ExecutionNode dependency, ExecutionNode dependant) {
         return dependency.getTableName().map((table) -> {
             try {
-                final MigrationResult result = Migrator.migrate(dependency.getEngine(), table, dependant.getEngine(), table);
+                // a reduced dependency is migrated from the table with its rows which can join
+                final SemiJoinReduction reduction = semiJoinReductions.get(dependency);
+                final String source = reduction == null ? table : reduction.reducedTable;
+                final MigrationResult result = Migrator.migrate(dependency.getEngine(), source, dependant.getEngine(), table);
+                if (reduction != null) {
+                    result.setBytesSaved(reduction.bytesSaved);
+                }
 
                 Logger.debug(PlanExecutor.this, "Migration complete for "+table);
                 
@@ -314,10 +595,14 @@ class PlanExecutor {
                 // mark that this engine now has a copy of the dependency's data
                 temporaryTables.put(dependant.getEngine(), table);
 
+                if (isFailed()) {
+                    dropTemporaryTablesQuietly();
+                }
+
                 return result;
             } catch (MigrationException e) {
                 Logger.error(PlanExecutor.this, "Error migrating dependency %s of node %s: %[exception]s", dependency.getTableName(), dependant.getTableName(), e);
-                return MigrationResult.getFailedInstance(e.getLocalizedMessage());
+                throw new CompletionException(e);
             }
         }).orElse(MigrationResult.getEmptyInstance(String.format("No table to migrate for node %s", dependency.getTableName())));
     }
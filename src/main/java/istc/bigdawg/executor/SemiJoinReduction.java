@@ -0,0 +1,189 @@
+package istc.bigdawg.executor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Optional;
+
+import com.jcabi.log.Logger;
+
+import istc.bigdawg.executor.plan.BinaryJoinExecutionNode;
+import istc.bigdawg.executor.plan.ExecutionNode;
+import istc.bigdawg.executor.plan.QueryExecutionPlan;
+import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
+import istc.bigdawg.postgresql.PostgreSQLHandler;
+import istc.bigdawg.properties.BigDawgConfigProperties;
+import istc.bigdawg.query.ConnectionInfo;
+
+/**
+ * Semi-join reduction of an operand of a join before it is migrated to the engine of the join.
+ *
+ * A Bloom filter is built over the join keys of the smaller operand and the engine of the larger operand copies only
+ * the rows whose keys pass the filter into a new table, which is migrated instead of the whole operand. The rows
+ * which cannot join are not migrated, apart from the false positives of the filter.
+ *
+ * Both operands have to be stored in PostgreSQL (the filter is evaluated with the PostgreSQL hash functions) and the
+ * join keys have to be of the same integer or string type, whose text form is the same for all the equal keys, so the
+ * equal keys are hashed the same way on both engines (unlike numeric or floating point keys, where 1.0 = 1.00 and
+ * 0 = -0). The operand whose rows without a match are kept by an outer join is never reduced.
+ */
+class SemiJoinReduction {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private static final String TABLE_SIZE = "SELECT pg_table_size(?::regclass)";
+    private static final String KEY_TYPE = "SELECT atttypid FROM pg_attribute WHERE attrelid = ?::regclass AND attname = ? AND NOT attisdropped";
+    /** The oids of the types of the keys which can be reduced: int2, int4, int8, text and varchar. */
+    private static final long[] KEY_TYPES = {21, 23, 20, 25, 1043};
+    private static final String KEY_HASHES = "SELECT DISTINCT " + BloomFilter.HASH1 + ", " + BloomFilter.HASH2 + " FROM %s WHERE %s IS NOT NULL";
+
+    /** The dependency whose rows are reduced. */
+    final ExecutionNode dependency;
+
+    /** The table (on the engine of the dependency) with the rows which pass the filter. */
+    final String reducedTable;
+
+    /** Number of bytes of the rows which were filtered out. */
+    final long bytesSaved;
+
+    private SemiJoinReduction(ExecutionNode dependency, String reducedTable, long bytesSaved) {
+        this.dependency = dependency;
+        this.reducedTable = reducedTable;
+        this.bytesSaved = bytesSaved;
+    }
+
+    /**
+     * @return the reduction of the larger operand of the join (or of the operand which is not preserved by an outer
+     * join), or empty if this operand is not going to be migrated or it cannot be reduced
+     */
+    static Optional<SemiJoinReduction> reduce(QueryExecutionPlan plan, BinaryJoinExecutionNode join) throws SQLException {
+        final int maxKeys = BigDawgConfigProperties.INSTANCE.getExecutorSemiJoinMaxKeys();
+        if (maxKeys <= 0 || !join.isEquiJoin() || (join.isLeftPreserved() && join.isRightPreserved())) {
+            return Optional.empty();
+        }
+
+        final Optional<ExecutionNode> left = getDependency(plan, join, join.getLeft().table);
+        final Optional<ExecutionNode> right = getDependency(plan, join, join.getRight().table);
+        if (!left.isPresent() || !right.isPresent()) {
+            return Optional.empty();
+        }
+
+        final long leftSize = getTableSize(left.get());
+        final long rightSize = getTableSize(right.get());
+        // the rows of the preserved operand of an outer join are in the result even if they do not join
+        final boolean reduceLeft = join.isRightPreserved() || (!join.isLeftPreserved() && leftSize >= rightSize);
+        final ExecutionNode reduced = reduceLeft ? left.get() : right.get();
+        final ExecutionNode other = reduceLeft ? right.get() : left.get();
+        final String reducedKey = reduceLeft ? join.getLeft().attribute : join.getRight().attribute;
+        final String otherKey = reduceLeft ? join.getRight().attribute : join.getLeft().attribute;
+
+        // the reduced table replaces the dependency for this join only
+        if (reduced.getEngine().equals(join.getEngine()) || plan.getDependents(reduced).size() != 1) {
+            return Optional.empty();
+        }
+        final long keyType = getKeyType(reduced, reducedKey);
+        if (!isReducible(keyType) || keyType != getKeyType(other, otherKey)) {
+            Logger.debug(SemiJoinReduction.class, "Not reducing %s: the join keys are of different types or cannot be hashed by their text", reduced);
+            return Optional.empty();
+        }
+
+        final Optional<BloomFilter> filter = buildFilter(other, otherKey, maxKeys);
+        if (!filter.isPresent()) {
+            Logger.debug(SemiJoinReduction.class, "Not reducing %s: %s has more than %d distinct join keys", reduced, other, maxKeys);
+            return Optional.empty();
+        }
+
+        final String table = reduced.getTableName().get();
+        final String reducedTable = table + "_SEMIJOIN";
+        try (Connection connection = PostgreSQLHandler.getConnection(reduced.getEngine());
+             Statement statement = connection.createStatement()) {
+            statement.execute(String.format("DROP TABLE IF EXISTS %s", reducedTable));
+            statement.execute(String.format("WITH bloom AS (SELECT %s AS bits) SELECT %s.* INTO %s FROM %s, bloom WHERE %s",
+                    filter.get().toPostgreSQLBytea(), table, reducedTable, table,
+                    filter.get().getPostgreSQLCondition("bloom.bits", table + "." + reducedKey)));
+        }
+        final long bytesSaved = Math.max(0, (reduceLeft ? leftSize : rightSize) - getTableSize(reduced.getEngine(), reducedTable));
+        Logger.info(SemiJoinReduction.class, "Reduced %s with a Bloom filter of %d bits over the join keys of %s, %d bytes will not be migrated",
+                reduced, filter.get().getNumBits(), other, bytesSaved);
+        return Optional.of(new SemiJoinReduction(reduced, reducedTable, bytesSaved));
+    }
+
+    private static Optional<ExecutionNode> getDependency(QueryExecutionPlan plan, BinaryJoinExecutionNode join, String table) {
+        return plan.getDependencies(join).stream()
+                .filter(d -> d.getTableName().isPresent() && d.getTableName().get().equals(table))
+                .filter(d -> d.getEngine() instanceof PostgreSQLConnectionInfo)
+                .findAny();
+    }
+
+    private static long getTableSize(ExecutionNode node) throws SQLException {
+        return getTableSize(node.getEngine(), node.getTableName().get());
+    }
+
+    private static long getTableSize(ConnectionInfo engine, String table) throws SQLException {
+        try (Connection connection = PostgreSQLHandler.getConnection(engine);
+             PreparedStatement statement = connection.prepareStatement(TABLE_SIZE)) {
+            statement.setString(1, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * @return the oid of the type of the attribute, 0 if there is no such attribute
+     */
+    private static long getKeyType(ExecutionNode node, String attribute) throws SQLException {
+        try (Connection connection = PostgreSQLHandler.getConnection(node.getEngine());
+             PreparedStatement statement = connection.prepareStatement(KEY_TYPE)) {
+            statement.setString(1, node.getTableName().get());
+            statement.setString(2, attribute.toLowerCase());
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * @return true if the equal keys of the type have the same text form (and so the same hashes)
+     */
+    static boolean isReducible(long keyType) {
+        return Arrays.stream(KEY_TYPES).anyMatch(t -> t == keyType);
+    }
+
+    /**
+     * @return the filter over the join keys of the operand, or empty if the operand has more than maxKeys distinct
+     * keys
+     */
+    private static Optional<BloomFilter> buildFilter(ExecutionNode node, String attribute, int maxKeys) throws SQLException {
+        // the hashes of the keys are kept until their number is known, so the filter has the right size
+        long[] hashes = new long[1024];
+        int count = 0;
+        try (Connection connection = PostgreSQLHandler.getConnection(node.getEngine())) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.setFetchSize(BigDawgConfigProperties.INSTANCE.getExecutorResultFetchSize());
+                try (ResultSet rs = statement.executeQuery(String.format(KEY_HASHES, attribute, attribute, node.getTableName().get(), attribute))) {
+                    while (rs.next()) {
+                        if (count == maxKeys) {
+                            return Optional.empty();
+                        }
+                        if (count == hashes.length) {
+                            hashes = Arrays.copyOf(hashes, Math.min(2 * hashes.length, maxKeys));
+                        }
+                        hashes[count++] = ((long) rs.getInt(1) << 32) | (rs.getInt(2) & 0xFFFFFFFFL);
+                    }
+                }
+            } finally {
+                connection.commit();
+            }
+        }
+        BloomFilter filter = new BloomFilter(count, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < count; i++) {
+            filter.add((int) (hashes[i] >> 32), (int) hashes[i]);
+        }
+        return Optional.of(filter);
+    }
+}
@@ -0,0 +1,260 @@
+package istc.bigdawg.executor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+
+import istc.bigdawg.query.ConnectionInfo;
+import istc.bigdawg.utils.JdbcUtils;
+
+/**
+ * A QueryResult that does not copy the rows into memory. The rows are pulled
+ * from a server-side cursor (the statement's fetch size rows at a time) while
+ * they are written out, so the memory used does not depend on the size of the
+ * result.
+ *
+ * The result keeps its connection (and the transaction of the cursor) open
+ * until it is closed. It can be written out only once.
+ */
+public class StreamingQueryResult implements QueryResult, AutoCloseable {
+
+	private static Logger log = Logger.getLogger(StreamingQueryResult.class);
+
+	/** Values written to JSON without quotes. */
+	private static final Pattern NUMBER = Pattern
+			.compile("^[+-]?([0-9]*[.])?[0-9]+$");
+
+	/**
+	 * The formats in which the rows can be written out.
+	 */
+	public enum Format {
+		/** header line and one line per row, tab separated */
+		TSV,
+		/** array of JSON objects, one per row */
+		JSON
+	}
+
+	private final Connection connection;
+	private final Statement statement;
+	private final ResultSet resultSet;
+	private final ConnectionInfo connectionInfo;
+	private final List<String> colNames;
+	private final List<String> colTypes;
+
+	/** Actions to be run after the connection is released. */
+	private final List<Runnable> closeHandlers = new ArrayList<>();
+	private boolean closed = false;
+
+	/**
+	 * @param connection
+	 *            the connection (with autocommit turned off) that owns the
+	 *            cursor; it is closed together with this result
+	 * @param statement
+	 *            the statement that produced the result set
+	 * @param resultSet
+	 *            rows to be streamed
+	 * @param connectionInfo
+	 *            the engine the rows come from
+	 * @throws SQLException
+	 */
+	public StreamingQueryResult(Connection connection, Statement statement,
+			ResultSet resultSet, ConnectionInfo connectionInfo)
+			throws SQLException {
+		this.connection = connection;
+		this.statement = statement;
+		this.resultSet = resultSet;
+		this.connectionInfo = connectionInfo;
+		this.colNames = JdbcUtils.getColumnNames(resultSet.getMetaData());
+		this.colTypes = JdbcUtils.getColumnTypeNames(resultSet.getMetaData());
+	}
+
+	/**
+	 * Register an action to be run once the result is closed, e.g. removal of
+	 * the intermediate tables from which the rows are read.
+	 *
+	 * @param handler
+	 *            the action to be run after the connection is released
+	 */
+	public synchronized void onClose(Runnable handler) {
+		if (closed) {
+			handler.run();
+		} else {
+			closeHandlers.add(handler);
+		}
+	}
+
+	public List<String> getColNames() {
+		return colNames;
+	}
+
+	public List<String> getColTypes() {
+		return colTypes;
+	}
+
+	@Override
+	public ConnectionInfo getConnectionInfo() {
+		return connectionInfo;
+	}
+
+	/**
+	 * Write all the rows to the output stream. The output is flushed after
+	 * each batch of fetched rows, so that the client receives the rows while
+	 * they are read from the database.
+	 *
+	 * @param out
+	 *            where the rows should be written
+	 * @param format
+	 *            format of the output
+	 * @return number of the rows written
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public long write(OutputStream out, Format format)
+			throws IOException, SQLException {
+		Writer writer = new BufferedWriter(
+				new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		long rows = write(writer, format);
+		writer.flush();
+		return rows;
+	}
+
+	private long write(Writer writer, Format format)
+			throws IOException, SQLException {
+		final int flushEvery = Math.max(1, statement.getFetchSize());
+		final int columns = colNames.size();
+		final String[] row = new String[columns];
+		long rowCounter = 0;
+
+		if (format == Format.TSV) {
+			writer.write(String.join("\t", colNames));
+			writer.write('\n');
+		} else {
+			writer.write('[');
+		}
+		while (resultSet.next()) {
+			for (int i = 0; i < columns; ++i) {
+				Object value = resultSet.getObject(i + 1);
+				row[i] = (value == null) ? "null" : value.toString();
+			}
+			if (format == Format.TSV) {
+				writeTsvRow(writer, row);
+			} else {
+				if (rowCounter > 0) {
+					writer.write(',');
+				}
+				writeJsonRow(writer, row);
+			}
+			if (++rowCounter % flushEvery == 0) {
+				writer.flush();
+			}
+		}
+		if (format == Format.JSON) {
+			writer.write(']');
+		}
+		log.debug("Streamed " + rowCounter + " rows from "
+				+ connectionInfo.toSimpleString());
+		return rowCounter;
+	}
+
+	private static void writeTsvRow(Writer writer, String[] row)
+			throws IOException {
+		for (int i = 0; i < row.length; ++i) {
+			if (i > 0) {
+				writer.write('\t');
+			}
+			writer.write(row[i]);
+		}
+		writer.write('\n');
+	}
+
+	private void writeJsonRow(Writer writer, String[] row) throws IOException {
+		writer.write('{');
+		for (int i = 0; i < row.length; ++i) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			writer.write('"');
+			writer.write(colNames.get(i));
+			writer.write("\":");
+			if (NUMBER.matcher(row[i]).matches() || "null".equals(row[i])) {
+				writer.write(row[i]);
+			} else {
+				writer.write('"');
+				writer.write(row[i]);
+				writer.write('"');
+			}
+		}
+		writer.write('}');
+	}
+
+	/**
+	 * Reads the whole result into a String (the same format as
+	 * {@link JdbcQueryResult#toPrettyString()}) and closes the result. Only
+	 * for the callers that need the whole result at once.
+	 */
+	@Override
+	public String toPrettyString() {
+		StringWriter writer = new StringWriter();
+		try {
+			write(writer, Format.TSV);
+		} catch (IOException | SQLException e) {
+			log.error("Could not read the streamed result: " + e.getMessage(),
+					e);
+		} finally {
+			close();
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Release the cursor and the connection, then run the close handlers.
+	 */
+	@Override
+	public void close() {
+		List<Runnable> handlers;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			handlers = new ArrayList<>(closeHandlers);
+			closeHandlers.clear();
+		}
+		try {
+			resultSet.close();
+			statement.close();
+			/* the cursor only read data, nothing to be committed */
+			connection.rollback();
+		} catch (SQLException e) {
+			log.error("Could not release the cursor: " + e.getMessage(), e);
+		} finally {
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				log.error("Could not close the connection: " + e.getMessage(),
+						e);
+			}
+		}
+		for (Runnable handler : handlers) {
+			try {
+				handler.run();
+			} catch (RuntimeException e) {
+				log.error("Error while closing streamed result: "
+						+ e.getMessage(), e);
+			}
+		}
+	}
+}
@@ -1,9 +1,13 @@
 package istc.bigdawg.executor.plan;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import com.google.common.base.Objects;
 import com.google.common.collect.Sets;
@@ -109,20 +113,49 @@ public class BinaryJoinExecutionNode implements ExecutionNode {
 
     final JoinOperand left;
     final JoinOperand right;
+    final List<JoinOperand> leftShards;
+    final List<JoinOperand> rightShards;
     final Optional<JoinAlgorithms> hint;
     final ConnectionInfo destinationEngine;
     final String destinationTable;
     final String broadcastQuery;
     final String comparator;
+    /** The type of an outer join (null for an inner join). */
+    final Join.JoinType joinType;
 
     public BinaryJoinExecutionNode(String broadcastQuery, ConnectionInfo destinationEngine, String destinationTable, JoinOperand left, JoinOperand right, String comparator, Optional<JoinAlgorithms> hint) {
+        this(broadcastQuery, destinationEngine, destinationTable, Collections.singletonList(left), Collections.singletonList(right), comparator, hint);
+    }
+
+    public BinaryJoinExecutionNode(String broadcastQuery, ConnectionInfo destinationEngine, String destinationTable, List<JoinOperand> leftShards, List<JoinOperand> rightShards, String comparator, Optional<JoinAlgorithms> hint) {
+        this(broadcastQuery, destinationEngine, destinationTable, leftShards, rightShards, comparator, hint, null);
+    }
+
+    /**
+     * Create a join whose sides are split into shards, possibly stored on
+     * different engines (e.g. a table partitioned across several PostgreSQL
+     * instances). All the shards of a side have the same schema; the first
+     * shard of each side is the operand whose local join query is used as a
+     * template by the shuffle join.
+     *
+     * @param leftShards
+     *            the shards of the left side of the join (at least one)
+     * @param rightShards
+     *            the shards of the right side of the join (at least one)
+     * @param joinType
+     *            the type of an outer join (null for an inner join)
+     */
+    public BinaryJoinExecutionNode(String broadcastQuery, ConnectionInfo destinationEngine, String destinationTable, List<JoinOperand> leftShards, List<JoinOperand> rightShards, String comparator, Optional<JoinAlgorithms> hint, Join.JoinType joinType) {
         this.broadcastQuery = broadcastQuery;
         this.destinationEngine = destinationEngine;
         this.destinationTable = destinationTable;
-        this.left = left;
-        this.right = right;
+        this.left = leftShards.get(0);
+        this.right = rightShards.get(0);
+        this.leftShards = Collections.unmodifiableList(leftShards);
+        this.rightShards = Collections.unmodifiableList(rightShards);
         this.hint = hint;
         this.comparator = comparator;
+        this.joinType = joinType;
     }
 
     public BinaryJoinExecutionNode(String broadcastQuery, ConnectionInfo destinationEngine, String destinationTable, JoinOperand left, JoinOperand right, String comparator) {
@@ -133,12 +166,35 @@ public class BinaryJoinExecutionNode implements ExecutionNode {
         this(broadcastQuery, destinationEngine, destinationTable, left, right, comparator, Optional.of(hint));
     }
 
-    public String getShuffleUnionString(String leftResults, String rightResults) {
-        return "SELECT * INTO " + this.destinationTable + " FROM " + leftResults + " UNION ALL SELECT * FROM " + rightResults + ";";
+    /**
+     * @param results
+     *            the tables with the results of the local joins of a shuffle
+     *            join (at least one)
+     * @return the query which puts all the results into the destination table
+     */
+    public String getShuffleUnionString(List<String> results) {
+        StringBuilder union = new StringBuilder("SELECT * INTO " + this.destinationTable + " FROM " + results.get(0));
+        for (String result : results.subList(1, results.size())) {
+            union.append(" UNION ALL SELECT * FROM ").append(result);
+        }
+        return union.append(";").toString();
     }
 
+    /**
+     * @return all the shards of both sides of the join
+     */
     public Collection<JoinOperand> getOperands() {
-        return Sets.newHashSet(this.right, this.left);
+        Collection<JoinOperand> operands = Sets.newHashSet(this.leftShards);
+        operands.addAll(this.rightShards);
+        return operands;
+    }
+
+    public List<JoinOperand> getLeftShards() {
+        return this.leftShards;
+    }
+
+    public List<JoinOperand> getRightShards() {
+        return this.rightShards;
     }
 
     public JoinOperand getLeft(){
@@ -157,6 +213,28 @@ public class BinaryJoinExecutionNode implements ExecutionNode {
         return this.comparator.equals("=");
     }
 
+    /**
+     * @return the type of an outer join, null for an inner join
+     */
+    public Join.JoinType getJoinType() {
+        return this.joinType;
+    }
+
+    /**
+     * @return true if the rows of the left operand without a match are kept in the result (so none of them can be
+     * removed before the join)
+     */
+    public boolean isLeftPreserved() {
+        return this.joinType == Join.JoinType.Left || this.joinType == Join.JoinType.Full;
+    }
+
+    /**
+     * @return true if the rows of the right operand without a match are kept in the result
+     */
+    public boolean isRightPreserved() {
+        return this.joinType == Join.JoinType.Right || this.joinType == Join.JoinType.Full;
+    }
+
     public String serialize() {
         StringBuilder currentRep = new StringBuilder();
         currentRep.append("(");
@@ -164,8 +242,10 @@ public class BinaryJoinExecutionNode implements ExecutionNode {
         currentRep.append(String.format("QUERY:%s", this.broadcastQuery));
         currentRep.append(String.format("COMPARATOR:%s", this.comparator));
         currentRep.append(String.format("CONNECTION:(%s)", ConnectionInfoParser.connectionInfoToString(this.destinationEngine)));
-        currentRep.append(String.format("LEFT:(%s)", this.left.serialize()));
-        currentRep.append(String.format("RIGHT:(%s)", this.right.serialize()));
+        currentRep.append(String.format("JOINTYPE:(%s)", this.joinType == null ? "" : this.joinType));
+        // all the shards of each side, one after another
+        currentRep.append(String.format("LEFT:(%s)", serializeShards(this.leftShards)));
+        currentRep.append(String.format("RIGHT:(%s)", serializeShards(this.rightShards)));
         currentRep.append(String.format("NODETYPE:%s", this.getClass().getName()));
 
         currentRep.append("HINT:");
@@ -181,6 +261,18 @@ public class BinaryJoinExecutionNode implements ExecutionNode {
         return this.destinationTable;
     }
 
+    private static String serializeShards(List<JoinOperand> shards) {
+        return shards.stream().map(JoinOperand::serialize).collect(Collectors.joining());
+    }
+
+    private static List<JoinOperand> deserializeShards(String rep) {
+        // each serialized operand ends with its node type
+        return Arrays.stream(rep.split("(?<=NODETYPE:BinaryJoinExecutionNode\\))"))
+                .filter(shard -> !shard.isEmpty())
+                .map(JoinOperand::deserialize)
+                .collect(Collectors.toList());
+    }
+
     public static BinaryJoinExecutionNode deserialize(String rep){
         Pattern tablePat = Pattern.compile("(?<=TABLE:)(?s).*(?=QUERY:)");
         Pattern queryPat = Pattern.compile("(?<=QUERY:)(?s).*(?=COMPARATOR:)");
@@ -189,14 +281,16 @@ public class BinaryJoinExecutionNode implements ExecutionNode {
         Pattern leftPat = Pattern.compile("(?<=LEFT:\\().*(?=\\)RIGHT:)");
         Pattern rightPat = Pattern.compile("(?<=RIGHT:\\().*(?=\\)NODETYPE:)");
         Pattern hintPat = Pattern.compile("(?<=HINT:)(?s)[^\\)]*");
+        Pattern joinTypePat = Pattern.compile("(?<=JOINTYPE:\\()[A-Za-z]*(?=\\))");
 
         String table = null;
         String query = null;
         String comp = null;
         ConnectionInfo conn = null;
-        JoinOperand left = null;
-        JoinOperand right = null;
+        List<JoinOperand> left = null;
+        List<JoinOperand> right = null;
         JoinAlgorithms hint = null;
+        Join.JoinType joinType = null;
 
         Matcher m = tablePat.matcher(rep);
         if (m.find()) {
@@ -220,12 +314,12 @@ public class BinaryJoinExecutionNode implements ExecutionNode {
 
         m = leftPat.matcher(rep);
         if (m.find()) {
-            left = JoinOperand.deserialize(m.group());
+            left = deserializeShards(m.group());
         }
 
         m = rightPat.matcher(rep);
         if (m.find()) {
-            right = JoinOperand.deserialize(m.group());
+            right = deserializeShards(m.group());
         }
 
         m = hintPat.matcher(rep);
@@ -236,10 +330,12 @@ public class BinaryJoinExecutionNode implements ExecutionNode {
             }
         }
 
-        if (hint != null){
-            return new BinaryJoinExecutionNode(query, conn, table, left, right, comp, hint);
+        m = joinTypePat.matcher(rep);
+        if (m.find() && m.group().length() > 0) {
+            joinType = Join.JoinType.valueOf(m.group());
         }
-        return new BinaryJoinExecutionNode(query, conn, table, left, right, comp);
+
+        return new BinaryJoinExecutionNode(query, conn, table, left, right, comp, Optional.ofNullable(hint), joinType);
     }
 
     /*
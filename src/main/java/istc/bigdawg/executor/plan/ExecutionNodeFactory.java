@@ -1,6 +1,7 @@
 package istc.bigdawg.executor.plan;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -192,7 +193,7 @@ public class ExecutionNodeFactory {
 		BinaryJoinExecutionNode.JoinOperand leftOp = new BinaryJoinExecutionNode.JoinOperand(engine, leftTable, leftAttribute, shuffleLeftJoinQuery);
 		BinaryJoinExecutionNode.JoinOperand rightOp = new BinaryJoinExecutionNode.JoinOperand(engine, rightTable, rightAttribute, shuffleRightJoinQuery);
 
-		return new BinaryJoinExecutionNode(broadcastQuery, engine, joinDestinationTable, leftOp, rightOp, comparator);
+		return new BinaryJoinExecutionNode(broadcastQuery, engine, joinDestinationTable, Collections.singletonList(leftOp), Collections.singletonList(rightOp), comparator, Optional.empty(), joinOp.getJoinType());
 	}
 
 	
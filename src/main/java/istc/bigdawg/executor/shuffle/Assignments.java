@@ -2,11 +2,11 @@ package istc.bigdawg.executor.shuffle;
 
 import com.google.common.collect.Sets;
 import istc.bigdawg.executor.plan.BinaryJoinExecutionNode;
+import istc.bigdawg.properties.BigDawgConfigProperties;
 import istc.bigdawg.query.ConnectionInfo;
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
@@ -58,75 +58,56 @@ public class Assignments {
     }
 
     public static Assignments getTabuSearchAssignment(Collection<Histogram> histograms, ConnectionInfo fallback, int numBuckets) {
-        Assignments current = getMinimumBandwidthAssignment(histograms, fallback, numBuckets);
+        return getTabuSearchAssignment(histograms, fallback, numBuckets, BigDawgConfigProperties.INSTANCE.getExecutorShuffleSearchBudget());
+    }
 
-        Collection<Pair<Histogram, JoinUnit>> tabuList = new HashSet<>();
-        for (Histogram h : histograms) {
-            for(JoinUnit u : current.getJoinUnitsForJoinOperand(h.getOperand())) {
-                tabuList.add(ImmutablePair.of(h, u));
+    /**
+     * Improves the minimum bandwidth assignment with a tabu search (see {@link TabuSearch}).
+     *
+     * @param timeBudgetMillis
+     *            the time for which the search runs at most
+     */
+    public static Assignments getTabuSearchAssignment(Collection<Histogram> histograms, ConnectionInfo fallback, int numBuckets, long timeBudgetMillis) {
+        Assignments initial = getMinimumBandwidthAssignment(histograms, fallback, numBuckets);
+
+        // the units are the buckets followed by the hotspots, the nodes are the histograms
+        List<Histogram> nodes = new ArrayList<>(histograms);
+        long[] hotspots = nodes.stream().flatMap(h -> h.getHotspots().stream()).mapToLong(Long::longValue).distinct().toArray();
+        int units = numBuckets + hotspots.length;
+
+        long[][] counts = new long[nodes.size()][units];
+        for (int source = 0; source < nodes.size(); source++) {
+            Histogram h = nodes.get(source);
+            for (int bucket = 0; bucket < numBuckets; bucket++) {
+                counts[source][bucket] = h.getBucketCount(bucket);
             }
-        }
-
-        Assignments prev = null;
-        while (!current.equals(prev)) {
-            Map<Histogram, Double> perNodeCost = current.getPerNodeCost();
-            double rebalanceThreshold = perNodeCost.values().stream().mapToDouble(Double::doubleValue).average().getAsDouble();
-
-            prev = current;
-
-            for(Histogram h : perNodeCost.keySet()) {
-                if (perNodeCost.get(h) >= rebalanceThreshold) {
-                    current = current.rebalanceAssignmentsForNode(h, tabuList);
-                }
+            for (int i = 0; i < hotspots.length; i++) {
+                counts[source][numBuckets + i] = h.getHotspotCount(hotspots[i]);
             }
         }
 
-        return current;
-    }
-
-    private Assignments rebalanceAssignmentsForNode(Histogram h, Collection<Pair<Histogram, JoinUnit>> tabuList) {
-        Assignments best = this;
-
-        for (JoinUnit u : this.getJoinUnitsForJoinOperand(h.getOperand())) {
-            for (Histogram candidate : this.histograms) {
-                if (!candidate.equals(h) && !tabuList.contains(ImmutablePair.of(candidate, u))) {
-                    Assignments working = Assignments.copyOf(this);
-                    working.assignJoinUnit(u, candidate);
-                    if(working.getCost() <= this.getCost()) {
-                        best = working;
-                        tabuList.add(ImmutablePair.of(candidate, u));
-                    }
-                }
-            }
+        Map<BinaryJoinExecutionNode.JoinOperand, Integer> nodeOfOperand = new HashMap<>();
+        for (int node = 0; node < nodes.size(); node++) {
+            nodeOfOperand.putIfAbsent(nodes.get(node).getOperand(), node);
+        }
+        int[] assignment = new int[units];
+        for (int bucket = 0; bucket < numBuckets; bucket++) {
+            assignment[bucket] = nodeOfOperand.get(initial.getAssignment(bucket));
+        }
+        for (int i = 0; i < hotspots.length; i++) {
+            assignment[numBuckets + i] = nodeOfOperand.get(initial.hotspotAssignments.get(hotspots[i]));
         }
 
-        return best;
-    }
-
-    private static Assignments copyOf(Assignments original) {
-        return new Assignments(original.bucketCount, new HashSet<>(original.histograms), original.fallback, Arrays.copyOf(original.bucketAssignments, original.bucketCount), new HashMap(original.hotspotAssignments));
-    }
-
-    private Assignments(int bucketCount, Collection<Histogram> histograms, ConnectionInfo fallback, BinaryJoinExecutionNode.JoinOperand[] bucketAssignments, Map<Long, BinaryJoinExecutionNode.JoinOperand> hotspotAssignments) {
-        this.min = histograms.stream().mapToLong(Histogram::getMin).min().getAsLong();
-        this.max = histograms.stream().mapToLong(Histogram::getMax).max().getAsLong();
-        this.bucketCount = bucketCount;
-        this.histograms = histograms;
-        this.fallback = fallback;
-
-        this.hotspotAssignments = hotspotAssignments;
-        this.bucketAssignments = bucketAssignments;
-        stepSize = (max - min) * 1.0 / bucketCount;
-    }
+        int[] best = new TabuSearch(counts, assignment).search(TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis));
 
-    private void assignJoinUnit(JoinUnit u, Histogram candidate) {
-        if (u instanceof Range) {
-            this.assignBucket(getIndexForRange((Range) u), candidate.getOperand());
-        } else if (u instanceof Hotspot) {
-            this.assignHotspot(((Hotspot) u).val, candidate.getOperand());
-        } else {
-            throw new IllegalArgumentException();
+        Assignments result = new Assignments(numBuckets, histograms, fallback);
+        for (int bucket = 0; bucket < numBuckets; bucket++) {
+            result.assignBucket(bucket, nodes.get(best[bucket]).getOperand());
         }
+        for (int i = 0; i < hotspots.length; i++) {
+            result.assignHotspot(hotspots[i], nodes.get(best[numBuckets + i]).getOperand());
+        }
+        return result;
     }
 
     public Assignments(int bucketCount, Collection<Histogram> histograms, ConnectionInfo fallback) {
@@ -141,10 +122,18 @@ public class Assignments {
         stepSize = (max - min) * 1.0 / bucketCount;
     }
 
+    /**
+     * @return the ranges below the minimum and above the maximum value of the histograms (the values which were not
+     * seen while the histograms were created), they are assigned to the operands on the fallback engine
+     */
+    public Collection<Range> getOutlyingRanges() {
+        return Arrays.asList(JoinUnit.of(Double.NEGATIVE_INFINITY, min), JoinUnit.of(max, Double.POSITIVE_INFINITY));
+    }
+
     public Set<Range> getRangesForJoinOperand(BinaryJoinExecutionNode.JoinOperand operand) {
         Collection<Range> extremities = Collections.emptySet();
         if (operand.engine.equals(fallback)) {
-            extremities = Arrays.asList(JoinUnit.of(-Double.MIN_VALUE, min), JoinUnit.of(max, -Double.MAX_VALUE));
+            extremities = getOutlyingRanges();
         }
 
         return Stream.concat(extremities.stream(),
@@ -186,7 +175,9 @@ public class Assignments {
                 long count = 0;
                 for (JoinUnit u : this.getJoinUnitsForJoinOperand(h.getOperand())) {
                     if (u instanceof Range) {
-                        count += source.getBucketCount(this.getIndexForRange((Range) u));
+                        if (this.isBucket((Range) u)) {
+                            count += source.getBucketCount(this.getIndexForRange((Range) u));
+                        }
                     } else if (u instanceof Hotspot) {
                         count += source.getHotspotCount(((Hotspot) u).val);
                     }
@@ -225,12 +216,24 @@ public class Assignments {
         return hotspotAssignments.put(hotspot, operand);
     }
 
+    private boolean isBucket(Range r) {
+        return r.start >= min && r.start < max;
+    }
+
     private int getIndexForRange(Range r) {
         return (int) ((r.start - min) / stepSize);
     }
 
+    /**
+     * @return the range of the bucket: from its start (inclusive) to its end (exclusive), the end of the last bucket
+     * is the maximum value
+     */
     public Range getRangeForIndex(int i) {
-        return JoinUnit.of(min + i * stepSize, min + 2 * i * stepSize);
+        return JoinUnit.of(min + i * stepSize, i == bucketCount - 1 ? max : min + (i + 1) * stepSize);
+    }
+
+    public ConnectionInfo getFallback() {
+        return fallback;
     }
 
     public BinaryJoinExecutionNode.JoinOperand getAssignment(int bucket) {
@@ -44,7 +44,7 @@ public class Histogram {
     }
 
     public long getHotspotCount(long hotspot) {
-        return hotspots.get(hotspot);
+        return hotspots.getOrDefault(hotspot, 0L);
     }
 
     @Override
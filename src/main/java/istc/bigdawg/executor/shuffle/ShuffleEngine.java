@@ -1,6 +1,8 @@
 package istc.bigdawg.executor.shuffle;
 
 import com.diffplug.common.base.Errors;
+import com.jcabi.log.Logger;
+import com.jcabi.log.VerboseThreads;
 import istc.bigdawg.executor.ExecutorEngine;
 import istc.bigdawg.executor.JdbcQueryResult;
 import istc.bigdawg.executor.plan.BinaryJoinExecutionNode;
@@ -11,6 +13,11 @@ import org.json.simple.JSONArray;
 import org.json.simple.JSONValue;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -22,8 +29,16 @@ public class ShuffleEngine {
     public static final int NUM_BUCKETS = 100;
 
     private static final String PG_SINGLEBUCKET_TEMPLATE = "SELECT COUNT(*) FROM %s;";
-    private static final String PG_STATS_PREP_TEMPLATE = "ANALYZE %s %s";
-    private static final String PG_STATS_TEMPLATE = "SELECT array_to_json(most_common_vals) AS most_common_vals, array_to_json(most_common_freqs) AS most_common_freqs, array_to_json(histogram_bounds) AS histogram_bounds, approximate_row_count AS count FROM pg_stats JOIN pg_class ON relname = tablename WHERE tablename = '%s' AND attname = '%s';";
+    private static final String PG_STATS_PREP_TEMPLATE = "ANALYZE %s (%s)";
+    private static final String PG_STATS_TEMPLATE = "SELECT array_to_json(most_common_vals) AS most_common_vals, array_to_json(most_common_freqs) AS most_common_freqs, array_to_json(histogram_bounds) AS histogram_bounds, reltuples::bigint AS count FROM pg_stats JOIN pg_class ON relname = tablename WHERE tablename = '%s' AND attname = '%s';";
+    // changes whenever the rows of the table are modified (or the table is truncated or created again)
+    private static final String PG_MODIFICATIONS_TEMPLATE = "SELECT c.oid, c.relfilenode, s.n_tup_ins + s.n_tup_upd + s.n_tup_del FROM pg_class c JOIN pg_stat_all_tables s ON s.relid = c.oid WHERE c.oid = '%s'::regclass;";
+
+    // the statistics of the engines are collected concurrently, one task per engine
+    private static final ExecutorService statisticsThreadPool = Executors.newCachedThreadPool(new VerboseThreads());
+
+    // statistics of the join attributes, keyed by the engine and the table.attribute
+    private static final Map<Pair<ConnectionInfo, String>, AttributeStatistics> statisticsCache = new ConcurrentHashMap<>();
 
     private static final double DOWNLINK_RATE = 1.0;
     private static final double UPLINK_RATE = 1.0;
@@ -69,44 +84,170 @@ public class ShuffleEngine {
                 .collect(Collectors.toSet());
     }
 
+    /**
+     * The statistics of a join attribute gathered by PostgreSQL, valid as long as the table is not modified.
+     */
+    static class AttributeStatistics {
+        final String modifications;
+        final Map<Long, Long> commonValCounts;
+        final List<Long> histogramBounds;
+        final long histogramBucketCount;
+
+        AttributeStatistics(String modifications, Map<Long, Long> commonValCounts, List<Long> histogramBounds, long histogramBucketCount) {
+            this.modifications = modifications;
+            this.commonValCounts = commonValCounts;
+            this.histogramBounds = histogramBounds;
+            this.histogramBucketCount = histogramBucketCount;
+        }
+    }
+
     static Collection<Histogram> createHistogramsBySampling(Collection<BinaryJoinExecutionNode.JoinOperand> operands) throws ConnectionInfo.LocalQueryExecutorLookupException, ExecutorEngine.LocalQueryExecutionException {
-        Map<BinaryJoinExecutionNode.JoinOperand, Map<Long, Long>> perOperandCommonValCounts = new HashMap<>();
-        Map<BinaryJoinExecutionNode.JoinOperand, List<Long>> perOperandHistogramBounds = new HashMap<>();
-        Map<BinaryJoinExecutionNode.JoinOperand, Long> perOperandHistogramBucketCount = new HashMap<>();
+        Map<ConnectionInfo, List<BinaryJoinExecutionNode.JoinOperand>> operandsPerEngine = operands.stream()
+                .collect(Collectors.groupingBy(o -> o.engine));
 
-        // TODO: parallelize this
-        for(BinaryJoinExecutionNode.JoinOperand o : operands) {
+        List<CompletableFuture<Map<BinaryJoinExecutionNode.JoinOperand, AttributeStatistics>>> tasks = new ArrayList<>();
+        for (List<BinaryJoinExecutionNode.JoinOperand> engineOperands : operandsPerEngine.values()) {
+            tasks.add(CompletableFuture.supplyAsync(Errors.rethrow().wrap(() -> getStatistics(engineOperands)), statisticsThreadPool));
+        }
+
+        Map<BinaryJoinExecutionNode.JoinOperand, AttributeStatistics> statistics = new HashMap<>();
+        try {
+            for (CompletableFuture<Map<BinaryJoinExecutionNode.JoinOperand, AttributeStatistics>> task : tasks) {
+                statistics.putAll(task.join());
+            }
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() instanceof RuntimeException && e.getCause().getCause() != null ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof ExecutorEngine.LocalQueryExecutionException) {
+                throw (ExecutorEngine.LocalQueryExecutionException) cause;
+            }
+            if (cause instanceof ConnectionInfo.LocalQueryExecutorLookupException) {
+                throw (ConnectionInfo.LocalQueryExecutorLookupException) cause;
+            }
+            throw e;
+        }
+
+        return createHistogramsFromStatistics(operands, statistics);
+    }
+
+    /**
+     * Creates the histograms of the operands over the common range of values.
+     */
+    static List<Histogram> createHistogramsFromStatistics(Collection<BinaryJoinExecutionNode.JoinOperand> operands, Map<BinaryJoinExecutionNode.JoinOperand, AttributeStatistics> statistics) {
+        Pair<Long, Long> bounds = getGlobalBounds(statistics.values());
+        long globalMin = bounds.getLeft();
+        long globalMax = bounds.getRight();
+
+        return operands.stream()
+                .map(o -> new Histogram(rescaleHistogramBounds(statistics.get(o).histogramBounds, globalMin, globalMax, statistics.get(o).histogramBucketCount, NUM_BUCKETS), statistics.get(o).commonValCounts, globalMin, globalMax, o))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the smallest and the largest bound of the histograms; if no attribute has a histogram (e.g. all the
+     * values of a low-cardinality attribute are among its most common values), the smallest and the largest of the
+     * most common values; if PostgreSQL has no statistics at all (e.g. the tables are empty), a single value, so all
+     * the tuples go to the fallback engine
+     */
+    static Pair<Long, Long> getGlobalBounds(Collection<AttributeStatistics> statistics) {
+        LongSummaryStatistics bounds = statistics.stream()
+                .map(s -> s.histogramBounds).filter(l -> !l.isEmpty())
+                .flatMap(l -> Stream.of(l.get(0), l.get(l.size() - 1)))
+                .mapToLong(Long::longValue).summaryStatistics();
+        if (bounds.getCount() == 0) {
+            bounds = statistics.stream().flatMap(s -> s.commonValCounts.keySet().stream())
+                    .mapToLong(Long::longValue).summaryStatistics();
+        }
+        if (bounds.getCount() == 0) {
+            return new ImmutablePair<>(0L, 0L);
+        }
+        return new ImmutablePair<>(bounds.getMin(), bounds.getMax());
+    }
+
+    /**
+     * Gets the statistics of the operands stored on one engine, from the cache if their tables were not modified
+     * since the statistics were gathered.
+     */
+    private static Map<BinaryJoinExecutionNode.JoinOperand, AttributeStatistics> getStatistics(List<BinaryJoinExecutionNode.JoinOperand> operands) throws ConnectionInfo.LocalQueryExecutorLookupException, ExecutorEngine.LocalQueryExecutionException {
+        Map<BinaryJoinExecutionNode.JoinOperand, AttributeStatistics> result = new HashMap<>();
+        for (BinaryJoinExecutionNode.JoinOperand o : operands) {
             ExecutorEngine e = o.engine.getLocalQueryExecutor();
-            e.execute(String.format(PG_STATS_PREP_TEMPLATE, o.table, o.attribute));
-            JdbcQueryResult r = (JdbcQueryResult) e.execute(String.format(PG_STATS_TEMPLATE, o.table, o.attribute)).get();
-            List<String> row = r.getRows().get(0);
+            Pair<ConnectionInfo, String> key = new ImmutablePair<>(o.engine, o.table + "." + o.attribute);
+            String modifications = ((JdbcQueryResult) e.execute(String.format(PG_MODIFICATIONS_TEMPLATE, o.table)).get()).getRows().get(0).toString();
+            result.put(o, getCachedStatistics(key, modifications, () -> gatherStatistics(e, o, modifications)));
+        }
+        return result;
+    }
+
+    /**
+     * Gathers the statistics of a join attribute.
+     */
+    interface StatisticsGatherer {
+        AttributeStatistics gather() throws ExecutorEngine.LocalQueryExecutionException;
+    }
+
+    /**
+     * @param key
+     *            the engine and the table.attribute
+     * @param modifications
+     *            the current modifications of the table
+     * @return the cached statistics if the table was not modified since they were gathered, otherwise the statistics
+     * gathered again (they replace the ones in the cache)
+     */
+    static AttributeStatistics getCachedStatistics(Pair<ConnectionInfo, String> key, String modifications, StatisticsGatherer gatherer) throws ExecutorEngine.LocalQueryExecutionException {
+        AttributeStatistics cached = statisticsCache.get(key);
+        if (cached != null && cached.modifications.equals(modifications)) {
+            Logger.debug(ShuffleEngine.class, "Using cached statistics of %s", key.getRight());
+            return cached;
+        }
+
+        Logger.debug(ShuffleEngine.class, "Gathering statistics of %s", key.getRight());
+        AttributeStatistics statistics = gatherer.gather();
+        statisticsCache.put(key, statistics);
+        return statistics;
+    }
 
-            Long count = Long.valueOf(row.get(4));
-            Long hotspotTotal = 0l;
+    private static AttributeStatistics gatherStatistics(ExecutorEngine e, BinaryJoinExecutionNode.JoinOperand o, String modifications) throws ExecutorEngine.LocalQueryExecutionException {
+        e.execute(String.format(PG_STATS_PREP_TEMPLATE, o.table, o.attribute));
+        JdbcQueryResult r = (JdbcQueryResult) e.execute(String.format(PG_STATS_TEMPLATE, o.table, o.attribute)).get();
+        if (r.getRows().isEmpty()) {
+            // no statistics, e.g. the table is empty
+            return new AttributeStatistics(modifications, Collections.emptyMap(), Collections.emptyList(), 0);
+        }
+        return parseStatistics(r.getRows().get(0), modifications);
+    }
 
-            Map<Long, Long> commonValCounts = new HashMap<>();
-            Iterator<Number> ids = ((JSONArray) JSONValue.parse(row.get(0))).iterator();
+    /**
+     * @param row
+     *            the most common values, their frequencies, the histogram bounds (all of them as JSON arrays or null)
+     *            and the number of tuples of the table, see: PG_STATS_TEMPLATE
+     */
+    static AttributeStatistics parseStatistics(List<String> row, String modifications) {
+        Long count = Long.valueOf(row.get(3));
+        Long hotspotTotal = 0l;
+
+        Map<Long, Long> commonValCounts = new HashMap<>();
+        if (row.get(0) != null) {
+            Iterator<Object> ids = ((JSONArray) JSONValue.parse(row.get(0))).iterator();
             Iterator<Object> freqs = ((JSONArray) JSONValue.parse(row.get(1))).iterator();
-            while (ids.hasNext() || freqs.hasNext()) {
+            while (ids.hasNext() && freqs.hasNext()) {
                 long hotspotCount = (long) (Double.parseDouble(freqs.next().toString()) * count);
                 commonValCounts.put(Long.parseLong(ids.next().toString()), hotspotCount);
-                hotspotTotal += count;
+                hotspotTotal += hotspotCount;
             }
-            perOperandCommonValCounts.put(o, commonValCounts);
-
-            List<Long> histogramBounds = ((List<Object>) JSONValue.parse(row.get(3))).stream()
-                    .map(v -> Long.parseLong(v.toString())).collect(Collectors.toList());
-            perOperandHistogramBounds.put(o, histogramBounds);
-
-            perOperandHistogramBucketCount.put(o, (count - hotspotTotal) / histogramBounds.size());
         }
 
-        long globalMin = perOperandHistogramBounds.values().stream().filter(l -> !l.isEmpty()).mapToLong(l -> l.get(0)).min().getAsLong();
-        long globalMax = perOperandHistogramBounds.values().stream().filter(l -> !l.isEmpty()).mapToLong(l -> l.get(l.size())).max().getAsLong();
+        List<Long> histogramBounds = row.get(2) == null ? Collections.emptyList() : ((List<Object>) JSONValue.parse(row.get(2))).stream()
+                .map(v -> Long.parseLong(v.toString())).collect(Collectors.toList());
 
-        return operands.stream()
-                .map(o -> new Histogram(rescaleHistogramBounds(perOperandHistogramBounds.get(o), globalMin, globalMax, perOperandHistogramBucketCount.get(o), NUM_BUCKETS), perOperandCommonValCounts.get(o), globalMin, globalMax, o))
-                .collect(Collectors.toList());
+        long bucketCount = histogramBounds.isEmpty() ? 0 : (count - hotspotTotal) / histogramBounds.size();
+        return new AttributeStatistics(modifications, commonValCounts, histogramBounds, bucketCount);
+    }
+
+    /**
+     * Forgets the statistics of all the join attributes.
+     */
+    public static void clearStatisticsCache() {
+        statisticsCache.clear();
     }
 
     private static long[] rescaleHistogramBounds(List<Long> bounds, Long min, Long max, long boundWidth, int numBuckets) {
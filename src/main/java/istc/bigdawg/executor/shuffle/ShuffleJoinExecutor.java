@@ -1,11 +1,19 @@
 package istc.bigdawg.executor.shuffle;
 
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.jgrapht.experimental.dag.DirectedAcyclicGraph;
@@ -21,8 +29,16 @@ import istc.bigdawg.executor.plan.ExecutionNode;
 import istc.bigdawg.executor.plan.LocalQueryExecutionNode;
 import istc.bigdawg.executor.plan.QueryExecutionPlan;
 import istc.bigdawg.islands.IslandAndCastResolver.Scope;
+import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
 import istc.bigdawg.query.ConnectionInfo;
 
+/**
+ * Executes an equi-join whose operands (the shards of both sides of the join) can live on any number of engines.
+ *
+ * The join values are split into join units (the buckets and the hotspots of the histograms, see {@link Assignments})
+ * and each unit is assigned to one engine. Every shard sends the tuples of a unit to the engine of the unit, each
+ * engine joins the tuples it received and the results of all the engines are put together on the destination engine.
+ */
 public class ShuffleJoinExecutor {
 
     private BinaryJoinExecutionNode node;
@@ -31,85 +47,206 @@ public class ShuffleJoinExecutor {
         this.node = node;
     }
 
-    private String getPartitionQuery(BinaryJoinExecutionNode.JoinOperand operand, String destinationTable, Collection<Assignments.Range> desiredRanges, Collection<Assignments.Hotspot> desiredHotspots, Collection<Assignments.Hotspot> ignore) {
-        String ranges = desiredRanges.stream().map(r -> String.format("(%s BETWEEN %s and %s)", operand.attribute, r.start, r.end)).collect(Collectors.joining(" OR "));
-        String hotspots = String.format("%s IN (%s)", operand.attribute, desiredHotspots.stream().map(h -> Long.toString(h.val)).collect(Collectors.joining(", ")));
-        String blacklist = String.format("%s IN (%s)", operand.attribute, ignore.stream().map(h -> Long.toString(h.val)).collect(Collectors.joining(", ")));
+    /**
+     * An engine which executes a local join: the join units assigned to it and the tables which hold the tuples it
+     * receives from the shards of each side of the join.
+     */
+    static class Site {
+        final int id;
+        final ConnectionInfo engine;
+        final Set<Assignments.Range> ranges = new HashSet<>();
+        final Set<Long> hotspots = new HashSet<>();
 
-        return String.format("SELECT * INTO %s FROM %s WHERE (%s OR %s) AND NOT %s;", destinationTable, operand.table, ranges, hotspots, blacklist);
-    }
+        Site(int id, ConnectionInfo engine) {
+            this.id = id;
+            this.engine = engine;
+        }
 
-    private QueryExecutionPlan createQueryExecutionPlan(Assignments assignments) {
-        // TODO: get the proper island instead of assuming relational
-        QueryExecutionPlan plan = new QueryExecutionPlan(Scope.RELATIONAL);
+        boolean isEmpty() {
+            return ranges.isEmpty() && hotspots.isEmpty();
+        }
 
-        String sendToRightDestination = this.node.getTableName().get() + "_LEFTPARTIAL";
-        String sendToRightQuery = getPartitionQuery(node.getLeft(), sendToRightDestination, assignments.getRangesForJoinOperand(node.getRight()),
-                assignments.getHotspotsForJoinOperand(node.getRight()), assignments.getHotspotsNotForJoinOperand(node.getRight()));
-        LocalQueryExecutionNode sendToRight = new LocalQueryExecutionNode(sendToRightQuery, node.getLeft().engine, sendToRightDestination);
+        /**
+         * @return true if the tuples with the join value belong to this site (mirrors {@link #getPartitionPredicate})
+         */
+        boolean contains(long value, Set<Long> allHotspots) {
+            if (hotspots.contains(value)) {
+                return true;
+            }
+            if (allHotspots.contains(value)) {
+                return false;
+            }
+            return ranges.stream().anyMatch(r -> value >= r.start && value < r.end);
+        }
+    }
 
-        String sendToLeftDestination = this.node.getTableName().get() + "_RIGHTPARTIAL";
-        String sendToLeftQuery = getPartitionQuery(node.getRight(), sendToLeftDestination, assignments.getRangesForJoinOperand(node.getLeft()),
-                assignments.getHotspotsForJoinOperand(node.getLeft()), assignments.getHotspotsNotForJoinOperand(node.getLeft()));
-        LocalQueryExecutionNode sendToLeft = new LocalQueryExecutionNode(sendToLeftQuery, node.getLeft().engine, sendToLeftDestination);
+    /**
+     * Group the join units by the engines of the operands they were assigned to. The outlying ranges go to the
+     * destination engine if it holds any of the operands, otherwise to the first engine.
+     */
+    List<Site> getSites(Assignments assignments) {
+        Map<ConnectionInfo, Site> sites = new LinkedHashMap<>();
+        for (BinaryJoinExecutionNode.JoinOperand o : getShards()) {
+            Site site = sites.computeIfAbsent(o.engine, e -> new Site(sites.size(), e));
+            site.ranges.addAll(assignments.getRangesForJoinOperand(o));
+            site.hotspots.addAll(assignments.getHotspotsForJoinOperand(o).stream().map(h -> h.val).collect(Collectors.toSet()));
+        }
+        if (!sites.containsKey(assignments.getFallback())) {
+            sites.values().iterator().next().ranges.addAll(assignments.getOutlyingRanges());
+        }
+        return new ArrayList<>(sites.values());
+    }
 
-        String rightResultDestination = this.node.getTableName().get() + "_RIGHTRESULTS";
-        String rightQueryString = node.getRight().getQueryString();
-        LocalQueryExecutionNode rightResults = new LocalQueryExecutionNode(rightQueryString, node.getRight().engine, rightResultDestination);
+    private List<BinaryJoinExecutionNode.JoinOperand> getShards() {
+        List<BinaryJoinExecutionNode.JoinOperand> shards = new ArrayList<>(node.getLeftShards());
+        shards.addAll(node.getRightShards());
+        return shards;
+    }
 
-        String leftResultDestination = this.node.getTableName().get() + "_LEFTRESULTS";
-        String leftQueryString = node.getLeft().getQueryString();
-        LocalQueryExecutionNode leftResults = new LocalQueryExecutionNode(leftQueryString, node.getLeft().engine, leftResultDestination);
+    /**
+     * @param attribute
+     *            the join attribute of the operand
+     * @param site
+     *            the site which receives the tuples
+     * @param allHotspots
+     *            the hotspots of all the sites (the tuples with a hotspot value go only to the site of the hotspot,
+     *            even though the value is also in the range of a bucket)
+     * @return the condition which selects the tuples sent to the site
+     */
+    static String getPartitionPredicate(String attribute, Site site, Set<Long> allHotspots) {
+        List<String> conditions = new ArrayList<>();
+        for (Assignments.Range r : site.ranges) {
+            List<String> bounds = new ArrayList<>();
+            if (r.start != Double.NEGATIVE_INFINITY) {
+                bounds.add(String.format("%s >= %s", attribute, r.start));
+            }
+            if (r.end != Double.POSITIVE_INFINITY) {
+                bounds.add(String.format("%s < %s", attribute, r.end));
+            }
+            conditions.add(bounds.isEmpty() ? "true" : "(" + String.join(" AND ", bounds) + ")");
+        }
+        Set<Long> otherHotspots = new HashSet<>(allHotspots);
+        otherHotspots.removeAll(site.hotspots);
+        String predicate = conditions.isEmpty() ? "false" : "(" + String.join(" OR ", conditions) + ")";
+        if (!otherHotspots.isEmpty()) {
+            predicate = String.format("%s AND %s NOT IN (%s)", predicate, attribute, joinValues(otherHotspots));
+        }
+        if (!site.hotspots.isEmpty()) {
+            predicate = String.format("(%s OR %s IN (%s))", predicate, attribute, joinValues(site.hotspots));
+        }
+        return predicate;
+    }
 
-        LocalQueryExecutionNode union = new LocalQueryExecutionNode(node.getShuffleUnionString(leftResultDestination, rightResultDestination), node.getEngine(), node.getTableName().get());
+    private static String joinValues(Collection<Long> values) {
+        return values.stream().sorted().map(v -> Long.toString(v)).collect(Collectors.joining(", "));
+    }
 
-        plan.addNode(sendToRight);
-        plan.addNode(sendToLeft);
-        plan.addNode(rightResults);
-        plan.addNode(leftResults);
+    /**
+     * @return the local join of the site: the query of the left operand, which joins its table with the
+     * _RIGHTPARTIAL table, reading instead the tables with the tuples received by the site
+     */
+    String getLocalJoinQuery(String leftPartial, String rightPartial, String results) {
+        String destination = node.getTableName().get();
+        Map<String, String> tables = new HashMap<>();
+        tables.put(destination + "_LEFTRESULTS", results);
+        tables.put(destination + "_RIGHTPARTIAL", rightPartial);
+        tables.put(node.getLeft().table, leftPartial);
+        return replaceTables(node.getLeft().getQueryString(), tables);
+    }
 
-        plan.addNode(union);
-        plan.setTerminalTableName(union.getTableName().get());
-        plan.setTerminalTableNode(union);
+    /**
+     * Replaces the tables in the query in a single pass and only as whole names, so neither the names which were
+     * already put into the query nor longer names with the same prefix (e.g. BIGDAWGTAG_12 for BIGDAWGTAG_1) are
+     * changed.
+     */
+    static String replaceTables(String query, Map<String, String> tables) {
+        String names = tables.keySet().stream()
+                .sorted(Comparator.comparing(String::length).reversed())
+                .map(Pattern::quote)
+                .collect(Collectors.joining("|", "\\b(?:", ")\\b"));
+        Matcher matcher = Pattern.compile(names).matcher(query);
+        StringBuffer replaced = new StringBuffer();
+        while (matcher.find()) {
+            matcher.appendReplacement(replaced, Matcher.quoteReplacement(tables.get(matcher.group())));
+        }
+        matcher.appendTail(replaced);
+        return replaced.toString();
+    }
 
-        plan.addEdge(sendToRight, rightResults);
-        plan.addEdge(sendToLeft, leftResults);
-        plan.addEdge(leftResults, union);
-        plan.addEdge(rightResults, union);
+    /**
+     * Adds the nodes which send the tuples of the shards of one side of the join to the site.
+     *
+     * @return the node with all the tuples of the side received by the site
+     */
+    private ExecutionNode addPartitions(QueryExecutionPlan plan, Site site, String side, List<BinaryJoinExecutionNode.JoinOperand> shards, Set<Long> allHotspots) throws DirectedAcyclicGraph.CycleFoundException {
+        String partial = String.format("%s_%sPARTIAL_%d", node.getTableName().get(), side, site.id);
+        List<ExecutionNode> partitions = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            BinaryJoinExecutionNode.JoinOperand shard = shards.get(i);
+            String destination = shards.size() == 1 ? partial : String.format("%s_%d", partial, i);
+            String query = String.format("SELECT * INTO %s FROM %s WHERE %s;", destination, shard.table, getPartitionPredicate(shard.attribute, site, allHotspots));
+            ExecutionNode partition = new LocalQueryExecutionNode(query, shard.engine, destination);
+            plan.addNode(partition);
+            partitions.add(partition);
+        }
+        if (partitions.size() == 1) {
+            return partitions.get(0);
+        }
 
-        return plan;
+        // the partitions are migrated to the site and put together there
+        String gatherQuery = String.format("SELECT * INTO %s FROM %s;", partial, partitions.stream()
+                .map(p -> p.getTableName().get()).collect(Collectors.joining(" UNION ALL SELECT * FROM ")));
+        ExecutionNode gather = new LocalQueryExecutionNode(gatherQuery, site.engine, partial);
+        plan.addDependencies(gather, partitions);
+        return gather;
     }
 
-    private QueryExecutionPlan generateQEP(Assignments assignments) throws DirectedAcyclicGraph.CycleFoundException {
-        // TODO: implement this in the future for non-binary joins!
-        QueryExecutionPlan plan = new QueryExecutionPlan(Scope.RELATIONAL);
+    /**
+     * @return the island of the engines of the join, the partitions and the local joins are SQL queries so all the
+     * engines have to be relational
+     * @throws ExecutorEngine.LocalQueryExecutionException if an operand or the destination is not stored in a
+     * relational engine
+     */
+    Scope getIsland() throws ExecutorEngine.LocalQueryExecutionException {
+        Set<ConnectionInfo> engines = new HashSet<>();
+        engines.add(node.getEngine());
+        node.getOperands().forEach(o -> engines.add(o.engine));
+        for (ConnectionInfo engine : engines) {
+            if (!(engine instanceof PostgreSQLConnectionInfo)) {
+                throw new ExecutorEngine.LocalQueryExecutionException(String.format(
+                        "Cannot shuffle join %s: %s is not a relational engine", node, engine));
+            }
+        }
+        return Scope.RELATIONAL;
+    }
 
-        Map<ConnectionInfo, ExecutionNode> localJoins = new HashMap<>();
+    /**
+     * Creates the plan of the shuffle join: the partitions of all the shards are sent to the sites, the sites join
+     * them in parallel and the union of their results goes to the destination table.
+     */
+    QueryExecutionPlan generateQEP(Assignments assignments) throws DirectedAcyclicGraph.CycleFoundException, ExecutorEngine.LocalQueryExecutionException {
+        QueryExecutionPlan plan = new QueryExecutionPlan(getIsland());
 
-        for (BinaryJoinExecutionNode.JoinOperand o : this.node.getOperands()) {
-            String query = null; //TODO
-            String destination = null; //TODO
-            LocalQueryExecutionNode localJoin = new LocalQueryExecutionNode(query, o.engine, destination);
-            plan.addNode(localJoin);
-            localJoins.put(o.engine, localJoin);
+        List<Site> sites = getSites(assignments).stream().filter(s -> !s.isEmpty()).collect(Collectors.toList());
+        Set<Long> allHotspots = new HashSet<>();
+        sites.forEach(s -> allHotspots.addAll(s.hotspots));
 
-            for (BinaryJoinExecutionNode.JoinOperand other : this.node.getOperands()) {
-                if (!other.equals(o)) {
-                    String partitionDestination = null; //TODO
-                    String partitionQuery = null; //TODO
+        List<ExecutionNode> localJoins = new ArrayList<>();
+        for (Site site : sites) {
+            ExecutionNode leftPartial = addPartitions(plan, site, "LEFT", node.getLeftShards(), allHotspots);
+            ExecutionNode rightPartial = addPartitions(plan, site, "RIGHT", node.getRightShards(), allHotspots);
 
-                    LocalQueryExecutionNode partitionOther = new LocalQueryExecutionNode(partitionQuery, other.engine, partitionDestination);
-                    plan.addNode(partitionOther);
-                    plan.addDependencies(localJoin, Collections.singleton(partitionOther));
-                }
-            }
+            String results = String.format("%s_RESULTS_%d", node.getTableName().get(), site.id);
+            String query = getLocalJoinQuery(leftPartial.getTableName().get(), rightPartial.getTableName().get(), results);
+            ExecutionNode localJoin = new LocalQueryExecutionNode(query, site.engine, results);
+            plan.addDependencies(localJoin, Arrays.asList(leftPartial, rightPartial));
+            localJoins.add(localJoin);
         }
 
-        String terminalQuery = null; // TODO
+        String terminalQuery = node.getShuffleUnionString(localJoins.stream().map(j -> j.getTableName().get()).collect(Collectors.toList()));
         ExecutionNode terminal = new LocalQueryExecutionNode(terminalQuery, node.getEngine(), node.getTableName().get());
 
-        plan.addNode(terminal);
-        plan.addDependencies(terminal, localJoins.values());
+        plan.addDependencies(terminal, localJoins);
         plan.setTerminalTableNode(terminal);
         plan.setTerminalTableName(terminal.getTableName().get());
 
@@ -117,6 +254,9 @@ public class ShuffleJoinExecutor {
     }
 
     public Optional<QueryResult> execute() throws ExecutorEngine.LocalQueryExecutionException, MigrationException, ConnectionInfo.LocalQueryExecutorLookupException {
+        // the plan of the shuffle is made of SQL queries, check the engines before gathering the histograms
+        getIsland();
+
         Logger.info(this, "Extracting histogram from engines...");
         // TODO: get histogram strat from node
         Collection<Histogram> histograms = ShuffleEngine.createHistograms(this.node.getOperands(), ShuffleEngine.HistogramStrategy.SAMPLING);
@@ -126,7 +266,12 @@ public class ShuffleJoinExecutor {
         Assignments assignments = Assignments.assignTuples(histograms, this.node.getEngine(), ShuffleEngine.NUM_BUCKETS, Assignments.AssignmentStrategies.MINIMUM_BANDWIDTH);
 
         Logger.info(this, "Creating QEP from assignments...");
-        QueryExecutionPlan shufflePlan = this.createQueryExecutionPlan(assignments);
+        QueryExecutionPlan shufflePlan;
+        try {
+            shufflePlan = this.generateQEP(assignments);
+        } catch (DirectedAcyclicGraph.CycleFoundException e) {
+            throw new ExecutorEngine.LocalQueryExecutionException(String.format("Could not create the plan of the shuffle join %s", node), e);
+        }
 
         return Optional.ofNullable(Executor.executePlan(shufflePlan));
     }
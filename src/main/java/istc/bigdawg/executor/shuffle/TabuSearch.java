@@ -0,0 +1,193 @@
+package istc.bigdawg.executor.shuffle;
+
+import java.util.Arrays;
+
+/**
+ * Tabu search for the assignment of the join units (buckets and hotspots) to the nodes of a shuffle join, minimizing
+ * the cost of the most expensive node as estimated by {@link Assignments#getPerNodeCost()}.
+ *
+ * The nodes and the units are identified by their indexes. The number of tuples each node receives from each source
+ * and the cost of each node are kept in arrays and updated when a unit moves, so a move is evaluated in time
+ * proportional to the number of nodes, not to the number of units.
+ */
+class TabuSearch {
+    // number of iterations for which a unit cannot go back to the node it was moved from
+    private static final int TABU_TENURE = 10;
+
+    // the search stops after so many iterations without a better assignment
+    private static final int MAX_ITERATIONS_WITHOUT_IMPROVEMENT = 100;
+
+    private final int nodes;
+    private final int units;
+
+    // counts[source * units + unit]: number of tuples of the unit stored on the source
+    private final long[] counts;
+
+    // assignment[unit]: the node which joins the tuples of the unit
+    private final int[] assignment;
+
+    // inbound[node * nodes + source]: number of tuples the node receives from the source (including itself)
+    private final long[] inbound;
+
+    private final double[] costs;
+
+    // tabuUntil[unit * nodes + node]: the iteration until which the unit cannot be moved to the node
+    private final int[] tabuUntil;
+
+    private int iterations = 0;
+
+    /**
+     * @param counts
+     *            counts[source][unit]: number of tuples of the unit stored on the source node
+     * @param assignment
+     *            the initial node of each unit
+     */
+    TabuSearch(long[][] counts, int[] assignment) {
+        this.nodes = counts.length;
+        this.units = assignment.length;
+        this.counts = new long[nodes * units];
+        for (int source = 0; source < nodes; source++) {
+            System.arraycopy(counts[source], 0, this.counts, source * units, units);
+        }
+        this.assignment = Arrays.copyOf(assignment, units);
+        this.inbound = new long[nodes * nodes];
+        for (int unit = 0; unit < units; unit++) {
+            for (int source = 0; source < nodes; source++) {
+                inbound[assignment[unit] * nodes + source] += this.counts[source * units + unit];
+            }
+        }
+        this.costs = new double[nodes];
+        for (int node = 0; node < nodes; node++) {
+            costs[node] = getNodeCost(node, -1, 0);
+        }
+        this.tabuUntil = new int[units * nodes];
+    }
+
+    /**
+     * @return the cost of the node if the tuples of the unit were added (sign 1) or removed (sign -1), or the
+     * current cost of the node for unit -1
+     */
+    private double getNodeCost(int node, int unit, int sign) {
+        long total = 0;
+        double alignment = 0;
+        for (int source = 0; source < nodes; source++) {
+            long count = inbound[node * nodes + source];
+            if (unit >= 0) {
+                count += sign * counts[source * units + unit];
+            }
+            total += count;
+            if (source != node) {
+                alignment = Math.max(alignment, Math.max(ShuffleEngine.computeUplinkCost(count), ShuffleEngine.computeDownlinkCost(count)));
+            }
+        }
+        return alignment + ShuffleEngine.computeComparisonCost(total);
+    }
+
+    private void move(int unit, int to) {
+        int from = assignment[unit];
+        for (int source = 0; source < nodes; source++) {
+            long count = counts[source * units + unit];
+            inbound[from * nodes + source] -= count;
+            inbound[to * nodes + source] += count;
+        }
+        assignment[unit] = to;
+        costs[from] = getNodeCost(from, -1, 0);
+        costs[to] = getNodeCost(to, -1, 0);
+    }
+
+    double getCost() {
+        double cost = 0;
+        for (double c : costs) {
+            cost = Math.max(cost, c);
+        }
+        return cost;
+    }
+
+    /**
+     * @return the current assignment (the last one visited by the search, not necessarily the best)
+     */
+    int[] getAssignment() {
+        return Arrays.copyOf(assignment, units);
+    }
+
+    int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Moves the units of the most expensive node to the other nodes, one unit per iteration (the best move which is
+     * not tabu, even if it makes the assignment worse, so the search can leave a local minimum).
+     *
+     * @param budgetNanos
+     *            the time for which the search runs at most
+     * @return the best assignment found: the node of each unit
+     */
+    int[] search(long budgetNanos) {
+        final long start = System.nanoTime();
+        int[] best = Arrays.copyOf(assignment, units);
+        double bestCost = getCost();
+        int withoutImprovement = 0;
+
+        while (nodes > 1 && withoutImprovement < MAX_ITERATIONS_WITHOUT_IMPROVEMENT && System.nanoTime() - start < budgetNanos) {
+            iterations++;
+
+            // the three most expensive nodes: the cost of the nodes which do not take part in a move does not change
+            int first = -1, second = -1, third = -1;
+            for (int node = 0; node < nodes; node++) {
+                if (first < 0 || costs[node] > costs[first]) {
+                    third = second;
+                    second = first;
+                    first = node;
+                } else if (second < 0 || costs[node] > costs[second]) {
+                    third = second;
+                    second = node;
+                } else if (third < 0 || costs[node] > costs[third]) {
+                    third = node;
+                }
+            }
+
+            int bestUnit = -1, bestTarget = -1;
+            double bestMoveCost = Double.POSITIVE_INFINITY;
+            for (int unit = 0; unit < units; unit++) {
+                if (assignment[unit] != first) {
+                    continue;
+                }
+                double fromCost = getNodeCost(first, unit, -1);
+                for (int to = 0; to < nodes; to++) {
+                    if (to == first) {
+                        continue;
+                    }
+                    double toCost = getNodeCost(to, unit, 1);
+                    double cost = Math.max(fromCost, toCost);
+                    int other = to == second ? third : second;
+                    if (other >= 0) {
+                        cost = Math.max(cost, costs[other]);
+                    }
+                    boolean tabu = tabuUntil[unit * nodes + to] > iterations;
+                    // a tabu move is allowed if it gives the best assignment so far
+                    if ((!tabu || cost < bestCost) && cost < bestMoveCost) {
+                        bestMoveCost = cost;
+                        bestUnit = unit;
+                        bestTarget = to;
+                    }
+                }
+            }
+            if (bestUnit < 0) {
+                break;
+            }
+
+            move(bestUnit, bestTarget);
+            tabuUntil[bestUnit * nodes + first] = iterations + TABU_TENURE;
+
+            double cost = getCost();
+            if (cost < bestCost) {
+                bestCost = cost;
+                System.arraycopy(assignment, 0, best, 0, units);
+                withoutImprovement = 0;
+            } else {
+                withoutImprovement++;
+            }
+        }
+        return best;
+    }
+}
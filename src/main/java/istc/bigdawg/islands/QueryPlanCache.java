@@ -0,0 +1,181 @@
+package istc.bigdawg.islands;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+
+import istc.bigdawg.catalog.CatalogCache;
+
+/**
+ * Bounded LRU cache of the plans that an island obtains from its schema
+ * server (e.g. the EXPLAIN output of PostgreSQL or the logical plan of SciDB),
+ * so that the island only parses it again. The plans are keyed by
+ * the query text with its whitespace normalized, so the same query resubmitted
+ * with different formatting does not cost another round trip.
+ *
+ * The cache is cleared whenever the catalog is changed. Queries that refer to
+ * the transition tables of a cross-island plan (BIGDAWGTAG_...) are not cached
+ * because the names of these tables are reused with different schemas.
+ *
+ * @param <V>
+ *            the cached plan
+ */
+public class QueryPlanCache<V> {
+
+	private static Logger logger = Logger.getLogger(QueryPlanCache.class);
+
+	private static final Pattern transitionTablePattern = Pattern
+			.compile("BIGDAWGTAG_[0-9_]+");
+
+	private final String name;
+	private final int capacity;
+	private final LinkedHashMap<String, V> plans;
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	/**
+	 * @param name
+	 *            name of the cache (for logging)
+	 * @param capacity
+	 *            maximum number of plans kept, 0 disables the cache
+	 */
+	public QueryPlanCache(String name, int capacity) {
+		this.name = name;
+		this.capacity = capacity;
+		this.plans = new LinkedHashMap<String, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+				if (size() > QueryPlanCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+		CatalogCache.INSTANCE.addInvalidationListener(this::invalidate);
+	}
+
+	/**
+	 * @param query
+	 *            the island query
+	 * @return the cached plan of the query or null if it is not cached
+	 */
+	public synchronized V get(String query) {
+		if (!isCacheable(query)) {
+			return null;
+		}
+		V plan = plans.get(normalize(query));
+		if (plan == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return plan;
+	}
+
+	/**
+	 * Remember the plan of the query.
+	 */
+	public synchronized void put(String query, V plan) {
+		if (isCacheable(query)) {
+			plans.put(normalize(query), plan);
+		}
+	}
+
+	/**
+	 * Drop all the cached plans.
+	 */
+	public synchronized void invalidate() {
+		if (!plans.isEmpty()) {
+			logger.debug("Clearing " + plans.size() + " cached " + name
+					+ " plans.");
+		}
+		plans.clear();
+	}
+
+	private boolean isCacheable(String query) {
+		return capacity > 0 && !transitionTablePattern.matcher(query).find();
+	}
+
+	/**
+	 * Collapse every run of whitespace outside of the quoted literals and
+	 * identifiers into a single space and drop the trailing semicolons.
+	 *
+	 * @param query
+	 *            the island query
+	 * @return the key of the query in the cache
+	 */
+	public static String normalize(String query) {
+		StringBuilder key = new StringBuilder(query.length());
+		char quote = 0;
+		boolean space = false;
+		for (int i = 0; i < query.length(); ++i) {
+			char c = query.charAt(i);
+			if (quote != 0) {
+				key.append(c);
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (Character.isWhitespace(c)) {
+				space = true;
+			} else {
+				if (space && key.length() > 0) {
+					key.append(' ');
+				}
+				space = false;
+				if (c == '\'' || c == '"') {
+					quote = c;
+				}
+				key.append(c);
+			}
+		}
+		int end = key.length();
+		while (end > 0
+				&& (key.charAt(end - 1) == ';' || key.charAt(end - 1) == ' ')) {
+			end--;
+		}
+		key.setLength(end);
+		return key.toString();
+	}
+
+	/**
+	 * @return number of plans found in the cache
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return number of plans which had to be fetched from the schema server
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return number of plans dropped because the cache was full
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return number of plans in the cache
+	 */
+	public synchronized int size() {
+		return plans.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "QueryPlanCache [name=" + name + ", size=" + plans.size()
+				+ ", capacity=" + capacity + ", hits=" + hits + ", misses="
+				+ misses + ", evictions=" + evictions + "]";
+	}
+}
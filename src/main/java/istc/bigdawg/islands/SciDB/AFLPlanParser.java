@@ -213,6 +213,18 @@ public class AFLPlanParser {
 
 		String explained = scidbh.generateSciDBLogicalPlan(query);
 		
+		return extractFromLogicalPlan(explained, query);
+	}
+	
+	/**
+	 * Build the query plan from the logical plan obtained earlier from SciDB.
+	 * 
+	 * @param explained the logical plan of the query
+	 * @param query the query
+	 * @return the query plan
+	 */
+	public static AFLQueryPlan extractFromLogicalPlan(String explained, String query) throws SQLException, QueryParsingException, JSQLParserException {
+		
 		// set up supplement
 		AFLQueryPlan queryPlan = new AFLQueryPlan();
 		
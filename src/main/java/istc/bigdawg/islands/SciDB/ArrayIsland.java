@@ -17,6 +17,7 @@ import istc.bigdawg.exceptions.BigDawgCatalogException;
 import istc.bigdawg.exceptions.IslandException;
 import istc.bigdawg.islands.IntraIslandQuery;
 import istc.bigdawg.islands.Island;
+import istc.bigdawg.islands.QueryPlanCache;
 import istc.bigdawg.islands.SciDB.operators.SciDBIslandJoin;
 import istc.bigdawg.islands.operators.Join;
 import istc.bigdawg.islands.operators.Join.JoinType;
@@ -35,6 +36,10 @@ public class ArrayIsland implements Island {
 	private static SciDBConnectionInfo arraySchemaServerConnectionInfo = null;
 	private static final Pattern arrayIslandPredicatePattern = Pattern.compile("(?<=\\()([^\\(^\\)]+)(?=\\))");
 	
+	// logical plans of the recently parsed queries
+	private static final QueryPlanCache<String> planCache = 
+			new QueryPlanCache<>("array", BigDawgConfigProperties.INSTANCE.getIslandPlanCacheSize());
+	
 	static {
 		try {
 			arraySchemaServerConnectionInfo = 
@@ -112,7 +117,12 @@ public class ArrayIsland implements Island {
 	@Override
 	public Operator parseQueryAndExtractAllTableNames(String queryString, List<String> tables) throws IslandException {
 		try {
-			AFLQueryPlan arrayQueryPlan = AFLPlanParser.extractDirect(new SciDBHandler(arraySchemaServerConnectionInfo), queryString);
+			String explained = planCache.get(queryString);
+			if (explained == null) {
+				explained = new SciDBHandler(arraySchemaServerConnectionInfo).generateSciDBLogicalPlan(queryString);
+				planCache.put(queryString, explained);
+			}
+			AFLQueryPlan arrayQueryPlan = AFLPlanParser.extractFromLogicalPlan(explained, queryString);
 			Operator root = arrayQueryPlan.getRootNode();
 			tables.addAll(ArraySignatureBuilder.sig2(queryString));
 			return root;
@@ -121,6 +131,13 @@ public class ArrayIsland implements Island {
 		}
 	}
 
+	/**
+	 * @return the cache of the logical plans of the array island queries
+	 */
+	public static QueryPlanCache<String> getPlanCache() {
+		return planCache;
+	}
+
 	@Override
 	public Set<String> splitJoinPredicate(String predicates) throws IslandException {
 		Set<String> results = new HashSet<>();
@@ -230,6 +230,11 @@ public class SciDBIslandJoin extends SciDBIslandOperator implements Join {
 	
 	
 
+	public JoinType getJoinType() {
+		return joinType;
+	}
+
+
 	public Integer getJoinID() {
 		return joinID;
 	}
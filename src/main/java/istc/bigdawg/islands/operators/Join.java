@@ -4,7 +4,7 @@ import istc.bigdawg.exceptions.IslandException;
 
 public interface Join extends Operator {
 
-	public enum JoinType  {Left, Natural, Right, Cross};
+	public enum JoinType  {Left, Natural, Right, Cross, Full};
 	
 	// creates a default and call this to create a new Join instance
 	public Join construct(Operator child0, Operator child1, JoinType jt, String joinPred, boolean isFilter) throws Exception;
@@ -23,6 +23,11 @@ public interface Join extends Operator {
 	 */
 	public String generateJoinFilter() throws IslandException;
     
+	/**
+	 * @return the type of the join, null for an inner join
+	 */
+	public JoinType getJoinType();
+	
 	public String getJoinToken();	
 	public Integer getJoinID();
 	public void setJoinID(Integer joinID);
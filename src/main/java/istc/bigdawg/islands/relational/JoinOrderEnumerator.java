@@ -0,0 +1,464 @@
+package istc.bigdawg.islands.relational;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Selinger-style dynamic programming over the join graph of a query. The
+ * leaves of the join tree are numbered 0..n-1; two leaves are adjacent when a
+ * join predicate (or filter) connects them.
+ *
+ * Only the pairs of a connected subset of the leaves and a connected subset
+ * of its neighbours are combined (DPccp, Moerkotte and Neumann, VLDB 2006), so
+ * cross joins are never introduced inside a connected component and the work
+ * is proportional to the number of such pairs (cubic for a chain) instead of
+ * 3^n. For every subset the cheapest k join trees are kept. Queries with more
+ * leaves than the given limit are ordered greedily: the pair of connected
+ * trees with the smallest result is joined first, and only one tree is
+ * returned. The cost of a tree is the sum of the estimated sizes of
+ * its intermediate results (C_out); the size of a join is the product of the
+ * sizes of its inputs and of the selectivities of the predicates between
+ * them, where the selectivity of a predicate between two leaves is
+ * 1/max(rows of the leaves).
+ *
+ * If the join graph is not connected, the best trees of the components are
+ * joined at the top with cross joins, smallest component first.
+ */
+public class JoinOrderEnumerator {
+
+	/** Estimated number of rows of a leaf without statistics. */
+	public static final double DEFAULT_ROWS = 1000;
+
+	/**
+	 * Largest number of leaves enumerated by dynamic programming, if not
+	 * given.
+	 */
+	public static final int DEFAULT_DP_LEAVES = 12;
+
+	/**
+	 * A join tree over the leaves.
+	 */
+	public static final class Plan {
+		private final long leaves;
+		private final int leaf;
+		private final Plan left;
+		private final Plan right;
+		private final double rows;
+		private final double cost;
+
+		private Plan(int leaf, double rows) {
+			this.leaves = 1L << leaf;
+			this.leaf = leaf;
+			this.left = null;
+			this.right = null;
+			this.rows = rows;
+			this.cost = 0;
+		}
+
+		private Plan(Plan left, Plan right, double rows, double cost) {
+			this.leaves = left.leaves | right.leaves;
+			this.leaf = -1;
+			this.left = left;
+			this.right = right;
+			this.rows = rows;
+			this.cost = cost;
+		}
+
+		public boolean isLeaf() {
+			return left == null;
+		}
+
+		/**
+		 * @return index of the leaf (only for leaves)
+		 */
+		public int getLeaf() {
+			return leaf;
+		}
+
+		public Plan getLeft() {
+			return left;
+		}
+
+		public Plan getRight() {
+			return right;
+		}
+
+		/**
+		 * @return estimated number of rows produced by the tree
+		 */
+		public double getRows() {
+			return rows;
+		}
+
+		/**
+		 * @return estimated cost of the tree
+		 */
+		public double getCost() {
+			return cost;
+		}
+
+		/**
+		 * @return the leaves of the tree from left to right
+		 */
+		private int[] getLeavesInOrder() {
+			int[] order = new int[Long.bitCount(leaves)];
+			addLeavesInOrder(order, 0);
+			return order;
+		}
+
+		private int addLeavesInOrder(int[] order, int position) {
+			if (isLeaf()) {
+				order[position] = leaf;
+				return position + 1;
+			}
+			return right.addLeavesInOrder(order,
+					left.addLeavesInOrder(order, position));
+		}
+
+		@Override
+		public String toString() {
+			return isLeaf() ? String.valueOf(leaf)
+					: "(" + left.toString() + " " + right.toString() + ")";
+		}
+	}
+
+	/**
+	 * Cheapest first; of two trees with the same cost the one which keeps the
+	 * leaves closer to the order of the query comes first, so the result does
+	 * not depend on the order of the enumeration.
+	 */
+	private static final Comparator<Plan> BY_COST = Comparator
+			.comparingDouble(Plan::getCost).thenComparing((a, b) -> {
+				int[] first = a.getLeavesInOrder();
+				int[] second = b.getLeavesInOrder();
+				for (int i = 0; i < Math.min(first.length,
+						second.length); ++i) {
+					if (first[i] != second[i]) {
+						return Integer.compare(first[i], second[i]);
+					}
+				}
+				return Integer.compare(first.length, second.length);
+			});
+
+	private final int size;
+	private final double[] rows;
+	private final long[] adjacency;
+	private final double[][] selectivity;
+	private final int topK;
+	private final int dpLeaves;
+
+	/** the best plans of every connected subset of the leaves */
+	private final Map<Long, List<Plan>> memo = new HashMap<>();
+
+	/**
+	 * @param rows
+	 *            estimated number of rows of every leaf (a value not greater
+	 *            than 0 means that the size is unknown)
+	 * @param adjacency
+	 *            for every leaf, the bit set of the leaves it is connected to
+	 *            by a join predicate
+	 * @param topK
+	 *            how many of the cheapest join trees should be kept
+	 */
+	public JoinOrderEnumerator(double[] rows, long[] adjacency, int topK) {
+		this(rows, adjacency, topK, DEFAULT_DP_LEAVES);
+	}
+
+	/**
+	 * @param rows
+	 *            estimated number of rows of every leaf (a value not greater
+	 *            than 0 means that the size is unknown)
+	 * @param adjacency
+	 *            for every leaf, the bit set of the leaves it is connected to
+	 *            by a join predicate
+	 * @param topK
+	 *            how many of the cheapest join trees should be kept
+	 * @param dpLeaves
+	 *            largest number of leaves enumerated by dynamic programming;
+	 *            the join tree of more leaves is built greedily
+	 */
+	public JoinOrderEnumerator(double[] rows, long[] adjacency, int topK,
+			int dpLeaves) {
+		if (rows.length != adjacency.length || rows.length > 62) {
+			throw new IllegalArgumentException(
+					"Join order enumeration supports up to 62 leaves with an adjacency set for each.");
+		}
+		this.size = rows.length;
+		this.rows = new double[size];
+		for (int i = 0; i < size; ++i) {
+			this.rows[i] = rows[i] > 0 ? rows[i] : DEFAULT_ROWS;
+		}
+		this.adjacency = adjacency;
+		this.topK = Math.max(1, topK);
+		this.dpLeaves = dpLeaves;
+		this.selectivity = new double[size][size];
+		for (int i = 0; i < size; ++i) {
+			for (int j = 0; j < size; ++j) {
+				selectivity[i][j] = ((adjacency[i] & (1L << j)) != 0)
+						? 1.0 / Math.max(this.rows[i], this.rows[j]) : 1.0;
+			}
+		}
+	}
+
+	/**
+	 * @return the cheapest join trees over all the leaves (at most topK),
+	 *         cheapest first; a single tree if there are more leaves than
+	 *         the limit of the dynamic programming
+	 */
+	public List<Plan> enumerate() {
+		if (size == 0) {
+			return new ArrayList<>();
+		}
+		for (int i = 0; i < size; ++i) {
+			memo.put(1L << i, Collections.singletonList(new Plan(i, rows[i])));
+		}
+		final long all = (1L << size) - 1;
+		if (size > dpLeaves) {
+			return enumerateGreedy(all);
+		}
+		/*
+		 * every connected subset, from the highest leaf down; the pairs of a
+		 * subset are emitted after the pairs of its own subsets
+		 */
+		for (int i = size - 1; i >= 0; --i) {
+			final long leaf = 1L << i;
+			enumerateComplements(leaf);
+			enumerateConnectedSubsets(leaf, leaf | (leaf - 1),
+					this::enumerateComplements);
+		}
+		List<Plan> result = memo.get(all);
+		if (result != null) {
+			return result;
+		}
+		return joinComponents(all);
+	}
+
+	/**
+	 * Emit every connected superset of the set which is extended only with
+	 * leaves not in excluded (EnumerateCsgRec).
+	 */
+	private void enumerateConnectedSubsets(long set, long excluded,
+			LongConsumer emit) {
+		final long neighbours = neighbours(set) & ~excluded;
+		if (neighbours == 0) {
+			return;
+		}
+		/* the non-empty subsets of the neighbours, smaller ones first */
+		for (long sub = neighbours & -neighbours; sub != 0; sub = (sub
+				- neighbours) & neighbours) {
+			emit.accept(set | sub);
+		}
+		for (long sub = neighbours & -neighbours; sub != 0; sub = (sub
+				- neighbours) & neighbours) {
+			enumerateConnectedSubsets(set | sub, excluded | neighbours, emit);
+		}
+	}
+
+	/**
+	 * Join the connected subset with every connected subset of its
+	 * neighbours whose leaves are all greater than the lowest leaf of the
+	 * subset, so each pair is emitted once (EnumerateCmp).
+	 */
+	private void enumerateComplements(long s1) {
+		final long lowest = Long.lowestOneBit(s1);
+		final long excluded = s1 | lowest | (lowest - 1);
+		final long neighbours = neighbours(s1) & ~excluded;
+		for (long bits = neighbours; bits != 0; bits &= ~Long
+				.highestOneBit(bits)) {
+			final long leaf = Long.highestOneBit(bits);
+			join(s1, leaf);
+			enumerateConnectedSubsets(leaf,
+					excluded | (neighbours & (leaf | (leaf - 1))),
+					(s2) -> join(s1, s2));
+		}
+	}
+
+	private void join(long s1, long s2) {
+		final long set = s1 | s2;
+		memo.put(set, combine(memo.get(set), memo.get(s1), memo.get(s2), s1,
+				s2));
+	}
+
+	/**
+	 * @return the leaves adjacent to the set (not in the set)
+	 */
+	private long neighbours(long set) {
+		long result = 0;
+		for (long bits = set; bits != 0; bits &= bits - 1) {
+			result |= adjacency[Long.numberOfTrailingZeros(bits)];
+		}
+		return result & ~set;
+	}
+
+	/**
+	 * Greedy operator ordering: join the two connected trees with the
+	 * smallest estimated result until no two trees are connected, then cross
+	 * join the components.
+	 */
+	private List<Plan> enumerateGreedy(long all) {
+		List<Plan> trees = new ArrayList<>();
+		for (int i = 0; i < size; ++i) {
+			trees.add(memo.get(1L << i).get(0));
+		}
+		while (true) {
+			int bestLeft = -1;
+			int bestRight = -1;
+			double bestRows = Double.MAX_VALUE;
+			for (int i = 0; i < trees.size(); ++i) {
+				for (int j = i + 1; j < trees.size(); ++j) {
+					Plan a = trees.get(i);
+					Plan b = trees.get(j);
+					if (!isConnected(a.leaves, b.leaves)) {
+						continue;
+					}
+					double joinRows = a.rows * b.rows
+							* selectivity(a.leaves, b.leaves);
+					if (joinRows < bestRows) {
+						bestRows = joinRows;
+						bestLeft = i;
+						bestRight = j;
+					}
+				}
+			}
+			if (bestLeft < 0) {
+				break;
+			}
+			Plan a = trees.get(bestLeft);
+			Plan b = trees.remove(bestRight);
+			Plan joined = combine(null, Collections.singletonList(a),
+					Collections.singletonList(b), a.leaves, b.leaves).get(0);
+			trees.set(bestLeft, joined);
+		}
+		for (Plan tree : trees) {
+			memo.put(tree.leaves, Collections.singletonList(tree));
+		}
+		if (trees.size() == 1) {
+			return memo.get(all);
+		}
+		return joinComponents(all);
+	}
+
+	/**
+	 * Join the best plans of all pairs (p1, p2) and merge them into the best
+	 * plans found so far for s1 | s2.
+	 */
+	private List<Plan> combine(List<Plan> best, List<Plan> p1, List<Plan> p2,
+			long s1, long s2) {
+		double joinRows = -1;
+		List<Plan> result = (best == null) ? new ArrayList<>(topK) : best;
+		for (Plan a : p1) {
+			for (Plan b : p2) {
+				if (joinRows < 0) {
+					joinRows = a.rows * b.rows * selectivity(s1, s2);
+				}
+				double cost = a.cost + b.cost + joinRows;
+				if (result.size() == topK
+						&& cost > result.get(topK - 1).cost) {
+					/* the plans are sorted, so are the later pairs with a */
+					break;
+				}
+				/* the bigger input goes first (as in the SQL generated) */
+				Plan plan = (Long.bitCount(s1) >= Long.bitCount(s2))
+						? new Plan(a, b, joinRows, cost)
+						: new Plan(b, a, joinRows, cost);
+				if (result.size() < topK
+						|| BY_COST.compare(plan, result.get(topK - 1)) < 0) {
+					insert(result, plan);
+				}
+			}
+		}
+		return result;
+	}
+
+	private void insert(List<Plan> plans, Plan plan) {
+		int pos = Collections.binarySearch(plans, plan, BY_COST);
+		if (pos < 0) {
+			pos = -pos - 1;
+		}
+		plans.add(pos, plan);
+		if (plans.size() > topK) {
+			plans.remove(plans.size() - 1);
+		}
+	}
+
+	private boolean isConnected(long s1, long s2) {
+		for (long bits = s1; bits != 0; bits &= bits - 1) {
+			if ((adjacency[Long.numberOfTrailingZeros(bits)] & s2) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the product of the selectivities of the predicates between the
+	 *         two sets of leaves
+	 */
+	private double selectivity(long s1, long s2) {
+		double result = 1.0;
+		for (long bits = s1; bits != 0; bits &= bits - 1) {
+			int i = Long.numberOfTrailingZeros(bits);
+			for (long other = adjacency[i] & s2; other != 0; other &= other
+					- 1) {
+				result *= selectivity[i][Long.numberOfTrailingZeros(other)];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The join graph is not connected: cross join the best plans of the
+	 * components, the k-th plan uses the k-th best plan of each component
+	 * (or its last one).
+	 */
+	private List<Plan> joinComponents(long all) {
+		List<List<Plan>> components = new ArrayList<>();
+		long remaining = all;
+		while (remaining != 0) {
+			long component = reachable(Long.lowestOneBit(remaining));
+			components.add(memo.get(component));
+			remaining &= ~component;
+		}
+		components.sort(Comparator.comparingDouble(c -> c.get(0).rows));
+		int plans = 0;
+		for (List<Plan> component : components) {
+			plans = Math.max(plans, component.size());
+		}
+		List<Plan> result = new ArrayList<>();
+		for (int k = 0; k < plans; ++k) {
+			Plan plan = null;
+			for (List<Plan> component : components) {
+				Plan next = component.get(Math.min(k, component.size() - 1));
+				if (plan == null) {
+					plan = next;
+				} else {
+					double joinRows = plan.rows * next.rows;
+					plan = new Plan(plan, next, joinRows,
+							plan.cost + next.cost + joinRows);
+				}
+			}
+			result.add(plan);
+		}
+		result.sort(BY_COST);
+		return result;
+	}
+
+	private long reachable(long start) {
+		long visited = start;
+		long frontier = start;
+		while (frontier != 0) {
+			long next = 0;
+			for (long bits = frontier; bits != 0; bits &= bits - 1) {
+				next |= adjacency[Long.numberOfTrailingZeros(bits)];
+			}
+			frontier = next & ~visited;
+			visited |= next;
+		}
+		return visited;
+	}
+}
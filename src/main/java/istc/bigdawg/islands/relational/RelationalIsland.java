@@ -17,10 +17,12 @@ import istc.bigdawg.exceptions.BigDawgCatalogException;
 import istc.bigdawg.exceptions.IslandException;
 import istc.bigdawg.islands.IntraIslandQuery;
 import istc.bigdawg.islands.Island;
+import istc.bigdawg.islands.QueryPlanCache;
 import istc.bigdawg.islands.operators.Join;
 import istc.bigdawg.islands.operators.Join.JoinType;
 import istc.bigdawg.islands.operators.Operator;
 import istc.bigdawg.islands.relational.operators.SQLIslandJoin;
+import istc.bigdawg.islands.relational.utils.SQLPrepareQuery;
 import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
 import istc.bigdawg.postgresql.PostgreSQLHandler;
 import istc.bigdawg.properties.BigDawgConfigProperties;
@@ -35,6 +37,10 @@ public class RelationalIsland implements Island {
 	private static PostgreSQLConnectionInfo relationalSchemaServerConnectionInfo = null;
 	private static final Pattern relationalIslandPredicatePattern = Pattern.compile("(?<=\\()([^\\(^\\)]+)(?=\\))");
 	
+	// EXPLAIN output of the recently parsed queries
+	private static final QueryPlanCache<String> planCache = 
+			new QueryPlanCache<>("relational", BigDawgConfigProperties.INSTANCE.getIslandPlanCacheSize());
+	
 	static {
 		try {
 			relationalSchemaServerConnectionInfo = 
@@ -115,7 +121,13 @@ public class RelationalIsland implements Island {
 		SQLQueryPlan relQueryPlan;
 		Operator root;
 		try {
-			relQueryPlan = SQLPlanParser.extractDirectFromPostgreSQL(new PostgreSQLHandler(relationalSchemaServerConnectionInfo), queryString);
+			String xmlString = planCache.get(queryString);
+			if (xmlString == null) {
+				PostgreSQLHandler handler = new PostgreSQLHandler(relationalSchemaServerConnectionInfo);
+				xmlString = handler.generatePostgreSQLQueryXML(SQLPrepareQuery.generateExplainQueryString(queryString));
+				planCache.put(queryString, xmlString);
+			}
+			relQueryPlan = SQLPlanParser.extractFromExplainXML(xmlString, queryString);
 			root = relQueryPlan.getRootNode();
 			tables.addAll(RelationalSignatureBuilder.sig2(queryString));
 			return root;
@@ -124,6 +136,13 @@ public class RelationalIsland implements Island {
 		}
 	};
 	
+	/**
+	 * @return the cache of the EXPLAIN output of the relational island queries
+	 */
+	public static QueryPlanCache<String> getPlanCache() {
+		return planCache;
+	}
+	
 	@Override
 	public Set<String> splitJoinPredicate(String predicates) throws IslandException {
 		Set<String> results = new HashSet<>();
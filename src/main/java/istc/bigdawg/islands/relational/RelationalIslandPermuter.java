@@ -21,10 +21,12 @@ import istc.bigdawg.islands.operators.Join;
 import istc.bigdawg.islands.operators.Join.JoinType;
 import istc.bigdawg.islands.operators.Merge;
 import istc.bigdawg.islands.operators.Operator;
-import istc.bigdawg.islands.operators.Scan;
+import istc.bigdawg.islands.operators.SeqScan;
 import istc.bigdawg.islands.relational.operators.SQLIslandOperator;
 import istc.bigdawg.islands.relational.utils.SQLAttribute;
 import istc.bigdawg.islands.relational.utils.SQLExpressionUtils;
+import istc.bigdawg.planner.TableStatistics;
+import istc.bigdawg.properties.BigDawgConfigProperties;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.schema.Column;
@@ -49,7 +51,7 @@ public class RelationalIslandPermuter {
 		
 		if (ciqn.getRemainderLoc() == null && root.getDataObjectAliasesOrNames().size() > 1) {
 			Map<String, SQLAttribute> rootOutSchema = root.getOutSchema();
-			List<Operator> permResult = getPermutatedOperatorsWithBlock(ciqn.getSourceScope(), root, jp, jf, predicateConnections);
+			List<Operator> permResult = getPermutatedOperatorsWithBlock(ciqn.getSourceScope(), root, jp, jf, predicateConnections, ciqn.getOriginalMap());
 			
 			// if root is join then the constructed out schema might get messed up; adjust it here
 			if (root instanceof SQLIslandOperator) {
@@ -79,10 +81,11 @@ public class RelationalIslandPermuter {
 	 * @param root
 	 * @param joinPredConnections
 	 * @param joinFilterConnections
+	 * @param originalMap
 	 * @return A list of Operators that are each a root of a permuted remainder Operator tree.
 	 * @throws Exception
 	 */
-	private static List<Operator> getPermutatedOperatorsWithBlock(Scope scope, Operator root, Map<Pair<String, String>, String> joinPredConnections,  Map<Pair<String, String>, String> joinFilterConnections, List<Set<String>> predicateConnections) throws Exception {
+	private static List<Operator> getPermutatedOperatorsWithBlock(Scope scope, Operator root, Map<Pair<String, String>, String> joinPredConnections,  Map<Pair<String, String>, String> joinFilterConnections, List<Set<String>> predicateConnections, Map<String, List<String>> originalMap) throws Exception {
 		
 		List<Operator> extraction = new ArrayList<>();
 		List<Operator> blockers   = new ArrayList<>();
@@ -96,7 +99,7 @@ public class RelationalIslandPermuter {
 				
 				List<Operator> ninos = new ArrayList<>();				
 				while (!(next instanceof Join) && !(next instanceof Merge) && next.getChildren().size() > 0) next = next.getChildren().get(0);
-				ninos.addAll(getPermutatedOperatorsWithBlock(scope, next, joinPredConnections, joinFilterConnections, predicateConnections));
+				ninos.addAll(getPermutatedOperatorsWithBlock(scope, next, joinPredConnections, joinFilterConnections, predicateConnections, originalMap));
 				
 				if (ninos.isEmpty())  {
 					hasPermutation = true;
@@ -202,12 +205,12 @@ public class RelationalIslandPermuter {
 			 */
 			
 			// 1.
-			List<Operator> permutationsOfLeaves = getPermutatedOperators(scope, leaves, joinPredConnections, joinFilterConnections, predicateConnections);
+			List<Operator> permutationsOfLeaves = getPermutatedOperators(scope, leaves, joinPredConnections, joinFilterConnections, predicateConnections, originalMap);
 			
 			// 2.
 			Map<Integer, List<Operator>> blockerTrees = new HashMap<>();
 			for (Operator b : blockers) {
-				blockerTrees.put(b.getBlockerID(), getPermutatedOperatorsWithBlock(scope, b, joinPredConnections, joinFilterConnections, predicateConnections));
+				blockerTrees.put(b.getBlockerID(), getPermutatedOperatorsWithBlock(scope, b, joinPredConnections, joinFilterConnections, predicateConnections, originalMap));
 			}
 			
 			// 3.
@@ -280,14 +283,18 @@ public class RelationalIslandPermuter {
 	/**
 	 * This function is only used for permuting the subtree of original remainder Operator tree
 	 * where a blocking Operator is not involved.
+	 * The join orders are enumerated bottom-up over the connected subsets of the leaves 
+	 * (see {@link JoinOrderEnumerator}) and only the cheapest ones are kept, 
+	 * so that the number of remainders does not grow exponentially with the number of leaves.
 	 * @param scope
 	 * @param ops
 	 * @param joinPredConnections
 	 * @param joinFilterConnections
-	 * @return A list of Operators that are each a root of a permuted remainder Operator tree.
+	 * @param originalMap
+	 * @return A list of Operators that are each a root of a permuted remainder Operator tree, cheapest first.
 	 * @throws Exception
 	 */
-	private static List<Operator> getPermutatedOperators(Scope scope, List<Operator> ops, Map<Pair<String, String>, String> joinPredConnections, Map<Pair<String, String>, String> joinFilterConnections, List<Set<String>> predicateConnections) throws Exception {
+	private static List<Operator> getPermutatedOperators(Scope scope, List<Operator> ops, Map<Pair<String, String>, String> joinPredConnections, Map<Pair<String, String>, String> joinFilterConnections, List<Set<String>> predicateConnections, Map<String, List<String>> originalMap) throws Exception {
 		
 		List<Operator> extraction = new ArrayList<>();
 		
@@ -303,112 +310,94 @@ public class RelationalIslandPermuter {
 			return extraction;
 		} 
 		
-		ArrayList<List<Operator>> permutations = new ArrayList<>();
-		permutations.add(ops);
-		
-		ArrayList<Operator> newEntries;
+		// number the leaves and find out which of them are connected by predicates
+		Map<String, Integer> leafOfObject = new HashMap<>();
+		double[] rows = new double[len];
+		for (int i = 0; i < len; i++) {
+			for (String name : ops.get(i).getDataObjectAliasesOrNames().keySet()) 
+				leafOfObject.put(name, i);
+			rows[i] = estimateRows(ops.get(i), originalMap);
+		}
+		long[] adjacency = new long[len];
+		for (Pair<String, String> p : Sets.union(joinPredConnections.keySet(), joinFilterConnections.keySet())) {
+			Integer l = leafOfObject.get(p.getLeft());
+			Integer r = leafOfObject.get(p.getRight());
+			if (l == null || r == null || l.equals(r)) continue;
+			adjacency[l] |= 1L << r;
+			adjacency[r] |= 1L << l;
+		}
 		
-		int j0;
-		int j1;
-		int k0;
-		int k1;
-		for (int i = 1; i < len ; i ++ ) {
-			newEntries = new ArrayList<Operator>();
-
-			for (j0 = i - 1; j0 >= 0 ; j0 --) {
-				// j0 and j1 are the two to be joined
-				j1 = i - j0 - 1; 
-				
-				if (j0 < j1) break; // we always want the larger, j0, in the front
-				if (j0 == j1) {
-					// iterate only when j0's sub position is smaller, and they contain distinct members
-					List<Operator> j0list = permutations.get(j0);
-					int j0listSize = j0list.size();
-					for (k0 = 0; k0 < j0listSize; k0 ++ ) {
-						Operator k0o = permutations.get(j0).get(k0);
-						Operator k1o;
-						for (k1 = k0 + 1; k1 < j0listSize; k1 ++) {
-							k1o = permutations.get(j0).get(k1);
-							
-							if (isDisjoint(k0o, k1o)) { // disjoint is on the progeny is required
-								addNewEntry(scope, k0o, k1o, joinPredConnections, joinFilterConnections, newEntries, predicateConnections);
-							}
-							// else do nothing
-						}
-					}
-				} else {
-					// iterate through all
-					List<Operator> j0list = permutations.get(j0);
-					List<Operator> j1list = permutations.get(j1);
-					int j0listSize = j0list.size();
-					int j1listSize = j1list.size();
-					for (k0 = 0; k0 < j0listSize; k0 ++ ) {
-						Operator k0o = permutations.get(j0).get(k0);
-						Operator k1o;
-						for (k1 = 0; k1 < j1listSize; k1 ++) {
-							k1o = permutations.get(j1).get(k1);
-							if (isDisjoint(k0o, k1o)) {
-								addNewEntry(scope, k0o, k1o, joinPredConnections, joinFilterConnections, newEntries, predicateConnections);
-							}
-						}
-					}
-				}
-			}
-			permutations.add(newEntries);
+		if (len > 62) {
+			// too many leaves to enumerate; keep the order of the original query 
+			Operator left = ops.get(0);
+			for (int i = 1; i < len; i++) 
+				left = joinSubtrees(scope, left, ops.get(i), joinPredConnections, joinFilterConnections, predicateConnections);
+			extraction.add(left);
+			return extraction;
 		}
-		extraction.addAll(permutations.get(permutations.size()-1));
 		
+		List<JoinOrderEnumerator.Plan> plans = new JoinOrderEnumerator(rows, adjacency, 
+				BigDawgConfigProperties.INSTANCE.getIslandRelationalJoinPlans(), 
+				BigDawgConfigProperties.INSTANCE.getIslandRelationalJoinDPLeaves()).enumerate();
+		
+		for (JoinOrderEnumerator.Plan plan : plans) {
+			logger.debug(String.format("Join order %s; estimated cost: %s; estimated rows: %s", plan, plan.getCost(), plan.getRows()));
+			extraction.add(buildJoinTree(scope, plan, ops, joinPredConnections, joinFilterConnections, predicateConnections));
+		}
 		
 		return extraction;
 	}
-
+	
 	/**
-	 * Add new entry for partially constructed subtree permutation
-	 * Note: use children characteristics to avoid making unnecessary entries.
-	 * @param k0o
-	 * @param k1o
+	 * Construct the Join Operators of a join order found by the enumeration 
+	 * @param scope
+	 * @param plan
+	 * @param ops the leaves
 	 * @param joinPredConnections
 	 * @param joinFilterConnections
-	 * @param newEntry
+	 * @param predicateConnections
+	 * @return The root of the constructed Operator tree
 	 * @throws Exception
 	 */
-	private static void addNewEntry (Scope scope, Operator k0o, Operator k1o, Map<Pair<String, String>, String> joinPredConnections, Map<Pair<String, String>, String> joinFilterConnections, List<Operator> newEntry, List<Set<String>> predicateConnections) throws Exception {
-		
-		if (k1o instanceof Join) {
-			// all on-expression must precede cross-joins
-			if (k0o instanceof Join && (((Join)k0o).generateJoinPredicate() == null && ((Join)k1o).generateJoinPredicate() != null)) {
-				return;
-			} 
-		
-			if ( ((Join)k1o).generateJoinPredicate() != null || ((Join)k1o).generateJoinFilter() != null) {
-				Set<String> objlist1 = new HashSet<>(k0o.getDataObjectAliasesOrNames().keySet());
-				Set<String> objlist2 = new HashSet<>(objlist1);
-				String jp = ((Join)k1o).generateJoinPredicate();
-				String jf = ((Join)k1o).generateJoinFilter();
-				
-				boolean jpb = false;
-				boolean jfb = false;
-				
-				if (jp != null) jpb = objlist1.removeAll( SQLExpressionUtils.getColumnTableNamesInAllForms(CCJSqlParserUtil.parseCondExpression(jp)) );
-				if (jf != null) jfb = objlist2.removeAll( SQLExpressionUtils.getColumnTableNamesInAllForms(CCJSqlParserUtil.parseCondExpression(jf)) );
-				
-				if (jpb || jfb) { 
-					newEntry.add(makeJoin(scope, k0o, k1o, null, joinPredConnections, joinFilterConnections, k0o.getDataObjectAliasesOrNames().keySet(), predicateConnections, true));
-				}
-			}
-		} else {
-			
-			if ((k0o.isPruned() || k0o instanceof Scan) && (!k1o.isPruned() && !(k1o instanceof Scan))) {
-				// pruned non-left-deep branch
-				return;
+	private static Operator buildJoinTree(Scope scope, JoinOrderEnumerator.Plan plan, List<Operator> ops, Map<Pair<String, String>, String> joinPredConnections, Map<Pair<String, String>, String> joinFilterConnections, List<Set<String>> predicateConnections) throws Exception {
+		if (plan.isLeaf()) return ops.get(plan.getLeaf());
+		Operator left = buildJoinTree(scope, plan.getLeft(), ops, joinPredConnections, joinFilterConnections, predicateConnections);
+		Operator right = buildJoinTree(scope, plan.getRight(), ops, joinPredConnections, joinFilterConnections, predicateConnections);
+		return joinSubtrees(scope, left, right, joinPredConnections, joinFilterConnections, predicateConnections);
+	}
+	
+	private static Operator joinSubtrees(Scope scope, Operator left, Operator right, Map<Pair<String, String>, String> joinPredConnections, Map<Pair<String, String>, String> joinFilterConnections, List<Set<String>> predicateConnections) throws Exception {
+		Operator join = makeJoin(scope, left, right, null, joinPredConnections, joinFilterConnections, new HashSet<>(), predicateConnections, true);
+		// the enumeration already decided that a cross join is needed here 
+		if (join == null) join = makeJoin(scope, left, right, null, joinPredConnections, joinFilterConnections, new HashSet<>(), predicateConnections, false);
+		return join;
+	}
+	
+	/**
+	 * Estimate the number of rows of a leaf from the statistics of the tables it scans;
+	 * it is the largest of them, as a filter or an aggregate on top only makes it smaller.
+	 * @param leaf
+	 * @param originalMap
+	 * @return estimated number of rows, or a value not greater than 0 if unknown
+	 * @throws Exception
+	 */
+	private static double estimateRows(Operator leaf, Map<String, List<String>> originalMap) throws Exception {
+		long rows = TableStatistics.UNKNOWN;
+		List<Operator> treeWalker = new ArrayList<>();
+		treeWalker.add(leaf);
+		while (!treeWalker.isEmpty()) {
+			Operator o = treeWalker.remove(treeWalker.size() - 1);
+			if (o instanceof SeqScan && originalMap != null) {
+				String table = ((SeqScan) o).getFullyQualifiedName();
+				List<String> dbids = originalMap.get(table);
+				if (dbids != null && !dbids.isEmpty()) 
+					rows = Math.max(rows, TableStatistics.INSTANCE.getRowCount(Integer.parseInt(dbids.get(0).trim()), table));
 			}
-			
-			Operator ret = makeJoin(scope, k0o, k1o, null, joinPredConnections,  joinFilterConnections, k0o.getDataObjectAliasesOrNames().keySet(), predicateConnections, true);
-			if (ret == null) return; // the final prune done
-			newEntry.add(ret);
+			treeWalker.addAll(o.getChildren());
 		}
+		return rows;
 	}
-	
+
 	/**
 	 * Create a Join Operator to connect two sub-trees or leaves of subtrees
 	 * @param scope
@@ -497,20 +486,6 @@ public class RelationalIslandPermuter {
 		}
 	}
 	
-	/**
-	 * Helper function that tests if two Operators have distinct sets of data
-	 * This include pruned nodes and stored tables, etc.  
-	 * @param s1
-	 * @param s2
-	 * @return
-	 * @throws Exception
-	 */
-	private static boolean isDisjoint(Operator s1, Operator s2) throws Exception {
-		Set<String> set1 = new HashSet<String>(s1.getDataObjectAliasesOrNames().keySet()); // s1.getDataObjectNames()
-		Set<String> set2 = new HashSet<String>(s2.getDataObjectAliasesOrNames().keySet());
-		return (!(set1.removeAll(set2)));
-	}
-	
 	/**
 	 * Pick out the pair of tables involved in a simple predicate. 
 	 * Note: this assumes "a >= b" type of predicate that is devoid of logical operators such as "AND"
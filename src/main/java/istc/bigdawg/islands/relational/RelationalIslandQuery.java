@@ -335,6 +335,13 @@ public class RelationalIslandQuery extends IntraIslandQuery {
 		return joinFilters;
 	}
 	
+	/**
+	 * @return the databases that hold each of the objects referenced by the query
+	 */
+	public Map<String, List<String>> getOriginalMap() {
+		return originalMap;
+	}
+	
 	protected Map<String, Set<Operator>> findIntersectionsSortByLargest(Map<Operator, Set<String>> traverseResults) {
 		
 		Map<String, Set<Operator>> result = new HashMap<>();
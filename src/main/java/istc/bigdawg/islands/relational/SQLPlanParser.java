@@ -133,6 +133,19 @@ public class SQLPlanParser {
 //		System.out.printf("explainQuery: %s; psqlh: %s;\n", explainQuery, psqlh);
 		String xmlString = psqlh.generatePostgreSQLQueryXML(explainQuery);
 		
+		return extractFromExplainXML(xmlString, query);
+	}
+	
+	/**
+	 * Build the query plan from the EXPLAIN output obtained earlier from PostgreSQL.
+	 * 
+	 * @param xmlString the output of EXPLAIN (VERBOSE ON, COSTS OFF, FORMAT XML) of the query
+	 * @param query the query
+	 * @return the query plan
+	 */
+	public static SQLQueryPlan extractFromExplainXML(String xmlString, String query) 
+			throws SQLException, JSQLParserException, BigDawgCatalogException, QueryParsingException {
+		
 		// set up supplement
 		SQLParseLogical parser = new SQLParseLogical(query);
 		SQLQueryPlan queryPlan = parser.getSQLQueryPlan();
@@ -42,6 +42,14 @@ public class SQLIslandJoin extends SQLIslandOperator implements Join {
 			throws QueryParsingException, JSQLParserException  {
 		super(parameters, output, lhs, rhs, supplement);
 
+		// the side whose rows are kept without a match (PostgreSQL: Inner, Left, Right, Full, Semi, Anti)
+		String planJoinType = parameters.get("Join-Type");
+		if (planJoinType != null) {
+			if (planJoinType.startsWith("Right")) this.joinType = JoinType.Right;
+			else if (planJoinType.equals("Left") || planJoinType.equals("Anti")) this.joinType = JoinType.Left;
+			else if (planJoinType.equals("Full")) this.joinType = JoinType.Full;
+		}
+		
 		// mending non-canoncial ordering
 		if (children.get(0) instanceof SQLIslandScan && !(children.get(1) instanceof SQLIslandScan)) {
 			SQLIslandOperator child0 = (SQLIslandOperator) children.get(1);
@@ -49,6 +57,8 @@ public class SQLIslandJoin extends SQLIslandOperator implements Join {
 			children.clear();
 			children.add(child0);
 			children.add(child1);
+			if (joinType == JoinType.Left) joinType = JoinType.Right;
+			else if (joinType == JoinType.Right) joinType = JoinType.Left;
 		}
 		
 		this.isBlocking = false;
@@ -418,6 +428,11 @@ public class SQLIslandJoin extends SQLIslandOperator implements Join {
 	}
 
 
+	public JoinType getJoinType() {
+		return joinType;
+	}
+
+
 	public Integer getJoinID() {
 		return joinID;
 	}
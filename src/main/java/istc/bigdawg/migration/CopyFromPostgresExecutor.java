@@ -81,12 +81,20 @@ public class CopyFromPostgresExecutor implements Callable<Long> {
 			//log.debug("psql statement: " + copyFromString);
 			//PostgreSQLHandler.executeStatement(connection, copyFromString);
 			connection.commit();
-			output.close();
 		} catch (IOException | SQLException e) {
 			String msg = e.getMessage() + " Problem with thread for PostgreSQL copy manager "
 					+ "while copying (extracting) data from PostgreSQL.";
 			log.error(msg + StackTrace.getFullStackTrace(e), e);
 			e.printStackTrace();
+			/* the loader sees the end of a (partial) copy, it has to fail */
+			countExtractedRows = -1L;
+		} finally {
+			/* the reader of a pipe waits for its end also when the copy failed */
+			try {
+				output.close();
+			} catch (IOException e) {
+				log.error("Could not close the output of the copy from PostgreSQL. " + e.getMessage());
+			}
 		}
 		log.info("Number of rows extracted from Postgres: " + countExtractedRows);
 		return countExtractedRows;
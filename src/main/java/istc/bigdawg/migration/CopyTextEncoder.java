@@ -0,0 +1,126 @@
+/**
+ * 
+ */
+package istc.bigdawg.migration;
+
+import java.util.Arrays;
+
+/**
+ * Encode rows in the text format of the PostgreSQL COPY command directly into
+ * a byte buffer (the values are given as UTF-8 bytes, so they are not decoded
+ * into strings).
+ *
+ * The backslash, the new line, the carriage return and the delimiter in the
+ * values are escaped with a backslash; a null value is written as \N. All of
+ * them are ASCII characters, which never occur inside a multi-byte UTF-8
+ * sequence, so the values can be escaped byte by byte.
+ *
+ * The buffer can be handed over to a writer and replaced with another one
+ * (see {@link #reset(byte[])}), so the buffers are reused instead of
+ * allocating them for each batch of rows.
+ */
+class CopyTextEncoder {
+
+	private static final byte[] NULL_VALUE = { '\\', 'N' };
+
+	private final byte delimiter;
+	private byte[] buffer;
+	private int size;
+
+	/**
+	 * @param delimiter
+	 *            separates the values of a row (an ASCII character)
+	 * @param buffer
+	 *            the initial buffer (it grows when it is too small)
+	 */
+	CopyTextEncoder(char delimiter, byte[] buffer) {
+		if (delimiter > 127) {
+			throw new IllegalArgumentException(
+					"The delimiter has to be an ASCII character: " + delimiter);
+		}
+		this.delimiter = (byte) delimiter;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Append a row.
+	 *
+	 * @param values
+	 *            the UTF-8 bytes of the values of the columns (null for a null
+	 *            value)
+	 */
+	void appendRow(byte[][] values) {
+		for (int i = 0; i < values.length; ++i) {
+			if (i > 0) {
+				put(delimiter);
+			}
+			if (values[i] == null) {
+				ensureCapacity(NULL_VALUE.length);
+				System.arraycopy(NULL_VALUE, 0, buffer, size,
+						NULL_VALUE.length);
+				size += NULL_VALUE.length;
+			} else {
+				appendValue(values[i]);
+			}
+		}
+		put((byte) '\n');
+	}
+
+	private void appendValue(byte[] value) {
+		/* each byte takes at most two bytes after escaping */
+		ensureCapacity(2 * value.length);
+		byte[] out = buffer;
+		int position = size;
+		for (byte b : value) {
+			if (b == '\\' || b == delimiter) {
+				out[position++] = '\\';
+				out[position++] = b;
+			} else if (b == '\n') {
+				out[position++] = '\\';
+				out[position++] = 'n';
+			} else if (b == '\r') {
+				out[position++] = '\\';
+				out[position++] = 'r';
+			} else {
+				out[position++] = b;
+			}
+		}
+		size = position;
+	}
+
+	private void put(byte b) {
+		ensureCapacity(1);
+		buffer[size++] = b;
+	}
+
+	private void ensureCapacity(int bytes) {
+		if (size + bytes > buffer.length) {
+			buffer = Arrays.copyOf(buffer,
+					Math.max(2 * buffer.length, size + bytes));
+		}
+	}
+
+	/**
+	 * @return the buffer with the encoded rows (the first {@link #size()}
+	 *         bytes)
+	 */
+	byte[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * @return number of bytes of the encoded rows
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Continue with an empty buffer (the current one was handed over).
+	 */
+	void reset(byte[] newBuffer) {
+		this.buffer = newBuffer;
+		this.size = 0;
+	}
+
+}
@@ -75,7 +75,6 @@ public class CopyToPostgresExecutor implements Callable<Long> {
 		Long countLoadedRows = 0L;
 		try {
 			countLoadedRows = cpTo.copyIn(copyToString, input);
-			input.close();
 //			connection.commit();
 		} catch (IOException | SQLException e) {
 			String msg = e.getMessage()
@@ -87,6 +86,14 @@ public class CopyToPostgresExecutor implements Callable<Long> {
 			 */
 			log.error(LogUtils.replace(msg));
 			e.printStackTrace();
+		} finally {
+			/* the writer to a pipe fails instead of waiting for this reader */
+			try {
+				input.close();
+			} catch (IOException e) {
+				log.error("Could not close the input of the copy to PostgreSQL. "
+						+ e.getMessage());
+			}
 		}
 		return countLoadedRows;
 	}
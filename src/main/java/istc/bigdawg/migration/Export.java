@@ -3,6 +3,7 @@
  */
 package istc.bigdawg.migration;
 
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.concurrent.Callable;
 
@@ -32,6 +33,35 @@ public interface Export extends Callable<Object>, DataPump, Serializable {
 	 */
 	public void setExportTo(String filePath);
 
+	/**
+	 * 
+	 * @return true if the data can be exported directly to a stream (see
+	 *         {@link #setExportTo(OutputStream)}), false if the database has
+	 *         to write the data to a file (or named pipe).
+	 */
+	default public boolean isStreamSupported() {
+		return false;
+	}
+
+	/**
+	 * 
+	 * @param output
+	 *            The stream to which the data should be exported (it is closed
+	 *            when the export finishes).
+	 */
+	default public void setExportTo(OutputStream output) {
+		throw new UnsupportedOperationException(this.getClass().getName()
+				+ " cannot export data to a stream.");
+	}
+
+	/**
+	 * 
+	 * @return format of the exported data (null if it is not known).
+	 */
+	default public FileFormat getFileFormat() {
+		return null;
+	}
+
 	/**
 	 * 
 	 * @return DBHanlder which is native for this export object (for example for
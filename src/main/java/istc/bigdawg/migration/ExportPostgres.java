@@ -266,6 +266,12 @@ public class ExportPostgres implements Export {
 					+ " Problem with thread for PostgreSQL copy manager "
 					+ "while copying (extracting) data from PostgreSQL.";
 			log.error(msg + StackTrace.getFullStackTrace(e), e);
+			/* do not leave the loader waiting for more data */
+			try {
+				output.close();
+			} catch (IOException ex) {
+				log.error("Could not close the output: " + ex.getMessage());
+			}
 			throw new MigrationException(msg, e);
 		}
 		log.debug("Extracted rows: " + countExtractedRows);
@@ -316,6 +322,36 @@ public class ExportPostgres implements Export {
 		this.outputFile = filePath;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see istc.bigdawg.migration.Export#isStreamSupported()
+	 */
+	@Override
+	public boolean isStreamSupported() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see istc.bigdawg.migration.Export#setExportTo(java.io.OutputStream)
+	 */
+	@Override
+	public void setExportTo(OutputStream output) {
+		this.output = output;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see istc.bigdawg.migration.Export#getFileFormat()
+	 */
+	@Override
+	public FileFormat getFileFormat() {
+		return fileFormat;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
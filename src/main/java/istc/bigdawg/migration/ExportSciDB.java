@@ -287,6 +287,16 @@ public class ExportSciDB implements Export {
 		this.outputFile = filePath;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see istc.bigdawg.migration.Export#getFileFormat()
+	 */
+	@Override
+	public FileFormat getFileFormat() {
+		return fileFormat;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -7,8 +7,6 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.io.PushbackReader;
-import java.io.StringReader;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -19,18 +17,31 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
-import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.WholeRowIterator;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.hadoop.io.Text;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
+import org.postgresql.copy.CopyIn;
 import org.postgresql.copy.CopyManager;
 import org.postgresql.core.BaseConnection;
 
@@ -49,7 +60,7 @@ import istc.bigdawg.exceptions.MigrationException;
 import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
 import istc.bigdawg.postgresql.PostgreSQLHandler;
 import istc.bigdawg.postgresql.PostgreSQLInstance;
-import istc.bigdawg.utils.ListConncatenator;
+import istc.bigdawg.properties.BigDawgConfigProperties;
 import istc.bigdawg.utils.StackTrace;
 
 /**
@@ -71,9 +82,19 @@ public class FromAccumuloToPostgres extends FromDatabaseToDatabase {
 	private ResultSet rs = null;
 	private AccumuloInstance accInst = null;
 
+	/**
+	 * The target database; each writer opens its own connection to it (only
+	 * the connection given in the constructor is used if it is not known).
+	 */
+	private PostgreSQLConnectionInfo conToInfo = null;
+
 	// parameters
-	private int postgreSQLWritebatchSize = 1000;
-	private int postgreSQLReaderCharSize = 1000000;
+	/** Size of a batch of encoded rows handed over to a writer. */
+	private static final int POSTGRESQL_WRITE_BUFFER_SIZE = 64 * 1024;
+	/** Maximum number of tablet-aligned ranges scanned by the batch scanner. */
+	private static final int MAX_SCAN_RANGES = 1024;
+	/** How long to wait for a writer before checking if it failed. */
+	private static final long WRITER_WAIT_MSEC = 100;
 	private char delimiter = '|';
 
 	public FromAccumuloToPostgres() {
@@ -123,22 +144,6 @@ public class FromAccumuloToPostgres extends FromDatabaseToDatabase {
 		return rs.getMetaData();
 	}
 
-	public void createNewRowForPostgres(String[] row, StringBuilder sBuilder) {
-		// we finished a new row;
-		String rowString = ListConncatenator.joinList(row, delimiter, "\n");
-		// System.out.println(rowString);
-		sBuilder.append(rowString);
-	}
-
-	public void flushRowsToPostgreSQL(StringBuilder sBuilder,
-			PushbackReader reader, CopyManager cpManager, String postgresTable,
-			String copyString) throws IOException, SQLException {
-		// System.out.println(sBuilder.toString());
-		reader.unread(sBuilder.toString().toCharArray());
-		cpManager.copyIn(copyString.toString(), reader);
-		sBuilder.delete(0, sBuilder.length());
-	}
-
 	@Override
 	public MigrationResult migrate(MigrationInfo migrationInfo)
 			throws MigrationException {
@@ -153,6 +158,7 @@ public class FromAccumuloToPostgres extends FromDatabaseToDatabase {
 		PostgreSQLConnectionInfo conTo = (PostgreSQLConnectionInfo) migrationInfo
 				.getConnectionTo();
 		logger.debug(conTo);
+		this.conToInfo = conTo;
 		try {
 			this.con = PostgreSQLHandler.getConnection(conTo);
 			con.setAutoCommit(false);
@@ -202,6 +208,25 @@ public class FromAccumuloToPostgres extends FromDatabaseToDatabase {
 		}
 	}
 
+	/**
+	 * Migrate the rows of the Accumulo table to the PostgreSQL table.
+	 * 
+	 * The tablet-aligned parts of the range are read concurrently by a batch
+	 * scanner, each Accumulo row comes whole (see {@link WholeRowIterator}) and
+	 * is encoded in the text format of COPY. The batches of encoded rows are
+	 * passed to the writers, each of them keeps a single COPY command open on
+	 * its own connection to PostgreSQL for the whole migration, so reading
+	 * the tablets and writing to PostgreSQL overlap. The transactions of the
+	 * writers are committed when all the rows were copied.
+	 * 
+	 * @param accumuloTable
+	 *            the source table in Accumulo
+	 * @param postgresTable
+	 *            the target table in PostgreSQL (the column qualifiers in
+	 *            Accumulo are the names of its columns)
+	 * @param accumuloRange
+	 *            the range of rows to migrate (null: the whole table)
+	 */
 	public MigrationResult fromAccumuloToPostgres(final String accumuloTable,
 			final String postgresTable, Range accumuloRange)
 					throws AccumuloException, AccumuloSecurityException,
@@ -222,6 +247,11 @@ public class FromAccumuloToPostgres extends FromDatabaseToDatabase {
 		copyStringBuf.append(delimiter);
 		copyStringBuf.append("')");
 		String copyString = copyStringBuf.toString();
+		int degree = Math.max(1,
+				BigDawgConfigProperties.INSTANCE.getMigrationParallelDegree());
+		List<Connection> writerConnections = new ArrayList<>();
+		ExecutorService writerExecutor = null;
+		BatchScanner scanner = null;
 		try {
 			ResultSetMetaData rsmd = getMetaData(postgresTable);
 			if (rsmd == null) {
@@ -235,66 +265,137 @@ public class FromAccumuloToPostgres extends FromDatabaseToDatabase {
 					logger.debug("Column name: " + columnName);
 					mapNameCol.put(columnName, i);
 				}
-				StringBuilder sBuilder = new StringBuilder();
-				CopyManager cpManager = new CopyManager(
-						(BaseConnection) this.con); // ((PGConnection)
-				// con).getCopyAPI();
-				PushbackReader reader = new PushbackReader(new StringReader(""),
-						postgreSQLReaderCharSize);
-				// create a new row
-				String[] row = new String[numOfCol];
-				Text rowId = null;
-				Scanner scan = accInst.getConn().createScanner(accumuloTable,
-						new Authorizations());
-				if (accumuloRange != null) {
-					scan.setRange(accumuloRange);
+				if (conToInfo != null) {
+					/* the writers have to see the created table */
+					con.commit();
+					for (int i = 0; i < degree; ++i) {
+						Connection writerConnection = PostgreSQLHandler
+								.getConnection(conToInfo);
+						writerConnection.setAutoCommit(false);
+						writerConnections.add(writerConnection);
+					}
+				} else {
+					writerConnections.add(con);
+				}
+
+				/* the buffers go around: encoder -> writer -> encoder */
+				BlockingQueue<byte[]> freeBuffers = new LinkedBlockingQueue<>();
+				BlockingQueue<CopyBatch> batches = new ArrayBlockingQueue<>(
+						2 * writerConnections.size());
+				writerExecutor = Executors
+						.newFixedThreadPool(writerConnections.size());
+				List<Future<Long>> writers = new ArrayList<>();
+				for (Connection writerConnection : writerConnections) {
+					CopyIn copyIn = new CopyManager(
+							(BaseConnection) writerConnection)
+									.copyIn(copyString);
+					writers.add(writerExecutor.submit(
+							() -> writeToPostgreSQL(copyIn, batches,
+									freeBuffers)));
 				}
-				for (Entry<Key, Value> e : scan) {
-					Text thisRowId = e.getKey().getRow();
-					// System.out.println(thisRowId);
-					// omit first initialization of rowId
-					if (rowId != null && !rowId.equals(thisRowId)) {
-						++postgresCounter;
-						++accumuloCounter;
-						createNewRowForPostgres(row, sBuilder);
-						if (accumuloCounter % postgreSQLWritebatchSize == 0) {
-							flushRowsToPostgreSQL(sBuilder, reader, cpManager,
-									postgresTable, copyString);
+
+				Range range = accumuloRange == null ? new Range()
+						: accumuloRange;
+				Set<Range> ranges = accInst.getConn().tableOperations()
+						.splitRangeByTablets(accumuloTable, range,
+								MAX_SCAN_RANGES);
+				logger.debug("Scan " + ranges.size() + " ranges of "
+						+ accumuloTable + " with " + degree + " threads.");
+				scanner = accInst.getConn().createBatchScanner(accumuloTable,
+						new Authorizations(), degree);
+				scanner.setRanges(ranges);
+				scanner.addScanIterator(new IteratorSetting(50, "wholeRow",
+						WholeRowIterator.class));
+
+				/* column qualifier (as in Accumulo) -> column index */
+				Map<Text, Integer> columnIndexes = new HashMap<>();
+				CopyTextEncoder encoder = new CopyTextEncoder(delimiter,
+						new byte[2 * POSTGRESQL_WRITE_BUFFER_SIZE]);
+				for (Entry<Key, Value> wholeRow : scanner) {
+					SortedMap<Key, Value> cells = WholeRowIterator
+							.decodeRow(wholeRow.getKey(), wholeRow.getValue());
+					byte[][] row = new byte[numOfCol][];
+					for (Entry<Key, Value> cell : cells.entrySet()) {
+						Text colq = cell.getKey().getColumnQualifier();
+						Integer colIndex = columnIndexes.get(colq);
+						if (colIndex == null) {
+							/*
+							 * Column number (index) in PostgreSQL starts from
+							 * 1.
+							 * 
+							 * All identifiers (including column names) that
+							 * are not double-quoted are folded to lower case in
+							 * PostgreSQL, so we have to change the column
+							 * qualifier from Accumulo (that denotes column name
+							 * in PostgreSQL to lowercase.
+							 */
+							colIndex = mapNameCol
+									.get(colq.toString().toLowerCase());
+							if (colIndex == null) {
+								throw new MigrationException(
+										"No such column in PostgreSQL: "
+												+ colq.toString()
+												+ ". Current columns in PostgreSQL table are: "
+												+ mapNameCol.toString());
+							}
+							columnIndexes.put(colq, colIndex);
 						}
-						row = new String[numOfCol];
+						row[colIndex] = cell.getValue().get();
 					}
-					rowId = thisRowId;
-					Text colq = e.getKey().getColumnQualifier();
-					String value = e.getValue().toString();
-					/*
-					 * Column number (index) in PostgreSQL starts from 1.
-					 * 
-					 * All identifiers (including column names) that are not
-					 * double-quoted are folded to lower case in PostgreSQL, so
-					 * we have to change the column qualifier from Accumulo
-					 * (that denotes column name in PostgreSQL to lowercase.
-					 */
-					Integer colIndex = mapNameCol
-							.get(colq.toString().toLowerCase());
-					if (colIndex == null) {
-						throw new MigrationException(
-								"No such column in PostgreSQL: "
-										+ colq.toString()
-										+ ". Current columns in PostgreSQL table are: "
-										+ mapNameCol.toString());
+					encoder.appendRow(row);
+					++accumuloCounter;
+					if (encoder.size() >= POSTGRESQL_WRITE_BUFFER_SIZE) {
+						handOver(new CopyBatch(encoder.getBuffer(),
+								encoder.size()), batches, writers);
+						byte[] buffer = freeBuffers.poll();
+						encoder.reset(buffer != null ? buffer
+								: new byte[2 * POSTGRESQL_WRITE_BUFFER_SIZE]);
 					}
-					row[colIndex] = value;
 				}
-				if (rowId != null) {
-					++postgresCounter;
-					++accumuloCounter;
-					createNewRowForPostgres(row, sBuilder);
-					flushRowsToPostgreSQL(sBuilder, reader, cpManager,
-							postgresTable, copyString);
+				if (encoder.size() > 0) {
+					handOver(new CopyBatch(encoder.getBuffer(), encoder.size()),
+							batches, writers);
+				}
+				for (int i = 0; i < writers.size(); ++i) {
+					handOver(CopyBatch.END, batches, writers);
+				}
+				for (Future<Long> writer : writers) {
+					postgresCounter += getWriterResult(writer);
+				}
+				for (Connection writerConnection : writerConnections) {
+					writerConnection.commit();
+				}
+				if (conToInfo != null) {
+					con.commit();
 				}
-				con.commit();
 			}
+		} catch (SQLException | MigrationException | RuntimeException e) {
+			for (Connection writerConnection : writerConnections) {
+				try {
+					writerConnection.rollback();
+				} catch (SQLException ex) {
+					logger.error("Could not roll back the transaction of a "
+							+ "writer to PostgreSQL: " + ex.getMessage());
+				}
+			}
+			throw e;
 		} finally {
+			if (scanner != null) {
+				scanner.close();
+			}
+			if (writerExecutor != null) {
+				writerExecutor.shutdownNow();
+			}
+			for (Connection writerConnection : writerConnections) {
+				if (writerConnection != con) {
+					try {
+						writerConnection.close();
+					} catch (SQLException e) {
+						logger.error("Could not close the connection of a "
+								+ "writer to PostgreSQL: " + e.getMessage());
+					}
+				}
+			}
 			cleanPostgreSQLResources();
 		}
 
@@ -305,6 +406,86 @@ public class FromAccumuloToPostgres extends FromDatabaseToDatabase {
 
 	}
 
+	/** A batch of encoded rows for a writer. */
+	private static class CopyBatch {
+		/** Tells a writer that there are no more rows. */
+		private static final CopyBatch END = new CopyBatch(null, 0);
+
+		private final byte[] buffer;
+		private final int size;
+
+		private CopyBatch(byte[] buffer, int size) {
+			this.buffer = buffer;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Write the batches of rows to the open COPY command until the end of the
+	 * data and give the buffers back.
+	 * 
+	 * @return number of rows copied to PostgreSQL
+	 */
+	private static Long writeToPostgreSQL(CopyIn copyIn,
+			BlockingQueue<CopyBatch> batches, BlockingQueue<byte[]> freeBuffers)
+					throws SQLException, InterruptedException {
+		try {
+			CopyBatch batch;
+			while ((batch = batches.take()) != CopyBatch.END) {
+				copyIn.writeToCopy(batch.buffer, 0, batch.size);
+				freeBuffers.offer(batch.buffer);
+			}
+			return copyIn.endCopy();
+		} finally {
+			if (copyIn.isActive()) {
+				copyIn.cancelCopy();
+			}
+		}
+	}
+
+	/**
+	 * Pass the batch to the writers (wait while all of them are busy).
+	 * 
+	 * @throws MigrationException
+	 *             one of the writers failed
+	 */
+	private static void handOver(CopyBatch batch,
+			BlockingQueue<CopyBatch> batches, List<Future<Long>> writers)
+					throws MigrationException {
+		try {
+			while (!batches.offer(batch, WRITER_WAIT_MSEC,
+					TimeUnit.MILLISECONDS)) {
+				for (Future<Long> writer : writers) {
+					if (writer.isDone()) {
+						/* a writer finishes early only when it fails */
+						getWriterResult(writer);
+						throw new MigrationException(
+								"A writer to PostgreSQL stopped before the "
+										+ "end of the data.");
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MigrationException(
+					"Interrupted while passing the data to PostgreSQL.", e);
+		}
+	}
+
+	private static long getWriterResult(Future<Long> writer)
+			throws MigrationException {
+		try {
+			return writer.get();
+		} catch (ExecutionException e) {
+			throw new MigrationException("Could not copy the data to "
+					+ "PostgreSQL: " + e.getCause().getMessage(), e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MigrationException(
+					"Interrupted while copying the data to PostgreSQL.", e);
+		}
+	}
+
 	public MigrationResult fromAccumuloToPostgres(final String accumuloTable,
 			final String postgresTable)
 					throws MigrationException, AccumuloException,
@@ -21,10 +21,12 @@ import istc.bigdawg.exceptions.MigrationException;
 import istc.bigdawg.exceptions.NetworkException;
 import istc.bigdawg.monitoring.Monitor;
 import istc.bigdawg.network.DataOut;
+import istc.bigdawg.network.DataTransferResult;
 import istc.bigdawg.network.RemoteRequest;
 import istc.bigdawg.properties.BigDawgConfigProperties;
 import istc.bigdawg.query.ConnectionInfo;
 import istc.bigdawg.utils.Pipe;
+import istc.bigdawg.utils.RingBufferPipe;
 import istc.bigdawg.utils.StackTrace;
 import istc.bigdawg.utils.TaskExecutor;
 import istc.bigdawg.zookeeper.FollowRemoteNodes;
@@ -276,8 +278,16 @@ public class FromDatabaseToDatabase implements MigrationNetworkRequest {
 
 			/* Set output for exporter and input for DataOut. */
 			exporter.setExportTo(pipe);
+			/*
+			 * CSV data compress well, the binary formats are not worth the
+			 * CPU time.
+			 */
+			boolean compress = BigDawgConfigProperties.INSTANCE
+					.getNetworkDataCompressionLevel() > 0
+					&& exporter.getFileFormat() == FileFormat.CSV;
 			DataOut dataOut = new DataOut(
-					migrationInfo.getConnectionTo().getHost(), DATA_PORT, pipe);
+					migrationInfo.getConnectionTo().getHost(), DATA_PORT, pipe,
+					compress);
 
 			/* set migration information for exporter and loader */
 			exporter.setMigrationInfo(migrationInfo);
@@ -311,7 +321,9 @@ public class FromDatabaseToDatabase implements MigrationNetworkRequest {
 			LoadRemoteResult loadingResult = (LoadRemoteResult) remoteLoadResult;
 			Long countLoadedElements = loadingResult.getCountLoadedElements();
 			Long countExtractedElements = (Long) results.get(1).get();
-			Long bytesSent = (Long) results.get(2).get();
+			DataTransferResult transfer = (DataTransferResult) results.get(2)
+					.get();
+			Long bytesSent = transfer.getBytesOnWire();
 			Long bytesReceived = (Long) loadingResult.getBytesReceived();
 			if (!bytesSent.equals(bytesReceived)) {
 				throw new MigrationException(
@@ -323,8 +335,10 @@ public class FromDatabaseToDatabase implements MigrationNetworkRequest {
 			long endTimeMigration = System.currentTimeMillis();
 			long durationMsec = endTimeMigration - startTimeMigration;
 			MigrationResult migrationResult = new MigrationResult(
-					countExtractedElements, countLoadedElements, durationMsec,
-					startTimeMigration, endTimeMigration);
+					countExtractedElements, countLoadedElements,
+					startTimeMigration, endTimeMigration, durationMsec);
+			migrationResult.setNetworkBytes(transfer.getBytesPayload(),
+					transfer.getBytesOnWire());
 			String message = "Migration was executed correctly.";
 			return summary(migrationResult, migrationInfo, message);
 		} catch (Exception e) {
@@ -348,18 +362,27 @@ public class FromDatabaseToDatabase implements MigrationNetworkRequest {
 	 */
 	public MigrationResult executeMigrationLocally() throws MigrationException {
 		try {
-			String pipe = Pipe.INSTANCE
-					.createAndGetFullName(this.getClass().getName() + "_from_"
-							+ migrationInfo.getObjectFrom() + "_to_"
-							+ migrationInfo.getObjectTo());
-							/* pipe = "/tmp/adam"; */
+			if (exporter.isStreamSupported() && loader.isStreamSupported()) {
+				/*
+				 * both ends run in this JVM, pass the data through memory
+				 * instead of a named pipe
+				 */
+				RingBufferPipe pipe = new RingBufferPipe();
+				exporter.setExportTo(pipe.getOutputStream());
+				loader.setLoadFrom(pipe.getInputStream());
+			} else {
+				String pipe = Pipe.INSTANCE.createAndGetFullName(
+						this.getClass().getName() + "_from_"
+								+ migrationInfo.getObjectFrom() + "_to_"
+								+ migrationInfo.getObjectTo());
 
-			/* add the pipe to be removed when cleaning the resources */
-			pipes.add(pipe);
+				/* add the pipe to be removed when cleaning the resources */
+				pipes.add(pipe);
 
-			/* set output for exporter and input for importer */
-			exporter.setExportTo(pipe);
-			loader.setLoadFrom(pipe);
+				/* set output for exporter and input for importer */
+				exporter.setExportTo(pipe);
+				loader.setLoadFrom(pipe);
+			}
 
 			/* set migration information for exporter and loader */
 			exporter.setMigrationInfo(migrationInfo);
@@ -385,8 +408,8 @@ public class FromDatabaseToDatabase implements MigrationNetworkRequest {
 			long endTimeMigration = System.currentTimeMillis();
 			long durationMsec = endTimeMigration - startTimeMigration;
 			MigrationResult migrationResult = new MigrationResult(
-					countExtractedElements, countLoadedElements, durationMsec,
-					startTimeMigration, endTimeMigration);
+					countExtractedElements, countLoadedElements,
+					startTimeMigration, endTimeMigration, durationMsec);
 			String message = "Migration was executed correctly.";
 			return summary(migrationResult, migrationInfo, message);
 		} catch (Exception e) {
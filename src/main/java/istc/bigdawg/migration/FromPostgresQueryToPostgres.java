@@ -0,0 +1,234 @@
+/**
+ * 
+ */
+package istc.bigdawg.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+
+import istc.bigdawg.exceptions.MigrationException;
+import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
+import istc.bigdawg.postgresql.PostgreSQLHandler;
+import istc.bigdawg.postgresql.PostgreSQLSchemaTableName;
+import istc.bigdawg.utils.RingBufferPipe;
+import istc.bigdawg.utils.StackTrace;
+
+/**
+ * Stream the result of a query executed in one instance of PostgreSQL to a
+ * table in another instance, without storing the result in the source
+ * database first.
+ *
+ * The rows are copied out with COPY (query) TO STDOUT and loaded with COPY
+ * FROM STDIN through a pipe, so the query runs in the source database while
+ * its rows are loaded to the destination database. The target table is
+ * created from the columns of the query (their types are read from a
+ * temporary view over the query).
+ *
+ * A running migration can be cancelled from another thread with
+ * {@link #cancel()}.
+ */
+public class FromPostgresQueryToPostgres {
+
+	private static Logger logger = Logger
+			.getLogger(FromPostgresQueryToPostgres.class);
+
+	private final PostgreSQLConnectionInfo connectionFrom;
+	private final String query;
+	private final PostgreSQLConnectionInfo connectionTo;
+	private final String toTable;
+
+	/* volatile: the migration can be cancelled from another thread */
+	private volatile boolean cancelled = false;
+	private volatile Connection conFrom = null;
+	private volatile Connection conTo = null;
+
+	/**
+	 * @param connectionFrom
+	 *            the database where the query is executed
+	 * @param query
+	 *            the query (without the INTO clause, see
+	 *            {@link #getQueryOfSelectInto(String, String)})
+	 * @param connectionTo
+	 *            the database to which the rows are loaded
+	 * @param toTable
+	 *            the table to which the rows are loaded
+	 */
+	public FromPostgresQueryToPostgres(PostgreSQLConnectionInfo connectionFrom,
+			String query, PostgreSQLConnectionInfo connectionTo,
+			String toTable) {
+		this.connectionFrom = connectionFrom;
+		this.query = query;
+		this.connectionTo = connectionTo;
+		this.toTable = toTable;
+	}
+
+	/**
+	 * Get the query of a SELECT ... INTO statement (without the INTO clause),
+	 * e.g. for: SELECT a, b INTO t FROM s WHERE a > 1; the query is: SELECT
+	 * a, b FROM s WHERE a > 1
+	 *
+	 * @param selectInto
+	 *            the SELECT INTO statement
+	 * @param table
+	 *            the table created by the statement
+	 * @return the query or empty if the statement does not have exactly one
+	 *         INTO clause with the table
+	 */
+	public static Optional<String> getQueryOfSelectInto(String selectInto,
+			String table) {
+		Matcher into = Pattern.compile(
+				"\\s+INTO\\s+" + Pattern.quote(table) + "(?=[\\s;]|$)",
+				Pattern.CASE_INSENSITIVE).matcher(selectInto);
+		if (!into.find()) {
+			return Optional.empty();
+		}
+		String query = selectInto.substring(0, into.start()) + " "
+				+ selectInto.substring(into.end()).trim();
+		if (into.find()) {
+			return Optional.empty();
+		}
+		/* COPY does not accept the semicolon inside the parentheses */
+		query = query.trim();
+		while (query.endsWith(";")) {
+			query = query.substring(0, query.length() - 1).trim();
+		}
+		return Optional.of(query);
+	}
+
+	/**
+	 * Create the statement which creates the target table with the columns of
+	 * the query.
+	 */
+	private static String getCreateTable(Connection conFrom, String query,
+			String toTable) throws SQLException {
+		String view = new PostgreSQLSchemaTableName(toTable).getTableName()
+				+ "_query";
+		PostgreSQLHandler.executeStatement(conFrom,
+				"create or replace temporary view " + view + " as "
+						+ query);
+		String createTable = PostgreSQLHandler.getCreateTable(conFrom, view,
+				toTable);
+		PostgreSQLHandler.executeStatement(conFrom, "drop view " + view);
+		return createTable;
+	}
+
+	/**
+	 * Execute the query in the source database and load its rows to the
+	 * target table (which is created if it does not exist) in the destination
+	 * database.
+	 *
+	 * @param connectionFrom
+	 *            the database where the query is executed
+	 * @param query
+	 *            the query (without the INTO clause, see
+	 *            {@link #getQueryOfSelectInto(String, String)})
+	 * @param connectionTo
+	 *            the database to which the rows are loaded
+	 * @param toTable
+	 *            the table to which the rows are loaded
+	 * @return {@link MigrationResult} with the number of extracted and loaded
+	 *         rows
+	 * @throws MigrationException
+	 *             the rows were not loaded (the changes in the destination
+	 *             database are rolled back)
+	 */
+	public static MigrationResult migrate(
+			PostgreSQLConnectionInfo connectionFrom, String query,
+			PostgreSQLConnectionInfo connectionTo, String toTable)
+					throws MigrationException {
+		return new FromPostgresQueryToPostgres(connectionFrom, query,
+				connectionTo, toTable).migrate();
+	}
+
+	/**
+	 * Execute the query in the source database and load its rows to the
+	 * target table in the destination database (see
+	 * {@link #migrate(PostgreSQLConnectionInfo, String, PostgreSQLConnectionInfo, String)}).
+	 *
+	 * @return {@link MigrationResult} with the number of extracted and loaded
+	 *         rows
+	 * @throws MigrationException
+	 *             the rows were not loaded or the migration was cancelled
+	 */
+	public MigrationResult migrate() throws MigrationException {
+		long startTimeMigration = System.currentTimeMillis();
+		ExecutorService executor = null;
+		try {
+			conFrom = PostgreSQLHandler.getConnection(connectionFrom);
+			conFrom.setAutoCommit(false);
+			conTo = PostgreSQLHandler.getConnection(connectionTo);
+			conTo.setAutoCommit(false);
+			/* cancel() could not see the connections yet */
+			if (cancelled) {
+				throw new MigrationException("The migration was cancelled.");
+			}
+			PostgreSQLHandler.executeStatement(conTo,
+					"create schema if not exists "
+							+ new PostgreSQLSchemaTableName(toTable)
+									.getSchemaName());
+			PostgreSQLHandler.executeStatement(conTo,
+					getCreateTable(conFrom, query, toTable));
+
+			RingBufferPipe pipe = new RingBufferPipe();
+			CopyFromPostgresExecutor exporter = new CopyFromPostgresExecutor(
+					conFrom,
+					PostgreSQLHandler.getExportBinCommand("(" + query + ")"),
+					pipe.getOutputStream());
+			CopyToPostgresExecutor loader = new CopyToPostgresExecutor(conTo,
+					PostgreSQLHandler.getLoadBinCommand(toTable),
+					pipe.getInputStream());
+			executor = Executors.newSingleThreadExecutor();
+			Future<Long> exported = executor.submit(exporter);
+			Long loaded = loader.call();
+			Long extracted = exported.get();
+			if (extracted == null || extracted < 0
+					|| !extracted.equals(loaded)) {
+				throw new MigrationException("extracted rows: " + extracted
+						+ ", loaded rows: " + loaded + ".");
+			}
+			conTo.commit();
+			long endTimeMigration = System.currentTimeMillis();
+			long durationMsec = endTimeMigration - startTimeMigration;
+			logger.debug("Streamed " + loaded + " rows of the query to "
+					+ toTable + " in " + durationMsec + " msec");
+			return new MigrationResult(extracted, loaded, startTimeMigration,
+					endTimeMigration, durationMsec);
+		} catch (Exception e) {
+			String message = e.getMessage()
+					+ " Streaming the result of the query to " + toTable
+					+ " failed.";
+			logger.error(message + " Stack Trace: "
+					+ StackTrace.getFullStackTrace(e), e);
+			FromPostgresToPostgres.abort(conTo);
+			FromPostgresToPostgres.abort(conFrom);
+			throw new MigrationException(message, e);
+		} finally {
+			FromPostgresToPostgres.close(conFrom);
+			FromPostgresToPostgres.close(conTo);
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Cancel the migration (called from a different thread than the one
+	 * blocked in {@link #migrate()}): the connections are aborted, so the
+	 * query and the load fail and the changes in the destination database are
+	 * rolled back.
+	 */
+	public void cancel() {
+		cancelled = true;
+		FromPostgresToPostgres.abort(conFrom);
+		FromPostgresToPostgres.abort(conTo);
+	}
+
+}
@@ -14,6 +14,16 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
@@ -21,6 +31,7 @@ import org.apache.accumulo.core.client.BatchWriter;
 import org.apache.accumulo.core.client.BatchWriterConfig;
 import org.apache.accumulo.core.client.MutationsRejectedException;
 import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.client.admin.TableOperations;
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Value;
 import org.apache.hadoop.io.Text;
@@ -39,6 +50,7 @@ import istc.bigdawg.exceptions.MigrationException;
 import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
 import istc.bigdawg.postgresql.PostgreSQLHandler;
 import istc.bigdawg.postgresql.PostgreSQLInstance;
+import istc.bigdawg.properties.BigDawgConfigProperties;
 import istc.bigdawg.utils.StackTrace;
 
 /**
@@ -59,16 +71,11 @@ public class FromPostgresToAccumulo extends FromDatabaseToDatabase {
 			.getLogger(FromPostgresToAccumulo.class);
 
 	private Connection con = null;
-	private PreparedStatement st = null;
-	private ResultSet rs = null;
 	private AccumuloInstance accInst = null;
 
 	// parameters
-	private long rowIdCounterForAccumuloFromPostgres = 0L;
-	private static long ACCUMULO_BATCH_WRITER_MAX_MEMORY = 50 * 1024 * 1024L;
-	private static int ACCUMULO_BATCH_WRITER_MAX_WRITE_THREADS = 4;
-	private int accumuloBatchWriteSize = 1000;
-	private int postgreSQLFetchSize = 50;
+	/** Number of rows sampled for each split of the table in Accumulo. */
+	private static final int PRESPLIT_SAMPLES_PER_TABLET = 100;
 
 	private PostgreSQLConnectionInfo conFrom;
 	private AccumuloConnectionInfo conTo;
@@ -85,13 +92,23 @@ public class FromPostgresToAccumulo extends FromDatabaseToDatabase {
 		this.accInst = accInst;
 	}
 
+	/**
+	 * The writer is shared by all the readers of the migration (it is thread
+	 * safe) and kept open until the end of the migration, so the mutations
+	 * are sent to the tablet servers in big batches by its own threads.
+	 */
 	private BatchWriter getAccumuloBatchWriter(final String table)
 			throws AccumuloException, AccumuloSecurityException,
 			AccumuloBigDawgException, TableNotFoundException {
+		BigDawgConfigProperties properties = BigDawgConfigProperties.INSTANCE;
 		BatchWriterConfig config = new BatchWriterConfig();
 		// bytes available to batch-writer for buffering mutations
-		config.setMaxMemory(ACCUMULO_BATCH_WRITER_MAX_MEMORY);
-		config.setMaxWriteThreads(ACCUMULO_BATCH_WRITER_MAX_WRITE_THREADS);
+		config.setMaxMemory(
+				properties.getMigrationAccumuloWriterMemoryMb() * 1024 * 1024L);
+		config.setMaxLatency(properties.getMigrationAccumuloWriterLatency(),
+				TimeUnit.MILLISECONDS);
+		config.setMaxWriteThreads(
+				properties.getMigrationAccumuloWriterThreads());
 		try {
 			BatchWriter writer = accInst.getConnector().createBatchWriter(table,
 					config);
@@ -102,34 +119,35 @@ public class FromPostgresToAccumulo extends FromDatabaseToDatabase {
 		}
 	}
 
-	private ResultSet getPostgreSQLResultSet(final String table)
-			throws SQLException {
+	private static ResultSet getPostgreSQLResultSet(Connection connection,
+			final String table, final String partition) throws SQLException {
 		String query = "Select * from "
-				+ table.replace(";", "").replace(" ", "");
-		st = con.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
-				ResultSet.CONCUR_READ_ONLY);
+				+ table.replace(";", "").replace(" ", "") + " where "
+				+ partition;
+		PreparedStatement st = connection.prepareStatement(query,
+				ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
 		// Turn use of the cursor on.
-		st.setFetchSize(postgreSQLFetchSize);
+		st.setFetchSize(BigDawgConfigProperties.INSTANCE
+				.getExecutorResultFetchSize());
 		return st.executeQuery();
 	}
 
 	private void cleanPostgreSQLResources() throws SQLException {
-		if (rs != null) {
-			rs.close();
-		}
-		if (st != null) {
-			st.close();
-		}
 		if (con != null) {
 			con.close();
 		}
 	}
 
-	private Text getRowIdAccumuloFromPostgres(List<Integer> primaryColNum)
-			throws SQLException {
+	/**
+	 * @param rowIdCounter
+	 *            the row ids of a table without a primary key (shared by all
+	 *            the readers of the table)
+	 */
+	private static Text getRowIdAccumuloFromPostgres(ResultSet rs,
+			List<Integer> primaryColNum, AtomicLong rowIdCounter)
+					throws SQLException {
 		if (primaryColNum.size() == 0) {
-			++rowIdCounterForAccumuloFromPostgres;
-			return new Text(Long.toString(rowIdCounterForAccumuloFromPostgres));
+			return new Text(Long.toString(rowIdCounter.incrementAndGet()));
 		}
 		StringBuilder rowIdInit = new StringBuilder();
 		for (int colNum : primaryColNum) {
@@ -155,6 +173,7 @@ public class FromPostgresToAccumulo extends FromDatabaseToDatabase {
 			this.con = PostgreSQLHandler.getConnection(conFrom);
 			con.setAutoCommit(false);
 			con.setReadOnly(true);
+			con.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
 		} catch (SQLException e) {
 			String msg = "Could not connect to PostgreSQL.";
 			logger.error(msg + StackTrace.getFullStackTrace(e), e);
@@ -176,13 +195,38 @@ public class FromPostgresToAccumulo extends FromDatabaseToDatabase {
 		}
 	}
 
+	/**
+	 * Migrate the rows of the PostgreSQL table to the Accumulo table.
+	 * 
+	 * The PostgreSQL table is split into ranges (see
+	 * {@link PostgresRangePartitioner}, at most
+	 * {@link BigDawgConfigProperties#getMigrationParallelDegree()} of them).
+	 * Each range is read with a cursor by its own connection, all of them from
+	 * the same snapshot of the source database, and the rows of all the ranges
+	 * go to a single batch writer. An empty table in Accumulo can be split in
+	 * advance (see {@link BigDawgConfigProperties#getMigrationAccumuloPresplit()}),
+	 * so the rows are written to many tablet servers from the beginning.
+	 * 
+	 * @param postgresTable
+	 *            the source table in PostgreSQL
+	 * @param accumuloTable
+	 *            the target table in Accumulo (it has to exist)
+	 */
 	public MigrationResult fromPostgresToAccumulo(final String postgresTable,
 			final String accumuloTable) throws MigrationException {
 		logger.debug("Migrate data from PostgreSQL to Accumulo.");
 		long startTimeMigration = System.currentTimeMillis();
 		BatchWriter writer = null;
 		long fullRowCounter = 0; /* Full counter of rows extracted/loaded. */
+		/* connections of the readers of the ranges */
+		List<Connection> connections = new ArrayList<>();
+		ExecutorService executor = null;
 		try {
+			List<Integer> primaryColNum;
+			primaryColNum = new PostgreSQLHandler(conFrom, con)
+					.getPrimaryColumnsNoRecourceCleaning(postgresTable);
+			presplitAccumuloTable(postgresTable, accumuloTable,
+					primaryColNum);
 			try {
 				writer = getAccumuloBatchWriter(accumuloTable);
 			} catch (AccumuloException | AccumuloSecurityException
@@ -191,78 +235,73 @@ public class FromPostgresToAccumulo extends FromDatabaseToDatabase {
 				logger.error(msg + StackTrace.getFullStackTrace(exp), exp);
 				throw new MigrationException(msg, exp);
 			}
-			List<Integer> primaryColNum;
-			primaryColNum = new PostgreSQLHandler(conFrom, con)
-					.getPrimaryColumnsNoRecourceCleaning(postgresTable);
-			/*
-			 * gettting results from Postgres has to be after determining the PK
-			 * columns we use the same reference to rs - ResultSet in the whole
-			 * class
-			 */
-			rs = getPostgreSQLResultSet(postgresTable);
-			if (rs == null) {
-				String message = "No results were fetched for the table: "
-						+ postgresTable;
-				// System.out.println(message);
-				lgr.log(Level.INFO, message);
-			} else {
-				ResultSetMetaData rsmd = rs.getMetaData();
-				int numOfCol = rsmd.getColumnCount();
-				long counterLocal = 0; /* Local counter for rows for a batch. */
-				while (rs.next()) {
-					++counterLocal;
-					Text rowId = getRowIdAccumuloFromPostgres(primaryColNum);
-					// Text rowId = new Text(Long.toString(counter));
-					for (int colNum = 1; colNum <= numOfCol; ++colNum) {
-						/*
-						 * We can have a composite primary key so we have to
-						 * store each column separately including primary keys.
-						 */
-						Mutation mutation = new Mutation(rowId);
-						/* colFamily, colQualifier, value */
-						Text colFamily = new Text("" + colNum);
-						Text colQual = new Text(rsmd.getColumnName(colNum));
-						Value value = new Value(
-								rs.getObject(colNum).toString().getBytes());
-						mutation.put(colFamily, colQual, value);
-						try {
-							writer.addMutation(mutation);
-						} catch (MutationsRejectedException e) {
-							String msg = "Mutation (new data) to Accumulo"
-									+ " was rejected with: " + "colFamily: "
-									+ colFamily + " colQualifier: " + colQual
-									+ " value:" + value;
-							logger.error(msg + StackTrace.getFullStackTrace(e),
-									e);
-							throw new MigrationException(msg, e);
-						}
+			int degree = BigDawgConfigProperties.INSTANCE
+					.getMigrationParallelDegree();
+			List<String> partitions = PostgresRangePartitioner
+					.getPartitions(con, postgresTable, degree);
+			logger.debug("Migrate " + postgresTable + " in "
+					+ partitions.size() + " ranges: " + partitions);
+			String snapshot = null;
+			if (partitions.size() > 1) {
+				snapshot = FromPostgresToPostgres.exportSnapshot(con);
+			}
+			AtomicLong rowIdCounter = new AtomicLong();
+			List<Callable<Long>> readers = new ArrayList<>();
+			for (String partition : partitions) {
+				Connection connection = con;
+				if (snapshot != null) {
+					connection = PostgreSQLHandler.getConnection(conFrom);
+					connections.add(connection);
+					connection.setReadOnly(true);
+					connection.setAutoCommit(false);
+					connection.setTransactionIsolation(
+							Connection.TRANSACTION_REPEATABLE_READ);
+					PostgreSQLHandler.executeStatement(connection,
+							"set transaction snapshot '" + snapshot + "'");
+				}
+				final Connection readerConnection = connection;
+				final BatchWriter sharedWriter = writer;
+				readers.add(() -> writeRangeToAccumulo(readerConnection,
+						postgresTable, partition, primaryColNum, rowIdCounter,
+						sharedWriter));
+			}
+			executor = Executors.newFixedThreadPool(readers.size());
+			List<Future<Long>> results = new ArrayList<>();
+			for (Callable<Long> reader : readers) {
+				results.add(executor.submit(reader));
+			}
+			for (Future<Long> result : results) {
+				try {
+					fullRowCounter += result.get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof MigrationException) {
+						throw (MigrationException) cause;
 					}
-					if (counterLocal % accumuloBatchWriteSize == 0) {
-						counterLocal = 0;
-						try {
-							writer.flush();
-							writer.close();
-						} catch (MutationsRejectedException exp) {
-							String msg = "Could not close BatchWriter to Accumulo.";
-							logger.error(
-									msg + StackTrace.getFullStackTrace(exp),
-									exp);
-							throw new MigrationException(msg, exp);
-						}
-						try {
-							writer = getAccumuloBatchWriter(accumuloTable);
-						} catch (AccumuloException | AccumuloSecurityException
-								| AccumuloBigDawgException
-								| TableNotFoundException exp) {
-							String msg = "Could not open next Accumulo BatchWriter.";
-							logger.error(
-									msg + StackTrace.getFullStackTrace(exp),
-									exp);
-							throw new MigrationException(msg, exp);
-						}
+					if (cause instanceof SQLException) {
+						throw (SQLException) cause;
 					}
+					throw new MigrationException(
+							"Could not migrate the rows of " + postgresTable
+									+ ": " + cause.getMessage(),
+							cause);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new MigrationException(
+							"Interrupted while migrating the rows of "
+									+ postgresTable,
+							e);
 				}
 			}
+			try {
+				/* all the rows have to be in Accumulo before we report them */
+				writer.close();
+				writer = null;
+			} catch (MutationsRejectedException exp) {
+				String msg = "Could not close BatchWriter to Accumulo.";
+				logger.error(msg + StackTrace.getFullStackTrace(exp), exp);
+				throw new MigrationException(msg, exp);
+			}
 			long endTimeMigration = System.currentTimeMillis();
 			long durationMsec = endTimeMigration - startTimeMigration;
 			return new MigrationResult(fullRowCounter, fullRowCounter,
@@ -273,14 +312,23 @@ public class FromPostgresToAccumulo extends FromDatabaseToDatabase {
 			logger.error(msg + StackTrace.getFullStackTrace(exp), exp);
 			throw new MigrationException(msg, exp);
 		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+			for (Connection connection : connections) {
+				try {
+					connection.close();
+				} catch (SQLException exp) {
+					logger.error("Could not close a connection to PostgreSQL: "
+							+ exp.getMessage());
+				}
+			}
 			if (writer != null) {
 				try {
-					writer.flush();
 					writer.close();
 				} catch (MutationsRejectedException exp) {
 					String msg = "Could not close BatchWriter to Accumulo.";
 					logger.error(msg + StackTrace.getFullStackTrace(exp), exp);
-					throw new MigrationException(msg, exp);
 				}
 			}
 			try {
@@ -293,6 +341,123 @@ public class FromPostgresToAccumulo extends FromDatabaseToDatabase {
 		}
 	}
 
+	/**
+	 * Read the rows of the range of the PostgreSQL table and pass them to the
+	 * writer to Accumulo.
+	 * 
+	 * @return number of migrated rows
+	 */
+	private static long writeRangeToAccumulo(Connection connection,
+			String postgresTable, String partition,
+			List<Integer> primaryColNum, AtomicLong rowIdCounter,
+			BatchWriter writer) throws SQLException, MigrationException {
+		long rowCounter = 0;
+		try (ResultSet rs = getPostgreSQLResultSet(connection, postgresTable,
+				partition)) {
+			ResultSetMetaData rsmd = rs.getMetaData();
+			int numOfCol = rsmd.getColumnCount();
+			/* colFamily, colQualifier of each column */
+			Text[] colFamilies = new Text[numOfCol + 1];
+			Text[] colQuals = new Text[numOfCol + 1];
+			for (int colNum = 1; colNum <= numOfCol; ++colNum) {
+				colFamilies[colNum] = new Text("" + colNum);
+				colQuals[colNum] = new Text(rsmd.getColumnName(colNum));
+			}
+			while (rs.next()) {
+				++rowCounter;
+				Text rowId = getRowIdAccumuloFromPostgres(rs, primaryColNum,
+						rowIdCounter);
+				/*
+				 * We can have a composite primary key so we have to store each
+				 * column separately including primary keys (a null value is
+				 * not stored at all).
+				 */
+				Mutation mutation = new Mutation(rowId);
+				for (int colNum = 1; colNum <= numOfCol; ++colNum) {
+					Object object = rs.getObject(colNum);
+					if (object != null) {
+						mutation.put(colFamilies[colNum], colQuals[colNum],
+								new Value(object.toString().getBytes()));
+					}
+				}
+				try {
+					writer.addMutation(mutation);
+				} catch (MutationsRejectedException e) {
+					String msg = "Mutation (new data) to Accumulo"
+							+ " was rejected for row: " + rowId;
+					logger.error(msg + StackTrace.getFullStackTrace(e), e);
+					throw new MigrationException(msg, e);
+				}
+			}
+			rs.getStatement().close();
+		}
+		logger.debug("Migrated " + rowCounter + " rows of the range: "
+				+ partition);
+		return rowCounter;
+	}
+
+	/**
+	 * Split an empty table in Accumulo into
+	 * {@link BigDawgConfigProperties#getMigrationAccumuloPresplit()} tablets on
+	 * the row ids sampled from the PostgreSQL table.
+	 */
+	private void presplitAccumuloTable(String postgresTable,
+			String accumuloTable, List<Integer> primaryColNum)
+					throws SQLException, MigrationException {
+		int tablets = BigDawgConfigProperties.INSTANCE
+				.getMigrationAccumuloPresplit();
+		if (tablets <= 1) {
+			return;
+		}
+		try {
+			TableOperations tableOperations = accInst.getConnector()
+					.tableOperations();
+			if (!tableOperations.listSplits(accumuloTable).isEmpty()) {
+				/* the table is already split */
+				return;
+			}
+			long rows = PostgresRangePartitioner.getEstimatedRows(con,
+					postgresTable);
+			if (rows < tablets) {
+				return;
+			}
+			int samples = tablets * PRESPLIT_SAMPLES_PER_TABLET;
+			List<Text> rowIds = new ArrayList<>();
+			if (primaryColNum.size() == 0) {
+				/* the row ids are the numbers of the rows (from 1) */
+				for (int i = 0; i < samples; ++i) {
+					rowIds.add(new Text(Long.toString(
+							ThreadLocalRandom.current().nextLong(rows) + 1)));
+				}
+			} else {
+				double fraction = Math.min(1.0, 2.0 * samples / rows);
+				try (ResultSet rs = getPostgreSQLResultSet(con, postgresTable,
+						"random() < " + fraction + " limit " + samples)) {
+					while (rs.next()) {
+						rowIds.add(getRowIdAccumuloFromPostgres(rs,
+								primaryColNum, null));
+					}
+					rs.getStatement().close();
+				}
+			}
+			/* the rows in Accumulo are sorted on the bytes of their ids */
+			rowIds.sort(null);
+			SortedSet<Text> splits = new TreeSet<>();
+			for (int i = 1; i < tablets && !rowIds.isEmpty(); ++i) {
+				splits.add(rowIds.get(i * rowIds.size() / tablets));
+			}
+			logger.debug("Split table " + accumuloTable + " in Accumulo on: "
+					+ splits);
+			tableOperations.addSplits(accumuloTable, splits);
+		} catch (AccumuloException | AccumuloSecurityException
+				| TableNotFoundException exp) {
+			String msg = "Could not split the table " + accumuloTable
+					+ " in Accumulo: " + exp.getMessage();
+			logger.error(msg + StackTrace.getFullStackTrace(exp), exp);
+			throw new MigrationException(msg, exp);
+		}
+	}
+
 	/**
 	 * @param args
 	 * @throws IOException
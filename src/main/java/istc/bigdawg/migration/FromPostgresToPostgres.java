@@ -3,15 +3,16 @@
  */
 package istc.bigdawg.migration;
 
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import org.apache.commons.net.ntp.TimeStamp;
@@ -19,10 +20,13 @@ import org.apache.log4j.Logger;
 
 import istc.bigdawg.LoggerSetup;
 import istc.bigdawg.exceptions.MigrationException;
+import istc.bigdawg.monitoring.Monitor;
 import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
 import istc.bigdawg.postgresql.PostgreSQLHandler;
 import istc.bigdawg.postgresql.PostgreSQLSchemaTableName;
+import istc.bigdawg.properties.BigDawgConfigProperties;
 import istc.bigdawg.query.ConnectionInfo;
+import istc.bigdawg.utils.RingBufferPipe;
 import istc.bigdawg.utils.StackTrace;
 import istc.bigdawg.utils.TaskExecutor;
 
@@ -155,6 +159,20 @@ public class FromPostgresToPostgres extends FromDatabaseToDatabase {
 	}
 
 	public MigrationResult executeMigration() throws MigrationException {
+		Migrator.Type type = migrationInfo.getMigrationParams()
+				.flatMap(MigrationParams::getMigrationType)
+				.orElse(Migrator.Type.BINARY_SEQUENTIAL);
+		if (type == Migrator.Type.CSV_PARALLEL) {
+			return executeParallelMigration(FileFormat.CSV);
+		}
+		if (type == Migrator.Type.BINARY_PARALLEL) {
+			return executeParallelMigration(FileFormat.BIN_POSTGRES);
+		}
+		if (type == Migrator.Type.CHECKPOINTED) {
+			return executeCheckpointedMigration(migrationInfo
+					.getMigrationParams().map(MigrationParams::isResume)
+					.orElse(false));
+		}
 		TimeStamp startTimeStamp = TimeStamp.getCurrentTime();
 		logger.debug("start migration: " + startTimeStamp.toDateString());
 
@@ -175,14 +193,14 @@ public class FromPostgresToPostgres extends FromDatabaseToDatabase {
 			conTo.setAutoCommit(false);
 			createTargetTableSchema(conFrom, conTo);
 
-			final PipedOutputStream output = new PipedOutputStream();
-			final PipedInputStream input = new PipedInputStream(output);
+			RingBufferPipe pipe = new RingBufferPipe();
 
 			List<Callable<Object>> tasks = new ArrayList<>();
-			tasks.add(new ExportPostgres(conFrom, copyFromCommand, output,
+			tasks.add(new ExportPostgres(conFrom, copyFromCommand,
+					pipe.getOutputStream(),
 					new PostgreSQLHandler(getConnectionTo())));
 			tasks.add(new LoadPostgres(conTo, migrationInfo, copyToCommand,
-					input));
+					pipe.getInputStream()));
 			executor = Executors.newFixedThreadPool(tasks.size());
 			List<Future<Object>> results = TaskExecutor.execute(executor,
 					tasks);
@@ -193,8 +211,8 @@ public class FromPostgresToPostgres extends FromDatabaseToDatabase {
 			long durationMsec = endTimeMigration - startTimeMigration;
 			logger.debug("migration duration time msec: " + durationMsec);
 			MigrationResult migrationResult = new MigrationResult(
-					countExtractedElements, countLoadedElements, durationMsec,
-					startTimeMigration, endTimeMigration);
+					countExtractedElements, countLoadedElements,
+					startTimeMigration, endTimeMigration, durationMsec);
 			String message = "Migration was executed correctly.";
 			return summary(migrationResult, migrationInfo, message);
 		} catch (Exception e) {
@@ -265,6 +283,450 @@ public class FromPostgresToPostgres extends FromDatabaseToDatabase {
 		}
 	}
 
+	/**
+	 * Migrate the table in partitions: the source table is split into ranges
+	 * (see {@link PostgresRangePartitioner}) and each range is copied by a
+	 * separate pair of COPY commands (with its own connections to the source
+	 * and the destination database), all the pairs run concurrently.
+	 * 
+	 * All the partitions are read from the same snapshot of the source
+	 * database and their data is committed in the destination database only
+	 * if the number of extracted and loaded rows is the same for each of
+	 * them.
+	 * 
+	 * @param fileFormat
+	 *            the format of the data sent from the source to the
+	 *            destination database: CSV or BIN_POSTGRES
+	 * @return {@link MigrationResult} with the results of each partition
+	 * @throws MigrationException
+	 */
+	public MigrationResult executeParallelMigration(FileFormat fileFormat)
+			throws MigrationException {
+		long startTimeMigration = System.currentTimeMillis();
+		int degree = BigDawgConfigProperties.INSTANCE
+				.getMigrationParallelDegree();
+		Connection conFrom = null;
+		Connection conTo = null;
+		/* connections used by the partitions */
+		List<Connection> connections = new ArrayList<>();
+		ExecutorService executor = null;
+		try {
+			conFrom = PostgreSQLHandler.getConnection(getConnectionFrom());
+			conFrom.setReadOnly(true);
+			conFrom.setAutoCommit(false);
+			conFrom.setTransactionIsolation(
+					Connection.TRANSACTION_REPEATABLE_READ);
+			conTo = PostgreSQLHandler.getConnection(getConnectionTo());
+			conTo.setAutoCommit(false);
+			createTargetTableSchema(conFrom, conTo);
+			/* the partitions are loaded by other transactions */
+			conTo.commit();
+
+			String snapshot = exportSnapshot(conFrom);
+			List<String> partitions = PostgresRangePartitioner
+					.getPartitions(conFrom, getObjectFrom(), degree);
+			logger.debug("Migrate " + getObjectFrom() + " in "
+					+ partitions.size() + " partitions: " + partitions);
+
+			String copyToCommand = getLoadCommand(fileFormat);
+			List<Connection> consTo = new ArrayList<>();
+			long[] endTimes = new long[partitions.size()];
+			List<Callable<Object>> tasks = new ArrayList<>();
+			for (int i = 0; i < partitions.size(); ++i) {
+				Connection conFromPartition = PostgreSQLHandler
+						.getConnection(getConnectionFrom());
+				connections.add(conFromPartition);
+				conFromPartition.setReadOnly(true);
+				conFromPartition.setAutoCommit(false);
+				conFromPartition.setTransactionIsolation(
+						Connection.TRANSACTION_REPEATABLE_READ);
+				PostgreSQLHandler.executeStatement(conFromPartition,
+						"set transaction snapshot '" + snapshot + "'");
+				Connection conToPartition = PostgreSQLHandler
+						.getConnection(getConnectionTo());
+				connections.add(conToPartition);
+				consTo.add(conToPartition);
+				conToPartition.setAutoCommit(false);
+
+				RingBufferPipe pipe = new RingBufferPipe();
+				CopyFromPostgresExecutor exporter = new CopyFromPostgresExecutor(
+						conFromPartition,
+						getExportCommand(partitions.get(i), fileFormat),
+						pipe.getOutputStream());
+				CopyToPostgresExecutor loader = new CopyToPostgresExecutor(
+						conToPartition, copyToCommand, pipe.getInputStream());
+				final int partition = i;
+				tasks.add(() -> exporter.call());
+				tasks.add(() -> {
+					Long countLoaded = loader.call();
+					endTimes[partition] = System.currentTimeMillis();
+					return countLoaded;
+				});
+			}
+			executor = Executors.newFixedThreadPool(tasks.size());
+			long startTimeCopy = System.currentTimeMillis();
+			List<Future<Object>> results = TaskExecutor.execute(executor,
+					tasks);
+
+			long countExtractedElements = 0;
+			long countLoadedElements = 0;
+			List<MigrationPartitionResult> partitionResults = new ArrayList<>();
+			StringBuilder failures = new StringBuilder();
+			for (int i = 0; i < partitions.size(); ++i) {
+				Long extracted = (Long) results.get(2 * i).get();
+				Long loaded = (Long) results.get(2 * i + 1).get();
+				MigrationPartitionResult partitionResult = new MigrationPartitionResult(
+						partitions.get(i), extracted, loaded,
+						endTimes[i] - startTimeCopy);
+				logger.debug("Migrated partition: " + partitionResult);
+				partitionResults.add(partitionResult);
+				if (extracted == null || extracted < 0
+						|| !extracted.equals(loaded)) {
+					failures.append(" Partition (" + partitions.get(i)
+							+ "): extracted rows: " + extracted
+							+ ", loaded rows: " + loaded + ".");
+				} else {
+					countExtractedElements += extracted;
+					countLoadedElements += loaded;
+				}
+			}
+			if (failures.length() > 0) {
+				throw new MigrationException(
+						"The parallel migration of " + getObjectFrom()
+								+ " failed." + failures);
+			}
+			for (Connection con : consTo) {
+				con.commit();
+			}
+			long endTimeMigration = System.currentTimeMillis();
+			long durationMsec = endTimeMigration - startTimeMigration;
+			logger.debug("migration duration time msec: " + durationMsec);
+			MigrationResult migrationResult = new MigrationResult(
+					countExtractedElements, countLoadedElements,
+					startTimeMigration, endTimeMigration, durationMsec);
+			migrationResult.setPartitionResults(partitionResults);
+			String message = "Parallel migration was executed correctly.";
+			return summary(migrationResult, migrationInfo, message);
+		} catch (Exception e) {
+			String message = e.getMessage()
+					+ " Parallel migration failed. Task did not finish correctly. ";
+			logger.error(message + " Stack Trace: "
+					+ StackTrace.getFullStackTrace(e), e);
+			for (Connection con : connections) {
+				abort(con);
+			}
+			abort(conFrom);
+			throw new MigrationException(message, e);
+		} finally {
+			for (Connection con : connections) {
+				close(con);
+			}
+			close(conFrom);
+			close(conTo);
+			if (executor != null && !executor.isShutdown()) {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Migrate the table in chunks which are committed separately in the
+	 * destination database; the progress of the chunks is recorded in the
+	 * catalog (see {@link Monitor#addMigrationChunks}), so a failed migration
+	 * can be resumed and then only the chunks which were not committed are
+	 * moved (see {@link Migrator#resume}).
+	 * 
+	 * The table is split into chunks of about
+	 * {@link BigDawgConfigProperties#getMigrationChunkRows()} rows on its
+	 * primary key (which has to be a single integer column), so the condition
+	 * of a chunk selects the same rows in the source and the destination
+	 * table. The rows of a chunk are deleted from the destination table in the
+	 * same transaction in which they are loaded, so a chunk which was
+	 * committed but not recorded before a failure is not duplicated when it is
+	 * loaded again.
+	 * 
+	 * Each chunk is read in its own transaction, so (unlike in
+	 * {@link #executeParallelMigration(FileFormat)}) the chunks do not see the
+	 * same snapshot of the source table.
+	 * 
+	 * @param resume
+	 *            true: continue the previous checkpointed migration of the
+	 *            table (a new one is started if there is no such migration);
+	 *            false: start a new migration (the recorded progress is
+	 *            discarded)
+	 * @return {@link MigrationResult} with the number of rows in all the
+	 *         chunks and the results of the chunks moved now
+	 * @throws MigrationException
+	 *             some of the chunks were not migrated (the migration can be
+	 *             resumed)
+	 */
+	public MigrationResult executeCheckpointedMigration(boolean resume)
+			throws MigrationException {
+		long startTimeMigration = System.currentTimeMillis();
+		ExecutorService chunkExecutor = null;
+		ExecutorService exportExecutor = null;
+		try {
+			List<MigrationChunk> chunks = new ArrayList<>();
+			if (resume) {
+				chunks = Monitor.getMigrationChunks(getConnectionFrom(),
+						getConnectionTo(), getObjectFrom(), getObjectTo());
+			}
+			if (chunks.isEmpty()) {
+				chunks = planChunks();
+			}
+			List<MigrationChunk> missingChunks = new ArrayList<>();
+			long countDoneElements = 0;
+			for (MigrationChunk chunk : chunks) {
+				if (chunk.isDone()) {
+					countDoneElements += chunk.getCountLoadedElements();
+				} else {
+					missingChunks.add(chunk);
+				}
+			}
+			logger.debug("Migrate " + missingChunks.size() + " of "
+					+ chunks.size() + " chunks of " + getObjectFrom());
+
+			int degree = Math.max(1, Math.min(missingChunks.size(),
+					BigDawgConfigProperties.INSTANCE
+							.getMigrationParallelDegree()));
+			chunkExecutor = Executors.newFixedThreadPool(degree);
+			exportExecutor = Executors.newFixedThreadPool(degree);
+			List<Future<MigrationPartitionResult>> results = new ArrayList<>();
+			for (MigrationChunk chunk : missingChunks) {
+				final ExecutorService exporters = exportExecutor;
+				results.add(chunkExecutor
+						.submit(() -> migrateChunk(chunk, exporters)));
+			}
+
+			long countExtractedElements = countDoneElements;
+			long countLoadedElements = countDoneElements;
+			List<MigrationPartitionResult> partitionResults = new ArrayList<>();
+			StringBuilder failures = new StringBuilder();
+			for (int i = 0; i < missingChunks.size(); ++i) {
+				try {
+					MigrationPartitionResult partitionResult = results.get(i)
+							.get();
+					logger.debug("Migrated chunk: " + partitionResult);
+					partitionResults.add(partitionResult);
+					countExtractedElements += partitionResult
+							.getCountExtractedElements();
+					countLoadedElements += partitionResult
+							.getCountLoadedElements();
+				} catch (ExecutionException e) {
+					failures.append(" Chunk (" + missingChunks.get(i)
+							.getCondition() + "): "
+							+ e.getCause().getMessage());
+				}
+			}
+			if (failures.length() > 0) {
+				throw new MigrationException("The checkpointed migration of "
+						+ getObjectFrom() + " did not move all the chunks, "
+						+ "resume it to move only the missing chunks."
+						+ failures);
+			}
+			long endTimeMigration = System.currentTimeMillis();
+			long durationMsec = endTimeMigration - startTimeMigration;
+			logger.debug("migration duration time msec: " + durationMsec);
+			MigrationResult migrationResult = new MigrationResult(
+					countExtractedElements, countLoadedElements,
+					startTimeMigration, endTimeMigration, durationMsec);
+			migrationResult.setPartitionResults(partitionResults);
+			String message = "Checkpointed migration was executed correctly "
+					+ "(moved chunks: " + missingChunks.size() + " of "
+					+ chunks.size() + ").";
+			return summary(migrationResult, migrationInfo, message);
+		} catch (MigrationException e) {
+			logger.error(e.getMessage());
+			throw e;
+		} catch (Exception e) {
+			String message = e.getMessage()
+					+ " Checkpointed migration failed. Task did not finish correctly. ";
+			logger.error(message + " Stack Trace: "
+					+ StackTrace.getFullStackTrace(e), e);
+			throw new MigrationException(message, e);
+		} finally {
+			if (chunkExecutor != null) {
+				chunkExecutor.shutdownNow();
+			}
+			if (exportExecutor != null) {
+				exportExecutor.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Create the target table, split the source table into chunks and record
+	 * them in the catalog (none of them is done).
+	 */
+	private List<MigrationChunk> planChunks()
+			throws SQLException, MigrationException {
+		Connection conFrom = null;
+		Connection conTo = null;
+		try {
+			conFrom = PostgreSQLHandler.getConnection(getConnectionFrom());
+			conFrom.setReadOnly(true);
+			conFrom.setAutoCommit(false);
+			conTo = PostgreSQLHandler.getConnection(getConnectionTo());
+			conTo.setAutoCommit(false);
+			createTargetTableSchema(conFrom, conTo);
+			conTo.commit();
+			List<String> conditions = PostgresRangePartitioner.getKeyChunks(
+					conFrom, getObjectFrom(), BigDawgConfigProperties.INSTANCE
+							.getMigrationChunkRows());
+			conFrom.commit();
+			if (conditions == null) {
+				throw new MigrationException("The checkpointed migration "
+						+ "requires a primary key on a single integer column "
+						+ "of the table " + getObjectFrom()
+						+ " (the chunks are identified by its values in the "
+						+ "target table).");
+			}
+			Monitor.addMigrationChunks(getConnectionFrom(), getConnectionTo(),
+					getObjectFrom(), getObjectTo(), conditions);
+			List<MigrationChunk> chunks = new ArrayList<>();
+			for (int i = 0; i < conditions.size(); ++i) {
+				chunks.add(new MigrationChunk(i, conditions.get(i), false,
+						null));
+			}
+			return chunks;
+		} finally {
+			close(conFrom);
+			close(conTo);
+		}
+	}
+
+	/**
+	 * Replace the rows of the chunk in the target table with the rows from the
+	 * source table, commit them and record the chunk as done.
+	 * 
+	 * @param exportExecutor
+	 *            executes the export of the chunk (the chunk is loaded in the
+	 *            current thread)
+	 */
+	private MigrationPartitionResult migrateChunk(MigrationChunk chunk,
+			ExecutorService exportExecutor) throws Exception {
+		long startTime = System.currentTimeMillis();
+		Connection conFrom = null;
+		Connection conTo = null;
+		try {
+			conFrom = PostgreSQLHandler.getConnection(getConnectionFrom());
+			conFrom.setReadOnly(true);
+			conFrom.setAutoCommit(false);
+			conTo = PostgreSQLHandler.getConnection(getConnectionTo());
+			conTo.setAutoCommit(false);
+			/* the rows of the chunk could be committed by a failed migration */
+			PostgreSQLHandler.executeStatement(conTo, "delete from "
+					+ getObjectTo() + " where " + chunk.getCondition());
+			RingBufferPipe pipe = new RingBufferPipe();
+			CopyFromPostgresExecutor exporter = new CopyFromPostgresExecutor(
+					conFrom,
+					getExportCommand(chunk.getCondition(),
+							FileFormat.BIN_POSTGRES),
+					pipe.getOutputStream());
+			CopyToPostgresExecutor loader = new CopyToPostgresExecutor(conTo,
+					getLoadCommand(FileFormat.BIN_POSTGRES),
+					pipe.getInputStream());
+			Future<Long> exported = exportExecutor.submit(exporter);
+			Long loaded = loader.call();
+			Long extracted = exported.get();
+			if (extracted == null || extracted < 0
+					|| !extracted.equals(loaded)) {
+				throw new MigrationException("extracted rows: " + extracted
+						+ ", loaded rows: " + loaded + ".");
+			}
+			conTo.commit();
+			Monitor.finishedMigrationChunk(getConnectionFrom(),
+					getConnectionTo(), getObjectFrom(), getObjectTo(),
+					chunk.getChunk(), loaded);
+			return new MigrationPartitionResult(chunk.getCondition(), extracted,
+					loaded, System.currentTimeMillis() - startTime);
+		} catch (Exception e) {
+			abort(conTo);
+			abort(conFrom);
+			throw e;
+		} finally {
+			close(conFrom);
+			close(conTo);
+		}
+	}
+
+	/**
+	 * Export the snapshot of the transaction so that other transactions can
+	 * read the same data.
+	 * 
+	 * @return the identifier of the snapshot
+	 */
+	static String exportSnapshot(Connection connection)
+			throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet rs = statement
+						.executeQuery("select pg_export_snapshot()")) {
+			rs.next();
+			return rs.getString(1);
+		}
+	}
+
+	/**
+	 * @return the command to copy the rows of the partition out of the source
+	 *         table
+	 */
+	private String getExportCommand(String partition, FileFormat fileFormat) {
+		String query = "(select * from " + getObjectFrom() + " where "
+				+ partition + ")";
+		if (fileFormat == FileFormat.CSV) {
+			return PostgreSQLHandler.getExportCsvCommand(query,
+					FileFormat.getCsvDelimiter(),
+					FileFormat.getQuoteCharacter(), false);
+		}
+		return PostgreSQLHandler.getExportBinCommand(query);
+	}
+
+	/**
+	 * @return the command to copy the rows of a partition to the target table
+	 */
+	private String getLoadCommand(FileFormat fileFormat) {
+		if (fileFormat == FileFormat.CSV) {
+			return PostgreSQLHandler.getLoadCsvCommand(getObjectTo(),
+					FileFormat.getCsvDelimiter(),
+					FileFormat.getQuoteCharacter(), false);
+		}
+		return PostgreSQLHandler.getLoadBinCommand(getObjectTo());
+	}
+
+	/**
+	 * Roll back the transaction of the connection after a failed migration.
+	 */
+	static void abort(Connection connection) {
+		if (connection == null) {
+			return;
+		}
+		ExecutorService executorTerminator = null;
+		try {
+			executorTerminator = Executors.newCachedThreadPool();
+			connection.abort(executorTerminator);
+		} catch (SQLException ex) {
+			logger.error("Could not roll back the transaction after "
+					+ "failure in data migration: " + ex.getMessage());
+		} finally {
+			if (executorTerminator != null) {
+				executorTerminator.shutdownNow();
+			}
+		}
+	}
+
+	static void close(Connection connection) {
+		if (connection == null) {
+			return;
+		}
+		/* calling closed on an already closed connection has no effect */
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			String msg = "Could not close the database connection.";
+			logger.error(msg + StackTrace.getFullStackTrace(e), e);
+		}
+	}
+
 	/**
 	 * @param args
 	 * @throws Exception
@@ -36,6 +36,7 @@ import istc.bigdawg.properties.BigDawgConfigProperties;
 import istc.bigdawg.scidb.SciDBConnectionInfo;
 import istc.bigdawg.scidb.SciDBHandler;
 import istc.bigdawg.utils.Pipe;
+import istc.bigdawg.utils.RingBufferPipe;
 import istc.bigdawg.utils.StackTrace;
 import istc.bigdawg.utils.TaskExecutor;
 import istc.bigdawg.zookeeper.FollowRemoteNodes;
@@ -201,29 +202,28 @@ class FromPostgresToSciDB extends FromDatabaseToDatabase
 		long startTimeMigration = System.currentTimeMillis();
 		SciDBArrays arrays = null;
 		try {
-			postgresPipe = Pipe.INSTANCE
-					.createAndGetFullName(this.getClass().getName()
-							+ "_fromPostgres_" + getObjectFrom());
+			/*
+			 * The data is transformed in this JVM, so it is passed from
+			 * PostgreSQL through memory; only SciDB needs a named pipe.
+			 */
 			scidbPipe = Pipe.INSTANCE.createAndGetFullName(
 					this.getClass().getName() + "_toSciDB_" + getObjectTo());
+			RingBufferPipe postgresData = new RingBufferPipe();
 
 			executor = Executors.newFixedThreadPool(3/* 3 */);
 
-			String copyFromCommand = PostgreSQLHandler
-					.getExportBinCommand(getObjectFrom());
-			// String copyFromCommand = "copy from " + fromTable + " to " +
-			// postgresPipe + " with (format binary, freeze)";
-			ExportPostgres exportExecutor = new ExportPostgres(
-					getConnectionFrom(), copyFromCommand, postgresPipe,
-					SciDBHandler.getInstance());
+			ExportPostgres exportExecutor = ExportPostgres
+					.ofFormat(FileFormat.BIN_POSTGRES);
+			exportExecutor.setMigrationInfo(migrationInfo);
+			exportExecutor.setHandlerTo(SciDBHandler.getInstance());
+			exportExecutor.setExportTo(postgresData.getOutputStream());
 			FutureTask<Object> exportTask = new FutureTask<Object>(
 					exportExecutor);
 			executor.submit(exportTask);
 
-			TransformBinExecutor transformExecutor = new TransformBinExecutor(
-					postgresPipe, scidbPipe,
-					MigrationUtils.getSciDBBinFormat(fromObjectMetaData),
-					TransformBinExecutor.TYPE.FromPostgresToSciDB);
+			TransformFromPostgresBinToSciDBBinExecutor transformExecutor = new TransformFromPostgresBinToSciDBBinExecutor(
+					fromObjectMetaData, postgresData.getInputStream(),
+					scidbPipe);
 			FutureTask<Long> transformTask = new FutureTask<Long>(
 					transformExecutor);
 			executor.submit(transformTask);
@@ -236,28 +236,25 @@ class FromPostgresToSciDB extends FromDatabaseToDatabase
 			executor.submit(loadTask);
 
 			long countExtractedElements = (Long) exportTask.get();
-			long transformationResult = transformTask.get();
+			long countTransformedElements = transformTask.get();
 			String loadMessage = (String) loadTask.get();
 			log.debug("load message: " + loadMessage);
 
-			String transformationMessage;
-			if (transformationResult != 0) {
-				String message = "Check the C++ migrator! "
-						+ "It might need to be compiled and checked separately!";
+			if (countTransformedElements != countExtractedElements) {
+				String message = "Extracted " + countExtractedElements
+						+ " rows from PostgreSQL but transformed "
+						+ countTransformedElements + " rows to SciDB format.";
 				log.error(message);
 				throw new MigrationException(message);
-			} else {
-				transformationMessage = "Transformation finished successfuly!";
 			}
-			log.debug("transformation message: " + transformationMessage);
 
 			MigrationUtils.removeIntermediateArrays(arrays, migrationInfo);
 
 			long endTimeMigration = System.currentTimeMillis();
 			long durationMsec = endTimeMigration - startTimeMigration;
 			MigrationResult migrationResult = new MigrationResult(
-					countExtractedElements, null, durationMsec,
-					startTimeMigration, endTimeMigration);
+					countExtractedElements, null, startTimeMigration,
+					endTimeMigration, durationMsec);
 			String message = "Migration was executed correctly.";
 			return summary(migrationResult, migrationInfo, message);
 		} catch (SQLException | UnsupportedTypeException | InterruptedException
@@ -335,8 +332,8 @@ class FromPostgresToSciDB extends FromDatabaseToDatabase
 			long endTimeMigration = System.currentTimeMillis();
 			long durationMsec = endTimeMigration - startTimeMigration;
 			MigrationResult migrationResult = new MigrationResult(
-					countExtractedElements, null, durationMsec,
-					startTimeMigration, endTimeMigration);
+					countExtractedElements, null, startTimeMigration,
+					endTimeMigration, durationMsec);
 			String message = "Migration was executed correctly.";
 			return summary(migrationResult, migrationInfo, message);
 		} catch (Exception exception) {
@@ -452,8 +452,8 @@ public class FromSciDBToPostgres extends FromDatabaseToDatabase
 			long durationMsec = endTimeMigration - startTimeMigration;
 			log.debug("migration duration time msec: " + durationMsec);
 			MigrationResult migrationResult = new MigrationResult(
-					countExtractedElements, countLoadedElements, durationMsec,
-					startTimeMigration, endTimeMigration);
+					countExtractedElements, countLoadedElements,
+					startTimeMigration, endTimeMigration, durationMsec);
 			String message = "Migration was executed correctly.";
 			return summary(migrationResult, migrationInfo, message);
 		} catch (Exception ex) {
@@ -3,6 +3,7 @@
  */
 package istc.bigdawg.migration;
 
+import java.io.InputStream;
 import java.io.Serializable;
 import java.util.concurrent.Callable;
 
@@ -29,6 +30,27 @@ public interface Load extends Callable<Object>, DataPump, Serializable {
 	 */
 	public void setLoadFrom(String filePath);
 
+	/**
+	 * 
+	 * @return true if the data can be loaded directly from a stream (see
+	 *         {@link #setLoadFrom(InputStream)}), false if the database has to
+	 *         read the data from a file (or named pipe).
+	 */
+	default public boolean isStreamSupported() {
+		return false;
+	}
+
+	/**
+	 * 
+	 * @param input
+	 *            The stream from which the data should be loaded (it is closed
+	 *            when the loading finishes).
+	 */
+	default public void setLoadFrom(InputStream input) {
+		throw new UnsupportedOperationException(this.getClass().getName()
+				+ " cannot load data from a stream.");
+	}
+
 	/**
 	 * 
 	 * @param fromHandler
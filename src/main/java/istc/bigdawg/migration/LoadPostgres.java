@@ -252,6 +252,8 @@ public class LoadPostgres implements Load {
 					+ " Problem with thread for PostgreSQL copy manager "
 					+ "while copying data to PostgreSQL. ";
 			log.error(msg + " " + StackTrace.getFullStackTrace(e), e);
+			/* do not leave the exporter waiting for this reader */
+			input.close();
 			throw e;
 		}
 	}
@@ -293,6 +295,26 @@ public class LoadPostgres implements Load {
 		this.inputFile = filePath;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see istc.bigdawg.migration.Load#isStreamSupported()
+	 */
+	@Override
+	public boolean isStreamSupported() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see istc.bigdawg.migration.Load#setLoadFrom(java.io.InputStream)
+	 */
+	@Override
+	public void setLoadFrom(InputStream input) {
+		this.input = input;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
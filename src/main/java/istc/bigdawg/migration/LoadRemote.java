@@ -15,6 +15,7 @@ import org.apache.log4j.Logger;
 
 import istc.bigdawg.exceptions.MigrationException;
 import istc.bigdawg.network.DataIn;
+import istc.bigdawg.network.DataTransferResult;
 import istc.bigdawg.network.NetworkObject;
 import istc.bigdawg.utils.Pipe;
 import istc.bigdawg.utils.StackTrace;
@@ -111,13 +112,15 @@ public class LoadRemote implements NetworkObject {
 			long startTimeMigration = System.currentTimeMillis();
 			List<Future<Object>> results = TaskExecutor.execute(executorService,
 					tasks);
-			Long countBytesNetwork = (Long) results.get(0).get();
+			DataTransferResult transfer = (DataTransferResult) results.get(0)
+					.get();
+			Long countBytesNetwork = transfer.getBytesOnWire();
 			Long countLoadedElements = (Long) results.get(1).get();
 			long endTimeLoading = System.currentTimeMillis();
 			long durationMsec = endTimeLoading - startTimeLoading;
 			String message = "Remote loading was executed correctly "
 					+ "(bytes received from network: " + countBytesNetwork
-					+ ").";
+					+ ", bytes loaded: " + transfer.getBytesPayload() + ").";
 			log.info(message);
 			LoadRemoteResult loadingResult = new LoadRemoteResult(
 					countLoadedElements, startTimeMigration, endTimeLoading,
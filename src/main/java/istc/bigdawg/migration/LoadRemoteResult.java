@@ -3,8 +3,13 @@
  */
 package istc.bigdawg.migration;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 
+import istc.bigdawg.network.NetworkCodec;
+
 /**
  * Results and information about the loading process.
  * 
@@ -77,6 +82,41 @@ public class LoadRemoteResult implements Serializable {
 		return bytesReceived;
 	}
 
+	/**
+	 * Write the result in the binary format of the network messages (see
+	 * {@link NetworkCodec}).
+	 * 
+	 * @param out
+	 *            where the result should be written
+	 * @throws IOException
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		NetworkCodec.writeLong(out, countLoadedElements);
+		NetworkCodec.writeLong(out, startTimeLoading);
+		NetworkCodec.writeLong(out, endTimeLoading);
+		NetworkCodec.writeLong(out, durationMsec);
+		NetworkCodec.writeLong(out, bytesReceived);
+		NetworkCodec.writeString(out, message);
+	}
+
+	/**
+	 * Read the result written by {@link #writeTo(DataOutput)}.
+	 * 
+	 * @param in
+	 *            the message received from network
+	 * @param version
+	 *            the version of the format in which the result was written
+	 * @return the result
+	 * @throws IOException
+	 */
+	public static LoadRemoteResult readFrom(DataInput in, int version)
+			throws IOException {
+		return new LoadRemoteResult(NetworkCodec.readLong(in),
+				NetworkCodec.readLong(in), NetworkCodec.readLong(in),
+				NetworkCodec.readLong(in), NetworkCodec.readLong(in),
+				NetworkCodec.readString(in));
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -0,0 +1,80 @@
+/**
+ * 
+ */
+package istc.bigdawg.migration;
+
+/**
+ * A chunk of a checkpointed migration (see
+ * {@link Migrator#resume(istc.bigdawg.query.ConnectionInfo, String, istc.bigdawg.query.ConnectionInfo, String)}).
+ *
+ * The progress of the chunks is kept in the migrationchunks table of the
+ * catalog database (next to the migrationstats), so a failed migration can be
+ * resumed from another process and only the chunks which were not loaded are
+ * moved again.
+ */
+public class MigrationChunk {
+
+	/** The number of the chunk (from 0). */
+	private final int chunk;
+
+	/** The condition which selects the rows of the chunk. */
+	private final String condition;
+
+	/** Was the chunk committed in the target database? */
+	private final boolean done;
+
+	/** Number of rows loaded to the target database (null if not done). */
+	private final Long countLoadedElements;
+
+	public MigrationChunk(int chunk, String condition, boolean done,
+			Long countLoadedElements) {
+		this.chunk = chunk;
+		this.condition = condition;
+		this.done = done;
+		this.countLoadedElements = countLoadedElements;
+	}
+
+	/**
+	 * @return the number of the chunk (from 0)
+	 */
+	public int getChunk() {
+		return chunk;
+	}
+
+	/**
+	 * @return the condition which selects the rows of the chunk (in the source
+	 *         and in the target object)
+	 */
+	public String getCondition() {
+		return condition;
+	}
+
+	/**
+	 * @return true if the rows of the chunk were committed in the target
+	 *         database
+	 */
+	public boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * @return number of rows of the chunk loaded to the target database (null
+	 *         if the chunk was not loaded yet)
+	 */
+	public Long getCountLoadedElements() {
+		return countLoadedElements;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "MigrationChunk [chunk=" + chunk + ", condition=" + condition
+				+ ", done=" + done + ", countLoadedElements="
+				+ countLoadedElements + "]";
+	}
+
+}
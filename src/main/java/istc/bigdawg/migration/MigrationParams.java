@@ -22,6 +22,12 @@ public class MigrationParams implements Serializable {
 	/** see: {@link #getCreateStatement()} */
 	private String createStatement;
 
+	/** see: {@link #getMigrationType()} */
+	private Migrator.Type migrationType;
+
+	/** see: {@link #isResume()} */
+	private boolean resume;
+
 	/**
 	 * 
 	 * @param createStatement
@@ -31,6 +37,34 @@ public class MigrationParams implements Serializable {
 		this.createStatement = createStatement;
 	}
 
+	/**
+	 * 
+	 * @param createStatement
+	 *            see: {@link #getCreateStatement()}
+	 * @param migrationType
+	 *            see: {@link #getMigrationType()}
+	 */
+	public MigrationParams(String createStatement,
+			Migrator.Type migrationType) {
+		this.createStatement = createStatement;
+		this.migrationType = migrationType;
+	}
+
+	/**
+	 * 
+	 * @param createStatement
+	 *            see: {@link #getCreateStatement()}
+	 * @param migrationType
+	 *            see: {@link #getMigrationType()}
+	 * @param resume
+	 *            see: {@link #isResume()}
+	 */
+	public MigrationParams(String createStatement, Migrator.Type migrationType,
+			boolean resume) {
+		this(createStatement, migrationType);
+		this.resume = resume;
+	}
+
 	/**
 	 * The create statement (for array/table/object) which was passed directly
 	 * by a user.
@@ -43,6 +77,28 @@ public class MigrationParams implements Serializable {
 		return Optional.ofNullable(createStatement);
 	}
 
+	/**
+	 * How the data should be moved (for example, CSV_PARALLEL: in CSV format,
+	 * many partitions of the source object at a time).
+	 * 
+	 * @return the type of the migration requested by the caller; when it is
+	 *         not present, each migrator uses its default type
+	 */
+	public Optional<Migrator.Type> getMigrationType() {
+		return Optional.ofNullable(migrationType);
+	}
+
+	/**
+	 * Should the previous (failed) migration of the object be continued? It is
+	 * used for the {@link Migrator.Type#CHECKPOINTED} migrations.
+	 * 
+	 * @return true if only the chunks which were not migrated before should
+	 *         be moved
+	 */
+	public boolean isResume() {
+		return resume;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -54,6 +110,9 @@ public class MigrationParams implements Serializable {
 		int result = 1;
 		result = prime * result
 				+ ((createStatement == null) ? 0 : createStatement.hashCode());
+		result = prime * result
+				+ ((migrationType == null) ? 0 : migrationType.hashCode());
+		result = prime * result + (resume ? 1231 : 1237);
 		return result;
 	}
 
@@ -76,6 +135,10 @@ public class MigrationParams implements Serializable {
 				return false;
 		} else if (!createStatement.equals(other.createStatement))
 			return false;
+		if (migrationType != other.migrationType)
+			return false;
+		if (resume != other.resume)
+			return false;
 		return true;
 	}
 
@@ -0,0 +1,88 @@
+package istc.bigdawg.migration;
+
+import java.io.Serializable;
+
+/**
+ * Results of the migration of one partition of the source object (in a
+ * parallel migration, see {@link Migrator.Type#CSV_PARALLEL} and
+ * {@link Migrator.Type#BINARY_PARALLEL}).
+ */
+public class MigrationPartitionResult implements Serializable {
+
+	/**
+	 * The objects of the class are serializable.
+	 */
+	private static final long serialVersionUID = -2283364215843851507L;
+
+	/** The condition which selects the rows of the partition. */
+	private String partition;
+	private Long countExtractedElements;
+	private Long countLoadedElements;
+	private Long durationMsec;
+
+	public MigrationPartitionResult(String partition,
+			Long countExtractedElements, Long countLoadedElements,
+			Long durationMsec) {
+		this.partition = partition;
+		this.countExtractedElements = countExtractedElements;
+		this.countLoadedElements = countLoadedElements;
+		this.durationMsec = durationMsec;
+	}
+
+	/**
+	 * @return the condition (e.g. a range of keys) which selects the rows of
+	 *         the partition from the source object
+	 */
+	public String getPartition() {
+		return partition;
+	}
+
+	/**
+	 * @return number of elements extracted from the partition
+	 */
+	public Long getCountExtractedElements() {
+		return countExtractedElements;
+	}
+
+	/**
+	 * @return number of elements of the partition loaded to the destination
+	 *         database
+	 */
+	public Long getCountLoadedElements() {
+		return countLoadedElements;
+	}
+
+	/**
+	 * @return the time of the migration of the partition
+	 */
+	public Long getDurationMsec() {
+		return durationMsec;
+	}
+
+	/**
+	 * @return number of elements loaded per second (0 if the duration is not
+	 *         known)
+	 */
+	public double getElementsPerSecond() {
+		if (countLoadedElements == null || durationMsec == null
+				|| durationMsec <= 0) {
+			return 0;
+		}
+		return countLoadedElements * 1000.0 / durationMsec;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "MigrationPartitionResult [partition=" + partition
+				+ ", countExtractedElements=" + countExtractedElements
+				+ ", countLoadedElements=" + countLoadedElements
+				+ ", durationMsec=" + durationMsec + ", elementsPerSecond="
+				+ String.format("%.1f", getElementsPerSecond()) + "]";
+	}
+
+}
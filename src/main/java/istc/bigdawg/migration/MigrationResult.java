@@ -3,12 +3,19 @@
  */
 package istc.bigdawg.migration;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.log4j.Logger;
 
 import istc.bigdawg.exceptions.MigrationException;
 import istc.bigdawg.exceptions.NetworkException;
+import istc.bigdawg.network.NetworkCodec;
 
 /**
  * Results from a migration execution.
@@ -29,6 +36,14 @@ public class MigrationResult implements Serializable {
 	private Long durationMsec;
 	private String message;
 	private boolean isError;
+	private List<MigrationPartitionResult> partitionResults = new ArrayList<>();
+	private Long bytesPayload;
+	private Long bytesOnWire;
+	private Long bytesSaved;
+
+	/** Used only to read the result from network. */
+	private MigrationResult() {
+	}
 
 	public static MigrationResult getEmptyInstance(String message) {
 		return new MigrationResult(message, true);
@@ -116,6 +131,147 @@ public class MigrationResult implements Serializable {
 		return durationMsec;
 	}
 
+	/**
+	 * @return results of the migration of each partition of the source object
+	 *         (empty if the object was not migrated in partitions)
+	 */
+	public List<MigrationPartitionResult> getPartitionResults() {
+		if (partitionResults == null) {
+			/* deserialized from an older version of the class */
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(partitionResults);
+	}
+
+	/**
+	 * @param partitionResults
+	 *            results of the migration of each partition of the source
+	 *            object
+	 */
+	public void setPartitionResults(
+			List<MigrationPartitionResult> partitionResults) {
+		this.partitionResults = new ArrayList<>(partitionResults);
+	}
+
+	/**
+	 * @return number of bytes of the migrated data sent via network (before
+	 *         compression), null if the data were not sent via network
+	 */
+	public Long getBytesPayload() {
+		return bytesPayload;
+	}
+
+	/**
+	 * @return number of bytes which were actually sent via network, null if
+	 *         the data were not sent via network
+	 */
+	public Long getBytesOnWire() {
+		return bytesOnWire;
+	}
+
+	/**
+	 * @return how many times the data sent via network were smaller than the
+	 *         migrated data, null if the data were not sent via network
+	 */
+	public Double getCompressionRatio() {
+		if (bytesPayload == null || bytesOnWire == null || bytesOnWire == 0) {
+			return null;
+		}
+		return (double) bytesPayload / bytesOnWire;
+	}
+
+	/**
+	 * @param bytesPayload
+	 *            number of bytes of the migrated data sent via network
+	 * @param bytesOnWire
+	 *            number of bytes which were actually sent via network
+	 */
+	public void setNetworkBytes(long bytesPayload, long bytesOnWire) {
+		this.bytesPayload = bytesPayload;
+		this.bytesOnWire = bytesOnWire;
+	}
+
+	/**
+	 * @return number of bytes of the source object which were not migrated
+	 *         because a semi-join reduction filtered out the rows which could
+	 *         not join, null if the object was not reduced
+	 */
+	public Long getBytesSaved() {
+		return bytesSaved;
+	}
+
+	/**
+	 * @param bytesSaved
+	 *            number of bytes of the source object which were filtered out
+	 *            before the migration
+	 */
+	public void setBytesSaved(long bytesSaved) {
+		this.bytesSaved = bytesSaved;
+	}
+
+	/**
+	 * Write the result in the binary format of the network messages (see
+	 * {@link NetworkCodec}).
+	 * 
+	 * @param out
+	 *            where the result should be written
+	 * @throws IOException
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		NetworkCodec.writeLong(out, countExtractedElements);
+		NetworkCodec.writeLong(out, countLoadedElements);
+		NetworkCodec.writeLong(out, startTimeMigration);
+		NetworkCodec.writeLong(out, endTimeMigration);
+		NetworkCodec.writeLong(out, durationMsec);
+		NetworkCodec.writeString(out, message);
+		out.writeBoolean(isError);
+		List<MigrationPartitionResult> partitions = getPartitionResults();
+		out.writeInt(partitions.size());
+		for (MigrationPartitionResult partition : partitions) {
+			NetworkCodec.writeString(out, partition.getPartition());
+			NetworkCodec.writeLong(out, partition.getCountExtractedElements());
+			NetworkCodec.writeLong(out, partition.getCountLoadedElements());
+			NetworkCodec.writeLong(out, partition.getDurationMsec());
+		}
+		NetworkCodec.writeLong(out, bytesPayload);
+		NetworkCodec.writeLong(out, bytesOnWire);
+		NetworkCodec.writeLong(out, bytesSaved);
+	}
+
+	/**
+	 * Read the result written by {@link #writeTo(DataOutput)}.
+	 * 
+	 * @param in
+	 *            the message received from network
+	 * @param version
+	 *            the version of the format in which the result was written
+	 * @return the result
+	 * @throws IOException
+	 */
+	public static MigrationResult readFrom(DataInput in, int version)
+			throws IOException {
+		MigrationResult result = new MigrationResult();
+		result.countExtractedElements = NetworkCodec.readLong(in);
+		result.countLoadedElements = NetworkCodec.readLong(in);
+		result.startTimeMigration = NetworkCodec.readLong(in);
+		result.endTimeMigration = NetworkCodec.readLong(in);
+		result.durationMsec = NetworkCodec.readLong(in);
+		result.message = NetworkCodec.readString(in);
+		result.isError = in.readBoolean();
+		int partitions = in.readInt();
+		for (int i = 0; i < partitions; ++i) {
+			result.partitionResults.add(new MigrationPartitionResult(
+					NetworkCodec.readString(in), NetworkCodec.readLong(in),
+					NetworkCodec.readLong(in), NetworkCodec.readLong(in)));
+		}
+		result.bytesPayload = NetworkCodec.readLong(in);
+		result.bytesOnWire = NetworkCodec.readLong(in);
+		if (version >= 2) {
+			result.bytesSaved = NetworkCodec.readLong(in);
+		}
+		return result;
+	}
+
 	/**
 	 * Process the result returned by the remote request to migrate some data.
 	 * 
@@ -168,7 +324,15 @@ public class MigrationResult implements Serializable {
 				+ countLoadedElements + ", durationMsec=" + durationMsec
 				+ ", startTime=" + startTimeMigration + ", endTime="
 				+ endTimeMigration + ", message=" + message + ", isError="
-				+ isError + "]";
+				+ isError
+				+ (getPartitionResults().isEmpty() ? ""
+						: ", partitionResults=" + partitionResults)
+				+ (bytesOnWire == null ? ""
+						: ", bytesPayload=" + bytesPayload + ", bytesOnWire="
+								+ bytesOnWire + ", compressionRatio="
+								+ getCompressionRatio())
+				+ (bytesSaved == null ? "" : ", bytesSaved=" + bytesSaved)
+				+ "]";
 	}
 
 	/*
@@ -41,7 +41,12 @@ public class Migrator {
 	 *         Feb 25, 2016 5:25:05 PM
 	 */
 	public enum Type {
-		CSV_PARALLEL, BINARY_PARALLEL, CSV_SEQUENTIAL, BINARY_SEQUENTIAL
+		CSV_PARALLEL, BINARY_PARALLEL, CSV_SEQUENTIAL, BINARY_SEQUENTIAL,
+		/**
+		 * the data are moved in chunks which are committed separately and
+		 * whose progress is recorded, see: {@link Migrator#resume}
+		 */
+		CHECKPOINTED
 	}
 
 	/**
@@ -121,11 +126,20 @@ public class Migrator {
 				"Migrator - main facade. From object: %s; To object: %s; From connection: %s; To connection: %s",
 				objectFrom, objectTo, connectionFrom.toSimpleString(),
 				connectionTo.toSimpleString()));
+		MigrationInfo migrationInfo = new MigrationInfo(connectionFrom,
+				objectFrom, connectionTo, objectTo, migrationParams);
+		/* the object is copied from its replica within the target engine */
+		MigrationResult cachedResult = ReplicaCache.INSTANCE
+				.load(migrationInfo);
+		if (cachedResult != null) {
+			return cachedResult;
+		}
 		for (FromDatabaseToDatabase migrator : registeredMigrators) {
-			MigrationResult result = migrator
-					.migrate(new MigrationInfo(connectionFrom, objectFrom,
-							connectionTo, objectTo, migrationParams));
+			MigrationResult result = migrator.migrate(migrationInfo);
 			if (result != null) {
+				if (!result.isError()) {
+					ReplicaCache.INSTANCE.migrated(migrationInfo);
+				}
 				return result;
 			}
 		}
@@ -136,6 +150,33 @@ public class Migrator {
 				+ "\n To:\n" + connectionTo.toString());
 	}
 
+	/**
+	 * Resume a checkpointed migration (see {@link Type#CHECKPOINTED}) which
+	 * failed: only the chunks of the object which were not committed in the
+	 * target database are moved. If there is no record of the previous
+	 * migration then the whole object is migrated in chunks.
+	 * 
+	 * Checkpoints are supported for migrations between instances of
+	 * PostgreSQL; other migrators move the whole object again.
+	 * 
+	 * @param connectionFrom
+	 * @param objectFrom
+	 * @param connectionTo
+	 * @param objectTo
+	 * @return {@link MigrationResult} the result and information about the
+	 *         executed migration (the numbers of elements cover also the
+	 *         chunks which were migrated before)
+	 * @throws MigrationException
+	 *             some of the chunks were not migrated again (the migration can
+	 *             be resumed once more)
+	 */
+	public static MigrationResult resume(ConnectionInfo connectionFrom,
+			String objectFrom, ConnectionInfo connectionTo, String objectTo)
+					throws MigrationException {
+		return Migrator.migrate(connectionFrom, objectFrom, connectionTo,
+				objectTo, new MigrationParams(null, Type.CHECKPOINTED, true));
+	}
+
 	public static void main(String[] args) {
 		LoggerSetup.setLogging();
 		PostgreSQLConnectionInfo conInfoFrom = new PostgreSQLConnectionInfo(
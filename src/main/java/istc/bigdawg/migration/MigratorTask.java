@@ -7,6 +7,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import istc.bigdawg.network.NetworkIn;
+import istc.bigdawg.network.NetworkOut;
 
 /**
  * @author Adam Dziedzic
@@ -17,7 +18,10 @@ public class MigratorTask {
 
 	private ExecutorService executor = null;
 	
-	/* How many threads should we use to run the task. */
+	/*
+	 * How many threads should we use to run the task (the requests are
+	 * executed by the workers of NetworkIn).
+	 */
 	int numberOfThreads = 1;
 
 	/**
@@ -30,7 +34,7 @@ public class MigratorTask {
 	}
 
 	/**
-	 * Close the migrator task.
+	 * Close the migrator task (and the connections opened to other nodes).
 	 */
 	public void close() {
 		if (executor != null) {
@@ -39,6 +43,7 @@ public class MigratorTask {
 			}
 		}
 		executor = null;
+		NetworkOut.close();
 	}
 
 }
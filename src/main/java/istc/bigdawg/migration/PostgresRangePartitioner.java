@@ -0,0 +1,268 @@
+package istc.bigdawg.migration;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Split a PostgreSQL table into ranges which can be copied concurrently.
+ *
+ * The table is split on its primary key if the key is a single integer
+ * column, otherwise on the physical location of the rows (ctid), which works
+ * for any table but only from PostgreSQL 14 (earlier versions cannot scan a
+ * range of ctid, so each partition would scan the whole table and the table
+ * is not split). Each range is returned as a condition for the where clause;
+ * the first and the last range are open, so the ranges together select all
+ * the rows of the table (also the rows with keys outside of the minimum and
+ * maximum read while splitting the table).
+ */
+public class PostgresRangePartitioner {
+
+	private static Logger log = Logger
+			.getLogger(PostgresRangePartitioner.class);
+
+	/** Condition which selects all the rows of the table. */
+	public static final String ALL_ROWS = "true";
+
+	private static final String INTEGER_PRIMARY_KEY = "select a.attname "
+			+ "from pg_index i join pg_attribute a "
+			+ "on a.attrelid = i.indrelid and a.attnum = i.indkey[0] "
+			+ "where i.indrelid = ?::regclass and i.indisprimary "
+			+ "and i.indnatts = 1 and a.atttypid in "
+			+ "('int2'::regtype, 'int4'::regtype, 'int8'::regtype)";
+
+	private static final String ESTIMATED_ROWS = "select reltuples::bigint "
+			+ "from pg_class where oid = ?::regclass";
+
+	private static final String SERVER_VERSION = "select current_setting('server_version_num')::int";
+
+	/** The first version of PostgreSQL with the TID range scan. */
+	private static final int TID_RANGE_SCAN_VERSION = 140000;
+
+	private static final String NUMBER_OF_PAGES = "select pg_relation_size(?::regclass) "
+			+ "/ current_setting('block_size')::bigint";
+
+	/**
+	 *
+	 * @param connection
+	 *            connection to the database with the table
+	 * @param table
+	 *            the name of the table (optionally with its schema)
+	 * @param degree
+	 *            the maximum number of partitions
+	 * @return the conditions which select the rows of each partition (a single
+	 *         {@link #ALL_ROWS} condition if the table cannot be split)
+	 * @throws SQLException
+	 */
+	public static List<String> getPartitions(Connection connection,
+			String table, int degree) throws SQLException {
+		if (degree <= 1) {
+			return Arrays.asList(ALL_ROWS);
+		}
+		String key = getIntegerPrimaryKey(connection, table);
+		if (key != null) {
+			long[] range = getKeyRange(connection, table, key);
+			if (range == null) {
+				/* the table is empty */
+				return Arrays.asList(ALL_ROWS);
+			}
+			log.debug("Split table " + table + " on the primary key " + key
+					+ " from " + range[0] + " to " + range[1]);
+			return splitKeyRange(key, range[0], range[1], degree);
+		}
+		int version = getServerVersion(connection);
+		if (version < TID_RANGE_SCAN_VERSION) {
+			log.debug("Table " + table + " is not split: PostgreSQL "
+					+ version + " cannot scan a range of ctid");
+			return Arrays.asList(ALL_ROWS);
+		}
+		try (PreparedStatement st = connection
+				.prepareStatement(NUMBER_OF_PAGES)) {
+			st.setString(1, table);
+			try (ResultSet rs = st.executeQuery()) {
+				rs.next();
+				long pages = rs.getLong(1);
+				log.debug("Split table " + table + " on ctid, number of pages: "
+						+ pages);
+				return splitPageRange(pages, degree);
+			}
+		}
+	}
+
+	/**
+	 * Split the table into chunks of about the given number of rows on its
+	 * primary key.
+	 * 
+	 * The conditions depend only on the values of the key, so they select the
+	 * same rows from a copy of the table (e.g. in the target database of a
+	 * migration), which is not true for the ranges of ctid.
+	 * 
+	 * @param connection
+	 *            connection to the database with the table
+	 * @param table
+	 *            the name of the table (optionally with its schema)
+	 * @param rowsPerChunk
+	 *            the expected number of rows in a chunk
+	 * @return the conditions which select the rows of each chunk or null if
+	 *         the primary key of the table is not a single integer column
+	 * @throws SQLException
+	 */
+	public static List<String> getKeyChunks(Connection connection,
+			String table, long rowsPerChunk) throws SQLException {
+		String key = getIntegerPrimaryKey(connection, table);
+		if (key == null) {
+			return null;
+		}
+		long[] range = getKeyRange(connection, table, key);
+		if (range == null) {
+			return Arrays.asList(ALL_ROWS);
+		}
+		long rows = getEstimatedRows(connection, table);
+		if (rows <= 0) {
+			/* the table was not analyzed, the keys can be dense */
+			rows = BigInteger.valueOf(range[1])
+					.subtract(BigInteger.valueOf(range[0])).add(BigInteger.ONE)
+					.min(BigInteger.valueOf(Long.MAX_VALUE)).longValue();
+		}
+		long chunks = (rows + rowsPerChunk - 1) / Math.max(1, rowsPerChunk);
+		log.debug("Split table " + table + " on the primary key " + key
+				+ " into " + chunks + " chunks of about " + rowsPerChunk
+				+ " rows");
+		return splitKeyRange(key, range[0], range[1],
+				(int) Math.min(Integer.MAX_VALUE, Math.max(1, chunks)));
+	}
+
+	/**
+	 * @return the number of rows of the table estimated by the planner (0 or
+	 *         less if the table was not analyzed yet)
+	 * @throws SQLException
+	 */
+	public static long getEstimatedRows(Connection connection, String table)
+			throws SQLException {
+		try (PreparedStatement st = connection
+				.prepareStatement(ESTIMATED_ROWS)) {
+			st.setString(1, table);
+			try (ResultSet rs = st.executeQuery()) {
+				rs.next();
+				return rs.getLong(1);
+			}
+		}
+	}
+
+	/**
+	 * @return the version of the PostgreSQL server, e.g. 140005 for 14.5
+	 */
+	private static int getServerVersion(Connection connection)
+			throws SQLException {
+		try (Statement st = connection.createStatement();
+				ResultSet rs = st.executeQuery(SERVER_VERSION)) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+
+	/**
+	 * @return the minimum and the maximum value of the key or null if the
+	 *         table is empty
+	 */
+	private static long[] getKeyRange(Connection connection, String table,
+			String key) throws SQLException {
+		try (Statement st = connection.createStatement();
+				ResultSet rs = st.executeQuery("select min(" + key + "), max("
+						+ key + ") from " + table)) {
+			rs.next();
+			long min = rs.getLong(1);
+			if (rs.wasNull()) {
+				return null;
+			}
+			return new long[] { min, rs.getLong(2) };
+		}
+	}
+
+	/**
+	 * @return the quoted name of the primary key of the table if it is a
+	 *         single integer column, null otherwise
+	 */
+	private static String getIntegerPrimaryKey(Connection connection,
+			String table) throws SQLException {
+		try (PreparedStatement st = connection
+				.prepareStatement(INTEGER_PRIMARY_KEY)) {
+			st.setString(1, table);
+			try (ResultSet rs = st.executeQuery()) {
+				if (rs.next()) {
+					return "\"" + rs.getString(1).replace("\"", "\"\"") + "\"";
+				}
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Split the range of values [min, max] of the key into (at most) degree
+	 * ranges of the same length.
+	 */
+	static List<String> splitKeyRange(String key, long min, long max,
+			int degree) {
+		List<Long> bounds = new ArrayList<>();
+		BigInteger length = BigInteger.valueOf(max)
+				.subtract(BigInteger.valueOf(min)).add(BigInteger.ONE);
+		for (int i = 1; i < degree; ++i) {
+			long bound = BigInteger.valueOf(min)
+					.add(length.multiply(BigInteger.valueOf(i))
+							.divide(BigInteger.valueOf(degree)))
+					.longValue();
+			/* there are fewer values than partitions */
+			if (bound > min && (bounds.isEmpty()
+					|| bound > bounds.get(bounds.size() - 1))) {
+				bounds.add(bound);
+			}
+		}
+		return toRanges(key, "", "", bounds);
+	}
+
+	/**
+	 * Split the pages [0, pages) of the table into (at most) degree ranges of
+	 * the same number of pages.
+	 */
+	static List<String> splitPageRange(long pages, int degree) {
+		List<Long> bounds = new ArrayList<>();
+		for (int i = 1; i < degree; ++i) {
+			long bound = pages * i / degree;
+			if (bound > 0 && (bounds.isEmpty()
+					|| bound > bounds.get(bounds.size() - 1))) {
+				bounds.add(bound);
+			}
+		}
+		return toRanges("ctid", "'(", ",0)'::tid", bounds);
+	}
+
+	/**
+	 * @return conditions: column < bounds[0], bounds[0] <= column <
+	 *         bounds[1], ..., column >= bounds[n-1]
+	 */
+	private static List<String> toRanges(String column, String prefix,
+			String suffix, List<Long> bounds) {
+		if (bounds.isEmpty()) {
+			return Arrays.asList(ALL_ROWS);
+		}
+		List<String> ranges = new ArrayList<>();
+		ranges.add(column + " < " + prefix + bounds.get(0) + suffix);
+		for (int i = 1; i < bounds.size(); ++i) {
+			ranges.add(column + " >= " + prefix + bounds.get(i - 1) + suffix
+					+ " and " + column + " < " + prefix + bounds.get(i)
+					+ suffix);
+		}
+		ranges.add(column + " >= " + prefix + bounds.get(bounds.size() - 1)
+				+ suffix);
+		return ranges;
+	}
+
+}
@@ -0,0 +1,757 @@
+/**
+ * 
+ */
+package istc.bigdawg.migration;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+
+import istc.bigdawg.catalog.CatalogViewer;
+import istc.bigdawg.exceptions.BigDawgCatalogException;
+import istc.bigdawg.exceptions.MigrationException;
+import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
+import istc.bigdawg.postgresql.PostgreSQLHandler;
+import istc.bigdawg.postgresql.PostgreSQLSchemaTableName;
+import istc.bigdawg.properties.BigDawgConfigProperties;
+import istc.bigdawg.query.ConnectionInfo;
+import istc.bigdawg.query.ConnectionInfoParser;
+import istc.bigdawg.utils.StackTrace;
+
+/**
+ * Replicas of the objects which are migrated again and again to the same
+ * engine (e.g. a table cast to another island by many queries), so that the
+ * {@link Migrator} copies the replica within the target engine instead of
+ * moving the data between the engines.
+ *
+ * The replicas are kept only if
+ * {@link BigDawgConfigProperties#getMigrationReplicaCacheMb()} is above 0.
+ * An object gets a replica when it was migrated
+ * {@link BigDawgConfigProperties#getMigrationReplicaCacheAdmission()} times
+ * to the same engine. The replica is created in the background (the
+ * migrations do not wait for it): the object is migrated once more from its
+ * source to a new table on the target engine. The replicas of an engine take
+ * at most the configured number of megabytes, the least recently used ones
+ * are dropped to make room for new replicas.
+ *
+ * A replica is kept only if the version of its source did not change while
+ * the replica was migrated and it is used only if the version is still the
+ * same. By default, the version is read from the statistics of PostgreSQL:
+ * the file of the table (it changes when the table is truncated or rewritten)
+ * and the number of the inserted, updated and deleted rows. Nothing is
+ * installed in the source database and the writers do not wait for each
+ * other, but the statistics are reported with a delay (about a second, more
+ * under heavy load), so a replica can be used for a short time after its
+ * source was modified.
+ *
+ * If {@link BigDawgConfigProperties#isMigrationReplicaCacheVersionTrigger()}
+ * is set, the version is kept by a trigger which is installed on the source
+ * table before its first replica is created (with the table
+ * {@value #VERSION_TABLE} and a plpgsql function): each statement which
+ * inserts, updates, deletes or truncates rows increments the version of the
+ * table in the same transaction, so a committed change is seen by the next
+ * lookup. The price is that all the transactions which modify the table wait
+ * for each other on the row with its version. If the trigger is missing (e.g.
+ * the table was created again), the freshness of the replica cannot be
+ * proven and the replica is dropped.
+ *
+ * Only the migrations between instances of PostgreSQL are cached and the
+ * transition tables of cross-island queries (BIGDAWGTAG_...) never are,
+ * because their names are reused for different data.
+ *
+ * The replicas are not kept between the runs of the server: when the cache
+ * is enabled, {@link #sweep()} drops them (and the triggers) when the server
+ * starts and stops. The names of the replicas and the triggers contain the id
+ * of this server, so the replicas of other servers which share the catalog
+ * are left alone.
+ */
+public enum ReplicaCache {
+
+	INSTANCE;
+
+	private static Logger logger = Logger.getLogger(ReplicaCache.class);
+
+	private static final Pattern transitionTablePattern = Pattern
+			.compile("BIGDAWGTAG_[0-9_]+", Pattern.CASE_INSENSITIVE);
+
+	/**
+	 * The id of this server in the names of its replicas and triggers (the
+	 * hash of the host and the port of the server).
+	 */
+	private static final String NODE_ID = getNodeId();
+
+	private static final String REPLICA_PREFIX = "bigdawg_replica_" + NODE_ID
+			+ "_";
+
+	/** The tables of the replicas (see: {@link #createReplica}). */
+	private static final String REPLICA_TABLES = "select table_schema, table_name "
+			+ "from information_schema.tables where table_name ~ '^"
+			+ REPLICA_PREFIX + "[0-9]+_[0-9]+$'";
+
+	/** The function of the version triggers (shared by the servers). */
+	private static final String VERSION_FUNCTION = "public.bigdawg_source_version";
+
+	/** The name of the trigger which counts the changes for this server. */
+	private static final String VERSION_TRIGGER = "bigdawg_source_version_"
+			+ NODE_ID;
+
+	/** The versions of the source tables (one row per server and table). */
+	private static final String VERSION_TABLE = "public.bigdawg_source_versions";
+
+	/** The version kept by the trigger. */
+	private static final String TRIGGER_VERSION = "select c.oid, c.relfilenode, v.version "
+			+ "from pg_class c join pg_trigger t on t.tgrelid = c.oid and t.tgname = '"
+			+ VERSION_TRIGGER + "' join " + VERSION_TABLE
+			+ " v on v.relid = c.oid and v.node = '" + NODE_ID
+			+ "' where c.oid = ?::regclass";
+
+	/** The version read from the statistics (see the class comment). */
+	private static final String STATISTICS_VERSION = "select c.oid, c.relfilenode, "
+			+ "s.n_tup_ins, s.n_tup_upd, s.n_tup_del "
+			+ "from pg_class c join pg_stat_all_tables s on s.relid = c.oid "
+			+ "where c.oid = ?::regclass";
+
+	private static final String IS_VERSION_TRIGGER = "select count(*) from pg_trigger "
+			+ "where tgrelid = ?::regclass and tgname = '" + VERSION_TRIGGER + "'";
+
+	private static final String VERSION_TRIGGERS = "select n.nspname, c.relname "
+			+ "from pg_trigger t join pg_class c on c.oid = t.tgrelid "
+			+ "join pg_namespace n on n.oid = c.relnamespace where t.tgname = '"
+			+ VERSION_TRIGGER + "'";
+
+	private static final String TOTAL_SIZE = "select pg_total_relation_size(?::regclass)";
+
+	/** Maximum number of objects whose migrations are counted. */
+	private static final int MAX_CANDIDATES = 1000;
+
+	/** A replica of an object on the target engine. */
+	static class Replica {
+		private final String key;
+		private final String table;
+		private final String version;
+		private final long bytes;
+
+		Replica(String key, String table, String version, long bytes) {
+			this.key = key;
+			this.table = table;
+			this.version = version;
+			this.bytes = bytes;
+		}
+
+		String getTable() {
+			return table;
+		}
+
+		long getBytes() {
+			return bytes;
+		}
+	}
+
+	/**
+	 * The replicas on a single engine in the order of their use, kept within
+	 * the budget of bytes.
+	 */
+	static class EngineReplicas {
+		private final ConnectionInfo engine;
+		private final LinkedHashMap<String, Replica> replicas = new LinkedHashMap<>(
+				16, 0.75f, true);
+		private long bytes = 0;
+
+		EngineReplicas(ConnectionInfo engine) {
+			this.engine = engine;
+		}
+
+		Replica get(String key) {
+			return replicas.get(key);
+		}
+
+		Replica remove(String key) {
+			Replica replica = replicas.remove(key);
+			if (replica != null) {
+				bytes -= replica.bytes;
+			}
+			return replica;
+		}
+
+		/**
+		 * Add the replica and evict the least recently used ones until all of
+		 * them fit in the budget.
+		 *
+		 * @return the evicted replicas (their tables have to be dropped)
+		 */
+		List<Replica> add(Replica replica, long budget) {
+			List<Replica> evicted = new ArrayList<>();
+			Replica previous = remove(replica.key);
+			if (previous != null) {
+				evicted.add(previous);
+			}
+			replicas.put(replica.key, replica);
+			bytes += replica.bytes;
+			Iterator<Replica> leastRecentlyUsed = replicas.values().iterator();
+			while (bytes > budget && leastRecentlyUsed.hasNext()) {
+				Replica victim = leastRecentlyUsed.next();
+				leastRecentlyUsed.remove();
+				bytes -= victim.bytes;
+				evicted.add(victim);
+			}
+			return evicted;
+		}
+
+		long getBytes() {
+			return bytes;
+		}
+
+		int size() {
+			return replicas.size();
+		}
+	}
+
+	private final Map<String, EngineReplicas> engines = new HashMap<>();
+
+	/** Number of migrations of the objects without replica (per engine). */
+	private final LinkedHashMap<String, Integer> candidates = new LinkedHashMap<String, Integer>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+			return size() > MAX_CANDIDATES;
+		}
+	};
+
+	/** The objects whose replicas are being created. */
+	private final Set<String> pending = new HashSet<>();
+
+	/** Creates the replicas in the background. */
+	private final ExecutorService creator = Executors.newSingleThreadExecutor(
+			runnable -> {
+				Thread thread = new Thread(runnable, "replica-cache");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	/**
+	 * Changed when all the replicas are dropped, so a replica created in the
+	 * meantime is dropped as well.
+	 */
+	private long generation = 0;
+
+	private final AtomicLong replicaCounter = new AtomicLong(0);
+	private final long budget;
+	private final int admission;
+	private final boolean versionTrigger;
+
+	/* metrics */
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+	private final AtomicLong invalidations = new AtomicLong(0);
+	private final AtomicLong evictions = new AtomicLong(0);
+
+	ReplicaCache() {
+		budget = BigDawgConfigProperties.INSTANCE.getMigrationReplicaCacheMb()
+				* 1024L * 1024L;
+		admission = Math.max(1, BigDawgConfigProperties.INSTANCE
+				.getMigrationReplicaCacheAdmission());
+		versionTrigger = BigDawgConfigProperties.INSTANCE
+				.isMigrationReplicaCacheVersionTrigger();
+	}
+
+	private static String getNodeId() {
+		String host;
+		try {
+			host = InetAddress.getLocalHost().getHostName();
+		} catch (UnknownHostException e) {
+			host = BigDawgConfigProperties.INSTANCE.getGrizzlyIpAddress();
+		}
+		return Integer.toHexString((host + ":"
+				+ BigDawgConfigProperties.INSTANCE.getGrizzlyPort()).hashCode());
+	}
+
+	/**
+	 * @return true if the migration can be served from a replica
+	 */
+	private boolean isCacheable(MigrationInfo migrationInfo) {
+		return budget > 0
+				&& migrationInfo
+						.getConnectionFrom() instanceof PostgreSQLConnectionInfo
+				&& migrationInfo
+						.getConnectionTo() instanceof PostgreSQLConnectionInfo
+				&& !transitionTablePattern
+						.matcher(migrationInfo.getObjectFrom()).find()
+				&& !migrationInfo.getMigrationParams()
+						.flatMap(MigrationParams::getMigrationType)
+						.filter(type -> type == Migrator.Type.CHECKPOINTED)
+						.isPresent();
+	}
+
+	private static String getKey(MigrationInfo migrationInfo) {
+		return ConnectionInfoParser
+				.connectionInfoToString(migrationInfo.getConnectionFrom())
+				+ "|" + migrationInfo.getObjectFrom();
+	}
+
+	private static String getEngine(ConnectionInfo connectionInfo) {
+		return ConnectionInfoParser.connectionInfoToString(connectionInfo);
+	}
+
+	/**
+	 * Load the object from its replica on the target engine.
+	 *
+	 * @param migrationInfo
+	 *            the requested migration
+	 * @return the result of the migration or null if there is no (valid)
+	 *         replica of the object and it has to be migrated
+	 */
+	public MigrationResult load(MigrationInfo migrationInfo) {
+		if (!isCacheable(migrationInfo)) {
+			return null;
+		}
+		String key = getKey(migrationInfo);
+		String engine = getEngine(migrationInfo.getConnectionTo());
+		Replica replica;
+		synchronized (this) {
+			EngineReplicas replicas = engines.get(engine);
+			replica = replicas == null ? null : replicas.get(key);
+		}
+		if (replica == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		long startTimeMigration = System.currentTimeMillis();
+		try {
+			String version = getVersion(migrationInfo);
+			if (!replica.version.equals(version)) {
+				logger.debug("The source of the replica " + replica.table
+						+ " was modified (or its version is unknown): "
+						+ migrationInfo.getObjectFrom());
+				invalidations.incrementAndGet();
+				misses.incrementAndGet();
+				remove(engine, replica, migrationInfo.getConnectionTo());
+				return null;
+			}
+			long count = copyFromReplica(migrationInfo, replica);
+			long endTimeMigration = System.currentTimeMillis();
+			hits.incrementAndGet();
+			logger.debug("Loaded " + migrationInfo.getObjectTo()
+					+ " from the replica " + replica.table + " of "
+					+ migrationInfo.getObjectFrom());
+			return new MigrationResult(count, count, startTimeMigration,
+					endTimeMigration, endTimeMigration - startTimeMigration);
+		} catch (SQLException e) {
+			/* e.g. the replica was dropped in the meantime */
+			logger.warn("Could not load " + migrationInfo.getObjectTo()
+					+ " from the replica " + replica.table + ": "
+					+ e.getMessage());
+			misses.incrementAndGet();
+			remove(engine, replica, migrationInfo.getConnectionTo());
+			return null;
+		}
+	}
+
+	/**
+	 * Count the migration of the object and start creating its replica on the
+	 * target engine (in the background) if the object is migrated often
+	 * enough.
+	 *
+	 * @param migrationInfo
+	 *            the migration which was executed correctly
+	 */
+	public void migrated(MigrationInfo migrationInfo) {
+		if (!isCacheable(migrationInfo)) {
+			return;
+		}
+		String key = getKey(migrationInfo);
+		String engine = getEngine(migrationInfo.getConnectionTo());
+		String candidate = engine + "|" + key;
+		long currentGeneration;
+		synchronized (this) {
+			if (pending.contains(candidate)) {
+				return;
+			}
+			int count = candidates.getOrDefault(candidate, 0) + 1;
+			if (count < admission) {
+				candidates.put(candidate, count);
+				return;
+			}
+			candidates.remove(candidate);
+			pending.add(candidate);
+			currentGeneration = generation;
+		}
+		creator.submit(() -> {
+			try {
+				createReplica(migrationInfo, key, engine, currentGeneration);
+			} finally {
+				synchronized (this) {
+					pending.remove(candidate);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Migrate the source object to a new replica on the target engine and
+	 * keep the replica if the source was not modified in the meantime.
+	 */
+	private void createReplica(MigrationInfo migrationInfo, String key,
+			String engine, long replicaGeneration) {
+		ConnectionInfo connectionTo = migrationInfo.getConnectionTo();
+		String table = REPLICA_PREFIX + System.currentTimeMillis() + "_"
+				+ replicaCounter.incrementAndGet();
+		Replica replica;
+		try {
+			if (versionTrigger) {
+				installVersionTrigger(migrationInfo);
+			}
+			String version = getVersion(migrationInfo);
+			new FromPostgresToPostgres().migrate(
+					new MigrationInfo(migrationInfo.getConnectionFrom(),
+							migrationInfo.getObjectFrom(), connectionTo, table));
+			if (version == null || !version.equals(getVersion(migrationInfo))) {
+				logger.debug("The source of the replica " + table
+						+ " was modified during its migration: "
+						+ migrationInfo.getObjectFrom());
+				dropTable(connectionTo, table);
+				return;
+			}
+			replica = new Replica(key, table, version,
+					getTotalSize(connectionTo, table));
+		} catch (SQLException | MigrationException e) {
+			logger.warn("Could not create a replica of "
+					+ migrationInfo.getObjectFrom() + ": " + e.getMessage());
+			dropTable(connectionTo, table);
+			return;
+		}
+		logger.debug("Created the replica " + table + " of "
+				+ migrationInfo.getObjectFrom());
+		if (replica.bytes > budget) {
+			dropReplica(connectionTo, replica);
+			return;
+		}
+		List<Replica> evicted;
+		synchronized (this) {
+			if (replicaGeneration != generation) {
+				/* the replicas were dropped while this one was created */
+				evicted = new ArrayList<>();
+				evicted.add(replica);
+			} else {
+				evicted = engines
+						.computeIfAbsent(engine,
+								e -> new EngineReplicas(connectionTo))
+						.add(replica, budget);
+			}
+		}
+		for (Replica victim : evicted) {
+			if (victim != replica) {
+				evictions.incrementAndGet();
+			}
+			dropReplica(connectionTo, victim);
+		}
+	}
+
+	/**
+	 * Drop all the replicas.
+	 */
+	public void clear() {
+		List<EngineReplicas> dropped;
+		synchronized (this) {
+			dropped = new ArrayList<>(engines.values());
+			engines.clear();
+			candidates.clear();
+			++generation;
+		}
+		for (EngineReplicas replicas : dropped) {
+			for (Replica replica : replicas.replicas.values()) {
+				dropReplica(replicas.engine, replica);
+			}
+		}
+	}
+
+	/**
+	 * Drop all the replicas of this server and its triggers which keep the
+	 * versions of their sources from all the instances of PostgreSQL in the
+	 * catalog (including the ones left by the previous runs of the server).
+	 * Nothing is done if the cache is disabled.
+	 */
+	public void sweep() {
+		if (budget <= 0) {
+			return;
+		}
+		clear();
+		List<Integer> dbids;
+		try {
+			dbids = CatalogViewer.getAllDbids();
+		} catch (BigDawgCatalogException | SQLException e) {
+			logger.error("Could not get the databases from the catalog: "
+					+ StackTrace.getFullStackTrace(e), e);
+			return;
+		}
+		for (int dbid : dbids) {
+			try {
+				ConnectionInfo connectionInfo = CatalogViewer
+						.getConnectionInfo(dbid);
+				if (connectionInfo instanceof PostgreSQLConnectionInfo) {
+					sweep(connectionInfo);
+				}
+			} catch (BigDawgCatalogException | SQLException e) {
+				logger.warn("Could not remove the replicas from the database "
+						+ dbid + ": " + e.getMessage());
+			}
+		}
+	}
+
+	private static void sweep(ConnectionInfo connectionInfo)
+			throws SQLException {
+		try (Connection connection = PostgreSQLHandler
+				.getConnection(connectionInfo);
+				Statement statement = connection.createStatement()) {
+			List<String> drops = new ArrayList<>();
+			try (ResultSet rs = statement.executeQuery(REPLICA_TABLES)) {
+				while (rs.next()) {
+					drops.add("drop table if exists " + quote(rs.getString(1))
+							+ "." + quote(rs.getString(2)));
+				}
+			}
+			try (ResultSet rs = statement.executeQuery(VERSION_TRIGGERS)) {
+				while (rs.next()) {
+					drops.add("drop trigger if exists " + VERSION_TRIGGER + " on "
+							+ quote(rs.getString(1)) + "."
+							+ quote(rs.getString(2)));
+				}
+			}
+			try (ResultSet rs = statement.executeQuery(
+					"select to_regclass('" + VERSION_TABLE + "') is not null")) {
+				rs.next();
+				if (rs.getBoolean(1)) {
+					drops.add("delete from " + VERSION_TABLE + " where node = '"
+							+ NODE_ID + "'");
+				}
+			}
+			for (String drop : drops) {
+				logger.debug(drop);
+				statement.execute(drop);
+			}
+		}
+	}
+
+	private static String quote(String identifier) {
+		return "\"" + identifier.replace("\"", "\"\"") + "\"";
+	}
+
+	private void remove(String engine, Replica replica,
+			ConnectionInfo connectionTo) {
+		boolean removed = false;
+		synchronized (this) {
+			EngineReplicas replicas = engines.get(engine);
+			if (replicas != null && replicas.get(replica.key) == replica) {
+				replicas.remove(replica.key);
+				removed = true;
+			}
+		}
+		if (removed) {
+			dropReplica(connectionTo, replica);
+		}
+	}
+
+	/**
+	 * @return the version of the source object (it changes when the object is
+	 *         modified) or null if the version is not kept for the object
+	 */
+	private String getVersion(MigrationInfo migrationInfo)
+			throws SQLException {
+		try (Connection connection = PostgreSQLHandler
+				.getConnection(migrationInfo.getConnectionFrom());
+				PreparedStatement statement = connection.prepareStatement(
+						versionTrigger ? TRIGGER_VERSION : STATISTICS_VERSION)) {
+			statement.setString(1, migrationInfo.getObjectFrom());
+			try (ResultSet rs = statement.executeQuery()) {
+				if (!rs.next()) {
+					return null;
+				}
+				StringBuilder version = new StringBuilder();
+				int columns = rs.getMetaData().getColumnCount();
+				for (int i = 1; i <= columns; ++i) {
+					version.append(rs.getLong(i)).append(':');
+				}
+				return version.toString();
+			}
+		}
+	}
+
+	/**
+	 * Install the trigger which increments the version of the source object
+	 * each time it is modified (if the trigger is not there yet).
+	 */
+	private static void installVersionTrigger(MigrationInfo migrationInfo)
+			throws SQLException {
+		String object = migrationInfo.getObjectFrom();
+		try (Connection connection = PostgreSQLHandler
+				.getConnection(migrationInfo.getConnectionFrom())) {
+			connection.setAutoCommit(false);
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("create table if not exists " + VERSION_TABLE
+						+ " (node text, relid oid, version bigint not null, "
+						+ "primary key (node, relid))");
+				try (PreparedStatement installed = connection
+						.prepareStatement(IS_VERSION_TRIGGER)) {
+					installed.setString(1, object);
+					try (ResultSet rs = installed.executeQuery()) {
+						rs.next();
+						if (rs.getLong(1) > 0) {
+							connection.commit();
+							return;
+						}
+					}
+				}
+				/* the argument of the trigger is the id of the server */
+				statement.execute("create or replace function "
+						+ VERSION_FUNCTION + "() returns trigger as $$ begin "
+						+ "update " + VERSION_TABLE
+						+ " set version = version + 1 where node = TG_ARGV[0] "
+						+ "and relid = TG_RELID; "
+						+ "return null; end; $$ language plpgsql");
+				/* the row of a dropped table with the same oid is replaced */
+				for (String reset : new String[] {
+						"delete from " + VERSION_TABLE + " where node = '"
+								+ NODE_ID + "' and relid = ?::regclass",
+						"insert into " + VERSION_TABLE + " values ('" + NODE_ID
+								+ "', ?::regclass, 0)" }) {
+					try (PreparedStatement resetStatement = connection
+							.prepareStatement(reset)) {
+						resetStatement.setString(1, object);
+						resetStatement.executeUpdate();
+					}
+				}
+				statement.execute("create trigger " + VERSION_TRIGGER
+						+ " after insert or update or delete or truncate on "
+						+ object + " for each statement execute procedure "
+						+ VERSION_FUNCTION + "('" + NODE_ID + "')");
+				connection.commit();
+				logger.debug("Installed the version trigger on " + object);
+			} catch (SQLException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(true);
+			}
+		}
+	}
+
+	/**
+	 * @return the size of the table with its indexes and toast (in bytes)
+	 */
+	private static long getTotalSize(ConnectionInfo connectionInfo,
+			String table) throws SQLException {
+		try (Connection connection = PostgreSQLHandler
+				.getConnection(connectionInfo);
+				PreparedStatement statement = connection
+						.prepareStatement(TOTAL_SIZE)) {
+			statement.setString(1, table);
+			try (ResultSet rs = statement.executeQuery()) {
+				rs.next();
+				return rs.getLong(1);
+			}
+		}
+	}
+
+	/**
+	 * Create the target object with the rows of the replica.
+	 *
+	 * @return number of the copied rows
+	 */
+	private static long copyFromReplica(MigrationInfo migrationInfo,
+			Replica replica) throws SQLException {
+		PostgreSQLSchemaTableName target = new PostgreSQLSchemaTableName(
+				migrationInfo.getObjectTo());
+		try (Connection connection = PostgreSQLHandler
+				.getConnection(migrationInfo.getConnectionTo())) {
+			connection.setAutoCommit(false);
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("create schema if not exists "
+						+ target.getSchemaName());
+				String createStatement = MigrationUtils
+						.getUserCreateStatement(migrationInfo);
+				long count;
+				if (createStatement != null) {
+					statement.execute(createStatement);
+					count = statement.executeUpdate("insert into "
+							+ migrationInfo.getObjectTo() + " select * from "
+							+ replica.table);
+				} else {
+					count = statement.executeUpdate("create table "
+							+ migrationInfo.getObjectTo() + " as select * from "
+							+ replica.table);
+				}
+				connection.commit();
+				return count;
+			} catch (SQLException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(true);
+			}
+		}
+	}
+
+	private static void dropReplica(ConnectionInfo connectionTo,
+			Replica replica) {
+		dropTable(connectionTo, replica.table);
+	}
+
+	private static void dropTable(ConnectionInfo connectionTo, String table) {
+		try (Connection connection = PostgreSQLHandler
+				.getConnection(connectionTo)) {
+			PostgreSQLHandler.executeStatement(connection,
+					"drop table if exists " + table);
+		} catch (SQLException e) {
+			logger.error("Could not drop the replica " + table + ": "
+					+ StackTrace.getFullStackTrace(e), e);
+		}
+	}
+
+	/**
+	 * @return number of migrations served from replicas
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return number of cacheable migrations without a valid replica
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return number of replicas dropped because their source was modified
+	 */
+	public long getInvalidations() {
+		return invalidations.get();
+	}
+
+	/**
+	 * @return number of replicas dropped to keep the budget of an engine
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+}
@@ -0,0 +1,580 @@
+package istc.bigdawg.migration;
+
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.log4j.Logger;
+
+import istc.bigdawg.database.AttributeMetaData;
+import istc.bigdawg.database.ObjectMetaData;
+import istc.bigdawg.exceptions.MigrationException;
+import istc.bigdawg.exceptions.UnsupportedTypeException;
+import istc.bigdawg.migration.datatypes.FromSQLTypesToSciDB;
+import istc.bigdawg.utils.StackTrace;
+
+/**
+ * Transform data from the PostgreSQL binary format (COPY ... with binary) to
+ * the SciDB binary format (the input for load(...) in SciDB) in this JVM,
+ * instead of the external C++ migrator run by {@link TransformBinExecutor}.
+ *
+ * The data is streamed: the tuples are read one field at a time through a
+ * direct buffer and the converted values are written to another direct
+ * buffer, the buffers are reused by the following transformations. The types
+ * of the attributes in SciDB are taken from {@link FromSQLTypesToSciDB}.
+ */
+public class TransformFromPostgresBinToSciDBBinExecutor
+		implements Callable<Long> {
+
+	/* log */
+	private static Logger log = Logger
+			.getLogger(TransformFromPostgresBinToSciDBBinExecutor.class);
+
+	/** The header of the PostgreSQL binary format (11 bytes). */
+	private static final byte[] POSTGRES_SIGNATURE = { 'P', 'G', 'C', 'O', 'P',
+			'Y', '\n', (byte) 0xFF, '\r', '\n', 0 };
+
+	/** Bit 16 of the flags: each tuple starts with its OID. */
+	private static final int POSTGRES_OIDS_FLAG = 1 << 16;
+
+	/** The trailer of the PostgreSQL binary format (instead of a tuple). */
+	private static final short POSTGRES_TRAILER = -1;
+
+	/** Length of a NULL value in the PostgreSQL binary format. */
+	private static final int POSTGRES_NULL = -1;
+
+	/** Seconds from 1970-01-01 (SciDB) to 2000-01-01 (PostgreSQL). */
+	private static final long POSTGRES_EPOCH_SECONDS = 946684800L;
+
+	private static final long MICROSECONDS_PER_SECOND = 1000000L;
+
+	private static final long SECONDS_PER_DAY = 86400L;
+
+	/** Signs of numeric values in the PostgreSQL binary format. */
+	private static final int NUMERIC_NEGATIVE = 0x4000;
+	private static final int NUMERIC_NAN = 0xC000;
+
+	/** Base of the digits of numeric values in PostgreSQL. */
+	private static final int NUMERIC_BASE = 10000;
+
+	/** The missing reason code in SciDB for NULL values. */
+	private static final byte SCIDB_NULL = 0;
+
+	/** The null indicator in SciDB for present values. */
+	private static final byte SCIDB_NOT_NULL = -1;
+
+	/** Size of each of the direct buffers (input and output). */
+	static final int BUFFER_SIZE = 1 << 16;
+
+	/** Direct buffers released by the finished transformations. */
+	private static final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+	/** Conversion of a value from PostgreSQL to SciDB. */
+	enum Conversion {
+		BOOL(1), INT16(2), INT32(4), INT64(8), FLOAT(4), DOUBLE(8), CHAR(
+				1), STRING(0), DATETIME(8), DATETIMETZ(
+						16), NUMERIC_TO_DOUBLE(8), NUMERIC_TO_INT64(8);
+
+		/** Size of the value in SciDB (0 for variable size). */
+		private final int size;
+
+		private Conversion(int size) {
+			this.size = size;
+		}
+	}
+
+	private final Conversion[] conversions;
+	private final boolean[] nullable;
+	private final String[] names;
+
+	private final InputStream input;
+	private final String inputPath;
+	private final OutputStream output;
+	private final String outputPath;
+
+	/** Input buffer (PostgreSQL is big-endian). */
+	private ByteBuffer in;
+	/** Output buffer (SciDB uses the little-endian byte order). */
+	private ByteBuffer out;
+	private ReadableByteChannel source;
+	private WritableByteChannel target;
+
+	/**
+	 * @param metaData
+	 *            meta data of the table exported from PostgreSQL
+	 * @param inputPath
+	 *            path to the file (pipe) with data in PostgreSQL binary format
+	 * @param outputPath
+	 *            path to the file (pipe) for data in SciDB binary format
+	 * @throws UnsupportedTypeException
+	 *             a type of an attribute cannot be transformed to SciDB
+	 */
+	public TransformFromPostgresBinToSciDBBinExecutor(ObjectMetaData metaData,
+			String inputPath, String outputPath)
+					throws UnsupportedTypeException {
+		this(metaData, null, inputPath, null, outputPath);
+	}
+
+	/**
+	 * @param metaData
+	 *            meta data of the table exported from PostgreSQL
+	 * @param input
+	 *            stream with data in PostgreSQL binary format
+	 * @param outputPath
+	 *            path to the file (pipe) for data in SciDB binary format
+	 * @throws UnsupportedTypeException
+	 *             a type of an attribute cannot be transformed to SciDB
+	 */
+	public TransformFromPostgresBinToSciDBBinExecutor(ObjectMetaData metaData,
+			InputStream input, String outputPath)
+					throws UnsupportedTypeException {
+		this(metaData, input, null, null, outputPath);
+	}
+
+	/**
+	 * @param metaData
+	 *            meta data of the table exported from PostgreSQL
+	 * @param input
+	 *            stream with data in PostgreSQL binary format
+	 * @param output
+	 *            stream for data in SciDB binary format
+	 * @throws UnsupportedTypeException
+	 *             a type of an attribute cannot be transformed to SciDB
+	 */
+	public TransformFromPostgresBinToSciDBBinExecutor(ObjectMetaData metaData,
+			InputStream input, OutputStream output)
+					throws UnsupportedTypeException {
+		this(metaData, input, null, output, null);
+	}
+
+	private TransformFromPostgresBinToSciDBBinExecutor(ObjectMetaData metaData,
+			InputStream input, String inputPath, OutputStream output,
+			String outputPath) throws UnsupportedTypeException {
+		List<AttributeMetaData> attributes = metaData.getAttributesOrdered();
+		this.conversions = new Conversion[attributes.size()];
+		this.nullable = new boolean[attributes.size()];
+		this.names = new String[attributes.size()];
+		for (int i = 0; i < attributes.size(); ++i) {
+			conversions[i] = getConversion(attributes.get(i));
+			nullable[i] = attributes.get(i).isNullable();
+			names[i] = attributes.get(i).getName();
+		}
+		this.input = input;
+		this.inputPath = inputPath;
+		this.output = output;
+		this.outputPath = outputPath;
+	}
+
+	/**
+	 * @return the conversion of the values of the attribute
+	 * @throws UnsupportedTypeException
+	 */
+	static Conversion getConversion(AttributeMetaData attribute)
+			throws UnsupportedTypeException {
+		String sqlType = attribute.getSqlDataType();
+		String scidbType = FromSQLTypesToSciDB.getSciDBTypeFromSQLType(sqlType);
+		if (sqlType.contains("decimal") || sqlType.contains("numeric")) {
+			return scidbType.equals("int64") ? Conversion.NUMERIC_TO_INT64
+					: Conversion.NUMERIC_TO_DOUBLE;
+		}
+		switch (scidbType) {
+		case "bool":
+			return Conversion.BOOL;
+		case "int16":
+			return Conversion.INT16;
+		case "int32":
+			return Conversion.INT32;
+		case "int64":
+			return Conversion.INT64;
+		case "float":
+			return Conversion.FLOAT;
+		case "double":
+			return Conversion.DOUBLE;
+		case "char":
+			return Conversion.CHAR;
+		case "string":
+			return Conversion.STRING;
+		case "datetime":
+			return Conversion.DATETIME;
+		case "datetimetz":
+			return Conversion.DATETIMETZ;
+		default:
+			throw new UnsupportedTypeException("The transformation of the SQL"
+					+ " type: " + sqlType + " to the SciDB type: " + scidbType
+					+ " is not supported.");
+		}
+	}
+
+	/**
+	 * Transform the data from PostgreSQL binary format to SciDB binary format.
+	 *
+	 * @return number of transformed tuples
+	 * @throws MigrationException
+	 */
+	public Long call() throws MigrationException {
+		in = acquireBuffer().order(ByteOrder.BIG_ENDIAN);
+		out = acquireBuffer().order(ByteOrder.LITTLE_ENDIAN);
+		in.limit(0);
+		try {
+			/* SciDB waits for the output pipe to be opened */
+			target = output != null ? Channels.newChannel(output)
+					: new FileOutputStream(outputPath).getChannel();
+			source = input != null ? Channels.newChannel(input)
+					: new FileInputStream(inputPath).getChannel();
+			long count = transform();
+			log.debug("Tuples transformed from PostgreSQL to SciDB: " + count);
+			return count;
+		} catch (IOException e) {
+			String msg = "The transformation from PostgreSQL binary format "
+					+ "to SciDB binary format failed: " + e.getMessage();
+			log.error(msg + " " + StackTrace.getFullStackTrace(e), e);
+			throw new MigrationException(msg, e);
+		} finally {
+			close();
+			releaseBuffer(in);
+			releaseBuffer(out);
+			in = null;
+			out = null;
+		}
+	}
+
+	private void close() {
+		/* closing the channels closes the streams (ends of the pipes) */
+		try {
+			if (source != null) {
+				source.close();
+			} else if (input != null) {
+				input.close();
+			}
+		} catch (IOException e) {
+			log.error("Could not close the input: " + e.getMessage());
+		}
+		try {
+			if (target != null) {
+				target.close();
+			} else if (output != null) {
+				output.close();
+			}
+		} catch (IOException e) {
+			log.error("Could not close the output: " + e.getMessage());
+		}
+		source = null;
+		target = null;
+	}
+
+	private long transform() throws IOException {
+		ensure(POSTGRES_SIGNATURE.length + 8);
+		for (byte b : POSTGRES_SIGNATURE) {
+			if (in.get() != b) {
+				throw new IOException(
+						"The input is not in PostgreSQL binary format.");
+			}
+		}
+		boolean oids = (in.getInt() & POSTGRES_OIDS_FLAG) != 0;
+		skip(in.getInt()); /* header extension */
+		long count = 0;
+		while (true) {
+			ensure(2);
+			short fields = in.getShort();
+			if (fields == POSTGRES_TRAILER) {
+				break;
+			}
+			if (fields != conversions.length) {
+				throw new IOException("Expected " + conversions.length
+						+ " fields in tuple " + count + " but got " + fields
+						+ ".");
+			}
+			if (oids) {
+				ensure(4);
+				int length = in.getInt();
+				skip(Math.max(length, 0));
+			}
+			for (int i = 0; i < conversions.length; ++i) {
+				ensure(4);
+				transformField(i, in.getInt());
+			}
+			++count;
+		}
+		flush();
+		return count;
+	}
+
+	private void transformField(int i, int length) throws IOException {
+		Conversion conversion = conversions[i];
+		if (length == POSTGRES_NULL) {
+			if (!nullable[i]) {
+				throw new IOException("NULL value for the attribute "
+						+ names[i] + " which is not nullable.");
+			}
+			/* the null indicator and then a value of zeros */
+			reserve(1 + Math.max(conversion.size, 4));
+			out.put(SCIDB_NULL);
+			if (conversion == Conversion.STRING) {
+				out.putInt(0);
+			} else {
+				for (int k = 0; k < conversion.size; ++k) {
+					out.put((byte) 0);
+				}
+			}
+			return;
+		}
+		if (nullable[i]) {
+			reserve(1);
+			out.put(SCIDB_NOT_NULL);
+		}
+		switch (conversion) {
+		case BOOL:
+			ensure(1);
+			byte b = in.get();
+			skip(length - 1);
+			reserve(1);
+			out.put(b != 0 ? (byte) 1 : (byte) 0);
+			break;
+		case INT16:
+			reserve(2);
+			out.putShort((short) readInteger(length));
+			break;
+		case INT32:
+			reserve(4);
+			out.putInt((int) readInteger(length));
+			break;
+		case INT64:
+			reserve(8);
+			out.putLong(readInteger(length));
+			break;
+		case FLOAT:
+			reserve(4);
+			out.putFloat((float) readFloating(length));
+			break;
+		case DOUBLE:
+			reserve(8);
+			out.putDouble(readFloating(length));
+			break;
+		case CHAR:
+			/* a single byte (the first one of the string) */
+			ensure(Math.min(length, 1));
+			byte c = length > 0 ? in.get() : 0;
+			skip(length - Math.min(length, 1));
+			reserve(1);
+			out.put(c);
+			break;
+		case STRING:
+			/* SciDB strings end with \0 which is included in the length */
+			reserve(4);
+			out.putInt(length + 1);
+			copy(length);
+			reserve(1);
+			out.put((byte) 0);
+			break;
+		case DATETIME:
+			reserve(8);
+			out.putLong(readSeconds(length));
+			break;
+		case DATETIMETZ:
+			/* the time (UTC) and the offset of the time zone */
+			reserve(16);
+			out.putLong(readSeconds(length));
+			out.putLong(0);
+			break;
+		case NUMERIC_TO_DOUBLE:
+			reserve(8);
+			out.putDouble(readNumeric(length));
+			break;
+		case NUMERIC_TO_INT64:
+			reserve(8);
+			out.putLong(readNumericInteger(length, i));
+			break;
+		}
+	}
+
+	private long readInteger(int length) throws IOException {
+		ensure(length);
+		switch (length) {
+		case 2:
+			return in.getShort();
+		case 4:
+			return in.getInt();
+		case 8:
+			return in.getLong();
+		default:
+			throw new IOException("Unexpected size of an integer: " + length);
+		}
+	}
+
+	private double readFloating(int length) throws IOException {
+		ensure(length);
+		switch (length) {
+		case 4:
+			return in.getFloat();
+		case 8:
+			return in.getDouble();
+		default:
+			throw new IOException(
+					"Unexpected size of a floating point number: " + length);
+		}
+	}
+
+	/**
+	 * @return seconds since 1970-01-01 from a PostgreSQL timestamp
+	 *         (microseconds since 2000-01-01) or date (days since 2000-01-01)
+	 */
+	private long readSeconds(int length) throws IOException {
+		ensure(length);
+		switch (length) {
+		case 8:
+			return Math.floorDiv(in.getLong(), MICROSECONDS_PER_SECOND)
+					+ POSTGRES_EPOCH_SECONDS;
+		case 4:
+			return in.getInt() * SECONDS_PER_DAY + POSTGRES_EPOCH_SECONDS;
+		default:
+			throw new IOException("Unexpected size of a date/time: " + length);
+		}
+	}
+
+	/**
+	 * @return value of a PostgreSQL numeric: the number of digits, the weight
+	 *         of the first digit, the sign, the display scale and the digits
+	 *         (in base 10000)
+	 */
+	private double readNumeric(int length) throws IOException {
+		ensure(length);
+		int digits = in.getShort();
+		int weight = in.getShort();
+		int sign = in.getShort() & 0xFFFF;
+		in.getShort(); /* display scale */
+		if (sign == NUMERIC_NAN) {
+			skip(length - 8);
+			return Double.NaN;
+		}
+		double value = 0;
+		for (int d = 0; d < digits; ++d) {
+			value = value * NUMERIC_BASE + in.getShort();
+		}
+		skip(length - 8 - 2 * digits);
+		int exponent = weight - digits + 1;
+		if (exponent >= 0) {
+			value *= Math.pow(NUMERIC_BASE, exponent);
+		} else {
+			/* division is exact for the usual (short) fractions */
+			value /= Math.pow(NUMERIC_BASE, -exponent);
+		}
+		return sign == NUMERIC_NEGATIVE ? -value : value;
+	}
+
+	/**
+	 * @return the integer part of a PostgreSQL numeric (see
+	 *         {@link #readNumeric(int)})
+	 */
+	private long readNumericInteger(int length, int i) throws IOException {
+		ensure(length);
+		int digits = in.getShort();
+		int weight = in.getShort();
+		int sign = in.getShort() & 0xFFFF;
+		in.getShort(); /* display scale */
+		if (sign == NUMERIC_NAN) {
+			throw new IOException("NaN value of the attribute " + names[i]
+					+ " cannot be transformed to int64.");
+		}
+		long value = 0;
+		for (int d = 0; d <= weight; ++d) {
+			value = value * NUMERIC_BASE + (d < digits ? in.getShort() : 0);
+		}
+		/* the fractional digits are dropped */
+		skip(length - 8 - 2 * Math.min(digits, Math.max(weight + 1, 0)));
+		return sign == NUMERIC_NEGATIVE ? -value : value;
+	}
+
+	/**
+	 * Make sure that there are at least n bytes in the input buffer.
+	 */
+	private void ensure(int n) throws IOException {
+		if (in.remaining() >= n) {
+			return;
+		}
+		if (n > in.capacity()) {
+			throw new IOException("A value of " + n
+					+ " bytes does not fit into the buffer.");
+		}
+		in.compact();
+		while (in.position() < n) {
+			if (source.read(in) == -1) {
+				throw new EOFException(
+						"Unexpected end of the data in PostgreSQL binary format.");
+			}
+		}
+		in.flip();
+	}
+
+	private void skip(int n) throws IOException {
+		while (n > 0) {
+			if (!in.hasRemaining()) {
+				ensure(1);
+			}
+			int chunk = Math.min(n, in.remaining());
+			in.position(in.position() + chunk);
+			n -= chunk;
+		}
+	}
+
+	/** Copy n bytes from the input to the output. */
+	private void copy(int n) throws IOException {
+		while (n > 0) {
+			if (!in.hasRemaining()) {
+				ensure(1);
+			}
+			if (!out.hasRemaining()) {
+				flush();
+			}
+			int chunk = Math.min(n, Math.min(in.remaining(), out.remaining()));
+			int limit = in.limit();
+			in.limit(in.position() + chunk);
+			out.put(in);
+			in.limit(limit);
+			n -= chunk;
+		}
+	}
+
+	/**
+	 * Make sure that there is space for at least n bytes in the output buffer.
+	 */
+	private void reserve(int n) throws IOException {
+		if (out.remaining() < n) {
+			flush();
+		}
+	}
+
+	private void flush() throws IOException {
+		out.flip();
+		while (out.hasRemaining()) {
+			target.write(out);
+		}
+		out.clear();
+	}
+
+	private static ByteBuffer acquireBuffer() {
+		ByteBuffer buffer = buffers.poll();
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+		buffer.clear();
+		return buffer;
+	}
+
+	private static void releaseBuffer(ByteBuffer buffer) {
+		if (buffer != null) {
+			buffers.offer(buffer);
+		}
+	}
+
+}
@@ -19,11 +19,13 @@ import istc.bigdawg.executor.plan.QueryExecutionPlan;
 import istc.bigdawg.islands.CrossIslandQueryNode;
 import istc.bigdawg.islands.IntraIslandQuery;
 import istc.bigdawg.islands.CrossIslandQueryPlan;
+import istc.bigdawg.migration.MigrationChunk;
 import istc.bigdawg.migration.MigrationStatistics;
 import istc.bigdawg.postgresql.PostgreSQLHandler;
 import istc.bigdawg.query.ConnectionInfo;
 import istc.bigdawg.query.ConnectionInfoParser;
 import istc.bigdawg.signature.Signature;
+import istc.bigdawg.signature.SignatureIndex;
 
 public class Monitor {
     /**
@@ -42,6 +44,15 @@ public class Monitor {
     private static final String MINDURATION = "SELECT min(duration) FROM monitoring";
     private static final String MIGRATE = "INSERT INTO migrationstats(fromLoc, toLoc, objectFrom, objectTo, startTime, endTime, countExtracted, countLoaded, message) VALUES ('%s', '%s', '%s', '%s', %d, %d, %d, %d, '%s')";
     private static final String RETRIEVEMIGRATE = "SELECT objectFrom, objectTo, startTime, endTime, countExtracted, countLoaded, message FROM migrationstats WHERE fromLoc='%s' AND toLoc='%s'";
+    private static final String MIGRATIONCHUNK = "fromLoc='%s' AND toLoc='%s' AND objectFrom='%s' AND objectTo='%s'";
+    private static final String DELETECHUNKS = "DELETE FROM migrationchunks WHERE " + MIGRATIONCHUNK;
+    private static final String ADDCHUNKS = "INSERT INTO migrationchunks(fromLoc, toLoc, objectFrom, objectTo, chunk, condition, done) VALUES ";
+    private static final String ADDCHUNK = "('%s', '%s', '%s', '%s', %d, '%s', false)";
+    private static final String CHUNKDONE = "UPDATE migrationchunks SET done=true, countLoaded=%d, endTime=%d WHERE " + MIGRATIONCHUNK + " AND chunk=%d";
+    private static final String RETRIEVECHUNKS = "SELECT chunk, condition, done::int, coalesce(countLoaded, -1) FROM migrationchunks WHERE " + MIGRATIONCHUNK + " ORDER BY chunk";
+
+    private static final SignatureIndex signatureIndex = new SignatureIndex();
+    private static volatile boolean signatureIndexLoaded = false;
 
     /**
      * Adds a query as a benchmark
@@ -185,19 +196,26 @@ public class Monitor {
      * @return The signature of the benchmark query that is closest to the input signature
      */
     public static Signature getClosestSignature(Signature signature) {
-        // TODO This could be changed to be much more efficient.
-        List<Signature> signatures = getAllSignatures();
-        Signature closest = null;
-        double distance = Double.MAX_VALUE;
-        for (Signature current: signatures){
-            // compare them and pick the closest Signature
-            double curDist = signature.compare(current);
-            if (curDist < distance){
-                distance = curDist;
-                closest = current;
+        return getSignatureIndex().getClosest(signature);
+    }
+
+    /**
+     * The index of the benchmarked signatures is loaded from the monitoring
+     * table on first use and then kept in sync by insert and delete.
+     * @return the index of the benchmarked signatures
+     */
+    public static SignatureIndex getSignatureIndex() {
+        if (!signatureIndexLoaded) {
+            synchronized (signatureIndex) {
+                if (!signatureIndexLoaded) {
+                    for (Signature current : getAllSignatures()) {
+                        signatureIndex.add(current);
+                    }
+                    signatureIndexLoaded = true;
+                }
             }
         }
-        return closest;
+        return signatureIndex;
     }
 
     /**
@@ -212,6 +230,7 @@ public class Monitor {
         try {
             String escapedSignature = signature.toRecoverableString().replace("'", stringSeparator);
 			handler.executeStatementPostgreSQL(String.format(INSERT, escapedSignature, index, System.currentTimeMillis(), escapedSignature, index));
+			signatureIndex.add(signature);
 			return true;
 		} catch (SQLException e) {
 			return false;
@@ -228,6 +247,7 @@ public class Monitor {
         try {
             String escapedSignature = signature.toRecoverableString().replace("'", stringSeparator);
 			handler.executeStatementPostgreSQL(String.format(DELETE, escapedSignature));
+			signatureIndex.remove(signature);
 			return true;
 		} catch (SQLException e) {
 			return false;
@@ -315,4 +335,75 @@ public class Monitor {
         }
         return results;
     }
+
+    /**
+     * Replaces the chunks of a checkpointed migration with new chunks which were not loaded yet
+     * (the plan of the migration is stored in a single transaction).
+     * @param from The engine migrated from
+     * @param to The engine migrated to
+     * @param objectFrom the object migrated from
+     * @param objectTo the object migrated to
+     * @param conditions the conditions which select the rows of each chunk
+     * @throws SQLException
+     */
+    public static void addMigrationChunks(ConnectionInfo from, ConnectionInfo to, String objectFrom, String objectTo, List<String> conditions) throws SQLException {
+        String[] key = getMigrationChunkKey(from, to, objectFrom, objectTo);
+        StringBuilder statement = new StringBuilder(String.format(DELETECHUNKS, (Object[]) key));
+        if (!conditions.isEmpty()) {
+            statement.append("; ").append(ADDCHUNKS);
+            for (int i = 0; i < conditions.size(); i++) {
+                if (i > 0) {
+                    statement.append(", ");
+                }
+                statement.append(String.format(ADDCHUNK, key[0], key[1], key[2], key[3], i, escape(conditions.get(i))));
+            }
+        }
+        PostgreSQLHandler handler = new PostgreSQLHandler();
+        handler.executeStatementPostgreSQL(statement.toString());
+    }
+
+    /**
+     * Records that the rows of the chunk were committed in the target database
+     * @param from The engine migrated from
+     * @param to The engine migrated to
+     * @param objectFrom the object migrated from
+     * @param objectTo the object migrated to
+     * @param chunk the number of the chunk
+     * @param countLoaded number of rows of the chunk loaded to the target database
+     * @throws SQLException
+     */
+    public static void finishedMigrationChunk(ConnectionInfo from, ConnectionInfo to, String objectFrom, String objectTo, int chunk, long countLoaded) throws SQLException {
+        String[] key = getMigrationChunkKey(from, to, objectFrom, objectTo);
+        PostgreSQLHandler handler = new PostgreSQLHandler();
+        handler.executeStatementPostgreSQL(String.format(CHUNKDONE, countLoaded, System.currentTimeMillis(), key[0], key[1], key[2], key[3], chunk));
+    }
+
+    /**
+     * Retrieves the chunks of a checkpointed migration
+     * @param from The engine migrated from
+     * @param to The engine migrated to
+     * @param objectFrom the object migrated from
+     * @param objectTo the object migrated to
+     * @return the chunks ordered by their numbers (empty if the migration was not checkpointed)
+     * @throws SQLException
+     */
+    public static List<MigrationChunk> getMigrationChunks(ConnectionInfo from, ConnectionInfo to, String objectFrom, String objectTo) throws SQLException {
+        String[] key = getMigrationChunkKey(from, to, objectFrom, objectTo);
+        PostgreSQLHandler handler = new PostgreSQLHandler();
+        JdbcQueryResult qresult = handler.executeQueryPostgreSQL(String.format(RETRIEVECHUNKS, (Object[]) key));
+        List<MigrationChunk> chunks = new ArrayList<>();
+        for (List<String> row: qresult.getRows()) {
+            long countLoaded = Long.parseLong(row.get(3));
+            chunks.add(new MigrationChunk(Integer.parseInt(row.get(0)), row.get(1), "1".equals(row.get(2)), countLoaded >= 0 ? countLoaded : null));
+        }
+        return chunks;
+    }
+
+    private static String[] getMigrationChunkKey(ConnectionInfo from, ConnectionInfo to, String objectFrom, String objectTo) {
+        return new String[] { escape(ConnectionInfoParser.connectionInfoToString(from)), escape(ConnectionInfoParser.connectionInfoToString(to)), escape(objectFrom), escape(objectTo) };
+    }
+
+    private static String escape(String value) {
+        return value.replace("'", "''");
+    }
 }
@@ -3,14 +3,14 @@
  */
 package istc.bigdawg.network;
 
-import java.io.BufferedOutputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.concurrent.Callable;
 
 import org.apache.log4j.Logger;
@@ -30,9 +30,6 @@ public class DataIn implements Callable<Object> {
 	 */
 	private static Logger logger = Logger.getLogger(DataIn.class);
 
-	/** Chunk size for the buffer to receive data. */
-	private final static int CHUNK_SIZE = 64 * 1024;
-
 	/**
 	 * @see param port in {@link #receive(int, String)}
 	 */
@@ -77,19 +74,21 @@ public class DataIn implements Callable<Object> {
 	 * @param filePath
 	 *            Full path to the file/pipe to which we should write the data
 	 *            received via network.
-	 * @return Total number of bytes received from the network.
+	 * @return Total number of bytes received from the network and written to
+	 *         the file/pipe (the data are decompressed if the sender
+	 *         compressed them, see {@link DataTransfer}).
 	 * @throws IOException
 	 *             The socket for data transfer was not opened.
 	 */
-	public static Long receive(final int port, final String filePath)
-			throws IOException {
-		ServerSocket serverSocket = null;
-		Socket socket = null;
-		InputStream in = null;
-		OutputStream out = null;
+	public static DataTransferResult receive(final int port,
+			final String filePath) throws IOException {
+		ServerSocketChannel serverSocket = null;
+		SocketChannel socket = null;
+		FileChannel out = null;
 		try {
 			try {
-				serverSocket = new ServerSocket(port);
+				serverSocket = ServerSocketChannel.open();
+				serverSocket.bind(new InetSocketAddress(port));
 			} catch (IOException e) {
 				String message = "Could not open socket (bounded to port: "
 						+ port + ") server to receive data from network. ";
@@ -107,34 +106,32 @@ public class DataIn implements Callable<Object> {
 				throw e;
 			}
 			try {
-				in = socket.getInputStream();
+				out = FileChannel.open(Paths.get(filePath),
+						StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING);
 			} catch (IOException e) {
-				String message = "Could not get input stream from the socket "
-						+ "to read the data from the network. ";
-				logger.error(message + e.getMessage()
-						+ StackTrace.getFullStackTrace(e), e);
-				throw e;
-			}
-			try {
-				out = new BufferedOutputStream(new FileOutputStream(filePath));
-			} catch (FileNotFoundException e) {
 				String message = "Did not find the target file to write the data. ";
 				logger.error(message + e.getMessage()
 						+ StackTrace.getFullStackTrace(e), e);
 				throw e;
 			}
-			byte[] bytes = new byte[CHUNK_SIZE];
-			/*
-			 * Count how many bytes were read from the socket and how many bytes
-			 * should be written to the stream.
-			 */
-			int count;
-			/* Total number of bytes received from network. */
-			long totalCount = 0L;
+			DataTransferResult result;
 			try {
-				while ((count = in.read(bytes)) > 0) {
-					out.write(bytes, 0, count);
-					totalCount += count;
+				byte mode = DataTransfer.readHeader(socket);
+				if (mode == DataTransfer.DEFLATE) {
+					long[] counts = DataTransfer.decompress(socket, out);
+					result = new DataTransferResult(counts[1],
+							DataTransfer.HEADER_SIZE + counts[0], true);
+				} else {
+					long count;
+					if (Files.isRegularFile(Paths.get(filePath))) {
+						count = DataTransfer.receiveFile(socket, out);
+					} else {
+						/* the named pipe does not support zero-copy transfer */
+						count = DataTransfer.copy(socket, out);
+					}
+					result = new DataTransferResult(count,
+							DataTransfer.HEADER_SIZE + count, false);
 				}
 			} catch (IOException e) {
 				String message = "Problem when reading data from the "
@@ -144,8 +141,9 @@ public class DataIn implements Callable<Object> {
 				throw e;
 			}
 			logger.debug("All data were received from network (port: " + port
-					+ " ; data relaied to filePath:" + filePath + ")");
-			return totalCount;
+					+ " ; data relaied to filePath:" + filePath + "): "
+					+ result);
+			return result;
 		} finally {
 			if (out != null) {
 				try {
@@ -157,16 +155,6 @@ public class DataIn implements Callable<Object> {
 							+ StackTrace.getFullStackTrace(e), e);
 				}
 			}
-			if (in != null) {
-				try {
-					in.close();
-				} catch (IOException e) {
-					String message = "Could not close the input stream from "
-							+ "the socket which received data via network. ";
-					logger.error(message + e.getMessage() + " "
-							+ StackTrace.getFullStackTrace(e), e);
-				}
-			}
 			if (socket != null) {
 				try {
 					socket.close();
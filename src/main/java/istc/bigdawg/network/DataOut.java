@@ -3,15 +3,14 @@
  */
 package istc.bigdawg.network;
 
-import java.io.BufferedInputStream;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.InetSocketAddress;
-import java.net.Socket;
 import java.net.SocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
@@ -44,21 +43,33 @@ public class DataOut implements Callable<Object> {
 	 */
 	private static final int RETRY_CONNECTION;
 
+	/** Level of compression of the data (if they are compressed). */
+	private static final int COMPRESSION_LEVEL;
+
 	static {
 		TIMEOUT = BigDawgConfigProperties.INSTANCE.getNetworkRequestTimeout();
 		RETRY_CONNECTION = BigDawgConfigProperties.INSTANCE
 				.getNetworkRetryConnection();
+		COMPRESSION_LEVEL = BigDawgConfigProperties.INSTANCE
+				.getNetworkDataCompressionLevel();
 	}
 
-	/** @see parameter host at {@link #send(String, int, String)} */
+	/** @see parameter host at {@link #send(String, int, String, boolean)} */
 	private String host;
 
-	/** @see parameter port at {@link #send(String, int, String)} */
+	/** @see parameter port at {@link #send(String, int, String, boolean)} */
 	private int port;
 
-	/** @see parameter filePath at {@link #send(String, int, String)} */
+	/**
+	 * @see parameter filePath at {@link #send(String, int, String, boolean)}
+	 */
 	private String filePath;
 
+	/**
+	 * @see parameter compress at {@link #send(String, int, String, boolean)}
+	 */
+	private boolean compress;
+
 	/**
 	 * Create the DataOut object that can read data from filePath and sent them
 	 * via network to the (host,port).
@@ -71,9 +82,30 @@ public class DataOut implements Callable<Object> {
 	 * @see parameter filePath at {@link #send(String, int, String)}
 	 */
 	public DataOut(String host, int port, String filePath) {
+		this(host, port, filePath, false);
+	}
+
+	/**
+	 * Create the DataOut object that can read data from filePath and sent them
+	 * (compressed or not) via network to the (host,port).
+	 * 
+	 * @see {@link #send(String, int, String, boolean)}
+	 */
+	public DataOut(String host, int port, String filePath, boolean compress) {
 		this.host = host;
 		this.port = port;
 		this.filePath = filePath;
+		this.compress = compress;
+	}
+
+	/**
+	 * Send data from this machine to a remote host without compression.
+	 * 
+	 * @see {@link #send(String, int, String, boolean)}
+	 */
+	public static DataTransferResult send(final String host, final int port,
+			final String filePath) throws IOException, InterruptedException {
+		return send(host, port, filePath, false);
 	}
 
 	/**
@@ -86,72 +118,80 @@ public class DataOut implements Callable<Object> {
 	 * @param filePath
 	 *            Full path to the file/pipe which should be transferred via
 	 *            network.
-	 * @return Total number of bytes sent via the network.
+	 * @param compress
+	 *            Should the data be compressed for the transfer? (see
+	 *            {@link DataTransfer}; the receiver learns it from the header
+	 *            of the stream).
+	 * @return Total number of bytes read from the file/pipe and sent via the
+	 *         network.
 	 * @throws IOException
 	 *             The socket for data transfer was not opened.
 	 * @throws InterruptedException
 	 */
-	public static Long send(final String host, final int port,
-			final String filePath) throws IOException, InterruptedException {
-		/* Connect with timeout. */
-		Socket socket = null;
+	public static DataTransferResult send(final String host, final int port,
+			final String filePath, final boolean compress)
+			throws IOException, InterruptedException {
+		try (SocketChannel socket = connect(host, port);
+				FileChannel in = FileChannel.open(Paths.get(filePath),
+						StandardOpenOption.READ)) {
+			long bytesOnWire = DataTransfer.writeHeader(socket,
+					compress ? DataTransfer.DEFLATE : DataTransfer.RAW);
+			long bytesPayload;
+			if (compress) {
+				long[] counts = DataTransfer.compress(in, socket,
+						COMPRESSION_LEVEL);
+				bytesPayload = counts[0];
+				bytesOnWire += counts[1];
+			} else {
+				if (Files.isRegularFile(Paths.get(filePath))) {
+					bytesPayload = DataTransfer.sendFile(in, socket);
+				} else {
+					/* the named pipe does not support zero-copy transfer */
+					bytesPayload = DataTransfer.copy(in, socket);
+				}
+				bytesOnWire += bytesPayload;
+			}
+			DataTransferResult result = new DataTransferResult(bytesPayload,
+					bytesOnWire, compress);
+			logger.debug("Data sent via network: " + result);
+			return result;
+		}
+	}
+
+	/**
+	 * Connect to the remote host (with timeout and a few retries).
+	 * 
+	 * @return the socket channel (in the blocking mode) to send the data
+	 */
+	private static SocketChannel connect(final String host, final int port)
+			throws IOException, InterruptedException {
 		logger.debug(
 				"Connection to socket with host: " + host + " port: " + port);
-		for (int trialNumber = 0; trialNumber <= RETRY_CONNECTION; ++trialNumber) {
+		for (int trialNumber = 0;; ++trialNumber) {
+			/* The socket from which we send the data. */
+			SocketChannel socket = SocketChannel.open();
 			try {
-				/* The socket from which we send the data. */
-				socket = new Socket();
 				SocketAddress sockaddr = new InetSocketAddress(host, port);
-				socket.connect(sockaddr, TIMEOUT * 3);
-				break;
-			} catch (Exception ex) {
+				socket.socket().connect(sockaddr, TIMEOUT * 3);
+				return socket;
+			} catch (IOException ex) {
 				logger.info(ex.getMessage(), ex);
-				TimeUnit.MILLISECONDS.sleep(TIMEOUT);
 				try {
 					socket.close();
 				} catch (IOException e) {
 					logger.error("Could not close (not-connected) socket. ", e);
 				}
-				if (trialNumber == RETRY_CONNECTION) {
+				if (trialNumber >= RETRY_CONNECTION) {
 					String message = "Problem with creating the socket to send data "
 							+ "via network. There were: " + RETRY_CONNECTION
 							+ " trials to reconnect.";
 					logger.error(message + " " + ex.getMessage() + " "
 							+ StackTrace.getFullStackTrace(ex), ex);
-					try {
-						socket.close();
-					} catch (IOException e) {
-						logger.error("Could not close (not-connected) socket. ",
-								e);
-					}
 					throw ex;
 				}
+				TimeUnit.MILLISECONDS.sleep(TIMEOUT);
 			}
 		}
-
-		File file = new File(filePath);
-		byte[] bytes = new byte[64 * 1024];
-		InputStream in = new BufferedInputStream(new FileInputStream(file));
-		OutputStream out = socket.getOutputStream();
-		/*
-		 * Count how many bytes were read from the stream and how many bytes
-		 * should be sent via network.
-		 */
-		int count;
-		/* Count total number of bytes sent via network. */
-		long totalCount = 0L;
-		while ((count = in.read(bytes)) > 0)
-
-		{
-			out.write(bytes, 0, count);
-			totalCount += count;
-		}
-
-		out.close();
-		in.close();
-		socket.close();
-		return totalCount;
-
 	}
 
 	/*
@@ -161,7 +201,7 @@ public class DataOut implements Callable<Object> {
 	 */
 	@Override
 	public Object call() throws Exception {
-		return send(host, port, filePath);
+		return send(host, port, filePath, compress);
 	}
 
 	/*
@@ -172,7 +212,7 @@ public class DataOut implements Callable<Object> {
 	@Override
 	public String toString() {
 		return "DataOut [host=" + host + ", port=" + port + ", filePath="
-				+ filePath + "]";
+				+ filePath + ", compress=" + compress + "]";
 	}
 
 }
@@ -0,0 +1,297 @@
+/**
+ * 
+ */
+package istc.bigdawg.network;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The format of the data stream between {@link DataOut} and {@link DataIn}.
+ *
+ * The stream starts with a single byte which denotes the mode of the transfer
+ * chosen by the sender for the migration ({@link #RAW} or {@link #DEFLATE}),
+ * so the receiver does not have to be configured in the same way.
+ *
+ * In the raw mode the data follow the header as they are. Regular files are
+ * sent and received with {@link FileChannel#transferTo(long, long,
+ * WritableByteChannel)} and
+ * {@link FileChannel#transferFrom(ReadableByteChannel, long, long)}; named
+ * pipes do not support positional transfers, so they are copied through a
+ * direct buffer.
+ *
+ * In the compressed mode the data are split into blocks and each block is
+ * sent as a frame: the size of the block (int), the size of the frame data
+ * (int) and the frame data. A block that does not get smaller after
+ * compression is sent as it is (the size of the frame data is then equal to
+ * the size of the block).
+ */
+final class DataTransfer {
+
+	/** The data are sent as they are. */
+	static final byte RAW = 0;
+
+	/** The data are sent in blocks compressed with deflate. */
+	static final byte DEFLATE = 1;
+
+	/** Size of the header of the stream (the mode of the transfer). */
+	static final int HEADER_SIZE = 1;
+
+	/** Size of the header of a frame in the compressed mode. */
+	static final int FRAME_HEADER_SIZE = 8;
+
+	/** Size of a block of data compressed in one go. */
+	static final int BLOCK_SIZE = 256 * 1024;
+
+	/** Size of the direct buffer used to copy data from/to named pipes. */
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	/** Maximum number of bytes moved by one transferTo/transferFrom call. */
+	private static final long TRANSFER_SIZE = 8L * 1024 * 1024;
+
+	private DataTransfer() {
+	}
+
+	/**
+	 * Write the header of the stream.
+	 *
+	 * @return number of bytes written
+	 */
+	static long writeHeader(WritableByteChannel out, byte mode)
+			throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.put(mode).flip();
+		writeFully(out, header);
+		return HEADER_SIZE;
+	}
+
+	/**
+	 * Read the header of the stream.
+	 *
+	 * @return the mode of the transfer ({@link #RAW} or {@link #DEFLATE})
+	 */
+	static byte readHeader(ReadableByteChannel in) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		readFully(in, header);
+		byte mode = header.get(0);
+		if (mode != RAW && mode != DEFLATE) {
+			throw new IOException(
+					"Unknown mode of the data transfer: " + mode);
+		}
+		return mode;
+	}
+
+	/**
+	 * Send the whole regular file without copying it through the user space.
+	 *
+	 * @return number of bytes sent
+	 */
+	static long sendFile(FileChannel in, WritableByteChannel out)
+			throws IOException {
+		long size = in.size();
+		long position = 0;
+		while (position < size) {
+			long count = in.transferTo(position,
+					Math.min(TRANSFER_SIZE, size - position), out);
+			if (count <= 0) {
+				/* the file was truncated in the meantime */
+				break;
+			}
+			position += count;
+		}
+		return position;
+	}
+
+	/**
+	 * Write all the data from the channel to the regular file.
+	 *
+	 * @return number of bytes received
+	 */
+	static long receiveFile(ReadableByteChannel in, FileChannel out)
+			throws IOException {
+		long position = 0;
+		long count;
+		/*
+		 * a blocking channel gives 0 bytes only at the end of the stream
+		 */
+		while ((count = out.transferFrom(in, position, TRANSFER_SIZE)) > 0) {
+			position += count;
+		}
+		return position;
+	}
+
+	/**
+	 * Copy all the data between the channels through a direct buffer (e.g.
+	 * from/to a named pipe).
+	 *
+	 * @return number of bytes copied
+	 */
+	static long copy(ReadableByteChannel in, WritableByteChannel out)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+		long total = 0;
+		while (in.read(buffer) >= 0) {
+			buffer.flip();
+			total += buffer.remaining();
+			writeFully(out, buffer);
+			buffer.clear();
+		}
+		return total;
+	}
+
+	/**
+	 * Compress the data from the input channel in blocks and send the frames
+	 * to the output channel.
+	 *
+	 * @param level
+	 *            compression level (see {@link Deflater#setLevel(int)})
+	 * @return number of bytes read from the input and number of bytes written
+	 *         to the output
+	 */
+	static long[] compress(ReadableByteChannel in, WritableByteChannel out,
+			int level) throws IOException {
+		byte[] block = new byte[BLOCK_SIZE];
+		ByteBuffer blockBuffer = ByteBuffer.wrap(block);
+		/* the frame data are used only if they are smaller than the block */
+		byte[] frame = new byte[FRAME_HEADER_SIZE + BLOCK_SIZE];
+		ByteBuffer frameBuffer = ByteBuffer.wrap(frame);
+		Deflater deflater = new Deflater(level);
+		long bytesRead = 0;
+		long bytesWritten = 0;
+		try {
+			int blockSize;
+			while ((blockSize = fill(in, blockBuffer)) > 0) {
+				bytesRead += blockSize;
+				deflater.reset();
+				deflater.setInput(block, 0, blockSize);
+				deflater.finish();
+				int frameSize = 0;
+				while (!deflater.finished() && frameSize < blockSize) {
+					frameSize += deflater.deflate(frame,
+							FRAME_HEADER_SIZE + frameSize,
+							blockSize - frameSize);
+				}
+				if (!deflater.finished() || frameSize >= blockSize) {
+					/* the data are not compressible */
+					frameSize = blockSize;
+					System.arraycopy(block, 0, frame, FRAME_HEADER_SIZE,
+							blockSize);
+				}
+				frameBuffer.clear();
+				frameBuffer.putInt(blockSize).putInt(frameSize);
+				frameBuffer.position(0).limit(FRAME_HEADER_SIZE + frameSize);
+				writeFully(out, frameBuffer);
+				bytesWritten += FRAME_HEADER_SIZE + frameSize;
+				blockBuffer.clear();
+			}
+		} finally {
+			deflater.end();
+		}
+		return new long[] { bytesRead, bytesWritten };
+	}
+
+	/**
+	 * Receive the frames from the input channel and write the decompressed
+	 * data to the output channel.
+	 *
+	 * @return number of bytes read from the input and number of bytes written
+	 *         to the output
+	 */
+	static long[] decompress(ReadableByteChannel in, WritableByteChannel out)
+			throws IOException {
+		ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+		byte[] frame = new byte[BLOCK_SIZE];
+		byte[] block = new byte[BLOCK_SIZE];
+		Inflater inflater = new Inflater();
+		long bytesRead = 0;
+		long bytesWritten = 0;
+		try {
+			while (fill(in, frameHeader) > 0) {
+				if (frameHeader.hasRemaining()) {
+					throw new EOFException(
+							"The header of a frame was not fully received.");
+				}
+				int blockSize = frameHeader.getInt(0);
+				int frameSize = frameHeader.getInt(4);
+				if (blockSize <= 0 || blockSize > BLOCK_SIZE || frameSize <= 0
+						|| frameSize > blockSize) {
+					throw new IOException("Incorrect frame (block size: "
+							+ blockSize + ", frame size: " + frameSize + ").");
+				}
+				ByteBuffer frameBuffer = ByteBuffer.wrap(frame, 0, frameSize);
+				readFully(in, frameBuffer);
+				bytesRead += FRAME_HEADER_SIZE + frameSize;
+				if (frameSize == blockSize) {
+					/* the block was not compressed */
+					writeFully(out, ByteBuffer.wrap(frame, 0, blockSize));
+				} else {
+					inflater.reset();
+					inflater.setInput(frame, 0, frameSize);
+					int size = 0;
+					while (size < blockSize && !inflater.finished()) {
+						int count = inflater.inflate(block, size,
+								blockSize - size);
+						if (count == 0 && (inflater.needsInput()
+								|| inflater.needsDictionary())) {
+							break;
+						}
+						size += count;
+					}
+					if (size != blockSize) {
+						throw new IOException("Expected " + blockSize
+								+ " bytes after decompression of a frame but got: "
+								+ size);
+					}
+					writeFully(out, ByteBuffer.wrap(block, 0, blockSize));
+				}
+				bytesWritten += blockSize;
+				frameHeader.clear();
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupted compressed data: " + e.getMessage(),
+					e);
+		} finally {
+			inflater.end();
+		}
+		return new long[] { bytesRead, bytesWritten };
+	}
+
+	/**
+	 * Read from the channel until the buffer is full or the stream ends.
+	 *
+	 * @return number of bytes read
+	 */
+	private static int fill(ReadableByteChannel in, ByteBuffer buffer)
+			throws IOException {
+		int start = buffer.position();
+		while (buffer.hasRemaining()) {
+			if (in.read(buffer) < 0) {
+				break;
+			}
+		}
+		return buffer.position() - start;
+	}
+
+	private static void readFully(ReadableByteChannel in, ByteBuffer buffer)
+			throws IOException {
+		fill(in, buffer);
+		if (buffer.hasRemaining()) {
+			throw new EOFException("The stream of data ended unexpectedly.");
+		}
+	}
+
+	private static void writeFully(WritableByteChannel out, ByteBuffer buffer)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+/**
+ * 
+ */
+package istc.bigdawg.network;
+
+import java.io.Serializable;
+
+/**
+ * Statistics of a single data transfer via network (see {@link DataOut} and
+ * {@link DataIn}).
+ */
+public class DataTransferResult implements Serializable {
+
+	/**
+	 * Determines if a de-serialized file is compatible with this class.
+	 */
+	private static final long serialVersionUID = -3826517462371640823L;
+
+	/** Number of bytes of the migrated data (before compression). */
+	private final long bytesPayload;
+
+	/** Number of bytes which were sent via network (with the header). */
+	private final long bytesOnWire;
+
+	/** Were the data compressed for the transfer? */
+	private final boolean compressed;
+
+	public DataTransferResult(long bytesPayload, long bytesOnWire,
+			boolean compressed) {
+		this.bytesPayload = bytesPayload;
+		this.bytesOnWire = bytesOnWire;
+		this.compressed = compressed;
+	}
+
+	/**
+	 * @return number of bytes of the migrated data (before compression)
+	 */
+	public long getBytesPayload() {
+		return bytesPayload;
+	}
+
+	/**
+	 * @return number of bytes which were sent via network
+	 */
+	public long getBytesOnWire() {
+		return bytesOnWire;
+	}
+
+	/**
+	 * @return true if the data were compressed for the transfer
+	 */
+	public boolean isCompressed() {
+		return compressed;
+	}
+
+	/**
+	 * @return how many times the data were smaller on the wire (1.0 if nothing
+	 *         was sent)
+	 */
+	public double getCompressionRatio() {
+		if (bytesOnWire == 0) {
+			return 1.0;
+		}
+		return (double) bytesPayload / bytesOnWire;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "DataTransferResult [bytesPayload=" + bytesPayload
+				+ ", bytesOnWire=" + bytesOnWire + ", compressed=" + compressed
+				+ "]";
+	}
+
+}
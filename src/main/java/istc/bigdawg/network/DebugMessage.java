@@ -30,6 +30,13 @@ public class DebugMessage implements NetworkObject {
 		this.message = message;
 	}
 
+	/**
+	 * @return the message to be sent via network
+	 */
+	public String getMessage() {
+		return message;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
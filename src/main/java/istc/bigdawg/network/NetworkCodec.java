@@ -0,0 +1,269 @@
+/**
+ * 
+ */
+package istc.bigdawg.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import istc.bigdawg.migration.LoadRemoteResult;
+import istc.bigdawg.migration.MigrationResult;
+
+/**
+ * Binary format of the messages sent via network (the control layer, see
+ * {@link NetworkOut} and {@link NetworkIn}).
+ *
+ * Each message starts with: the magic byte, the id of the type of the message
+ * and the version of the format of this type. The messages which are sent
+ * most often (heart beats, simple replies and results of migrations) have
+ * their own compact format; other objects (e.g. the migration requests with
+ * their exporters and loaders, exceptions) are written with the Java
+ * serialization.
+ *
+ * The id of a type must never change nor be reused. When the format of a
+ * type changes, increase its version and keep reading the older versions, so
+ * nodes with different versions of the code can still talk to each other.
+ * Messages from nodes which use the plain Java serialization are also
+ * accepted.
+ */
+public class NetworkCodec {
+
+	/** The first byte of each message. */
+	private static final byte MAGIC = (byte) 0xBD;
+
+	/** The first two bytes of the stream of the Java serialization. */
+	private static final byte[] JAVA_SERIALIZATION_MAGIC = { (byte) 0xAC,
+			(byte) 0xED };
+
+	/** Types of the messages (with the current version of their format). */
+	enum MessageType {
+		JAVA_OBJECT(0, 1, null),
+		NULL(1, 1, null),
+		HEART_BEAT(2, 1, HeartBeat.class),
+		DEBUG_MESSAGE(3, 1, DebugMessage.class),
+		BOOLEAN(4, 1, Boolean.class),
+		LONG(5, 1, Long.class),
+		STRING(6, 1, String.class),
+		MIGRATION_RESULT(7, 2, MigrationResult.class),
+		LOAD_REMOTE_RESULT(8, 1, LoadRemoteResult.class);
+
+		private final byte id;
+		private final byte version;
+		private final Class<?> messageClass;
+
+		private MessageType(int id, int version, Class<?> messageClass) {
+			this.id = (byte) id;
+			this.version = (byte) version;
+			this.messageClass = messageClass;
+		}
+
+		byte getId() {
+			return id;
+		}
+
+		byte getVersion() {
+			return version;
+		}
+	}
+
+	private static final Map<Class<?>, MessageType> typesByClass = new HashMap<>();
+
+	private static final MessageType[] typesById = new MessageType[MessageType
+			.values().length];
+
+	static {
+		for (MessageType type : MessageType.values()) {
+			if (type.messageClass != null) {
+				typesByClass.put(type.messageClass, type);
+			}
+			typesById[type.id] = type;
+		}
+	}
+
+	/**
+	 * @return the type of the message for the object (the subclasses of the
+	 *         classes with their own format are written with the Java
+	 *         serialization)
+	 */
+	static MessageType getType(Object object) {
+		if (object == null) {
+			return MessageType.NULL;
+		}
+		MessageType type = typesByClass.get(object.getClass());
+		return type == null ? MessageType.JAVA_OBJECT : type;
+	}
+
+	/**
+	 * Change Java object into bytes.
+	 *
+	 * @param object
+	 *            the message or reply (can be null)
+	 * @return the bytes to be sent via network
+	 * @throws IOException
+	 *             the object cannot be written (e.g. it is not serializable)
+	 */
+	public static byte[] encode(Object object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		MessageType type = getType(object);
+		out.writeByte(MAGIC);
+		out.writeByte(type.id);
+		out.writeByte(type.version);
+		switch (type) {
+		case NULL:
+		case HEART_BEAT:
+			break;
+		case DEBUG_MESSAGE:
+			writeString(out, ((DebugMessage) object).getMessage());
+			break;
+		case BOOLEAN:
+			out.writeBoolean((Boolean) object);
+			break;
+		case LONG:
+			out.writeLong((Long) object);
+			break;
+		case STRING:
+			writeString(out, (String) object);
+			break;
+		case MIGRATION_RESULT:
+			((MigrationResult) object).writeTo(out);
+			break;
+		case LOAD_REMOTE_RESULT:
+			((LoadRemoteResult) object).writeTo(out);
+			break;
+		case JAVA_OBJECT:
+			ObjectOutputStream objectOut = new ObjectOutputStream(out);
+			objectOut.writeObject(object);
+			objectOut.flush();
+			break;
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Change bytes into Java object.
+	 *
+	 * @param bytes
+	 *            the message received from network
+	 * @return the object (can be null)
+	 * @throws IOException
+	 *             the bytes do not represent a message (or a newer version of
+	 *             the message was received)
+	 * @throws ClassNotFoundException
+	 *             the class of the object written with Java serialization is
+	 *             not known
+	 */
+	public static Object decode(byte[] bytes)
+			throws IOException, ClassNotFoundException {
+		if (bytes.length >= 2 && bytes[0] == JAVA_SERIALIZATION_MAGIC[0]
+				&& bytes[1] == JAVA_SERIALIZATION_MAGIC[1]) {
+			/* the message from a node with the old format */
+			return readJavaObject(new ByteArrayInputStream(bytes));
+		}
+		if (bytes.length < 3 || bytes[0] != MAGIC) {
+			throw new IOException("The bytes are not a network message.");
+		}
+		int id = bytes[1];
+		if (id < 0 || id >= typesById.length) {
+			throw new IOException("Unknown type of the message: " + id);
+		}
+		MessageType type = typesById[id];
+		int version = bytes[2];
+		if (version < 1 || version > type.version) {
+			throw new IOException("The version " + version
+					+ " of the message " + type + " is not supported (the "
+					+ "current version is: " + type.version + ").");
+		}
+		ByteArrayInputStream bytesIn = new ByteArrayInputStream(bytes, 3,
+				bytes.length - 3);
+		DataInputStream in = new DataInputStream(bytesIn);
+		switch (type) {
+		case NULL:
+			return null;
+		case HEART_BEAT:
+			return new HeartBeat();
+		case DEBUG_MESSAGE:
+			return new DebugMessage(readString(in));
+		case BOOLEAN:
+			return in.readBoolean();
+		case LONG:
+			return in.readLong();
+		case STRING:
+			return readString(in);
+		case MIGRATION_RESULT:
+			return MigrationResult.readFrom(in, version);
+		case LOAD_REMOTE_RESULT:
+			return LoadRemoteResult.readFrom(in, version);
+		case JAVA_OBJECT:
+		default:
+			return readJavaObject(bytesIn);
+		}
+	}
+
+	private static Object readJavaObject(ByteArrayInputStream bytesIn)
+			throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(bytesIn)) {
+			return in.readObject();
+		}
+	}
+
+	/**
+	 * Write the string (can be null) in UTF-8.
+	 */
+	public static void writeString(DataOutput out, String value)
+			throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * @see {@link #writeString(DataOutput, String)}
+	 */
+	public static String readString(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Write the number (can be null).
+	 */
+	public static void writeLong(DataOutput out, Long value)
+			throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeLong(value);
+		}
+	}
+
+	/**
+	 * @see {@link #writeLong(DataOutput, Long)}
+	 */
+	public static Long readLong(DataInput in) throws IOException {
+		if (in.readBoolean()) {
+			return in.readLong();
+		}
+		return null;
+	}
+
+}
@@ -7,6 +7,12 @@ import static istc.bigdawg.network.NetworkUtils.THIS_HOST_ADDRESS;
 import static istc.bigdawg.network.NetworkUtils.deserialize;
 import static istc.bigdawg.network.NetworkUtils.serialize;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.log4j.Logger;
 import org.zeromq.ZMQ;
 
@@ -18,6 +24,15 @@ import istc.bigdawg.utils.StackTrace;
 /**
  * Receive a message from the network and execute the received object.
  * 
+ * The requests are received by a single ROUTER socket and executed by a pool
+ * of workers, so many requests (e.g. migrations from different nodes) can run
+ * at the same time. Each request consists of the request id (set by
+ * {@link NetworkOut}) and the serialized object; the reply is sent back with
+ * the same id. Workers do not touch the ROUTER socket (ZeroMQ sockets are not
+ * thread safe): they push the replies through an inproc socket to the thread
+ * which owns the ROUTER. The heart beat messages are answered directly by this
+ * thread, so they are not delayed by long running requests.
+ * 
  * @author Adam Dziedzic
  */
 public class NetworkIn implements Runnable {
@@ -25,80 +40,181 @@ public class NetworkIn implements Runnable {
 	/* log */
 	private static Logger log = Logger.getLogger(NetworkIn.class);
 
+	/**
+	 * How long we wait for a request or a reply before we check if the thread
+	 * was interrupted (in milliseconds).
+	 */
+	private static final int POLL_TIMEOUT = 1000;
+
+	/** To give a unique inproc address to each instance of the class. */
+	private static final AtomicInteger instanceCounter = new AtomicInteger();
+
 	public void receive() {
 		log.debug("network in: start listening for requests");
 		ZMQ.Context context = ZMQ.context(1);
 
 		// Socket to talk to clients
-		ZMQ.Socket responder = context.socket(ZMQ.REP);
+		ZMQ.Socket router = context.socket(ZMQ.ROUTER);
+		// Socket to collect the replies from the workers
+		ZMQ.Socket replies = context.socket(ZMQ.PULL);
+		String repliesAddress = "inproc://network-in-replies-"
+				+ instanceCounter.incrementAndGet();
+		ExecutorService workers = Executors.newFixedThreadPool(
+				BigDawgConfigProperties.INSTANCE.getNetworkRequestWorkers());
 		try {
 			// The * can be replaced by:
 			// BigDawgConfigProperties.INSTANCE.getGrizzlyIpAddress()
 			String fullAddress = "tcp://" + "*" + ":"
 					+ BigDawgConfigProperties.INSTANCE.getNetworkMessagePort();
 			log.debug(fullAddress);
-			responder.bind(fullAddress);
+			router.bind(fullAddress);
+			replies.bind(repliesAddress);
 
+			ZMQ.Poller poller = context.poller(2);
+			int routerIndex = poller.register(router, ZMQ.Poller.POLLIN);
+			int repliesIndex = poller.register(replies, ZMQ.Poller.POLLIN);
 			while (!Thread.currentThread().isInterrupted()) {
-				log.debug("Wait for the next request from a client ...");
-				byte[] requestBytes = responder.recv(0);
-				log.debug("New message was received!");
-				if (requestBytes == null) {
-					log.error(
-							"ZeroMQ: The message was not received properly (request bytes is null)!");
-					continue; /* go back and wait for a next message */
+				poller.poll(POLL_TIMEOUT);
+				if (poller.pollin(routerIndex)) {
+					receiveRequests(router, context, repliesAddress, workers);
 				}
-				Object requestObject = null;
-				try {
-					requestObject = deserialize(requestBytes);
-					NetworkObject requestCommand = (NetworkObject) requestObject;
-					Object result = requestCommand.execute();
-					// Send reply back
-					boolean isSuccess = responder.send(serialize(result), 0);
-					if (!isSuccess) {
-						log.error(
-								"ZeroMQ: The response was not sent properly!");
-					}
-					log.debug("The request was processed.");
-				} catch (Exception ex) {
-					log.debug(
-							"Add information about remote host where the error happened.");
-					String message = " The request command could not be executed on the remote server (host: "
-							+ THIS_HOST_ADDRESS + "; "
-							+ BigDawgConfigProperties.INSTANCE
-									.getGrizzlyIpAddress()
-							+ "). " + ex.getMessage();
-					Exception e = new Exception(ex.getMessage() + message);
-					handleException(message, e, responder);
+				if (poller.pollin(repliesIndex)) {
+					forwardReplies(replies, router);
 				}
 			}
 		} finally {
-			responder.close();
+			workers.shutdownNow();
+			router.close();
+			replies.close();
 			context.term();
 		}
 	}
 
+	/**
+	 * Take all the requests which are waiting in the router socket and pass
+	 * them to the workers (heart beats are answered at once).
+	 */
+	private void receiveRequests(ZMQ.Socket router, ZMQ.Context context,
+			String repliesAddress, ExecutorService workers) {
+		List<byte[]> frames;
+		while ((frames = receiveMessage(router)) != null) {
+			log.debug("New message was received!");
+			if (frames.size() != 3) {
+				log.error("ZeroMQ: The message was not received properly "
+						+ "(expected: identity, request id and request, "
+						+ "but the number of frames is: " + frames.size()
+						+ ")!");
+				continue; /* go back and wait for a next message */
+			}
+			byte[] identity = frames.get(0);
+			byte[] requestId = frames.get(1);
+			NetworkObject requestCommand;
+			try {
+				requestCommand = (NetworkObject) deserialize(frames.get(2));
+			} catch (Exception ex) {
+				sendMessage(router, identity, requestId, handleException(ex));
+				continue;
+			}
+			if (requestCommand instanceof HeartBeat) {
+				sendMessage(router, identity, requestId,
+						execute(requestCommand));
+				continue;
+			}
+			workers.submit(() -> {
+				byte[] reply = execute(requestCommand);
+				ZMQ.Socket pusher = null;
+				try {
+					pusher = context.socket(ZMQ.PUSH);
+					pusher.connect(repliesAddress);
+					sendMessage(pusher, identity, requestId, reply);
+				} catch (RuntimeException e) {
+					/* e.g. the context was terminated in the meantime */
+					log.error("The reply could not be passed back: "
+							+ e.getMessage() + " "
+							+ StackTrace.getFullStackTrace(e), e);
+				} finally {
+					if (pusher != null) {
+						pusher.close();
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Send the replies pushed by the workers back to the clients.
+	 */
+	private void forwardReplies(ZMQ.Socket replies, ZMQ.Socket router) {
+		List<byte[]> frames;
+		while ((frames = receiveMessage(replies)) != null) {
+			sendMessage(router, frames.get(0), frames.get(1), frames.get(2));
+			log.debug("The request was processed.");
+		}
+	}
+
+	/**
+	 * Execute the request and serialize its result (or the exception).
+	 */
+	private byte[] execute(NetworkObject requestCommand) {
+		try {
+			Object result = requestCommand.execute();
+			return serialize(result);
+		} catch (Exception ex) {
+			return handleException(ex);
+		}
+	}
+
+	/**
+	 * @return all frames of the next message in the socket or null if there
+	 *         is no message waiting
+	 */
+	private static List<byte[]> receiveMessage(ZMQ.Socket socket) {
+		byte[] frame = socket.recv(ZMQ.DONTWAIT);
+		if (frame == null) {
+			return null;
+		}
+		List<byte[]> frames = new ArrayList<>();
+		frames.add(frame);
+		while (socket.hasReceiveMore()) {
+			frames.add(socket.recv(0));
+		}
+		return frames;
+	}
+
+	private static void sendMessage(ZMQ.Socket socket, byte[] identity,
+			byte[] requestId, byte[] reply) {
+		boolean isSuccess = socket.send(identity, ZMQ.SNDMORE)
+				&& socket.send(requestId, ZMQ.SNDMORE)
+				&& socket.send(reply, 0);
+		if (!isSuccess) {
+			log.error("ZeroMQ: The response was not sent properly!");
+		}
+	}
+
 	/**
 	 * Handler the exception from the network.
 	 * 
-	 * @param message
 	 * @param ex
-	 * @param responder
+	 *            the exception thrown by the request
+	 * @return the serialized exception (or only its message if the exception
+	 *         cannot be serialized) to be sent back to the client
 	 */
-	private void handleException(String message, Exception ex,
-			ZMQ.Socket responder) {
+	private byte[] handleException(Exception ex) {
+		log.debug(
+				"Add information about remote host where the error happened.");
+		String message = " The request command could not be executed on the remote server (host: "
+				+ THIS_HOST_ADDRESS + "; "
+				+ BigDawgConfigProperties.INSTANCE.getGrizzlyIpAddress()
+				+ "). " + ex.getMessage();
+		Exception e = new Exception(ex.getMessage() + message);
 		byte[] exBytes = message.getBytes();
 		/* try to send the exception message */
 		try {
-			exBytes = serialize(ex);
+			exBytes = serialize(e);
 		} catch (NetworkException exSerialize) {
 			log.error(StackTrace.getFullStackTrace(exSerialize));
 		}
-		boolean isSuccess = responder.send(exBytes, 0);
-		if (!isSuccess) {
-			log.error(
-					"ZeroMQ: The response (from NetworkException) was not sent properly!");
-		}
+		return exBytes;
 	}
 
 	/*
@@ -8,6 +8,17 @@ import static istc.bigdawg.network.NetworkUtils.deserialize;
 import static istc.bigdawg.network.NetworkUtils.serialize;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 import org.zeromq.ZMQ;
@@ -19,6 +30,18 @@ import istc.bigdawg.properties.BigDawgConfigProperties;
 /**
  * Send message (out via the network) to another host.
  * 
+ * The connections are reused: each remote host has a pool of connected DEALER
+ * sockets; a socket is taken from the pool for a single request and returned
+ * when the reply is received, so many threads can send requests to the same
+ * host at the same time (they are executed concurrently by
+ * {@link NetworkIn}). Each request carries a unique id and the reply with a
+ * different id (e.g. a late reply to a request that timed out) is dropped.
+ * 
+ * The pool and the context are guarded by the class lock. A socket is pooled
+ * again only if it was created in the current context, so the sockets of the
+ * requests which were still running when {@link #close()} was called are
+ * closed by their threads (this lets the old context terminate).
+ * 
  * @author Adam Dziedzic
  */
 public class NetworkOut {
@@ -26,6 +49,21 @@ public class NetworkOut {
 	/* log */
 	private static Logger log = Logger.getLogger(NetworkOut.class);
 
+	/** How many idle sockets are kept for a single remote host. */
+	private static final int MAX_IDLE_SOCKETS = 4;
+
+	/** The source of unique ids of the requests. */
+	private static final AtomicLong requestCounter = new AtomicLong();
+
+	/** The context shared by all the sockets (created on the first use). */
+	private static ZMQ.Context context = null;
+
+	/** Connected sockets which wait to be reused (per remote address). */
+	private static final Map<String, Queue<ZMQ.Socket>> idleSockets = new HashMap<>();
+
+	/** The sockets of the current context which are used by the requests. */
+	private static final Set<ZMQ.Socket> busySockets = new HashSet<>();
+
 	/**
 	 * Send the java object to the specified host.
 	 * 
@@ -47,14 +85,12 @@ public class NetworkOut {
 	 */
 	public static Object send(NetworkObject object, String host)
 			throws NetworkException {
-		ZMQ.Context context = ZMQ.context(1);
-		ZMQ.Socket requester = context.socket(ZMQ.REQ);
 		String fullAddress = host + ":"
 				+ BigDawgConfigProperties.INSTANCE.getNetworkMessagePort();
+		ZMQ.Socket requester = takeSocket(fullAddress);
+		/* the socket is returned to the pool only if the reply was received */
+		boolean isReusable = false;
 		try {
-			requester.setLinger(TIMEOUT);
-			log.debug("Connecting to host: " + fullAddress);
-			requester.connect("tcp://" + fullAddress);
 			/*
 			 * first check if the connection is active before sending the real
 			 * object (the heart beat message is used)
@@ -85,12 +121,84 @@ public class NetworkOut {
 							+ fullAddress);
 
 			Object reply = sendWaitForReply(object, requester, timeout);
+			isReusable = true;
 			log.debug("Reply was received from: " + fullAddress);
 			log.debug("Reply content: " + reply);
 			return reply;
 		} finally {
-			requester.close();
-			context.term();
+			releaseSocket(fullAddress, requester, isReusable);
+		}
+	}
+
+	/**
+	 * Take an idle socket connected to the address or create a new one.
+	 */
+	private static synchronized ZMQ.Socket takeSocket(String fullAddress) {
+		Queue<ZMQ.Socket> sockets = idleSockets.get(fullAddress);
+		ZMQ.Socket requester = sockets == null ? null : sockets.poll();
+		if (requester == null) {
+			requester = getContext().socket(ZMQ.DEALER);
+			requester.setLinger(TIMEOUT);
+			log.debug("Connecting to host: " + fullAddress);
+			requester.connect("tcp://" + fullAddress);
+		}
+		busySockets.add(requester);
+		return requester;
+	}
+
+	/**
+	 * Return the socket to the pool or close it (if there are enough idle
+	 * sockets for the address, the socket is not in a clean state or the
+	 * context of the socket was closed in the meantime).
+	 */
+	private static void releaseSocket(String fullAddress, ZMQ.Socket socket,
+			boolean isReusable) {
+		synchronized (NetworkOut.class) {
+			if (busySockets.remove(socket) && isReusable) {
+				Queue<ZMQ.Socket> sockets = idleSockets.computeIfAbsent(
+						fullAddress, address -> new ArrayDeque<>());
+				if (sockets.size() < MAX_IDLE_SOCKETS) {
+					sockets.add(socket);
+					return;
+				}
+			}
+		}
+		socket.close();
+	}
+
+	private static synchronized ZMQ.Context getContext() {
+		if (context == null) {
+			context = ZMQ.context(1);
+		}
+		return context;
+	}
+
+	/**
+	 * Close all the idle connections and release the ZeroMQ context (the
+	 * requests which are still waiting for replies are interrupted).
+	 * 
+	 * The context is terminated outside of the class lock: the termination
+	 * waits until the interrupted requests close their sockets in
+	 * {@link #releaseSocket(String, ZMQ.Socket, boolean)}.
+	 */
+	public static void close() {
+		ZMQ.Context closedContext;
+		List<ZMQ.Socket> closedSockets = new ArrayList<>();
+		synchronized (NetworkOut.class) {
+			for (Queue<ZMQ.Socket> sockets : idleSockets.values()) {
+				closedSockets.addAll(sockets);
+			}
+			idleSockets.clear();
+			/* the sockets in use are closed by the requests */
+			busySockets.clear();
+			closedContext = context;
+			context = null;
+		}
+		for (ZMQ.Socket socket : closedSockets) {
+			socket.close();
+		}
+		if (closedContext != null) {
+			closedContext.term();
 		}
 	}
 
@@ -113,23 +221,46 @@ public class NetworkOut {
 	 */
 	private static Object sendWaitForReply(Object object, ZMQ.Socket requester,
 			int timeout) throws NetworkException {
-		boolean isSuccess = requester.send(serialize(object), 0);
+		long requestId = requestCounter.incrementAndGet();
+		byte[] requestIdBytes = ByteBuffer.allocate(Long.BYTES)
+				.putLong(requestId).array();
+		boolean isSuccess = requester.send(requestIdBytes, ZMQ.SNDMORE)
+				&& requester.send(serialize(object), 0);
 		if (!isSuccess) {
 			String message = "The message " + object.toString()
 					+ " could not be sent!";
 			log.error(message);
 			throw new NetworkException(message);
 		}
-		requester.setReceiveTimeOut(timeout);
-		byte[] replyBytes = requester.recv(0);
-		if (replyBytes == null) {
-			String message = "No reply was received (the message was sent: "
-					+ object.toString() + "). The default timeout is: "
-					+ TIMEOUT + " ms.";
-			log.error(message);
-			throw new NetworkException(message);
+		long deadline = System.currentTimeMillis() + timeout;
+		while (true) {
+			int waitTime = timeout;
+			if (timeout >= 0) {
+				waitTime = (int) Math.max(0,
+						deadline - System.currentTimeMillis());
+			}
+			requester.setReceiveTimeOut(waitTime);
+			byte[] replyIdBytes = requester.recv(0);
+			if (replyIdBytes == null) {
+				String message = "No reply was received (the message was sent: "
+						+ object.toString() + "). The default timeout is: "
+						+ TIMEOUT + " ms.";
+				log.error(message);
+				throw new NetworkException(message);
+			}
+			byte[] replyBytes = null;
+			while (requester.hasReceiveMore()) {
+				replyBytes = requester.recv(0);
+			}
+			if (replyBytes != null && Arrays.equals(requestIdBytes,
+					replyIdBytes)) {
+				return deserialize(replyBytes);
+			}
+			log.debug("Drop the reply to an old request (id: "
+					+ (replyIdBytes.length == Long.BYTES
+							? ByteBuffer.wrap(replyIdBytes).getLong() : "?")
+					+ ", expected id: " + requestId + ").");
 		}
-		return deserialize(replyBytes);
 	}
 
 	public static void main(String[] args)
@@ -3,13 +3,7 @@
  */
 package istc.bigdawg.network;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
@@ -57,20 +51,16 @@ public class NetworkUtils {
 	 * @throws NetworkException
 	 */
 	public static byte[] serialize(Object object) throws NetworkException {
-		ByteArrayOutputStream binOut = new ByteArrayOutputStream();
-		ObjectOutput out;
 		try {
-			out = new ObjectOutputStream(binOut);
-			out.writeObject(object);
+			return NetworkCodec.encode(object);
 		} catch (IOException ex) {
 			ex.printStackTrace();
-			String message = "The object " + object.toString()
+			String message = "The object " + object
 					+ " could not be serialized. (host: " + THIS_HOST_ADDRESS
 					+ "). " + ex.getMessage();
 			log.error(message + " " + StackTrace.getFullStackTrace(ex), ex);
 			throw new NetworkException(message);
 		}
-		return binOut.toByteArray();
 	}
 
 	/**
@@ -81,11 +71,8 @@ public class NetworkUtils {
 	 * @throws NetworkException
 	 */
 	public static Object deserialize(byte[] bytes) throws NetworkException {
-		ByteArrayInputStream binIn = new ByteArrayInputStream(bytes);
-		ObjectInput in;
 		try {
-			in = new ObjectInputStream(binIn);
-			return in.readObject();
+			return NetworkCodec.decode(bytes);
 		} catch (IOException | ClassNotFoundException ex) {
 			ex.printStackTrace();
 			String message = "The bytes given (bytes: " + bytes.toString()
@@ -0,0 +1,270 @@
+package istc.bigdawg.planner;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.log4j.Logger;
+
+import istc.bigdawg.executor.plan.ExecutionNode;
+import istc.bigdawg.executor.plan.QueryExecutionPlan;
+import istc.bigdawg.migration.MigrationStatistics;
+import istc.bigdawg.monitoring.Monitor;
+import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
+import istc.bigdawg.postgresql.PostgreSQLHandler;
+import istc.bigdawg.properties.BigDawgConfigProperties;
+import istc.bigdawg.query.ConnectionInfo;
+
+/**
+ * Estimates how long a {@link QueryExecutionPlan} takes, so that the planner
+ * can choose among the plans of an island query without running them first
+ * (as the training mode of the {@link Monitor} does).
+ *
+ * The estimate is the critical path of the plan: a node starts when the last
+ * of its dependencies has been computed and migrated to the node's engine.
+ * <ul>
+ * <li>The local cost of a node and the size of its result come from the
+ * engine's own planner where possible (EXPLAIN in PostgreSQL); the result of
+ * a node whose inputs are produced by other nodes is assumed to be as large
+ * as its largest input.</li>
+ * <li>The cost of a migration is the number of rows of the migrated result
+ * divided by the throughput (in rows) measured for the pair of engines (the
+ * migrationstats table of the monitor records rows, not bytes) plus a fixed
+ * overhead.</li>
+ * </ul>
+ */
+public enum PlanCostModel {
+
+	INSTANCE;
+
+	private static Logger logger = Logger.getLogger(PlanCostModel.class);
+
+	/** Time (in ms) of one unit of the PostgreSQL planner cost. */
+	public static final double MS_PER_POSTGRES_COST_UNIT = 0.01;
+
+	/** Rows of a result that the engine cannot estimate. */
+	public static final double DEFAULT_ROWS = 1000;
+
+	/** Rows processed per ms by an engine without an estimate of its own. */
+	public static final double DEFAULT_LOCAL_ROWS_PER_MS = 100;
+
+	/** Rows migrated per ms between engines without measured migrations. */
+	public static final double DEFAULT_MIGRATION_ROWS_PER_MS = 20;
+
+	/** Fixed cost (in ms) of a migration: creating and dropping the table. */
+	public static final double MIGRATION_OVERHEAD_MS = 200;
+
+	private static final Pattern POSTGRES_ESTIMATE = Pattern
+			.compile("cost=[0-9.]+\\.\\.([0-9.]+) rows=([0-9]+)");
+
+	/** The estimated result of a node. */
+	private static class Estimate {
+		private final double rows;
+		private final double ms;
+
+		private Estimate(double rows, double ms) {
+			this.rows = rows;
+			this.ms = ms;
+		}
+	}
+
+	private static class Throughput {
+		private final double rowsPerMs;
+		private final long loadedAt;
+
+		private Throughput(double rowsPerMs) {
+			this.rowsPerMs = rowsPerMs;
+			this.loadedAt = System.currentTimeMillis();
+		}
+	}
+
+	private final ConcurrentHashMap<Pair<String, String>, Throughput> throughputs = new ConcurrentHashMap<>();
+
+	/**
+	 * @param qeps
+	 *            the alternative plans of an island query
+	 * @return index of the plan with the lowest estimated cost (0 if there is
+	 *         no plan to choose from)
+	 */
+	public int pickCheapest(List<QueryExecutionPlan> qeps) {
+		if (qeps.size() <= 1) {
+			return 0;
+		}
+		// the plans share most of their nodes (e.g. the containers)
+		Map<Pair<ConnectionInfo, String>, Estimate> explained = new HashMap<>();
+		int choice = 0;
+		double minCost = Double.MAX_VALUE;
+		for (int i = 0; i < qeps.size(); i++) {
+			double cost = estimate(qeps.get(i), explained);
+			logger.debug(String.format("Estimated cost of plan %d: %.1f ms", i,
+					cost));
+			if (cost < minCost) {
+				minCost = cost;
+				choice = i;
+			}
+		}
+		return choice;
+	}
+
+	/**
+	 * @param qep
+	 *            the plan to evaluate
+	 * @return estimated time (in ms) to execute the plan
+	 */
+	public double estimate(QueryExecutionPlan qep) {
+		return estimate(qep, new HashMap<>());
+	}
+
+	private double estimate(QueryExecutionPlan qep,
+			Map<Pair<ConnectionInfo, String>, Estimate> explained) {
+		Map<ExecutionNode, Double> rows = new HashMap<>();
+		Map<ExecutionNode, Double> finish = new HashMap<>();
+		double total = 0;
+		// the plan iterates in the topological order
+		for (ExecutionNode node : qep) {
+			double start = 0;
+			double inputRows = 0;
+			for (ExecutionNode dependency : qep.getDependencies(node)) {
+				double ready = finish.get(dependency);
+				double dependencyRows = rows.get(dependency);
+				if (!dependency.getEngine().equals(node.getEngine())) {
+					ready += getMigrationTime(dependency.getEngine(),
+							node.getEngine(), dependencyRows);
+				}
+				start = Math.max(start, ready);
+				inputRows = Math.max(inputRows, dependencyRows);
+			}
+			Estimate estimate = null;
+			if (inputRows == 0) {
+				estimate = explain(node, explained);
+			}
+			if (estimate == null) {
+				double nodeRows = inputRows > 0 ? inputRows
+						: DEFAULT_ROWS;
+				estimate = new Estimate(nodeRows,
+						nodeRows / DEFAULT_LOCAL_ROWS_PER_MS);
+			}
+			rows.put(node, estimate.rows);
+			finish.put(node, start + estimate.ms);
+			total = Math.max(total, start + estimate.ms);
+		}
+		return total;
+	}
+
+	/**
+	 * Ask the engine of the node for its estimate of the query of the node
+	 * (only PostgreSQL, the other engines return null).
+	 */
+	private Estimate explain(ExecutionNode node,
+			Map<Pair<ConnectionInfo, String>, Estimate> explained) {
+		if (!(node.getEngine() instanceof PostgreSQLConnectionInfo)
+				|| !node.getQueryString().isPresent()) {
+			return null;
+		}
+		Pair<ConnectionInfo, String> key = new ImmutablePair<>(
+				node.getEngine(), node.getQueryString().get());
+		if (explained.containsKey(key)) {
+			return explained.get(key);
+		}
+		Estimate estimate = null;
+		try (Connection con = PostgreSQLHandler.getConnection(node.getEngine());
+				Statement st = con.createStatement();
+				ResultSet rs = st.executeQuery(
+						"EXPLAIN " + node.getQueryString().get())) {
+			// the first line describes the root of the plan
+			if (rs.next()) {
+				Matcher m = POSTGRES_ESTIMATE.matcher(rs.getString(1));
+				if (m.find()) {
+					estimate = new Estimate(Double.parseDouble(m.group(2)),
+							Double.parseDouble(m.group(1))
+									* MS_PER_POSTGRES_COST_UNIT);
+				}
+			}
+		} catch (SQLException e) {
+			logger.debug("Cannot estimate the cost of " + node + ": "
+					+ e.getMessage());
+		}
+		explained.put(key, estimate);
+		return estimate;
+	}
+
+	/**
+	 * @return estimated time (in ms) to migrate the rows between the engines
+	 */
+	private double getMigrationTime(ConnectionInfo from, ConnectionInfo to,
+			double rows) {
+		return MIGRATION_OVERHEAD_MS + rows / getMigrationThroughput(from, to);
+	}
+
+	/**
+	 * @return number of rows migrated per ms between the engines, measured
+	 *         by the previous migrations
+	 */
+	private double getMigrationThroughput(ConnectionInfo from,
+			ConnectionInfo to) {
+		Pair<String, String> key = new ImmutablePair<>(from.getUrl(),
+				to.getUrl());
+		Throughput throughput = throughputs.get(key);
+		if (throughput == null || System.currentTimeMillis()
+				- throughput.loadedAt > BigDawgConfigProperties.INSTANCE
+						.getCatalogCacheTtl()) {
+			throughput = new Throughput(loadMigrationThroughput(from, to));
+			throughputs.put(key, throughput);
+		}
+		return throughput.rowsPerMs;
+	}
+
+	private double loadMigrationThroughput(ConnectionInfo from,
+			ConnectionInfo to) {
+		try {
+			return getMigrationThroughput(
+					new Monitor().getMigrationStats(from, to));
+		} catch (Exception e) {
+			logger.debug("No migration statistics from " + from.getUrl()
+					+ " to " + to.getUrl() + ": " + e.getMessage());
+			return DEFAULT_MIGRATION_ROWS_PER_MS;
+		}
+	}
+
+	/**
+	 * @param migrations
+	 *            statistics of the previous migrations between two engines
+	 * @return number of rows migrated per ms by the migrations (the default
+	 *         if none of them migrated any rows)
+	 */
+	static double getMigrationThroughput(List<MigrationStatistics> migrations) {
+		long migratedRows = 0;
+		long duration = 0;
+		for (MigrationStatistics stats : migrations) {
+			Long count = stats.getCountLoadedElements() != null
+					? stats.getCountLoadedElements()
+					: stats.getCountExtractedElements();
+			long ms = stats.getEndTimeMigration()
+					- stats.getStartTimeMigration();
+			if (stats.getStartTimeMigration() < ms) {
+				/*
+				 * some migrations used to record their duration as the start
+				 * time and their start time as the end time
+				 */
+				ms = stats.getStartTimeMigration();
+			}
+			if (count != null && count > 0 && ms > 0) {
+				migratedRows += count;
+				duration += ms;
+			}
+		}
+		if (migratedRows == 0) {
+			return DEFAULT_MIGRATION_ROWS_PER_MS;
+		}
+		return (double) migratedRows / duration;
+	}
+}
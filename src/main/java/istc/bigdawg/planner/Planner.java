@@ -1,23 +1,36 @@
 package istc.bigdawg.planner;
 
+import java.io.IOException;
+import java.sql.SQLException;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.log4j.Logger;
+import org.jgrapht.Graphs;
 import org.mortbay.log.Log;
 
+import com.jcabi.log.VerboseThreads;
+
 import istc.bigdawg.cast.CastOverseer;
 import istc.bigdawg.catalog.CatalogModifier;
 import istc.bigdawg.catalog.CatalogUtilities;
 import istc.bigdawg.exceptions.BigDawgException;
 import istc.bigdawg.executor.Executor;
 import istc.bigdawg.executor.QueryResult;
+import istc.bigdawg.executor.StreamingQueryResult;
 import istc.bigdawg.executor.plan.QueryExecutionPlan;
 import istc.bigdawg.islands.CrossIslandCast;
 import istc.bigdawg.islands.CrossIslandNonOperatorNode;
@@ -34,6 +47,8 @@ public class Planner {
 	private static final double SIGNATURE_DISTANCE = .05;
 
 	private static Logger logger = Logger.getLogger(Planner.class);
+	
+	private static final ExecutorService crossIslandThreadPool = Executors.newCachedThreadPool(new VerboseThreads());
 
 	
 	private static Response processCatalogQuery(String input) throws Exception {
@@ -56,43 +71,89 @@ public class Planner {
 	
 
 	
-	private static Set<CrossIslandQueryNode> processCrossIslandPlanNodes (
+	/**
+	 * Execute all the nodes of the cross island plan except the terminal one. 
+	 * A node starts as soon as all the nodes it depends on are done, so the 
+	 * independent subqueries and casts (e.g. on different engines) run concurrently 
+	 * and the time taken follows the longest chain of the plan. If a node fails, 
+	 * the nodes that have not started yet are skipped and the first failure is thrown.
+	 * 
+	 * @param ciqp
+	 * @param connectionInfoMap
+	 * @param tempTableInfo
+	 * @param objectsToDelete
+	 * @throws Exception
+	 */
+	private static void processCrossIslandPlanNodes (
 			CrossIslandQueryPlan ciqp, 
-			Set<CrossIslandQueryNode> entryNodes,  
 			Map<CrossIslandQueryNode, ConnectionInfo> connectionInfoMap, 
 			Map<ConnectionInfo, Collection<String>> tempTableInfo, 
 			Set<Integer> objectsToDelete) throws Exception {
 		
-		Set<CrossIslandQueryNode> nextNodes = new HashSet<>();
-		for (CrossIslandQueryNode node : entryNodes) {
-
-			// If we arrive at a terminalNode, skip and process later
+		Map<CrossIslandQueryNode, CompletableFuture<Void>> futures = new HashMap<>();
+		AtomicReference<Exception> failure = new AtomicReference<>();
+		
+		// the plan iterates in the topological order, the dependencies come first
+		for (CrossIslandQueryNode node : ciqp) {
+			
+			// the terminalNode is processed later
 			if (node == ciqp.getTerminalNode()) {
 				continue;
 			}
-
-			if (node instanceof CrossIslandCast) {
-				// Todo: move this code block to a function
-				// we make the assumption that there is no chain CASTing
-				// we also assume that the user does not directly cast an object 
-				// throw new Exception("Unimplemented feature: CAST");
-				
-				CrossIslandCast castNode = ((CrossIslandCast) node);
-
-				IntraIslandQuery source = (IntraIslandQuery) castNode.getSourceVertex(ciqp);
-				IntraIslandQuery target = (IntraIslandQuery) castNode.getTargetVertex(ciqp);
-
-
-				// get the target, and pick destination -- default location
-				
-				
-				
-				int oid = CastOverseer.cast(castNode, source, target, connectionInfoMap, tempTableInfo);
-				
-				
-				
-
-				// add the temporary objects to be deleted
+			
+			CompletableFuture<?>[] dependencies = Graphs.predecessorListOf(ciqp, node).stream()
+					.map(futures::get).toArray(CompletableFuture[]::new);
+			
+			futures.put(node, CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+				if (failure.get() != null) {
+					throw new CancellationException("Cross island query " + ciqp.getSerial() + " has failed");
+				}
+				try {
+					processCrossIslandPlanNode(ciqp, node, connectionInfoMap, tempTableInfo, objectsToDelete);
+				} catch (Exception e) {
+					failure.compareAndSet(null, e);
+					throw new CompletionException(e);
+				}
+			}, crossIslandThreadPool));
+		}
+		
+		try {
+			CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[futures.size()])).join();
+		} catch (CompletionException | CancellationException e) {
+			if (failure.get() != null) throw failure.get();
+			throw new BigDawgException("Cross island query " + ciqp.getSerial() + " has failed: " + e.getMessage(), e);
+		}
+	}
+	
+	private static void processCrossIslandPlanNode (
+			CrossIslandQueryPlan ciqp, 
+			CrossIslandQueryNode node,  
+			Map<CrossIslandQueryNode, ConnectionInfo> connectionInfoMap, 
+			Map<ConnectionInfo, Collection<String>> tempTableInfo, 
+			Set<Integer> objectsToDelete) throws Exception {
+		
+		if (node instanceof CrossIslandCast) {
+			// Todo: move this code block to a function
+			// we make the assumption that there is no chain CASTing
+			// we also assume that the user does not directly cast an object 
+			// throw new Exception("Unimplemented feature: CAST");
+			
+			CrossIslandCast castNode = ((CrossIslandCast) node);
+
+			IntraIslandQuery source = (IntraIslandQuery) castNode.getSourceVertex(ciqp);
+			IntraIslandQuery target = (IntraIslandQuery) castNode.getTargetVertex(ciqp);
+
+
+			// get the target, and pick destination -- default location
+			
+			
+			
+			int oid = CastOverseer.cast(castNode, source, target, connectionInfoMap, tempTableInfo);
+			
+			
+			
+
+			// add the temporary objects to be deleted
 //				if (!tempTableInfo.containsKey(connectionInfoMap.get(source))) {
 //					tempTableInfo.put(connectionInfoMap.get(source), new HashSet<>());
 //				}
@@ -103,45 +164,57 @@ public class Planner {
 //				tempTableInfo.get(targetConnInfo).add(remoteName);
 
 
-				// add catalog entry of the temp table, add to catalog set of destruction
-				// unsafe use of ""
-				objectsToDelete.add(oid); // find the correct DBID for source
-
-				// add target to the next gen
-				nextNodes.add(target);
+			// add catalog entry of the temp table, add to catalog set of destruction
+			// unsafe use of ""
+			objectsToDelete.add(oid); // find the correct DBID for source
 
-				// remove source from connectionInfoMap
-				connectionInfoMap.remove(source);
+			// remove source from connectionInfoMap
+			connectionInfoMap.remove(source);
 
-			} else if (node instanceof IntraIslandQuery) {
+		} else if (node instanceof IntraIslandQuery) {
 
-				// Todo: move this block to a separate function
-				// business as usual
-				IntraIslandQuery ciqn = (IntraIslandQuery) node;
+			// Todo: move this block to a separate function
+			// business as usual
+			IntraIslandQuery ciqn = (IntraIslandQuery) node;
 
-				// TODO make hte best choice of permutation. We postpone this to the next release, 0.2 
-				// int choice = getGetPerformanceAndPickTheBest(ciqn, isTrainingMode);
-				int choice = 0;
+			// pick the permutation with the lowest estimated cost
+			List<QueryExecutionPlan> qeps = ciqn.getAllQEPs(false);
+			int choice = PlanCostModel.INSTANCE.pickCheapest(qeps);
 
-				// currently there should be just one island, therefore one child, root.
-				QueryExecutionPlan qep = ((IntraIslandQuery) node).getQEP(choice, false);
+			// currently there should be just one island, therefore one child, root.
+			QueryExecutionPlan qep = qeps.get(choice);
 
-				// EXECUTE THE RESULT SUB RESULT
-				logger.debug("Executing query cross-island subquery " + node + "...");
-				connectionInfoMap.put(node, Executor.executePlan(qep, ciqn.getSignature(), choice).getConnectionInfo());
+			// EXECUTE THE RESULT SUB RESULT
+			logger.debug("Executing query cross-island subquery " + node + "...");
+			connectionInfoMap.put(node, Executor.executePlan(qep, ciqn.getSignature(), choice).getConnectionInfo());
 
-			} else if (node instanceof CrossIslandNonOperatorNode) {
-				connectionInfoMap.put(node, IslandAndCastResolver.runOperatorFreeIslandQuery((CrossIslandNonOperatorNode) node).getConnectionInfo());
-			} else {
-				throw new BigDawgException("Planner::processQuery has unimplemented Cross Island Plan Node: " + node.getClass().getSimpleName());
-			}
-			// add the child node to nextGen
-			nextNodes.add(node.getTargetVertex(ciqp));
+		} else if (node instanceof CrossIslandNonOperatorNode) {
+			connectionInfoMap.put(node, IslandAndCastResolver.runOperatorFreeIslandQuery((CrossIslandNonOperatorNode) node).getConnectionInfo());
+		} else {
+			throw new BigDawgException("Planner::processQuery has unimplemented Cross Island Plan Node: " + node.getClass().getSimpleName());
 		}
-		return nextNodes;
 	}
 	
 	public static Response processQuery(String userinput, boolean isTrainingMode) throws Exception {
+		return processQuery(userinput, isTrainingMode, null);
+	}
+
+	/**
+	 * Process the query. If streamFormat is given, the result of a relational
+	 * terminal node is not read into memory: the response entity streams the
+	 * rows to the client in the given format while they are fetched from the
+	 * database, and the temporary objects of the query are removed once the
+	 * stream has been written.
+	 * 
+	 * @param userinput
+	 * @param isTrainingMode
+	 * @param streamFormat
+	 *            format of the streamed result, or null to build the whole
+	 *            result in memory
+	 * @return the response for the client
+	 * @throws Exception
+	 */
+	public static Response processQuery(String userinput, boolean isTrainingMode, StreamingQueryResult.Format streamFormat) throws Exception {
 		
 		String input = userinput.replaceAll("[\n]", "").replaceAll("[ \t]+", " ");
 		
@@ -153,7 +226,7 @@ public class Planner {
 		if (r != null) return r;
 
 		// Track the temporary objects and table info for later deletion
-		Set<Integer> objectsToDelete = new HashSet<>();
+		Set<Integer> objectsToDelete = ConcurrentHashMap.newKeySet();
 
 		// Create cross island query plan (ciqp)
 		CrossIslandQueryPlan ciqp = new CrossIslandQueryPlan(input, objectsToDelete);
@@ -164,13 +237,10 @@ public class Planner {
 				"; #edges: " + ciqp.edgeSet().size() + "; ciqp: " + ciqp.toString());
 
 		// Traverse the graph and run the execution plans
-		Set<CrossIslandQueryNode> entryNodes = new HashSet<>(ciqp.getEntryNodes());
-		Map<CrossIslandQueryNode, ConnectionInfo> connectionInfoMap = new HashMap<>();
-		Map<ConnectionInfo, Collection<String>> tempTableInfo = new HashMap<>();
+		Map<CrossIslandQueryNode, ConnectionInfo> connectionInfoMap = new ConcurrentHashMap<>();
+		Map<ConnectionInfo, Collection<String>> tempTableInfo = new ConcurrentHashMap<>();
 		try {
-			while (!entryNodes.isEmpty()) {
-				entryNodes = processCrossIslandPlanNodes(ciqp, entryNodes, connectionInfoMap, tempTableInfo, objectsToDelete);
-			}
+			processCrossIslandPlanNodes(ciqp, connectionInfoMap, tempTableInfo, objectsToDelete);
 		} catch (Exception e) {
 			cleanUpTemporaryTables(objectsToDelete, tempTableInfo);
 			throw e;
@@ -190,6 +260,7 @@ public class Planner {
 		} 
 		
 		QueryResult queryResult = null;
+		boolean cleanUpOnClose = false;
 		try {
 			if (cipn instanceof IntraIslandQuery) {
 	
@@ -202,7 +273,11 @@ public class Planner {
 	
 				// Execute the plan
 				logger.debug("Executing terminal node...");
-				queryResult = Executor.executePlan(qep, ciqn.getSignature(), choice);
+				if (streamFormat != null) {
+					queryResult = Executor.executePlanStreaming(qep, ciqn.getSignature(), choice);
+				} else {
+					queryResult = Executor.executePlan(qep, ciqn.getSignature(), choice);
+				}
 	
 			} else if (cipn instanceof CrossIslandNonOperatorNode) {
 				// EXECUTE THE RESULT
@@ -212,11 +287,25 @@ public class Planner {
 			} else {
 				throw new BigDawgException("Planner::processQuery has unimplemented Cross Island Plan Node: " + cipn.getClass().getSimpleName());
 			}
+
+			if (queryResult instanceof StreamingQueryResult) {
+				// the rows are read from the temporary objects until the stream is closed
+				((StreamingQueryResult) queryResult).onClose(() -> {
+					try {
+						cleanUpTemporaryTables(objectsToDelete, tempTableInfo);
+					} catch (Exception e) {
+						logger.error("Could not clean up temporary objects of query " + ciqp.getSerial() + ": " + e.getMessage(), e);
+					}
+				});
+				cleanUpOnClose = true;
+			}
 		} finally {
-			cleanUpTemporaryTables(objectsToDelete, tempTableInfo);
+			if (!cleanUpOnClose) {
+				cleanUpTemporaryTables(objectsToDelete, tempTableInfo);
+			}
 		}
 		
-		Response response = compileResults(ciqp.getSerial(), queryResult);
+		Response response = compileResults(ciqp.getSerial(), queryResult, streamFormat);
 		return response ;
 	}
 
@@ -288,7 +377,7 @@ public class Planner {
 				if (distance > SIGNATURE_DISTANCE){
 					Log.debug("No queries that are similar enough");
 					Monitor.addBenchmarks(signature, true);
-					return choice;
+					return PlanCostModel.INSTANCE.pickCheapest(qeps);
 				}
 
 				List<Long> perfInfo = Monitor.getBenchmarkPerformance(closest);
@@ -309,6 +398,7 @@ public class Planner {
 			} else {
 				Log.debug("No queries that are even slightly similar");
 				Monitor.addBenchmarks(signature, true);
+				choice = PlanCostModel.INSTANCE.pickCheapest(qeps);
 			}
 		}
 		
@@ -324,9 +414,28 @@ public class Planner {
 	 * @return 0 if no error; otherwise incomplete
 	 */
 	public static Response compileResults(int querySerial, QueryResult result) throws Exception {
+		return compileResults(querySerial, result, StreamingQueryResult.Format.TSV);
+	}
+
+	public static Response compileResults(int querySerial, QueryResult result, StreamingQueryResult.Format format) throws Exception {
 		if (result == null) {
 			throw new Exception("Unknown execution error; contact the administrator with query number " + querySerial + "\n");
 		}
+		if (result instanceof StreamingQueryResult) {
+			final StreamingQueryResult stream = (StreamingQueryResult) result;
+			logger.debug("[BigDAWG] PLANNER: Query "+querySerial+" is completed. Streaming the result...");
+			final StreamingOutput output = (out) -> {
+				try {
+					long rows = stream.write(out, format);
+					logger.debug("[BigDAWG] PLANNER: Query "+querySerial+": streamed "+rows+" rows.");
+				} catch (SQLException e) {
+					throw new IOException(e);
+				} finally {
+					stream.close();
+				}
+			};
+			return Response.status(200).entity(output).build();
+		}
 		logger.debug("[BigDAWG] PLANNER: Query "+querySerial+" is completed. Result:\n"+result.toPrettyString());
 		return Response.status(200).entity(result.toPrettyString()).build();
 	}
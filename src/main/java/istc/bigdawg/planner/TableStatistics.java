@@ -0,0 +1,110 @@
+package istc.bigdawg.planner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+import istc.bigdawg.catalog.CatalogViewer;
+import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
+import istc.bigdawg.postgresql.PostgreSQLHandler;
+import istc.bigdawg.properties.BigDawgConfigProperties;
+import istc.bigdawg.query.ConnectionInfo;
+
+/**
+ * Estimated numbers of rows of the tables stored in the engines, used to order the joins
+ * of an island query and to choose among its execution plans.
+ *
+ * The statistics are taken from the engines themselves (the planner
+ * statistics of PostgreSQL, no table is scanned) and kept for the time to
+ * live of the catalog cache. Tables (or engines) without statistics are
+ * reported as {@link #UNKNOWN}.
+ */
+public enum TableStatistics {
+
+	INSTANCE;
+
+	private static Logger logger = Logger.getLogger(TableStatistics.class);
+
+	/** The size of a table is not known. */
+	public static final long UNKNOWN = -1;
+
+	private static final String POSTGRES_STATISTICS = "select reltuples::bigint "
+			+ "from pg_class where oid = ?::regclass";
+
+	private static class Entry {
+		private final long rows;
+		private final long loadedAt;
+
+		private Entry(long rows) {
+			this.rows = rows;
+			this.loadedAt = System.currentTimeMillis();
+		}
+	}
+
+	private final ConcurrentHashMap<String, Entry> statistics = new ConcurrentHashMap<>();
+
+	/**
+	 * @param dbid
+	 *            the database where the table is stored
+	 * @param table
+	 *            name of the table (optionally qualified with its schema)
+	 * @return estimated number of rows of the table or {@link #UNKNOWN}
+	 */
+	public long getRowCount(int dbid, String table) {
+		return getEntry(dbid, table).rows;
+	}
+
+	/**
+	 * Forget all the statistics, e.g. after a migration changed the tables.
+	 */
+	public void invalidate() {
+		statistics.clear();
+	}
+
+	private Entry getEntry(int dbid, String table) {
+		String key = dbid + "|" + table;
+		Entry entry = statistics.get(key);
+		if (entry == null || System.currentTimeMillis()
+				- entry.loadedAt > BigDawgConfigProperties.INSTANCE
+						.getCatalogCacheTtl()) {
+			entry = load(dbid, table);
+			statistics.put(key, entry);
+		}
+		return entry;
+	}
+
+	private Entry load(int dbid, String table) {
+		ConnectionInfo conInfo;
+		try {
+			conInfo = CatalogViewer.getConnectionInfo(dbid);
+		} catch (Exception e) {
+			logger.debug("No connection info for database " + dbid + ": "
+					+ e.getMessage());
+			return new Entry(UNKNOWN);
+		}
+		if (!(conInfo instanceof PostgreSQLConnectionInfo)) {
+			// no statistics are collected for the other engines
+			return new Entry(UNKNOWN);
+		}
+		try (Connection con = PostgreSQLHandler.getConnection(conInfo);
+				PreparedStatement st = con
+						.prepareStatement(POSTGRES_STATISTICS)) {
+			st.setString(1, table);
+			try (ResultSet rs = st.executeQuery()) {
+				if (rs.next()) {
+					long rows = rs.getLong(1);
+					// reltuples is 0 (or -1) for tables never analyzed
+					return new Entry(rows > 0 ? rows : UNKNOWN);
+				}
+			}
+		} catch (SQLException e) {
+			logger.debug("No statistics for table " + table + " in database "
+					+ dbid + ": " + e.getMessage());
+		}
+		return new Entry(UNKNOWN);
+	}
+}
@@ -4,7 +4,6 @@
 package istc.bigdawg.postgresql;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -30,10 +29,12 @@ import istc.bigdawg.executor.ExecutorEngine;
 import istc.bigdawg.executor.IslandQueryResult;
 import istc.bigdawg.executor.JdbcQueryResult;
 import istc.bigdawg.executor.QueryResult;
+import istc.bigdawg.executor.StreamingQueryResult;
 import istc.bigdawg.properties.BigDawgConfigProperties;
 import istc.bigdawg.query.ConnectionInfo;
 import istc.bigdawg.query.DBHandler;
 import istc.bigdawg.query.QueryClient;
+import istc.bigdawg.utils.ConnectionPool;
 import istc.bigdawg.utils.LogUtils;
 import istc.bigdawg.utils.StackTrace;
 
@@ -52,13 +53,20 @@ public class PostgreSQLHandler implements DBHandler, ExecutorEngine {
 	private static int defaultSchemaServerDBID = BigDawgConfigProperties.INSTANCE
 			.getPostgresSchemaServerDBID();
 
+	/**
+	 * Clears the session state (e.g. the search_path) of a connection returned
+	 * to the connection pool.
+	 */
+	public static final String SESSION_RESET = "RESET ALL";
+
 	/**
 	 * Information about connection to PostgreSQL (e.g. IP, port, etc.).
 	 */
 	private PostgreSQLConnectionInfo conInfo = null;
 
 	private Connection con = null;
-	private Statement st = null;
+	/* volatile: the statement can be cancelled from another thread */
+	private volatile Statement st = null;
 	private PreparedStatement preparedSt = null;
 	private ResultSet rs = null;
 
@@ -176,7 +184,8 @@ public class PostgreSQLHandler implements DBHandler, ExecutorEngine {
 		String user = conInfo.getUser();
 		String password = conInfo.getPassword();
 		try {
-			con = DriverManager.getConnection(url, user, password);
+			con = ConnectionPool.getConnection(url, user, password,
+					SESSION_RESET);
 		} catch (SQLException e) {
 			String msg = "BigDAWG: Could not connect to the PostgreSQL instance: Url: "
 					+ url + " User: " + user + " Password: " + password
@@ -379,6 +388,77 @@ public class PostgreSQLHandler implements DBHandler, ExecutorEngine {
 		}
 	}
 
+	/**
+	 * It executes the SQL command and, if it returns rows, gives them back as a
+	 * {@link StreamingQueryResult} read through a server-side cursor: the
+	 * connection stays open (with autocommit off, which is required by
+	 * PostgreSQL to use the cursor) until the result is closed.
+	 * 
+	 * @param query
+	 * @param fetchSize
+	 *            number of rows fetched from the server at a time
+	 * @return #Optional<QueryResult>
+	 * @throws LocalQueryExecutionException
+	 */
+	@Override
+	public Optional<QueryResult> executeStreaming(final String query,
+			int fetchSize) throws LocalQueryExecutionException {
+		Connection connection = null;
+		Statement statement = null;
+		try {
+			log.debug("PostgreSQLHandler is attempting streamed query: "
+					+ LogUtils.replace(query) + "");
+			connection = getConnection(conInfo);
+			connection.setAutoCommit(false);
+			statement = connection.createStatement();
+			statement.setFetchSize(fetchSize);
+			st = statement;
+			if (statement.execute(query)) {
+				return Optional.of(new StreamingQueryResult(connection,
+						statement, statement.getResultSet(), this.conInfo));
+			}
+			connection.commit();
+			statement.close();
+			connection.close();
+			return Optional.of(new IslandQueryResult(this.conInfo));
+		} catch (SQLException ex) {
+			log.error(ex.getMessage() + "; query: " + LogUtils.replace(query),
+					ex);
+			try {
+				if (statement != null) {
+					statement.close();
+				}
+				if (connection != null) {
+					connection.close();
+				}
+			} catch (SQLException closeEx) {
+				log.info("Could not release the resources after a failed "
+						+ "query: " + closeEx.getMessage());
+			}
+			throw new LocalQueryExecutionException(ex);
+		} finally {
+			st = null;
+		}
+	}
+
+	/**
+	 * Cancel the statement that is currently executed by this handler (if any).
+	 * 
+	 * @see istc.bigdawg.executor.ExecutorEngine#cancel()
+	 */
+	@Override
+	public void cancel() {
+		Statement statement = st;
+		if (statement != null) {
+			try {
+				statement.cancel();
+			} catch (SQLException ex) {
+				log.error("Could not cancel the PostgreSQL statement. "
+						+ ex.getMessage(), ex);
+			}
+		}
+	}
+
 	/**
 	 * It executes the query and releases the resources at the end.
 	 * 
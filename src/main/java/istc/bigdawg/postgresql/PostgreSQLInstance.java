@@ -4,13 +4,12 @@
 package istc.bigdawg.postgresql;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.Properties;
 
 import org.apache.log4j.Logger;
 
 import istc.bigdawg.properties.BigDawgConfigProperties;
+import istc.bigdawg.utils.ConnectionPool;
 
 /**
  * @author Adam Dziedzic
@@ -37,15 +36,10 @@ public enum PostgreSQLInstance {
 
 	public static Connection getConnection() throws SQLException {
 		// https://jdbc.postgresql.org/documentation/head/connect.htlm
-		Properties props = new Properties();
-		props.setProperty("user", USER);
-		props.setProperty("password", PASSWORD);
-		// do not cache queries
-		//props.setProperty("preparedStatementCacheQueries", "0");
-		//props.setProperty("preparedStatementCacheSizeMiB", "10");
 		try {
 //		    	System.out.println("url is :" + URL);
-			return DriverManager.getConnection(URL, props);
+			return ConnectionPool.getConnection(URL, USER, PASSWORD,
+					PostgreSQLHandler.SESSION_RESET);
 		} catch (SQLException e) {
 			log.error(e.getMessage() + " Could not establish connection to PostgreSQL using the property file: "
 					+ getStringRepresentation(), e);
@@ -65,6 +65,33 @@ public enum BigDawgConfigProperties {
 
 	private String zooKeepers;
 
+	private int executorEngineConcurrency;
+	private int executorResultFetchSize;
+	private int executorShuffleSearchBudget;
+	private int executorSemiJoinMaxKeys;
+	private boolean executorPipelinedMigration;
+
+	private int connectionPoolMaxSize;
+	private int connectionPoolIdleTimeout;
+	private int connectionPoolWaitTimeout;
+
+	private int catalogCacheTtl;
+	private int islandPlanCacheSize;
+	private int islandRelationalJoinPlans;
+	private int islandRelationalJoinDPLeaves;
+	private int migrationParallelDegree;
+	private int migrationPipeBufferSize;
+	private int migrationChunkRows;
+	private int migrationReplicaCacheMb;
+	private int migrationReplicaCacheAdmission;
+	private boolean migrationReplicaCacheVersionTrigger;
+	private int migrationAccumuloWriterMemoryMb;
+	private int migrationAccumuloWriterLatency;
+	private int migrationAccumuloWriterThreads;
+	private int migrationAccumuloPresplit;
+	private int networkDataCompressionLevel;
+	private int networkRequestWorkers;
+
 	BigDawgConfigProperties() throws AssertionError {
 		Properties prop = new Properties();
 		String propFileName = "bigdawg-config.properties";
@@ -152,6 +179,112 @@ public enum BigDawgConfigProperties {
 		this.cmigratorDir = prop.getProperty("main.cmigrator.dir");
 
 		this.zooKeepers = prop.getProperty("main.zooKeepers");
+
+		this.executorEngineConcurrency = getIntProperty(prop,
+				"main.executor.engine.concurrency", 8);
+		this.executorResultFetchSize = getIntProperty(prop,
+				"main.executor.result.fetch.size", 10000);
+		this.executorShuffleSearchBudget = getIntProperty(prop,
+				"main.executor.shuffle.search.budget", 100);
+		this.executorSemiJoinMaxKeys = getIntProperty(prop,
+				"main.executor.semijoin.max.keys", 1000000);
+		this.executorPipelinedMigration = getBooleanProperty(prop,
+				"main.executor.pipelined.migration", false);
+
+		this.connectionPoolMaxSize = getIntProperty(prop,
+				"main.connection.pool.max.size", 32);
+		this.connectionPoolIdleTimeout = getIntProperty(prop,
+				"main.connection.pool.idle.timeout", 60000);
+		this.connectionPoolWaitTimeout = getIntProperty(prop,
+				"main.connection.pool.wait.timeout", 30000);
+
+		this.catalogCacheTtl = getIntProperty(prop, "main.catalog.cache.ttl",
+				60000);
+		this.islandPlanCacheSize = getIntProperty(prop,
+				"main.island.plan.cache.size", 1000);
+		this.islandRelationalJoinPlans = getIntProperty(prop,
+				"main.island.relational.join.plans", 5);
+		this.islandRelationalJoinDPLeaves = getIntProperty(prop,
+				"main.island.relational.join.dp.leaves", 12);
+		this.migrationParallelDegree = getIntProperty(prop,
+				"main.migration.parallel.degree", 4);
+		this.migrationPipeBufferSize = getIntProperty(prop,
+				"main.migration.pipe.buffer.size", 1 << 20);
+		this.migrationChunkRows = getIntProperty(prop,
+				"main.migration.chunk.rows", 1000000);
+		this.migrationReplicaCacheMb = getIntProperty(prop,
+				"main.migration.replica.cache.mb", 0);
+		this.migrationReplicaCacheAdmission = getIntProperty(prop,
+				"main.migration.replica.cache.admission", 2);
+		this.migrationReplicaCacheVersionTrigger = getBooleanProperty(prop,
+				"main.migration.replica.cache.version.trigger", false);
+		this.migrationAccumuloWriterMemoryMb = getIntProperty(prop,
+				"main.migration.accumulo.writer.memory.mb", 50);
+		this.migrationAccumuloWriterLatency = getIntProperty(prop,
+				"main.migration.accumulo.writer.latency", 2000);
+		this.migrationAccumuloWriterThreads = getIntProperty(prop,
+				"main.migration.accumulo.writer.threads", 4);
+		this.migrationAccumuloPresplit = getIntProperty(prop,
+				"main.migration.accumulo.presplit", 0);
+		this.networkDataCompressionLevel = getIntProperty(prop,
+				"main.network.data.compression.level", 1);
+		this.networkRequestWorkers = getIntProperty(prop,
+				"main.network.request.workers", 8);
+	}
+
+	/**
+	 * Read an optional integer property. Profiles that do not define the
+	 * property leave the unresolved ${...} placeholder in the file, in which
+	 * case the default value is returned.
+	 * 
+	 * @param prop
+	 *            the loaded properties
+	 * @param key
+	 *            name of the property
+	 * @param defaultValue
+	 *            value used when the property is missing or not a number
+	 * @return the value of the property
+	 */
+	private static int getIntProperty(Properties prop, String key,
+			int defaultValue) {
+		String value = prop.getProperty(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Read an optional boolean property (see
+	 * {@link #getIntProperty(Properties, String, int)}).
+	 * 
+	 * @param prop
+	 *            the loaded properties
+	 * @param key
+	 *            name of the property
+	 * @param defaultValue
+	 *            value used when the property is missing or neither true nor
+	 *            false
+	 * @return the value of the property
+	 */
+	private static boolean getBooleanProperty(Properties prop, String key,
+			boolean defaultValue) {
+		String value = prop.getProperty(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		value = value.trim();
+		if (value.equalsIgnoreCase("true")) {
+			return true;
+		}
+		if (value.equalsIgnoreCase("false")) {
+			return false;
+		}
+		return defaultValue;
 	}
 
 	/**
@@ -448,4 +581,201 @@ public enum BigDawgConfigProperties {
 		return accumuloSchemaServerDBID;
 	}
 
+	/**
+	 * @return the maximum number of execution nodes that can run concurrently
+	 *         against a single database engine
+	 */
+	public int getExecutorEngineConcurrency() {
+		return executorEngineConcurrency;
+	}
+
+	/**
+	 * @return the number of rows fetched at a time when the final result of a
+	 *         query is streamed to the client
+	 */
+	public int getExecutorResultFetchSize() {
+		return executorResultFetchSize;
+	}
+
+	/**
+	 * @return time (in milliseconds) for which the tabu search looks for a
+	 *         better assignment of the join values of a shuffle join
+	 */
+	public int getExecutorShuffleSearchBudget() {
+		return executorShuffleSearchBudget;
+	}
+
+	/**
+	 * @return the maximum number of distinct join keys of the smaller operand
+	 *         of a join for which a Bloom filter is built to reduce the larger
+	 *         operand before it is migrated (0 disables the reduction)
+	 */
+	public int getExecutorSemiJoinMaxKeys() {
+		return executorSemiJoinMaxKeys;
+	}
+
+	/**
+	 * @return true if the result of a query node which is used only by a node
+	 *         on another PostgreSQL engine should be streamed straight to that
+	 *         engine instead of being stored on the engine of the query
+	 */
+	public boolean isExecutorPipelinedMigration() {
+		return executorPipelinedMigration;
+	}
+
+	/**
+	 * @return the maximum number of connections kept open to a single database
+	 */
+	public int getConnectionPoolMaxSize() {
+		return connectionPoolMaxSize;
+	}
+
+	/**
+	 * @return the time (in ms) after which an idle pooled connection is closed
+	 */
+	public int getConnectionPoolIdleTimeout() {
+		return connectionPoolIdleTimeout;
+	}
+
+	/**
+	 * @return the maximum time (in ms) of waiting for a free connection when
+	 *         the pool is full
+	 */
+	public int getConnectionPoolWaitTimeout() {
+		return connectionPoolWaitTimeout;
+	}
+
+	/**
+	 * @return the time (in ms) after which the cached copy of the catalog is
+	 *         reloaded (it is also reloaded after every change made through
+	 *         this instance)
+	 */
+	public int getCatalogCacheTtl() {
+		return catalogCacheTtl;
+	}
+
+	/**
+	 * @return the maximum number of query plans cached by each island (0
+	 *         disables the cache)
+	 */
+	public int getIslandPlanCacheSize() {
+		return islandPlanCacheSize;
+	}
+
+	/**
+	 * @return how many of the cheapest join orders are kept for a relational
+	 *         island query
+	 */
+	public int getIslandRelationalJoinPlans() {
+		return islandRelationalJoinPlans;
+	}
+
+	/**
+	 * @return the largest number of tables of a relational island query whose
+	 *         join order is enumerated by dynamic programming (the join order
+	 *         of more tables is built greedily)
+	 */
+	public int getIslandRelationalJoinDPLeaves() {
+		return islandRelationalJoinDPLeaves;
+	}
+
+	/**
+	 * @return number of partitions migrated concurrently by a parallel
+	 *         migration from PostgreSQL
+	 */
+	public int getMigrationParallelDegree() {
+		return migrationParallelDegree;
+	}
+
+	/**
+	 * @return size (in bytes) of the in-memory pipe between the exporter and
+	 *         the loader of a migration
+	 */
+	public int getMigrationPipeBufferSize() {
+		return migrationPipeBufferSize;
+	}
+
+	/**
+	 * @return approximate number of rows in a chunk of a checkpointed
+	 *         migration
+	 */
+	public int getMigrationChunkRows() {
+		return migrationChunkRows;
+	}
+
+	/**
+	 * @return size (in MB) of the replicas of migrated objects kept on each
+	 *         engine (0 disables the replicas)
+	 */
+	public int getMigrationReplicaCacheMb() {
+		return migrationReplicaCacheMb;
+	}
+
+	/**
+	 * @return how many times an unmodified object has to be migrated to an
+	 *         engine before its replica is kept there
+	 */
+	public int getMigrationReplicaCacheAdmission() {
+		return migrationReplicaCacheAdmission;
+	}
+
+	/**
+	 * @return true if the versions of the sources of the replicas should be
+	 *         kept by triggers installed on the source tables (exact, but the
+	 *         transactions which modify a table wait for each other) instead
+	 *         of being read from the statistics of PostgreSQL
+	 */
+	public boolean isMigrationReplicaCacheVersionTrigger() {
+		return migrationReplicaCacheVersionTrigger;
+	}
+
+	/**
+	 * @return size (in MB) of the buffer for the mutations of the writer of a
+	 *         migration to Accumulo
+	 */
+	public int getMigrationAccumuloWriterMemoryMb() {
+		return migrationAccumuloWriterMemoryMb;
+	}
+
+	/**
+	 * @return maximum time (in milliseconds) for which the writer of a
+	 *         migration to Accumulo keeps the mutations in its buffer
+	 */
+	public int getMigrationAccumuloWriterLatency() {
+		return migrationAccumuloWriterLatency;
+	}
+
+	/**
+	 * @return number of threads which send the mutations of a migration to
+	 *         the tablet servers of Accumulo
+	 */
+	public int getMigrationAccumuloWriterThreads() {
+		return migrationAccumuloWriterThreads;
+	}
+
+	/**
+	 * @return number of tablets into which an empty table in Accumulo is
+	 *         split before the data is migrated to it (0 or 1: the table is
+	 *         not split)
+	 */
+	public int getMigrationAccumuloPresplit() {
+		return migrationAccumuloPresplit;
+	}
+
+	/**
+	 * @return deflate level (1-9) of CSV data sent via network to another
+	 *         node (0 disables the compression)
+	 */
+	public int getNetworkDataCompressionLevel() {
+		return networkDataCompressionLevel;
+	}
+
+	/**
+	 * @return number of remote requests (e.g. migrations) which can be
+	 *         executed concurrently on this node
+	 */
+	public int getNetworkRequestWorkers() {
+		return networkRequestWorkers;
+	}
+
 }
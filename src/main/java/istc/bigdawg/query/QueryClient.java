@@ -19,6 +19,7 @@ import org.apache.log4j.Logger;
 import org.json.JSONException;
 
 import istc.bigdawg.exceptions.AccumuloShellScriptException;
+import istc.bigdawg.executor.StreamingQueryResult;
 import istc.bigdawg.planner.Planner;
 /**
  * @author Adam Dziedzic
@@ -83,7 +84,7 @@ public class QueryClient {
 	public Response query(String queryString) {
 		log.info("QueryClient received query. Passing to Planner. Query string: " + queryString.replaceAll("[\"']", "*"));
 		try {
-			return Planner.processQuery(queryString, false);
+			return Planner.processQuery(queryString, false, StreamingQueryResult.Format.TSV);
 		} catch (Exception e) {
 			e.printStackTrace();
 			return Response.status(412).entity(e.getMessage()).build();
@@ -107,7 +108,11 @@ public class QueryClient {
 	public Response jsonQuery(String istream) {
 		log.info("istream: " + istream.replaceAll("[\"']", "*"));
 		try {
-			Response r = Planner.processQuery(istream, false);
+			Response r = Planner.processQuery(istream, false, StreamingQueryResult.Format.JSON);
+			if (!(r.getEntity() instanceof String)) {
+				// the result is already streamed as JSON
+				return r;
+			}
 			String results = (String)r.getEntity();
 			return Response.ok(formatToJson(results)).build();
 		} catch (Exception e) {
@@ -6,7 +6,6 @@ package istc.bigdawg.scidb;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -40,6 +39,7 @@ import istc.bigdawg.postgresql.PostgreSQLTableMetaData;
 import istc.bigdawg.query.ConnectionInfo;
 import istc.bigdawg.query.DBHandler;
 import istc.bigdawg.query.QueryResponseTupleList;
+import istc.bigdawg.utils.ConnectionPool;
 import istc.bigdawg.utils.Constants;
 import istc.bigdawg.utils.LogUtils;
 import istc.bigdawg.utils.ObjectMapperResource;
@@ -85,6 +85,9 @@ public class SciDBHandler implements DBHandler, ExecutorEngine {
 	/** Physical connection to SciDB. */
 //	private Connection connection = null;
 
+	/** The statement executed by {@link #execute(String)}, to be cancelled. */
+	private volatile Statement currentStatement = null;
+
 	/**
 	 * Types of languages for SciDB.
 	 * 
@@ -206,7 +209,8 @@ public class SciDBHandler implements DBHandler, ExecutorEngine {
 			throw new RuntimeException(ex.getMessage());
 		}
 		try {
-			return DriverManager.getConnection(conInfo.getUrl());
+			return ConnectionPool.getConnection(conInfo.getUrl(), null, null,
+					null);
 		} catch (SQLException ex) {
 			ex.printStackTrace();
 			log.error("Could not establish a connection to a SciDB database. "
@@ -610,6 +614,7 @@ public class SciDBHandler implements DBHandler, ExecutorEngine {
 			
 			try {
 				st = connection.createStatement();
+				currentStatement = st;
 				IStatementWrapper statementWrapper = st
 						.unwrap(IStatementWrapper.class);
 				statementWrapper.setAfl(true);
@@ -646,6 +651,7 @@ public class SciDBHandler implements DBHandler, ExecutorEngine {
 					+ LogUtils.replace(query), ex);
 			throw new LocalQueryExecutionException(ex);
 		} finally {
+			currentStatement = null;
 			try {
 				closeResultSet(rs);
 			} catch (SQLException ex) {
@@ -667,6 +673,25 @@ public class SciDBHandler implements DBHandler, ExecutorEngine {
 		}
 	}
 
+	/**
+	 * Cancel the query that is currently executed by {@link #execute(String)}
+	 * (if any).
+	 * 
+	 * @see istc.bigdawg.executor.ExecutorEngine#cancel()
+	 */
+	@Override
+	public void cancel() {
+		Statement statement = currentStatement;
+		if (statement != null) {
+			try {
+				statement.cancel();
+			} catch (SQLException ex) {
+				log.error("Could not cancel the SciDB statement. "
+						+ ex.getMessage(), ex);
+			}
+		}
+	}
+
 	/**
 	 * Execute query in SciDB using command line iquery;
 	 * 
@@ -37,6 +37,13 @@ public class Signature {
 	private static String elementSeparator = "&&&&&";
 	private static String elementSeparatorRest = "[&][&][&][&][&]";
 	
+	// weights of the parts of the signatures in compare
+	static final double SIG1_WEIGHT = 2;
+	static final double SIG2_WEIGHT = 1;
+	static final double SIG3_WEIGHT = 1;
+	static final double SIG4K_WEIGHT = 2;
+	static final double TOTAL_WEIGHT = SIG1_WEIGHT + SIG2_WEIGHT + SIG3_WEIGHT + SIG4K_WEIGHT;
+	
 	private Scope island;
 	private String sig1;
 	private List<String> sig2;
@@ -294,11 +301,6 @@ public class Signature {
 
 		double dist = 0;
 
-		double sig1Weight = 2;
-		double sig2Weight = 1;
-		double sig3Weight = 1;
-		double sig4kWeight = 2;
-
 		// sig1
 		double treeEdit1 = getTreeEditDistance(sig1, "{}");
 		double treeEdit2 = getTreeEditDistance(sig.sig1, "{}");
@@ -308,23 +310,11 @@ public class Signature {
 		logger.debug("SIGNATURE sig1 dist: " + sig1Dist);
 
 		// sig2
-		List<String> l2;
-		double sig2Max = sig2.size() > sig.sig2.size() ? sig2.size() : sig.sig2.size();
-		if (sig2.size() > sig.sig2.size()) {
-			l2 = new ArrayList<>(sig2);
-			l2.retainAll(sig.sig2);
-		} else { 
-			l2 = new ArrayList<>(sig.sig2);
-			l2.retainAll(sig2);
-		}
-		double sig2Dist = sig2Max - (double)l2.size();
-		sig2Dist /= sig2Max;
+		double sig2Dist = getSig2Distance(sig2, sig.sig2);
 		logger.debug("SIGNATURE sig2 dist: " + sig2Dist);
 		
 		// sig3
-		double sig3Max = (sig3.size() > sig.sig3.size()) ? sig3.size() : sig.sig3.size();
-		double sig3Dist = (sig3.size() > sig.sig3.size()) ? sig3.size() - sig.sig3.size() : sig.sig3.size() - sig3.size();
-		sig3Dist /= sig3Max;
+		double sig3Dist = getSig3Distance(sig3.size(), sig.sig3.size());
 		logger.debug("SIGNATURE sig3 dist: " + sig3Dist);
 		
 		// sig4k
@@ -361,12 +351,40 @@ public class Signature {
 		sig4kDist /= sig4kMax;
 		logger.debug("SIGNATURE sig4k dist: " + sig4kDist);
 
-		dist += sig1Dist*sig1Weight + sig2Dist*sig2Weight + sig3Dist*sig3Weight + sig4kDist*sig4kWeight;
-		dist /= sig1Weight + sig2Weight + sig3Weight + sig4kWeight;
+		dist += sig1Dist*SIG1_WEIGHT + sig2Dist*SIG2_WEIGHT + sig3Dist*SIG3_WEIGHT + sig4kDist*SIG4K_WEIGHT;
+		dist /= TOTAL_WEIGHT;
 		logger.debug("SIGNATURE final dist: " + dist);
 		return dist;
 	}
 	
+	/**
+	 * @return the share of the object references that are not common to the two signatures
+	 */
+	static double getSig2Distance(List<String> sig2, List<String> other) {
+		List<String> l2;
+		double sig2Max = sig2.size() > other.size() ? sig2.size() : other.size();
+		if (sig2.size() > other.size()) {
+			l2 = new ArrayList<>(sig2);
+			l2.retainAll(other);
+		} else { 
+			l2 = new ArrayList<>(other);
+			l2.retainAll(sig2);
+		}
+		double sig2Dist = sig2Max - (double)l2.size();
+		sig2Dist /= sig2Max;
+		return sig2Dist;
+	}
+	
+	/**
+	 * @return the relative difference between the numbers of constants of the two signatures
+	 */
+	static double getSig3Distance(int sig3Size, int otherSize) {
+		double sig3Max = (sig3Size > otherSize) ? sig3Size : otherSize;
+		double sig3Dist = (sig3Size > otherSize) ? sig3Size - otherSize : otherSize - sig3Size;
+		sig3Dist /= sig3Max;
+		return sig3Dist;
+	}
+	
 	
 	
 }
\ No newline at end of file
@@ -0,0 +1,267 @@
+package istc.bigdawg.signature;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import parser.BracketStringInputParser;
+
+/**
+ * In-memory index of the benchmarked signatures that finds the signature
+ * closest to a given one (as measured by {@link Signature#compare(Signature)})
+ * without computing the tree edit distances to all of them.
+ *
+ * The signatures are grouped into buckets by cheap features: the number of
+ * nodes of sig1, the number of object references (sig2), the number of
+ * constants (sig3) and the number of sig4k trees. From these features (and the
+ * object references themselves) a lower bound of the distance is derived,
+ * since the tree edit distance between two trees is at least the difference of
+ * their sizes. The buckets and then the signatures are visited in the order of
+ * their lower bounds and the search stops as soon as a lower bound is not
+ * smaller than the closest distance found, so the expensive comparison is only
+ * run for the few signatures that could be the closest one.
+ *
+ * The index is copied on write: the signatures are added rarely (when a new
+ * query is benchmarked) and looked up for every query.
+ */
+public class SignatureIndex {
+
+	private static Logger logger = Logger.getLogger(SignatureIndex.class);
+
+	/** tolerance of the rounding errors in the lower bounds */
+	private static final double EPSILON = 1e-9;
+
+	/** A signature together with its features. */
+	private static class Entry {
+		private final Signature signature;
+		private final int sig1Nodes;
+		private final double sig1Size;
+		private final int sig2Size;
+		private final boolean sig2Distinct;
+		private final int sig3Size;
+		private final int sig4kCount;
+		private final double sig4kSize;
+
+		private Entry(Signature signature) {
+			this.signature = signature;
+			this.sig1Nodes = getNodeCount(signature.getSig1());
+			this.sig1Size = Signature.getTreeEditDistance(signature.getSig1(), "{}");
+			this.sig2Size = signature.getSig2().size();
+			this.sig2Distinct = new HashSet<>(signature.getSig2()).size() == sig2Size;
+			this.sig3Size = signature.getSig3().size();
+			this.sig4kCount = signature.getSig4k().size();
+			double size = 0;
+			for (String tree : signature.getSig4k()) {
+				size += Signature.getTreeEditDistance(tree, "{}");
+			}
+			this.sig4kSize = size;
+		}
+
+		private List<Integer> getBucketKey() {
+			return Arrays.asList(sig1Nodes, sig2Size, sig3Size, sig4kCount);
+		}
+	}
+
+	/** The signatures with the same features. */
+	private static class Bucket {
+		private final Entry features;
+		private final List<Entry> entries;
+		private final double maxSig1Size;
+		private final double maxSig4kSize;
+		private final boolean sig2Distinct;
+
+		private Bucket(List<Entry> entries) {
+			this.features = entries.get(0);
+			this.entries = entries;
+			double sig1Size = 0;
+			double sig4kSize = 0;
+			boolean distinct = true;
+			for (Entry e : entries) {
+				sig1Size = Math.max(sig1Size, e.sig1Size);
+				sig4kSize = Math.max(sig4kSize, e.sig4kSize);
+				distinct &= e.sig2Distinct;
+			}
+			this.maxSig1Size = sig1Size;
+			this.maxSig4kSize = sig4kSize;
+			this.sig2Distinct = distinct;
+		}
+	}
+
+	private volatile Map<List<Integer>, Bucket> buckets = Collections.emptyMap();
+	private volatile Map<String, Entry> entries = Collections.emptyMap();
+
+	private final AtomicLong lookups = new AtomicLong();
+	private final AtomicLong comparisons = new AtomicLong();
+
+	/**
+	 * Add the signature to the index (nothing happens if it is already there).
+	 */
+	public synchronized void add(Signature signature) {
+		String key = signature.toRecoverableString();
+		if (entries.containsKey(key)) {
+			return;
+		}
+		Entry entry = new Entry(signature);
+		Map<String, Entry> newEntries = new HashMap<>(entries);
+		newEntries.put(key, entry);
+		Map<List<Integer>, Bucket> newBuckets = new HashMap<>(buckets);
+		Bucket bucket = newBuckets.get(entry.getBucketKey());
+		List<Entry> bucketEntries = bucket == null ? new ArrayList<>() : new ArrayList<>(bucket.entries);
+		bucketEntries.add(entry);
+		newBuckets.put(entry.getBucketKey(), new Bucket(bucketEntries));
+		entries = newEntries;
+		buckets = newBuckets;
+	}
+
+	/**
+	 * Remove the signature from the index.
+	 */
+	public synchronized void remove(Signature signature) {
+		String key = signature.toRecoverableString();
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			return;
+		}
+		Map<String, Entry> newEntries = new HashMap<>(entries);
+		newEntries.remove(key);
+		Map<List<Integer>, Bucket> newBuckets = new HashMap<>(buckets);
+		List<Entry> bucketEntries = new ArrayList<>(newBuckets.get(entry.getBucketKey()).entries);
+		bucketEntries.removeIf(e -> e.signature.toRecoverableString().equals(key));
+		if (bucketEntries.isEmpty()) {
+			newBuckets.remove(entry.getBucketKey());
+		} else {
+			newBuckets.put(entry.getBucketKey(), new Bucket(bucketEntries));
+		}
+		entries = newEntries;
+		buckets = newBuckets;
+	}
+
+	/**
+	 * Remove all the signatures.
+	 */
+	public synchronized void clear() {
+		entries = Collections.emptyMap();
+		buckets = Collections.emptyMap();
+	}
+
+	/**
+	 * @return number of signatures in the index
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @param signature
+	 *            signature of a query
+	 * @return the indexed signature closest to the given one or null if there
+	 *         is no indexed signature
+	 */
+	public Signature getClosest(Signature signature) {
+		lookups.incrementAndGet();
+		Entry query = new Entry(signature);
+		Map<List<Integer>, Bucket> snapshot = buckets;
+
+		List<Bucket> candidates = new ArrayList<>(snapshot.values());
+		Map<Bucket, Double> bucketBounds = new HashMap<>();
+		for (Bucket b : candidates) {
+			bucketBounds.put(b, getLowerBound(query, b.features, b.maxSig1Size, b.maxSig4kSize,
+					query.sig2Distinct && b.sig2Distinct ? getSig2Bound(query.sig2Size, b.features.sig2Size) : 0));
+		}
+		candidates.sort((b1, b2) -> Double.compare(bucketBounds.get(b1), bucketBounds.get(b2)));
+
+		Signature closest = null;
+		double distance = Double.MAX_VALUE;
+		int compared = 0;
+		for (Bucket b : candidates) {
+			if (bucketBounds.get(b) - EPSILON >= distance) {
+				break;
+			}
+			List<Entry> bucketEntries = new ArrayList<>(b.entries);
+			Map<Entry, Double> bounds = new HashMap<>();
+			for (Entry e : bucketEntries) {
+				bounds.put(e, getLowerBound(query, e, e.sig1Size, e.sig4kSize,
+						Signature.getSig2Distance(signature.getSig2(), e.signature.getSig2())));
+			}
+			bucketEntries.sort((e1, e2) -> Double.compare(bounds.get(e1), bounds.get(e2)));
+			for (Entry e : bucketEntries) {
+				if (bounds.get(e) - EPSILON >= distance) {
+					break;
+				}
+				double curDist = signature.compare(e.signature);
+				compared++;
+				if (curDist < distance) {
+					distance = curDist;
+					closest = e.signature;
+				}
+			}
+		}
+		comparisons.addAndGet(compared);
+		logger.debug("Compared " + compared + " of " + entries.size() + " signatures; closest distance: "
+				+ distance);
+		return closest;
+	}
+
+	/**
+	 * A lower bound of {@link Signature#compare(Signature)} between the query
+	 * and any signature with the features of the candidate.
+	 *
+	 * @param sig1Size
+	 *            (an upper bound of) the size of sig1 of the candidate
+	 * @param sig4kSize
+	 *            (an upper bound of) the total size of the sig4k trees of the
+	 *            candidate
+	 * @param sig2Bound
+	 *            a lower bound of the distance of the object references
+	 */
+	private static double getLowerBound(Entry query, Entry candidate, double sig1Size, double sig4kSize,
+			double sig2Bound) {
+		double sig1Bound = ratio(Math.abs(query.sig1Nodes - candidate.sig1Nodes),
+				Math.max(query.sig1Size, sig1Size));
+		double sig3Dist = Signature.getSig3Distance(query.sig3Size, candidate.sig3Size);
+		double sig4kBound = ratio(Math.abs(query.sig4kCount - candidate.sig4kCount),
+				Math.max(query.sig4kCount, candidate.sig4kCount) + Math.max(query.sig4kSize, sig4kSize));
+		double bound = (sig1Bound * Signature.SIG1_WEIGHT + sig2Bound * Signature.SIG2_WEIGHT
+				+ sig3Dist * Signature.SIG3_WEIGHT + sig4kBound * Signature.SIG4K_WEIGHT) / Signature.TOTAL_WEIGHT;
+		// a comparison that is not a number never wins, do not skip it early
+		return Double.isNaN(bound) ? 0 : bound;
+	}
+
+	/**
+	 * @return lower bound of the sig2 distance from the sizes only (at most
+	 *         the smaller list can be common if there are no duplicates)
+	 */
+	private static double getSig2Bound(int size, int otherSize) {
+		return ratio(Math.abs(size - otherSize), Math.max(size, otherSize));
+	}
+
+	private static double ratio(double numerator, double denominator) {
+		return denominator > 0 ? numerator / denominator : 0;
+	}
+
+	private static int getNodeCount(String tree) {
+		return new BracketStringInputParser().fromString(tree).getNodeCount();
+	}
+
+	/**
+	 * @return number of lookups of the closest signature
+	 */
+	public long getLookups() {
+		return lookups.get();
+	}
+
+	/**
+	 * @return number of full comparisons (with the tree edit distances) run by
+	 *         the lookups
+	 */
+	public long getComparisons() {
+		return comparisons.get();
+	}
+}
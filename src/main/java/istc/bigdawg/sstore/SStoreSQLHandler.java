@@ -3,7 +3,6 @@ package istc.bigdawg.sstore;
 import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -30,6 +29,7 @@ import istc.bigdawg.executor.QueryResult;
 import istc.bigdawg.query.ConnectionInfo;
 import istc.bigdawg.query.DBHandler;
 import istc.bigdawg.query.QueryClient;
+import istc.bigdawg.utils.ConnectionPool;
 import istc.bigdawg.utils.LogUtils;
 import istc.bigdawg.utils.StackTrace;
 import jline.internal.Log;
@@ -130,7 +130,7 @@ public class SStoreSQLHandler implements DBHandler {
 //	this.conInfo = conInfo;
 	try {
 //	    con = DriverManager.getConnection(url, user, password);
-	    con = DriverManager.getConnection(url);
+	    con = ConnectionPool.getConnection(url, null, null, null);
 	} catch (SQLException e) {
 	    String msg = "Could not connect to the SStoreSQL instance: Url: " + url + " User: " + user + " Password: "
 		    + password;
@@ -1,13 +1,12 @@
 package istc.bigdawg.sstore;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.Properties;
 
 import org.apache.log4j.Logger;
 
 import istc.bigdawg.properties.BigDawgConfigProperties;
+import istc.bigdawg.utils.ConnectionPool;
 
 public enum SStoreSQLInstance {
     INSTANCE;
@@ -28,11 +27,8 @@ public enum SStoreSQLInstance {
     }
 
     public static Connection getConnection() throws SQLException {
-	Properties props = new Properties();
-	props.setProperty("user", USER);
-	props.setProperty("password", PASSWORD);
 	try {
-	    return DriverManager.getConnection(URL, props);
+	    return ConnectionPool.getConnection(URL, USER, PASSWORD, null);
 	} catch (SQLException e) {
 	    log.error(e.getMessage() + " Could not establish connection to SStore using the property file: "
 		    + getStringRepresentation(), e);
@@ -0,0 +1,537 @@
+/**
+ *
+ */
+package istc.bigdawg.utils;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.log4j.Logger;
+
+import istc.bigdawg.properties.BigDawgConfigProperties;
+
+/**
+ * Pool of JDBC connections to a single database instance (identified by the
+ * JDBC url, user and password, i.e. by the information kept in a
+ * ConnectionInfo). The pools are shared by all the handlers (PostgreSQL,
+ * SciDB, S-Store) and the catalog, so that a new handler does not have to
+ * establish a new TCP connection and authenticate again.
+ *
+ * The connections handed out by the pool are regular JDBC connections: a call
+ * to {@link Connection#close()} returns the physical connection to the pool.
+ * They implement all the interfaces of the driver's connection, so they can be
+ * cast e.g. to the PostgreSQL BaseConnection (for the CopyManager).
+ *
+ * Each pool is bounded (a borrower waits for a free connection, up to a
+ * timeout), idle connections are evicted after a while, connections are
+ * validated when they are borrowed and the connections which were not closed
+ * by their users are reclaimed once they are garbage collected.
+ */
+public class ConnectionPool {
+
+	/* log */
+	private static Logger log = Logger.getLogger(ConnectionPool.class);
+
+	/** All the pools, keyed by url, user and password. */
+	private static final Map<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+
+	/** Evicts idle connections and reclaims the leaked ones. */
+	private static final ScheduledExecutorService evictor = Executors
+			.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "bigdawg-connection-pool-evictor");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	/** Timeout (in seconds) for the validation of a connection. */
+	private static final int VALIDATION_TIMEOUT = 5;
+
+	static {
+		long period = Math.max(1000, BigDawgConfigProperties.INSTANCE
+				.getConnectionPoolIdleTimeout() / 2);
+		evictor.scheduleWithFixedDelay(() -> {
+			for (ConnectionPool pool : pools.values()) {
+				pool.evict();
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Get a connection from the pool for the database (the pool is created if
+	 * it does not exist yet).
+	 *
+	 * @param url
+	 *            JDBC url of the database
+	 * @param user
+	 *            user name, null if the url contains all the information
+	 *            required to connect (e.g. SciDB)
+	 * @param password
+	 *            password for the user
+	 * @param resetStatement
+	 *            statement executed when a connection is returned to the pool
+	 *            to clear the session state left by the previous user (e.g.
+	 *            "RESET ALL" for PostgreSQL), or null
+	 * @return the connection, which has to be closed to be returned to the
+	 *         pool
+	 * @throws SQLException
+	 *             if a connection could not be established or there was no
+	 *             free connection in the pool before the timeout
+	 */
+	public static Connection getConnection(String url, String user,
+			String password, String resetStatement) throws SQLException {
+		String key = url + "|" + user + "|" + password;
+		ConnectionPool pool = pools.computeIfAbsent(key,
+				k -> new ConnectionPool(url, user, password, resetStatement,
+						BigDawgConfigProperties.INSTANCE
+								.getConnectionPoolMaxSize(),
+						BigDawgConfigProperties.INSTANCE
+								.getConnectionPoolIdleTimeout(),
+						BigDawgConfigProperties.INSTANCE
+								.getConnectionPoolWaitTimeout()));
+		return pool.borrow();
+	}
+
+	/**
+	 * @return the pools, keyed by the url and user of the database (for
+	 *         monitoring)
+	 */
+	public static Map<String, ConnectionPool> getPools() {
+		Map<String, ConnectionPool> result = new HashMap<>();
+		for (ConnectionPool pool : pools.values()) {
+			result.put(pool.url + " (" + pool.user + ")", pool);
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	private final String url;
+	private final String user;
+	private final String password;
+	private final String resetStatement;
+	private final int maxSize;
+	private final long idleTimeout;
+	private final long waitTimeout;
+
+	/** Most recently returned connections first. */
+	private final Deque<PooledConnection> idle = new ArrayDeque<>();
+	/** The connections handed out to the users. */
+	private final Set<Lease> leases = ConcurrentHashMap.newKeySet();
+	/** Leases whose connections were garbage collected. */
+	private final ReferenceQueue<Connection> abandoned = new ReferenceQueue<>();
+	/** Number of connections handed out or being established. */
+	private int active = 0;
+
+	/* metrics */
+	private long created = 0;
+	private long borrowed = 0;
+	private long evicted = 0;
+	private long invalid = 0;
+	private long leaked = 0;
+	private long totalWaitNanos = 0;
+	private long maxWaitNanos = 0;
+
+	ConnectionPool(String url, String user, String password,
+			String resetStatement, int maxSize, long idleTimeout,
+			long waitTimeout) {
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.resetStatement = resetStatement;
+		this.maxSize = Math.max(1, maxSize);
+		this.idleTimeout = idleTimeout;
+		this.waitTimeout = waitTimeout;
+	}
+
+	/**
+	 * A physical connection with the state to which it is restored when it is
+	 * returned to the pool.
+	 */
+	private static class PooledConnection {
+		private final Connection connection;
+		private final boolean autoCommit;
+		private long idleSince;
+
+		PooledConnection(Connection connection, boolean autoCommit) {
+			this.connection = connection;
+			this.autoCommit = autoCommit;
+		}
+	}
+
+	/**
+	 * Handing out of a physical connection to a user. It is weakly reachable
+	 * from the proxy given to the user, so that a connection which was not
+	 * closed can be reclaimed.
+	 */
+	private class Lease extends WeakReference<Connection> {
+		private final PooledConnection pooled;
+		private final AtomicBoolean released = new AtomicBoolean(false);
+
+		Lease(Connection proxy, PooledConnection pooled) {
+			super(proxy, abandoned);
+			this.pooled = pooled;
+		}
+
+		boolean isReleased() {
+			return released.get();
+		}
+
+		void release() {
+			if (released.compareAndSet(false, true)) {
+				leases.remove(this);
+				clear();
+				giveBack(pooled);
+			}
+		}
+
+		void reclaim() {
+			if (released.compareAndSet(false, true)) {
+				leases.remove(this);
+				log.warn("A connection to " + url + " was not closed by its "
+						+ "user, closing it.");
+				synchronized (ConnectionPool.this) {
+					leaked++;
+				}
+				discard(pooled);
+			}
+		}
+	}
+
+	/**
+	 * Forwards the calls to the physical connection, except for close which
+	 * returns the connection to the pool.
+	 */
+	private static class LeaseHandler implements InvocationHandler {
+		private final Connection connection;
+		private Lease lease;
+
+		LeaseHandler(Connection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args)
+				throws Throwable {
+			String name = method.getName();
+			int argsCount = (args == null) ? 0 : args.length;
+			if (name.equals("close") && argsCount == 0) {
+				lease.release();
+				return null;
+			} else if (name.equals("isClosed") && argsCount == 0) {
+				return lease.isReleased() || connection.isClosed();
+			} else if (name.equals("equals") && argsCount == 1) {
+				return proxy == args[0];
+			} else if (name.equals("hashCode") && argsCount == 0) {
+				return System.identityHashCode(proxy);
+			} else if (name.equals("toString") && argsCount == 0) {
+				return "Pooled " + connection.toString();
+			}
+			if (lease.isReleased()) {
+				throw new SQLException(
+						"The connection has already been closed.");
+			}
+			try {
+				return method.invoke(connection, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+
+	/**
+	 * @return a connection from the pool (a new one if there is no idle
+	 *         connection and the pool is not full)
+	 * @throws SQLException
+	 */
+	Connection borrow() throws SQLException {
+		final long start = System.nanoTime();
+		final long deadline = start
+				+ TimeUnit.MILLISECONDS.toNanos(waitTimeout);
+		while (true) {
+			PooledConnection pooled = null;
+			synchronized (this) {
+				reclaimAbandoned();
+				while (idle.isEmpty() && active >= maxSize) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						throw new SQLException("Timed out after " + waitTimeout
+								+ " ms waiting for a free connection to " + url
+								+ " (the pool is limited to " + maxSize
+								+ " connections).");
+					}
+					try {
+						TimeUnit.NANOSECONDS.timedWait(this, remaining);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException(
+								"Interrupted while waiting for a connection to "
+										+ url,
+								e);
+					}
+					reclaimAbandoned();
+				}
+				pooled = idle.pollFirst();
+				active++;
+			}
+			if (pooled == null) {
+				pooled = create();
+			} else if (!isValid(pooled.connection)) {
+				synchronized (this) {
+					invalid++;
+				}
+				discard(pooled);
+				continue;
+			}
+			synchronized (this) {
+				long waitNanos = System.nanoTime() - start;
+				borrowed++;
+				totalWaitNanos += waitNanos;
+				maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+			}
+			return lease(pooled);
+		}
+	}
+
+	/**
+	 * Establish a new physical connection (the slot for it is already counted
+	 * as active).
+	 */
+	private PooledConnection create() throws SQLException {
+		try {
+			Connection connection = (user == null)
+					? DriverManager.getConnection(url)
+					: DriverManager.getConnection(url, user, password);
+			boolean autoCommit = true;
+			try {
+				autoCommit = connection.getAutoCommit();
+			} catch (SQLException e) {
+				log.debug("Could not get the auto-commit mode of the "
+						+ "connection to " + url + ": " + e.getMessage());
+			}
+			synchronized (this) {
+				created++;
+			}
+			return new PooledConnection(connection, autoCommit);
+		} catch (SQLException | RuntimeException e) {
+			synchronized (this) {
+				active--;
+				notifyAll();
+			}
+			throw e;
+		}
+	}
+
+	private Connection lease(PooledConnection pooled) {
+		Connection connection = pooled.connection;
+		List<Class<?>> interfaces = ClassUtils
+				.getAllInterfaces(connection.getClass());
+		if (!interfaces.contains(Connection.class)) {
+			interfaces.add(Connection.class);
+		}
+		LeaseHandler handler = new LeaseHandler(connection);
+		Connection proxy = (Connection) Proxy.newProxyInstance(
+				connection.getClass().getClassLoader(),
+				interfaces.toArray(new Class<?>[interfaces.size()]), handler);
+		/* the handler must not refer to the proxy, so that it can be reclaimed */
+		handler.lease = new Lease(proxy, pooled);
+		leases.add(handler.lease);
+		return proxy;
+	}
+
+	private static boolean isValid(Connection connection) {
+		try {
+			return connection.isValid(VALIDATION_TIMEOUT);
+		} catch (SQLException | AbstractMethodError
+				| UnsupportedOperationException e) {
+			/* older drivers (e.g. SciDB) do not implement the validation */
+			try {
+				return !connection.isClosed();
+			} catch (SQLException ex) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Restore the initial state of the connection and put it back to the pool
+	 * (or close it if it cannot be reused).
+	 */
+	private void giveBack(PooledConnection pooled) {
+		Connection connection = pooled.connection;
+		try {
+			if (connection.isClosed()) {
+				discard(pooled);
+				return;
+			}
+			if (connection.getAutoCommit() != pooled.autoCommit) {
+				if (!connection.getAutoCommit()) {
+					/* the user did not commit, so we do not either */
+					connection.rollback();
+				}
+				connection.setAutoCommit(pooled.autoCommit);
+			}
+			connection.clearWarnings();
+			if (resetStatement != null) {
+				try (Statement statement = connection.createStatement()) {
+					statement.execute(resetStatement);
+				}
+			}
+		} catch (SQLException e) {
+			log.debug("Could not reset the connection to " + url
+					+ ", closing it: " + e.getMessage());
+			discard(pooled);
+			return;
+		}
+		synchronized (this) {
+			active--;
+			pooled.idleSince = System.currentTimeMillis();
+			idle.addFirst(pooled);
+			notifyAll();
+		}
+	}
+
+	/** Close the physical connection and free its slot. */
+	private void discard(PooledConnection pooled) {
+		synchronized (this) {
+			active--;
+			notifyAll();
+		}
+		close(pooled.connection);
+	}
+
+	private void close(Connection connection) {
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			log.debug("Could not close the connection to " + url + ": "
+					+ e.getMessage());
+		}
+	}
+
+	private void reclaimAbandoned() {
+		Object reference;
+		while ((reference = abandoned.poll()) != null) {
+			((Lease) reference).reclaim();
+		}
+	}
+
+	/**
+	 * Close the connections which have been idle for longer than the idle
+	 * timeout and reclaim the leaked ones.
+	 */
+	void evict() {
+		List<PooledConnection> expired = new ArrayList<>();
+		synchronized (this) {
+			reclaimAbandoned();
+			long now = System.currentTimeMillis();
+			Iterator<PooledConnection> iterator = idle.iterator();
+			while (iterator.hasNext()) {
+				PooledConnection pooled = iterator.next();
+				if (now - pooled.idleSince >= idleTimeout) {
+					iterator.remove();
+					expired.add(pooled);
+					evicted++;
+				}
+			}
+		}
+		for (PooledConnection pooled : expired) {
+			close(pooled.connection);
+		}
+	}
+
+	/**
+	 * @return number of connections handed out to the users
+	 */
+	public synchronized int getActive() {
+		return active;
+	}
+
+	/**
+	 * @return number of connections waiting in the pool to be reused
+	 */
+	public synchronized int getIdle() {
+		return idle.size();
+	}
+
+	/**
+	 * @return number of physical connections established by the pool
+	 */
+	public synchronized long getCreated() {
+		return created;
+	}
+
+	/**
+	 * @return number of connections handed out by the pool
+	 */
+	public synchronized long getBorrowed() {
+		return borrowed;
+	}
+
+	/**
+	 * @return number of idle connections closed because of the idle timeout
+	 */
+	public synchronized long getEvicted() {
+		return evicted;
+	}
+
+	/**
+	 * @return number of idle connections which failed the validation
+	 */
+	public synchronized long getInvalid() {
+		return invalid;
+	}
+
+	/**
+	 * @return number of connections which were not closed by their users
+	 */
+	public synchronized long getLeaked() {
+		return leaked;
+	}
+
+	/**
+	 * @return the average time (in ms) of getting a connection from the pool
+	 */
+	public synchronized double getAverageWaitTime() {
+		return borrowed == 0 ? 0
+				: (double) TimeUnit.NANOSECONDS.toMicros(totalWaitNanos)
+						/ borrowed / 1000;
+	}
+
+	/**
+	 * @return the longest time (in ms) of getting a connection from the pool
+	 */
+	public synchronized long getMaxWaitTime() {
+		return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "ConnectionPool [url=" + url + ", user=" + user + ", active="
+				+ active + ", idle=" + idle.size() + ", maxSize=" + maxSize
+				+ ", created=" + created + ", borrowed=" + borrowed
+				+ ", evicted=" + evicted + ", invalid=" + invalid + ", leaked="
+				+ leaked + ", avgWait=" + getAverageWaitTime() + " ms, maxWait="
+				+ getMaxWaitTime() + " ms]";
+	}
+}
@@ -0,0 +1,227 @@
+package istc.bigdawg.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import istc.bigdawg.properties.BigDawgConfigProperties;
+
+/**
+ * In-memory pipe for migrations in which both the exporter and the loader run
+ * in this JVM (e.g. the PostgreSQL copy manager on both sides), so the data
+ * does not have to go through a named pipe (see {@link Pipe}) and no external
+ * process has to be started to create it.
+ *
+ * The data is kept in a bounded ring buffer: the writer waits when the buffer
+ * is full and the reader waits when the buffer is empty. Closing the output
+ * signals the end of the data to the reader; closing the input (e.g. when the
+ * loader fails) makes the writer fail instead of waiting forever.
+ *
+ * The pipe can be used only by one thread (from each end).
+ */
+public class RingBufferPipe {
+
+	private final byte[] buffer;
+
+	/** Position of the next byte to be read. */
+	private int readPosition = 0;
+
+	/** Number of bytes in the buffer. */
+	private int count = 0;
+
+	private boolean outputClosed = false;
+	private boolean inputClosed = false;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+
+	private final InputStream input = new RingBufferInputStream();
+	private final OutputStream output = new RingBufferOutputStream();
+
+	/**
+	 * Create the pipe with the buffer of the configured size.
+	 */
+	public RingBufferPipe() {
+		this(BigDawgConfigProperties.INSTANCE.getMigrationPipeBufferSize());
+	}
+
+	/**
+	 * @param capacity
+	 *            size of the buffer (in bytes)
+	 */
+	public RingBufferPipe(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException(
+					"The capacity of the pipe has to be positive: "
+							+ capacity);
+		}
+		this.buffer = new byte[capacity];
+	}
+
+	/**
+	 * @return the end of the pipe from which the loader reads the data
+	 */
+	public InputStream getInputStream() {
+		return input;
+	}
+
+	/**
+	 * @return the end of the pipe to which the exporter writes the data
+	 */
+	public OutputStream getOutputStream() {
+		return output;
+	}
+
+	private void write(byte[] bytes, int offset, int length)
+			throws IOException {
+		lock.lock();
+		try {
+			while (length > 0) {
+				while (count == buffer.length && !inputClosed
+						&& !outputClosed) {
+					notFull.await();
+				}
+				if (outputClosed) {
+					throw new IOException("The pipe is closed.");
+				}
+				if (inputClosed) {
+					throw new IOException("The pipe was closed by the reader.");
+				}
+				int writePosition = (readPosition + count) % buffer.length;
+				int chunk = Math.min(length, Math.min(buffer.length - count,
+						buffer.length - writePosition));
+				System.arraycopy(bytes, offset, buffer, writePosition, chunk);
+				count += chunk;
+				offset += chunk;
+				length -= chunk;
+				notEmpty.signal();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+					"Interrupted while writing to the pipe.");
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private int read(byte[] bytes, int offset, int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		}
+		lock.lock();
+		try {
+			while (count == 0 && !outputClosed && !inputClosed) {
+				notEmpty.await();
+			}
+			if (inputClosed) {
+				throw new IOException("The pipe is closed.");
+			}
+			if (count == 0) {
+				/* the writer closed the pipe and all the data was read */
+				return -1;
+			}
+			int chunk = Math.min(length,
+					Math.min(count, buffer.length - readPosition));
+			System.arraycopy(buffer, readPosition, bytes, offset, chunk);
+			readPosition = (readPosition + chunk) % buffer.length;
+			count -= chunk;
+			notFull.signal();
+			return chunk;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+					"Interrupted while reading from the pipe.");
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private int available() {
+		lock.lock();
+		try {
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void closeOutput() {
+		lock.lock();
+		try {
+			outputClosed = true;
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void closeInput() {
+		lock.lock();
+		try {
+			inputClosed = true;
+			count = 0;
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private class RingBufferInputStream extends InputStream {
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			int read = RingBufferPipe.this.read(single, 0, 1);
+			return read == -1 ? -1 : single[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length)
+				throws IOException {
+			if (offset < 0 || length < 0 || length > bytes.length - offset) {
+				throw new IndexOutOfBoundsException();
+			}
+			return RingBufferPipe.this.read(bytes, offset, length);
+		}
+
+		@Override
+		public int available() {
+			return RingBufferPipe.this.available();
+		}
+
+		@Override
+		public void close() {
+			closeInput();
+		}
+	}
+
+	private class RingBufferOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			RingBufferPipe.this.write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length)
+				throws IOException {
+			if (offset < 0 || length < 0 || length > bytes.length - offset) {
+				throw new IndexOutOfBoundsException();
+			}
+			RingBufferPipe.this.write(bytes, offset, length);
+		}
+
+		@Override
+		public void close() {
+			closeOutput();
+		}
+	}
+
+}
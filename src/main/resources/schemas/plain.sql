@@ -18,6 +18,19 @@ CREATE TABLE IF NOT EXISTS migrationstats (
   message varchar(1000)
 );
 
+CREATE TABLE IF NOT EXISTS migrationchunks (
+  fromLoc varchar(250),
+  toLoc varchar(250),
+  objectFrom varchar(250),
+  objectTo varchar(250),
+  chunk integer,
+  condition varchar(1000),
+  done boolean,
+  countLoaded bigint,
+  endTime bigint,
+  PRIMARY KEY (fromLoc, toLoc, objectFrom, objectTo, chunk)
+);
+
 CREATE TABLE IF NOT EXISTS mimic2v26.a_chartdurations (subject_id integer, icustay_id integer, itemid integer, elemid integer, starttime timestamp without time zone, startrealtime timestamp without time zone, endtime timestamp without time zone, cuid integer, duration double precision);
 
 CREATE TABLE IF NOT EXISTS mimic2v26.a_iodurations (subject_id integer, icustay_id integer, itemid integer, elemid integer, starttime timestamp without time zone, startrealtime timestamp without time zone, endtime timestamp without time zone, cuid integer, duration double precision);
@@ -0,0 +1,79 @@
+package istc.bigdawg.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+/**
+ * Check the Bloom filter used by the semi-join reduction (the hashes of the
+ * keys are random numbers in place of the hashes computed by PostgreSQL).
+ */
+public class BloomFilterTest {
+
+	private static Logger logger = Logger.getLogger(BloomFilterTest.class);
+
+	@Test
+	public void testFalsePositiveRate() {
+		int keys = 100000;
+		BloomFilter filter = new BloomFilter(keys, 0.01);
+		Random random = new Random(7);
+		int[][] added = new int[keys][2];
+		for (int i = 0; i < keys; ++i) {
+			added[i][0] = random.nextInt();
+			added[i][1] = random.nextInt();
+			filter.add(added[i][0], added[i][1]);
+		}
+		for (int[] key : added) {
+			assertTrue(filter.mightContain(key[0], key[1]));
+		}
+		int falsePositives = 0;
+		int probes = 100000;
+		for (int i = 0; i < probes; ++i) {
+			if (filter.mightContain(random.nextInt(), random.nextInt())) {
+				++falsePositives;
+			}
+		}
+		double rate = (double) falsePositives / probes;
+		logger.info(String.format(
+				"Bloom filter of %d bits and %d hashes: false positive rate %.4f",
+				filter.getNumBits(), filter.getNumHashes(), rate));
+		assertTrue(rate < 0.02);
+	}
+
+	@Test
+	public void testPostgreSQLFormat() {
+		BloomFilter filter = new BloomFilter(1, 0.5);
+		assertEquals(64, filter.getNumBits());
+		/*
+		 * the positions of the key are -1 + 8 * i modulo 64: the highest bit
+		 * of each byte (get_bit numbers the bits from the lowest one)
+		 */
+		filter.add(-1, 8);
+		assertEquals("decode('8080808080808080', 'hex')",
+				filter.toPostgreSQLBytea());
+		assertTrue(filter.mightContain(7, 8));
+		String condition = filter.getPostgreSQLCondition("bits", "t.k");
+		assertTrue(condition, condition.startsWith(
+				"get_bit(bits, ((((hashtext((t.k)::text))::bigint + 0 * "
+						+ "(hashtext((t.k)::text || ':'))::bigint) % 64 + 64) % 64)::int) = 1"));
+	}
+
+	@Test
+	public void testReducibleKeyTypes() {
+		/* int4, int8, varchar */
+		assertTrue(SemiJoinReduction.isReducible(23));
+		assertTrue(SemiJoinReduction.isReducible(20));
+		assertTrue(SemiJoinReduction.isReducible(1043));
+		/* numeric and float8: equal values with different text forms */
+		assertFalse(SemiJoinReduction.isReducible(1700));
+		assertFalse(SemiJoinReduction.isReducible(701));
+		/* no such attribute */
+		assertFalse(SemiJoinReduction.isReducible(0));
+	}
+
+}
@@ -0,0 +1,72 @@
+package istc.bigdawg.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
+import istc.bigdawg.query.ConnectionInfo;
+
+/**
+ * Check that the scheduler never runs more tasks against an engine than its
+ * limit and that the queued tasks are eventually started.
+ */
+public class EngineSchedulerTest {
+
+	private final ConnectionInfo engine = new PostgreSQLConnectionInfo(
+			"localhost", "5431", "test", "pguser", "test");
+
+	@Test
+	public void testConcurrencyLimitPerEngine() throws Exception {
+		final int limit = 2;
+		final int tasks = 10;
+		final EngineScheduler scheduler = new EngineScheduler(limit);
+		final AtomicInteger running = new AtomicInteger(0);
+		final AtomicInteger maxRunning = new AtomicInteger(0);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < tasks; ++i) {
+			final int id = i;
+			futures.add(scheduler.submit(engine, () -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(),
+						Math::max);
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+				return id;
+			}));
+		}
+		assertEquals(tasks - limit, scheduler.getQueueDepth(engine));
+		release.countDown();
+
+		for (int i = 0; i < tasks; ++i) {
+			assertEquals(i, futures.get(i).get(10, TimeUnit.SECONDS).intValue());
+		}
+		assertTrue(maxRunning.get() <= limit);
+		assertEquals(0, scheduler.getQueueDepth(engine));
+		assertEquals(0, scheduler.getRunning(engine));
+	}
+
+	@Test
+	public void testFailedTaskReleasesSlot() throws Exception {
+		final EngineScheduler scheduler = new EngineScheduler(1);
+		CompletableFuture<Integer> failed = scheduler.submit(engine, () -> {
+			throw new IllegalStateException("expected failure");
+		});
+		CompletableFuture<Integer> next = scheduler.submit(engine, () -> 1);
+		assertEquals(1, next.get(10, TimeUnit.SECONDS).intValue());
+		assertTrue(failed.isCompletedExceptionally());
+	}
+}
@@ -0,0 +1,86 @@
+package istc.bigdawg.executor;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import istc.bigdawg.executor.plan.ExecutionNode;
+import istc.bigdawg.executor.plan.QueryExecutionPlan;
+import istc.bigdawg.executor.plan.TableExecutionNode;
+import istc.bigdawg.islands.IslandAndCastResolver.Scope;
+import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
+import istc.bigdawg.query.ConnectionInfo;
+
+/**
+ * Check that the nodes without a query (which refer to existing tables) are
+ * completed, so the nodes which depend on them are executed, and that an
+ * unexpected error of a node fails the plan instead of blocking it.
+ */
+public class PlanExecutorTest {
+
+	private final ConnectionInfo engine = new PostgreSQLConnectionInfo(
+			"localhost", "5431", "test", "pguser", "test");
+
+	@Test
+	public void testPlanWithTableNodes() throws Exception {
+		QueryExecutionPlan plan = new QueryExecutionPlan(Scope.RELATIONAL);
+		ExecutionNode table = new TableExecutionNode(engine, "region");
+		ExecutionNode terminal = new TableExecutionNode(engine, "nation");
+		plan.addDependencies(terminal, Collections.singleton(table));
+		plan.setTerminalTableNode(terminal);
+		plan.setTerminalTableName("nation");
+
+		/*
+		 * the existing tables are not dropped after the execution (it would
+		 * fail without the database)
+		 */
+		Optional<QueryResult> result = CompletableFuture.supplyAsync(() -> {
+			try {
+				return new PlanExecutor(plan).executePlan(Optional.empty());
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}).get(10, TimeUnit.SECONDS);
+		assertFalse(result.isPresent());
+	}
+
+	@Test
+	public void testUnexpectedErrorFailsPlan() throws Exception {
+		QueryExecutionPlan plan = new QueryExecutionPlan(Scope.RELATIONAL);
+		/* the dependant fails when it looks for the table of the dependency */
+		ExecutionNode table = new TableExecutionNode(engine, "region") {
+			@Override
+			public Optional<String> getTableName() {
+				throw new IllegalStateException("no table");
+			}
+		};
+		ExecutionNode join = new TableExecutionNode(engine, "nation");
+		ExecutionNode terminal = new TableExecutionNode(engine, "customer");
+		plan.addDependencies(join, Collections.singleton(table));
+		plan.addDependencies(terminal, Collections.singleton(join));
+		plan.setTerminalTableNode(terminal);
+		plan.setTerminalTableName("customer");
+
+		try {
+			CompletableFuture.supplyAsync(() -> {
+				try {
+					return new PlanExecutor(plan).executePlan(Optional.empty());
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}).get(10, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause().getCause() instanceof ExecutorEngine.LocalQueryExecutionException);
+			return;
+		}
+		assertTrue("the plan did not fail", false);
+	}
+
+}
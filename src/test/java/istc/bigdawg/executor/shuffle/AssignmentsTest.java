@@ -0,0 +1,145 @@
+package istc.bigdawg.executor.shuffle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import istc.bigdawg.executor.plan.BinaryJoinExecutionNode.JoinOperand;
+import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
+import istc.bigdawg.query.ConnectionInfo;
+
+/**
+ * Compare the tabu search with the minimum bandwidth assignment and measure
+ * how long the search takes for a growing number of buckets.
+ */
+public class AssignmentsTest {
+
+	private static Logger logger = Logger.getLogger(AssignmentsTest.class);
+
+	private static final int ENGINES = 4;
+	private static final long MIN = 0;
+	private static final long MAX = 1000000;
+
+	private final List<ConnectionInfo> engines = new ArrayList<>();
+
+	public AssignmentsTest() {
+		for (int i = 0; i < ENGINES; ++i) {
+			engines.add(new PostgreSQLConnectionInfo("localhost",
+					Integer.toString(5431 + i), "shard" + i, "pguser", "test"));
+		}
+	}
+
+	/**
+	 * Each engine holds most of the tuples of a few buckets and some of the
+	 * others, the first engine holds also the hotspots.
+	 */
+	private List<Histogram> getHistograms(int buckets, int hotspots,
+			long seed) {
+		Random random = new Random(seed);
+		List<Histogram> histograms = new ArrayList<>();
+		for (int e = 0; e < ENGINES; ++e) {
+			long[] counts = new long[buckets];
+			for (int i = 0; i < buckets; ++i) {
+				counts[i] = random.nextInt(100)
+						+ (i % ENGINES == e ? random.nextInt(10000) : 0);
+			}
+			Map<Long, Long> hotspotCounts = new HashMap<>();
+			for (int i = 0; i < hotspots; ++i) {
+				hotspotCounts.put((long) i * 997,
+						(long) random.nextInt(e == 0 ? 100000 : 1000));
+			}
+			JoinOperand operand = new JoinOperand(engines.get(e), "table" + e,
+					"key", null);
+			histograms.add(new Histogram(counts, hotspotCounts, MIN, MAX,
+					operand));
+		}
+		return histograms;
+	}
+
+	@Test
+	public void testTabuSearchDoesNotIncreaseCost() {
+		for (long seed = 0; seed < 5; ++seed) {
+			List<Histogram> histograms = getHistograms(100, 10, seed);
+			Assignments minimumBandwidth = Assignments
+					.getMinimumBandwidthAssignment(histograms, engines.get(0),
+							100);
+			Assignments tabu = Assignments.getTabuSearchAssignment(histograms,
+					engines.get(0), 100, 1000);
+			assertTrue(tabu.getCost() <= minimumBandwidth.getCost());
+		}
+	}
+
+	@Test
+	public void testIncrementalCost() {
+		List<Histogram> histograms = getHistograms(200, 20, 42);
+		Assignments initial = Assignments.getMinimumBandwidthAssignment(
+				histograms, engines.get(0), 200);
+
+		long[][] counts = new long[ENGINES][220];
+		int[] assignment = new int[220];
+		List<Long> hotspots = new ArrayList<>(histograms.get(0).getHotspots());
+		for (int e = 0; e < ENGINES; ++e) {
+			Histogram h = histograms.get(e);
+			for (int i = 0; i < 200; ++i) {
+				counts[e][i] = h.getBucketCount(i);
+				if (initial.getAssignment(i).equals(h.getOperand())) {
+					assignment[i] = e;
+				}
+			}
+			for (int i = 0; i < 20; ++i) {
+				counts[e][200 + i] = h.getHotspotCount(hotspots.get(i));
+			}
+		}
+		for (int i = 0; i < 20; ++i) {
+			assignment[200 + i] = 0;
+		}
+		TabuSearch search = new TabuSearch(counts, assignment);
+		search.search(Long.MAX_VALUE);
+
+		/* the costs updated by the moves are the costs computed from scratch */
+		Assignments recomputed = new Assignments(200, histograms,
+				engines.get(0));
+		int[] current = search.getAssignment();
+		for (int i = 0; i < 200; ++i) {
+			recomputed.assignBucket(i, histograms.get(current[i]).getOperand());
+		}
+		for (int i = 0; i < 20; ++i) {
+			recomputed.assignHotspot(hotspots.get(i),
+					histograms.get(current[200 + i]).getOperand());
+		}
+		assertEquals(recomputed.getCost(), search.getCost(),
+				1e-6 * recomputed.getCost());
+		assertTrue(search.getIterations() > 0);
+	}
+
+	/**
+	 * The time of the tabu search for 100 to 100k buckets; the search stops
+	 * when it runs out of its time budget.
+	 */
+	@Test
+	public void testSearchTime() {
+		long budget = 500;
+		for (int buckets = 100; buckets <= 100000; buckets *= 10) {
+			List<Histogram> histograms = getHistograms(buckets, buckets / 10,
+					buckets);
+			long start = System.nanoTime();
+			Assignments tabu = Assignments.getTabuSearchAssignment(histograms,
+					engines.get(0), buckets, budget);
+			long searchTime = (System.nanoTime() - start) / 1000000;
+			logger.info(String.format(
+					"%d buckets: tabu search took %d ms (cost %.0f)", buckets,
+					searchTime, tabu.getCost()));
+			/* the budget covers the search, not the preparation of the arrays */
+			assertTrue(searchTime < budget + 2000);
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+package istc.bigdawg.executor.shuffle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import istc.bigdawg.executor.plan.BinaryJoinExecutionNode.JoinOperand;
+import istc.bigdawg.executor.shuffle.ShuffleEngine.AttributeStatistics;
+import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
+import istc.bigdawg.query.ConnectionInfo;
+
+/**
+ * Check the cache of the statistics of the join attributes and the histograms
+ * built from the statistics gathered by PostgreSQL (no engines are needed).
+ */
+public class ShuffleEngineTest {
+
+	private final ConnectionInfo engine1 = new PostgreSQLConnectionInfo(
+			"localhost", "5431", "shard1", "pguser", "test");
+	private final ConnectionInfo engine2 = new PostgreSQLConnectionInfo(
+			"localhost", "5432", "shard2", "pguser", "test");
+
+	private final Pair<ConnectionInfo, String> key = new ImmutablePair<>(
+			engine1, "orders.o_custkey");
+
+	/** Number of times the statistics were gathered. */
+	private final AtomicInteger gathered = new AtomicInteger();
+
+	@Before
+	public void setUp() {
+		ShuffleEngine.clearStatisticsCache();
+	}
+
+	private AttributeStatistics getStatistics(String modifications)
+			throws Exception {
+		return ShuffleEngine.getCachedStatistics(key, modifications, () -> {
+			gathered.incrementAndGet();
+			return new AttributeStatistics(modifications,
+					Collections.emptyMap(), Arrays.asList(0L, 10L), 5);
+		});
+	}
+
+	@Test
+	public void testCacheHit() throws Exception {
+		AttributeStatistics statistics = getStatistics("16384:16384:100");
+		assertSame(statistics, getStatistics("16384:16384:100"));
+		assertEquals(1, gathered.get());
+	}
+
+	@Test
+	public void testModifiedTableInvalidatesStatistics() throws Exception {
+		AttributeStatistics statistics = getStatistics("16384:16384:100");
+		/* rows were inserted */
+		AttributeStatistics modified = getStatistics("16384:16384:101");
+		assertTrue(statistics != modified);
+		assertEquals(2, gathered.get());
+		/* the new statistics are cached */
+		assertSame(modified, getStatistics("16384:16384:101"));
+		assertEquals(2, gathered.get());
+		/* the table was truncated (new file) */
+		getStatistics("16384:16390:101");
+		assertEquals(3, gathered.get());
+
+		ShuffleEngine.clearStatisticsCache();
+		getStatistics("16384:16390:101");
+		assertEquals(4, gathered.get());
+	}
+
+	/**
+	 * All the values of a low-cardinality key are among the most common
+	 * values, so PostgreSQL does not build the histogram.
+	 */
+	@Test
+	public void testNoHistogram() {
+		List<String> row = Arrays.asList("[1,2]", "[0.6,0.4]", null, "1000");
+		AttributeStatistics statistics = ShuffleEngine.parseStatistics(row,
+				"16384:16384:1000");
+		assertTrue(statistics.histogramBounds.isEmpty());
+		assertEquals(0, statistics.histogramBucketCount);
+		assertEquals(Long.valueOf(600), statistics.commonValCounts.get(1L));
+		assertEquals(Long.valueOf(400), statistics.commonValCounts.get(2L));
+
+		JoinOperand orders = new JoinOperand(engine1, "orders", "o_custkey",
+				null);
+		JoinOperand customer = new JoinOperand(engine2, "customer",
+				"c_custkey", null);
+		Map<JoinOperand, AttributeStatistics> operandStatistics = new HashMap<>();
+		operandStatistics.put(orders, statistics);
+		operandStatistics.put(customer, ShuffleEngine.parseStatistics(
+				Arrays.asList("[2,3]", "[0.5,0.5]", null, "10"), "1:1:10"));
+		List<Histogram> histograms = ShuffleEngine
+				.createHistogramsFromStatistics(
+						Arrays.asList(orders, customer), operandStatistics);
+		assertEquals(2, histograms.size());
+		for (Histogram histogram : histograms) {
+			/* the range of the most common values */
+			assertEquals(1, histogram.getMin());
+			assertEquals(3, histogram.getMax());
+		}
+		assertEquals(600, histograms.get(0).getHotspotCount(1));
+		assertEquals(5, histograms.get(1).getHotspotCount(3));
+	}
+
+	@Test
+	public void testGlobalBounds() {
+		AttributeStatistics withHistogram = new AttributeStatistics("",
+				Collections.singletonMap(100L, 5L), Arrays.asList(-5L, 0L, 7L),
+				10);
+		AttributeStatistics withoutHistogram = new AttributeStatistics("",
+				Collections.singletonMap(50L, 5L), Collections.emptyList(), 0);
+		assertEquals(new ImmutablePair<>(-5L, 7L), ShuffleEngine
+				.getGlobalBounds(Arrays.asList(withHistogram, withoutHistogram)));
+		assertEquals(new ImmutablePair<>(50L, 50L), ShuffleEngine
+				.getGlobalBounds(Collections.singletonList(withoutHistogram)));
+		/* no statistics at all (empty tables) */
+		AttributeStatistics empty = new AttributeStatistics("",
+				Collections.emptyMap(), Collections.emptyList(), 0);
+		assertEquals(new ImmutablePair<>(0L, 0L), ShuffleEngine
+				.getGlobalBounds(Collections.singletonList(empty)));
+	}
+
+}
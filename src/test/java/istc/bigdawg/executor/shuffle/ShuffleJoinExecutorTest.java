@@ -0,0 +1,356 @@
+package istc.bigdawg.executor.shuffle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import istc.bigdawg.executor.plan.BinaryJoinExecutionNode;
+import istc.bigdawg.executor.plan.BinaryJoinExecutionNode.JoinOperand;
+import istc.bigdawg.executor.plan.ExecutionNode;
+import istc.bigdawg.executor.plan.QueryExecutionPlan;
+import istc.bigdawg.islands.IslandAndCastResolver.Scope;
+import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
+import istc.bigdawg.query.ConnectionInfo;
+
+/**
+ * Check the plan of the shuffle join of operands stored on three engines and
+ * compare the data it moves with the broadcast join (using the histograms and
+ * the cost model of the shuffle join, no engines are needed).
+ */
+public class ShuffleJoinExecutorTest {
+
+	private static Logger logger = Logger
+			.getLogger(ShuffleJoinExecutorTest.class);
+
+	private static final int BUCKETS = 20;
+	private static final long MIN = 0;
+	private static final long MAX = 20000;
+
+	private final ConnectionInfo engine1 = new PostgreSQLConnectionInfo(
+			"localhost", "5431", "shard1", "pguser", "test");
+	private final ConnectionInfo engine2 = new PostgreSQLConnectionInfo(
+			"localhost", "5432", "shard2", "pguser", "test");
+	private final ConnectionInfo engine3 = new PostgreSQLConnectionInfo(
+			"localhost", "5433", "shard3", "pguser", "test");
+
+	private final JoinOperand orders1 = new JoinOperand(engine1, "orders_1",
+			"o_custkey",
+			"SELECT * INTO JOINED_LEFTRESULTS FROM orders_1 JOIN JOINED_RIGHTPARTIAL "
+					+ "ON orders_1.o_custkey = JOINED_RIGHTPARTIAL.c_custkey;");
+	private final JoinOperand orders2 = new JoinOperand(engine2, "orders_2",
+			"o_custkey", null);
+	private final JoinOperand customer = new JoinOperand(engine3, "customer",
+			"c_custkey", null);
+
+	private final BinaryJoinExecutionNode node = new BinaryJoinExecutionNode(
+			"SELECT * INTO JOINED FROM orders JOIN customer ON o_custkey = c_custkey;",
+			engine1, "JOINED", Arrays.asList(orders1, orders2),
+			Collections.singletonList(customer), "=",
+			Optional.of(BinaryJoinExecutionNode.JoinAlgorithms.SHUFFLE));
+
+	/**
+	 * @param weights
+	 *            relative number of tuples in each bucket
+	 */
+	private static Histogram histogram(JoinOperand operand, long tuples,
+			double[] weights, Map<Long, Long> hotspots) {
+		double sum = Arrays.stream(weights).sum();
+		long[] buckets = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; ++i) {
+			buckets[i] = (long) (tuples * weights[i] / sum);
+		}
+		return new Histogram(buckets, hotspots, MIN, MAX, operand);
+	}
+
+	private static double[] weights(int from, int to) {
+		double[] weights = new double[BUCKETS];
+		for (int i = 0; i < BUCKETS; ++i) {
+			weights[i] = i >= from && i < to ? 1.0 : 0.01;
+		}
+		return weights;
+	}
+
+	/**
+	 * The orders are split into two shards on the key, the customers are
+	 * spread uniformly.
+	 */
+	private List<Histogram> getUniformHistograms() {
+		return Arrays.asList(
+				histogram(orders1, 1000000, weights(0, BUCKETS / 2),
+						Collections.emptyMap()),
+				histogram(orders2, 1000000, weights(BUCKETS / 2, BUCKETS),
+						Collections.emptyMap()),
+				histogram(customer, 100000, weights(0, BUCKETS),
+						Collections.emptyMap()));
+	}
+
+	/**
+	 * Most of the orders belong to a few customers (the hotspots).
+	 */
+	private List<Histogram> getSkewedHistograms() {
+		Map<Long, Long> hotspots1 = new HashMap<>();
+		hotspots1.put(42L, 800000L);
+		hotspots1.put(15000L, 100000L);
+		Map<Long, Long> hotspots2 = new HashMap<>();
+		hotspots2.put(15000L, 700000L);
+		Map<Long, Long> customerHotspots = new HashMap<>();
+		customerHotspots.put(42L, 1L);
+		customerHotspots.put(15000L, 1L);
+		return Arrays.asList(
+				histogram(orders1, 200000, weights(0, BUCKETS / 2),
+						hotspots1),
+				histogram(orders2, 300000, weights(BUCKETS / 2, BUCKETS),
+						hotspots2),
+				histogram(customer, 100000, weights(0, BUCKETS),
+						customerHotspots));
+	}
+
+	private Assignments assign(List<Histogram> histograms) {
+		return Assignments.getMinimumBandwidthAssignment(histograms, engine1,
+				BUCKETS);
+	}
+
+	@Test
+	public void testEveryValueGoesToOneSite() throws Exception {
+		for (List<Histogram> histograms : Arrays.asList(getUniformHistograms(),
+				getSkewedHistograms())) {
+			ShuffleJoinExecutor executor = new ShuffleJoinExecutor(node);
+			List<ShuffleJoinExecutor.Site> sites = executor
+					.getSites(assign(histograms));
+			Set<Long> allHotspots = new HashSet<>();
+			sites.forEach(s -> allHotspots.addAll(s.hotspots));
+			List<Long> values = new ArrayList<>(allHotspots);
+			for (long value = MIN - 1000; value <= MAX + 1000; value += 7) {
+				values.add(value);
+			}
+			values.addAll(Arrays.asList(Long.MIN_VALUE, MIN, MAX,
+					Long.MAX_VALUE));
+			for (long value : values) {
+				long count = sites.stream()
+						.filter(s -> s.contains(value, allHotspots)).count();
+				assertEquals("value: " + value, 1, count);
+			}
+		}
+	}
+
+	@Test
+	public void testPlan() throws Exception {
+		ShuffleJoinExecutor executor = new ShuffleJoinExecutor(node);
+		Assignments assignments = assign(getUniformHistograms());
+		QueryExecutionPlan plan = executor.generateQEP(assignments);
+
+		assertEquals(Scope.RELATIONAL, plan.getIsland());
+		ExecutionNode terminal = plan.getTerminalTableNode();
+		assertEquals(engine1, terminal.getEngine());
+		assertEquals("JOINED", plan.getTerminalTableName());
+		Collection<ExecutionNode> localJoins = plan.getDependencies(terminal);
+		/* the customers are joined where the orders are */
+		assertEquals(2, localJoins.size());
+		for (ExecutionNode localJoin : localJoins) {
+			assertTrue(localJoin.getEngine().equals(engine1)
+					|| localJoin.getEngine().equals(engine2));
+			assertTrue(terminal.getQueryString().get()
+					.contains(localJoin.getTableName().get()));
+			/* the tuples of both sides of the join come to the engine */
+			assertEquals(2, plan.getDependencies(localJoin).size());
+		}
+		for (ExecutionNode n : plan) {
+			if (n.getTableName().get().equals("JOINED_RESULTS_0")) {
+				assertEquals(
+						"SELECT * INTO JOINED_RESULTS_0 FROM JOINED_LEFTPARTIAL_0 "
+								+ "JOIN JOINED_RIGHTPARTIAL_0 ON JOINED_LEFTPARTIAL_0.o_custkey "
+								+ "= JOINED_RIGHTPARTIAL_0.c_custkey;",
+						n.getQueryString().get());
+				assertEquals(engine1, n.getEngine());
+			}
+			if (n.getTableName().get().equals("JOINED_RIGHTPARTIAL_0")) {
+				/* the customers are read on their own engine */
+				assertEquals(engine3, n.getEngine());
+				assertTrue(n.getQueryString().get()
+						.startsWith("SELECT * INTO JOINED_RIGHTPARTIAL_0 "
+								+ "FROM customer WHERE "));
+			}
+		}
+	}
+
+	/**
+	 * The left operand is a transition table whose name is a prefix of the
+	 * destination table (BIGDAWGTAG_1 and BIGDAWGTAG_12).
+	 */
+	@Test
+	public void testLocalJoinWithCollidingNames() throws Exception {
+		JoinOperand left = new JoinOperand(engine1, "BIGDAWGTAG_1", "a",
+				"SELECT * INTO BIGDAWGTAG_12_LEFTRESULTS FROM BIGDAWGTAG_1 "
+						+ "JOIN BIGDAWGTAG_12_RIGHTPARTIAL "
+						+ "ON BIGDAWGTAG_1.a = BIGDAWGTAG_12_RIGHTPARTIAL.b;");
+		JoinOperand right = new JoinOperand(engine3, "BIGDAWGTAG_11", "b",
+				null);
+		BinaryJoinExecutionNode colliding = new BinaryJoinExecutionNode(
+				"SELECT * INTO BIGDAWGTAG_12 FROM BIGDAWGTAG_1 JOIN BIGDAWGTAG_11 ON a = b;",
+				engine1, "BIGDAWGTAG_12", Collections.singletonList(left),
+				Collections.singletonList(right), "=",
+				Optional.of(BinaryJoinExecutionNode.JoinAlgorithms.SHUFFLE));
+		ShuffleJoinExecutor executor = new ShuffleJoinExecutor(colliding);
+		assertEquals(
+				"SELECT * INTO BIGDAWGTAG_12_RESULTS_0 FROM BIGDAWGTAG_12_LEFTPARTIAL_0 "
+						+ "JOIN BIGDAWGTAG_12_RIGHTPARTIAL_0 "
+						+ "ON BIGDAWGTAG_12_LEFTPARTIAL_0.a = BIGDAWGTAG_12_RIGHTPARTIAL_0.b;",
+				executor.getLocalJoinQuery("BIGDAWGTAG_12_LEFTPARTIAL_0",
+						"BIGDAWGTAG_12_RIGHTPARTIAL_0", "BIGDAWGTAG_12_RESULTS_0"));
+
+		QueryExecutionPlan plan = executor.generateQEP(assign(Arrays.asList(
+				histogram(left, 1000000, weights(0, BUCKETS),
+						Collections.emptyMap()),
+				histogram(right, 100000, weights(0, BUCKETS),
+						Collections.emptyMap()))));
+		ExecutionNode terminal = plan.getTerminalTableNode();
+		for (ExecutionNode localJoin : plan.getDependencies(terminal)) {
+			String results = localJoin.getTableName().get();
+			/* the local join writes the table read by the union */
+			assertTrue(localJoin.getQueryString().get(), localJoin
+					.getQueryString().get().startsWith("SELECT * INTO "
+							+ results + " FROM BIGDAWGTAG_12_LEFTPARTIAL_"));
+			assertTrue(terminal.getQueryString().get().contains(results));
+		}
+	}
+
+	/**
+	 * All the shards of the operands are sent with the join to a remote node.
+	 */
+	@Test
+	public void testSerializeShards() throws Exception {
+		BinaryJoinExecutionNode deserialized = BinaryJoinExecutionNode
+				.deserialize(node.serialize());
+		assertEquals(node.getLeftShards(), deserialized.getLeftShards());
+		assertEquals(node.getRightShards(), deserialized.getRightShards());
+		assertEquals(orders1.getQueryString(),
+				deserialized.getLeft().getQueryString());
+		assertEquals(node.getEngine(), deserialized.getEngine());
+		assertEquals(node.getHint(), deserialized.getHint());
+		/* an inner join */
+		assertEquals(null, deserialized.getJoinType());
+	}
+
+	@Test
+	public void testPartitionPredicate() {
+		ShuffleJoinExecutor.Site site = new ShuffleJoinExecutor.Site(0,
+				engine1);
+		site.ranges.add(new Assignments.Range(Double.NEGATIVE_INFINITY, 0));
+		site.ranges.add(new Assignments.Range(100, 200));
+		site.hotspots.add(7L);
+		String predicate = ShuffleJoinExecutor.getPartitionPredicate("k",
+				site, new HashSet<>(Arrays.asList(7L, 150L)));
+		assertTrue(predicate, predicate.contains("(k >= 100.0 AND k < 200.0)"));
+		assertTrue(predicate, predicate.contains("(k < 0.0)"));
+		assertTrue(predicate, predicate.contains(" AND k NOT IN (150)"));
+		assertTrue(predicate, predicate.endsWith(" OR k IN (7))"));
+
+		ShuffleJoinExecutor.Site empty = new ShuffleJoinExecutor.Site(1,
+				engine2);
+		assertEquals("false", ShuffleJoinExecutor.getPartitionPredicate("k",
+				empty, Collections.emptySet()));
+	}
+
+	/**
+	 * @return number of tuples sent to other engines by the shuffle join
+	 */
+	private long getShuffledTuples(List<Histogram> histograms,
+			List<ShuffleJoinExecutor.Site> sites, Assignments assignments) {
+		Set<Long> allHotspots = new HashSet<>();
+		sites.forEach(s -> allHotspots.addAll(s.hotspots));
+		long shuffled = 0;
+		for (Histogram histogram : histograms) {
+			ConnectionInfo engine = histogram.getOperand().engine;
+			for (int i = 0; i < BUCKETS; ++i) {
+				Assignments.Range range = assignments.getRangeForIndex(i);
+				for (ShuffleJoinExecutor.Site site : sites) {
+					if (site.ranges.contains(range)
+							&& !site.engine.equals(engine)) {
+						shuffled += histogram.getBucketCount(i);
+					}
+				}
+			}
+			for (long hotspot : histogram.getHotspots()) {
+				for (ShuffleJoinExecutor.Site site : sites) {
+					if (site.contains(hotspot, allHotspots)
+							&& !site.engine.equals(engine)) {
+						shuffled += histogram.getHotspotCount(hotspot);
+					}
+				}
+			}
+		}
+		return shuffled;
+	}
+
+	private static long getTuples(Histogram histogram) {
+		long tuples = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			tuples += histogram.getBucketCount(i);
+		}
+		for (long hotspot : histogram.getHotspots()) {
+			tuples += histogram.getHotspotCount(hotspot);
+		}
+		return tuples;
+	}
+
+	/**
+	 * Compare the number of tuples sent between the engines and the cost
+	 * (estimated by {@link ShuffleEngine}) of the shuffle and the broadcast
+	 * join (all the operands are sent to the destination engine) for uniform
+	 * and skewed join keys.
+	 */
+	@Test
+	public void testShuffleVersusBroadcast() throws Exception {
+		Map<String, List<Histogram>> workloads = new HashMap<>();
+		workloads.put("uniform", getUniformHistograms());
+		workloads.put("skewed", getSkewedHistograms());
+		for (Map.Entry<String, List<Histogram>> workload : workloads
+				.entrySet()) {
+			List<Histogram> histograms = workload.getValue();
+			Assignments assignments = assign(histograms);
+			List<ShuffleJoinExecutor.Site> sites = new ShuffleJoinExecutor(
+					node).getSites(assignments);
+
+			long shuffled = getShuffledTuples(histograms, sites, assignments);
+			double shuffleCost = assignments.getCost();
+
+			long broadcast = 0;
+			long all = 0;
+			double broadcastAlignment = 0;
+			for (Histogram histogram : histograms) {
+				long tuples = getTuples(histogram);
+				all += tuples;
+				if (!histogram.getOperand().engine.equals(node.getEngine())) {
+					broadcast += tuples;
+					broadcastAlignment = Math.max(broadcastAlignment,
+							Math.max(ShuffleEngine.computeUplinkCost(tuples),
+									ShuffleEngine
+											.computeDownlinkCost(tuples)));
+				}
+			}
+			double broadcastCost = broadcastAlignment
+					+ ShuffleEngine.computeComparisonCost(all);
+			logger.info(String.format(
+					"%s keys: shuffle sends %d tuples (cost %.0f), "
+							+ "broadcast sends %d tuples (cost %.0f)",
+					workload.getKey(), shuffled, shuffleCost, broadcast,
+					broadcastCost));
+			assertTrue(shuffled < broadcast);
+			assertTrue(shuffleCost < broadcastCost);
+		}
+	}
+
+}
@@ -0,0 +1,45 @@
+package istc.bigdawg.islands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * Check the normalization of the keys and the LRU eviction of the plan cache.
+ */
+public class QueryPlanCacheTest {
+
+	@Test
+	public void testNormalizeWhitespaceOutsideLiterals() {
+		assertEquals("select * from patients where name = 'a  b'",
+				QueryPlanCache.normalize(
+						"  select *\n\tfrom   patients\nwhere name = 'a  b' ;"));
+		assertEquals("select \"x  y\" from t",
+				QueryPlanCache.normalize("select \"x  y\"   from t"));
+	}
+
+	@Test
+	public void testHitsAndEviction() {
+		QueryPlanCache<String> cache = new QueryPlanCache<>("test", 2);
+		cache.put("select * from a", "plan a");
+		cache.put("select * from b", "plan b");
+		assertEquals("plan a", cache.get("select *  from a;"));
+		cache.put("select * from c", "plan c");
+		// b was the least recently used
+		assertNull(cache.get("select * from b"));
+		assertEquals("plan a", cache.get("select * from a"));
+		assertEquals("plan c", cache.get("select * from c"));
+		assertEquals(3, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	public void testTransitionTablesAreNotCached() {
+		QueryPlanCache<String> cache = new QueryPlanCache<>("test", 10);
+		cache.put("select * from BIGDAWGTAG_1", "plan");
+		assertNull(cache.get("select * from BIGDAWGTAG_1"));
+		assertEquals(0, cache.size());
+	}
+}
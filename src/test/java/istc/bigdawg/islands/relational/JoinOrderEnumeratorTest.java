@@ -0,0 +1,202 @@
+package istc.bigdawg.islands.relational;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import istc.bigdawg.islands.relational.JoinOrderEnumerator.Plan;
+
+/**
+ * Check the join orders found by the enumeration and measure how long it takes
+ * for the usual shapes of join graphs with 5 to 15 tables (and for 20 tables
+ * or more, which are ordered greedily).
+ */
+public class JoinOrderEnumeratorTest {
+
+	private static Logger logger = Logger.getLogger(JoinOrderEnumeratorTest.class);
+
+	private static final int TOP_K = 5;
+
+	private static long[] chain(int n) {
+		long[] adjacency = new long[n];
+		for (int i = 0; i + 1 < n; ++i) {
+			connect(adjacency, i, i + 1);
+		}
+		return adjacency;
+	}
+
+	private static long[] cycle(int n) {
+		long[] adjacency = chain(n);
+		connect(adjacency, 0, n - 1);
+		return adjacency;
+	}
+
+	private static long[] star(int n) {
+		long[] adjacency = new long[n];
+		for (int i = 1; i < n; ++i) {
+			connect(adjacency, 0, i);
+		}
+		return adjacency;
+	}
+
+	private static long[] clique(int n) {
+		long[] adjacency = new long[n];
+		for (int i = 0; i < n; ++i) {
+			for (int j = i + 1; j < n; ++j) {
+				connect(adjacency, i, j);
+			}
+		}
+		return adjacency;
+	}
+
+	private static void connect(long[] adjacency, int i, int j) {
+		adjacency[i] |= 1L << j;
+		adjacency[j] |= 1L << i;
+	}
+
+	private static double[] rows(int n) {
+		double[] rows = new double[n];
+		for (int i = 0; i < n; ++i) {
+			rows[i] = 1000 * (i % 4 + 1) * (i % 3 + 1);
+		}
+		return rows;
+	}
+
+	/**
+	 * Fail if two sub-plans are joined without a predicate between them.
+	 * 
+	 * @return the leaves of the plan
+	 */
+	private static long checkNoCrossJoins(Plan plan, long[] adjacency) {
+		if (plan.isLeaf()) {
+			return 1L << plan.getLeaf();
+		}
+		long left = checkNoCrossJoins(plan.getLeft(), adjacency);
+		long right = checkNoCrossJoins(plan.getRight(), adjacency);
+		boolean connected = false;
+		for (int i = 0; i < adjacency.length; ++i) {
+			if ((left & (1L << i)) != 0 && (adjacency[i] & right) != 0) {
+				connected = true;
+			}
+		}
+		assertTrue("cross join in " + plan, connected);
+		return left | right;
+	}
+
+	@Test
+	public void testPlansAreConnectedAndSorted() {
+		long[] adjacency = chain(6);
+		List<Plan> plans = new JoinOrderEnumerator(rows(6), adjacency, TOP_K)
+				.enumerate();
+		assertEquals(TOP_K, plans.size());
+		for (int i = 0; i < plans.size(); ++i) {
+			checkNoCrossJoins(plans.get(i), adjacency);
+			if (i > 0) {
+				assertTrue(plans.get(i - 1).getCost() <= plans.get(i)
+						.getCost());
+			}
+		}
+	}
+
+	@Test
+	public void testSmallTablesAreJoinedFirst() {
+		// 0 - 1 - 2 where 0 and 1 are small and 2 is huge
+		long[] adjacency = chain(3);
+		double[] rows = { 10, 10, 1000000 };
+		Plan best = new JoinOrderEnumerator(rows, adjacency, 1).enumerate()
+				.get(0);
+		assertEquals("((0 1) 2)", best.toString());
+	}
+
+	@Test
+	public void testDisconnectedComponentsAreCrossJoinedLast() {
+		// 0 - 1 and 2 - 3 without any predicate between them
+		long[] adjacency = new long[4];
+		connect(adjacency, 0, 1);
+		connect(adjacency, 2, 3);
+		List<Plan> plans = new JoinOrderEnumerator(new double[4], adjacency,
+				TOP_K).enumerate();
+		assertEquals(1, plans.size());
+		Plan plan = plans.get(0);
+		checkNoCrossJoins(plan.getLeft(), adjacency);
+		checkNoCrossJoins(plan.getRight(), adjacency);
+		assertEquals(0b1111, checkLeaves(plan));
+	}
+
+	private static long checkLeaves(Plan plan) {
+		if (plan.isLeaf()) {
+			return 1L << plan.getLeaf();
+		}
+		long left = checkLeaves(plan.getLeft());
+		long right = checkLeaves(plan.getRight());
+		assertEquals(0, left & right);
+		return left | right;
+	}
+
+	@Test(timeout = 10000)
+	public void testChainOfTwentyTables() {
+		int n = 20;
+		long[] adjacency = chain(n);
+		/* dynamic programming only over the connected pairs of subsets */
+		List<Plan> plans = new JoinOrderEnumerator(rows(n), adjacency, TOP_K,
+				n).enumerate();
+		assertEquals(TOP_K, plans.size());
+		assertEquals((1L << n) - 1, checkLeaves(plans.get(0)));
+		checkNoCrossJoins(plans.get(0), adjacency);
+
+		/* more tables than the default limit: built greedily */
+		List<Plan> greedy = new JoinOrderEnumerator(rows(n), adjacency, TOP_K)
+				.enumerate();
+		assertEquals(1, greedy.size());
+		assertEquals((1L << n) - 1, checkLeaves(greedy.get(0)));
+		checkNoCrossJoins(greedy.get(0), adjacency);
+		assertTrue(plans.get(0).getCost() <= greedy.get(0).getCost());
+	}
+
+	@Test(timeout = 10000)
+	public void testGreedyOrderOfManyTables() {
+		// two stars of 30 tables without any predicate between them
+		int n = 60;
+		long[] adjacency = new long[n];
+		for (int i = 1; i < n / 2; ++i) {
+			connect(adjacency, 0, i);
+			connect(adjacency, n / 2, n / 2 + i);
+		}
+		List<Plan> plans = new JoinOrderEnumerator(rows(n), adjacency, TOP_K)
+				.enumerate();
+		assertEquals(1, plans.size());
+		Plan plan = plans.get(0);
+		assertEquals((1L << n) - 1, checkLeaves(plan));
+		checkNoCrossJoins(plan.getLeft(), adjacency);
+		checkNoCrossJoins(plan.getRight(), adjacency);
+	}
+
+	@Test
+	public void testEnumerationTime() {
+		for (int n = 5; n <= 15; ++n) {
+			time("chain", n, chain(n));
+			time("cycle", n, cycle(n));
+			time("star", n, star(n));
+			if (n <= 10) {
+				time("clique", n, clique(n));
+			}
+		}
+	}
+
+	private void time(String shape, int n, long[] adjacency) {
+		long start = System.nanoTime();
+		List<Plan> plans = new JoinOrderEnumerator(rows(n), adjacency, TOP_K)
+				.enumerate();
+		long elapsed = System.nanoTime() - start;
+		logger.info(String.format(
+				"%s of %d tables: %d plans in %.3f ms, best cost %.0f", shape,
+				n, plans.size(), elapsed / 1e6, plans.get(0).getCost()));
+		assertTrue(plans.size() >= 1 && plans.size() <= TOP_K);
+		assertEquals((1L << n) - 1, checkLeaves(plans.get(0)));
+		checkNoCrossJoins(plans.get(0), adjacency);
+	}
+}
@@ -0,0 +1,53 @@
+package istc.bigdawg.migration;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Check the encoding of rows for the PostgreSQL COPY command.
+ */
+public class CopyTextEncoderTest {
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String encoded(CopyTextEncoder encoder) {
+		return new String(encoder.getBuffer(), 0, encoder.size(),
+				StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testEscaping() {
+		CopyTextEncoder encoder = new CopyTextEncoder('|', new byte[4]);
+		encoder.appendRow(new byte[][] { bytes("1"), bytes("a|b"), null });
+		encoder.appendRow(
+				new byte[][] { bytes("c:\\tmp"), bytes("x\ny\rz"), bytes("") });
+		assertEquals("1|a\\|b|\\N\nc:\\\\tmp|x\\ny\\rz|\n", encoded(encoder));
+	}
+
+	@Test
+	public void testMultiByteCharacters() {
+		String text = "za\u017c\u00f3\u0142\u0107|\u20ac";
+		CopyTextEncoder encoder = new CopyTextEncoder('|', new byte[1]);
+		encoder.appendRow(new byte[][] { bytes(text) });
+		assertEquals("za\u017c\u00f3\u0142\u0107\\|\u20ac\n", encoded(encoder));
+	}
+
+	@Test
+	public void testReset() {
+		CopyTextEncoder encoder = new CopyTextEncoder(',', new byte[16]);
+		encoder.appendRow(new byte[][] { bytes("1"), bytes("2") });
+		byte[] handedOver = encoder.getBuffer();
+		encoder.reset(new byte[16]);
+		assertEquals(0, encoder.size());
+		encoder.appendRow(new byte[][] { bytes("3,4") });
+		assertEquals("3\\,4\n", encoded(encoder));
+		assertEquals("1,2\n", new String(handedOver, 0, 4,
+				StandardCharsets.UTF_8));
+	}
+
+}
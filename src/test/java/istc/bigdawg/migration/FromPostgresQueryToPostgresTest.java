@@ -0,0 +1,46 @@
+/**
+ * 
+ */
+package istc.bigdawg.migration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+/**
+ * Check the query extracted from the SELECT INTO statements of the execution
+ * nodes (it is streamed with COPY (query) TO STDOUT).
+ */
+public class FromPostgresQueryToPostgresTest {
+
+	@Test
+	public void testQueryOfSelectInto() {
+		assertEquals(Optional.of("SELECT a, b FROM s WHERE a > 1"),
+				FromPostgresQueryToPostgres.getQueryOfSelectInto(
+						"SELECT a, b INTO BIGDAWGTAG_1 FROM s WHERE a > 1;",
+						"BIGDAWGTAG_1"));
+		assertEquals(Optional.of("select * from s JOIN t ON s.id = t.id"),
+				FromPostgresQueryToPostgres.getQueryOfSelectInto(
+						"select * into bigdawgtag_2\nfrom s JOIN t ON s.id = t.id",
+						"BIGDAWGTAG_2"));
+	}
+
+	@Test
+	public void testNoSingleInto() {
+		/* another table with the same prefix */
+		assertFalse(FromPostgresQueryToPostgres
+				.getQueryOfSelectInto(
+						"SELECT * INTO BIGDAWGTAG_10 FROM s;", "BIGDAWGTAG_1")
+				.isPresent());
+		assertFalse(FromPostgresQueryToPostgres
+				.getQueryOfSelectInto("SELECT * FROM s;", "BIGDAWGTAG_1")
+				.isPresent());
+		assertFalse(FromPostgresQueryToPostgres.getQueryOfSelectInto(
+				"SELECT * INTO t FROM s UNION SELECT * INTO t FROM u;", "t")
+				.isPresent());
+	}
+
+}
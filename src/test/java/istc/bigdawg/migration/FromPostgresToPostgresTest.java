@@ -165,4 +165,46 @@ public class FromPostgresToPostgresTest {
 		migrateTest(conInfoFrom, conInfoTo);
 	}
 
+	@Test
+	public void testCheckpointedMigration() throws Exception {
+		PostgreSQLConnectionInfo conInfoFrom = new PostgreSQLConnectionInfo(
+				"localhost", "5431", "test", "pguser", localPassword);
+		PostgreSQLConnectionInfo conInfoTo = new PostgreSQLConnectionInfo(
+				"localhost", "5430", "test", "pguser", localPassword);
+		PostgreSQLHandler postgres1 = new PostgreSQLHandler(conInfoFrom);
+		PostgreSQLHandler postgres2 = new PostgreSQLHandler(conInfoTo);
+		long rows = 1000;
+		try {
+			postgres1.executeStatementPostgreSQL("create table " + tableNameFrom
+					+ " (id int primary key, c varchar)");
+			postgres1.executeStatementPostgreSQL("insert into " + tableNameFrom
+					+ " select i, 'row' || i from generate_series(1, " + rows
+					+ ") i");
+			MigrationResult result = Migrator.migrate(conInfoFrom,
+					tableNameFrom, conInfoTo, tableNameTo,
+					new MigrationParams(null, Migrator.Type.CHECKPOINTED));
+			assertEquals(Long.valueOf(rows), result.getCountLoadedElements());
+
+			/* all the chunks are done: nothing is moved again */
+			result = Migrator.resume(conInfoFrom, tableNameFrom, conInfoTo,
+					tableNameTo);
+			assertEquals(Long.valueOf(rows), result.getCountLoadedElements());
+			assertTrue(result.getPartitionResults().isEmpty());
+
+			/* the chunks replace the rows loaded before */
+			Migrator.migrate(conInfoFrom, tableNameFrom, conInfoTo,
+					tableNameTo,
+					new MigrationParams(null, Migrator.Type.CHECKPOINTED));
+			assertEquals(String.valueOf(rows),
+					postgres2.executeQueryPostgreSQL(
+							"select count(*) from " + tableNameTo).getRows()
+							.get(0).get(0));
+		} finally {
+			postgres1.executeStatementPostgreSQL(
+					"drop table if exists " + tableNameFrom);
+			postgres2.executeStatementPostgreSQL(
+					"drop table if exists " + tableNameTo);
+		}
+	}
+
 }
@@ -0,0 +1,51 @@
+package istc.bigdawg.migration;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Check the ranges into which a table is split for the parallel migration.
+ */
+public class PostgresRangePartitionerTest {
+
+	@Test
+	public void testSplitKeyRange() {
+		List<String> ranges = PostgresRangePartitioner.splitKeyRange("id", 1,
+				100, 4);
+		assertEquals(Arrays.asList("id < 26", "id >= 26 and id < 51",
+				"id >= 51 and id < 76", "id >= 76"), ranges);
+	}
+
+	@Test
+	public void testFewerKeysThanPartitions() {
+		assertEquals(Arrays.asList("id < 6", "id >= 6"),
+				PostgresRangePartitioner.splitKeyRange("id", 5, 6, 4));
+		assertEquals(Arrays.asList(PostgresRangePartitioner.ALL_ROWS),
+				PostgresRangePartitioner.splitKeyRange("id", 7, 7, 4));
+	}
+
+	@Test
+	public void testExtremeKeys() {
+		List<String> ranges = PostgresRangePartitioner
+				.splitKeyRange("id", Long.MIN_VALUE, Long.MAX_VALUE, 2);
+		assertEquals(Arrays.asList("id < 0", "id >= 0"), ranges);
+	}
+
+	@Test
+	public void testSplitPageRange() {
+		assertEquals(
+				Arrays.asList("ctid < '(3,0)'::tid",
+						"ctid >= '(3,0)'::tid and ctid < '(6,0)'::tid",
+						"ctid >= '(6,0)'::tid"),
+				PostgresRangePartitioner.splitPageRange(10, 3));
+		/* an empty table or a table of a single page */
+		assertEquals(Arrays.asList(PostgresRangePartitioner.ALL_ROWS),
+				PostgresRangePartitioner.splitPageRange(0, 3));
+		assertEquals(Arrays.asList(PostgresRangePartitioner.ALL_ROWS),
+				PostgresRangePartitioner.splitPageRange(1, 3));
+	}
+}
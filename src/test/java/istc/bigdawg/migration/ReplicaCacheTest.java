@@ -0,0 +1,64 @@
+package istc.bigdawg.migration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import istc.bigdawg.migration.ReplicaCache.EngineReplicas;
+import istc.bigdawg.migration.ReplicaCache.Replica;
+
+/**
+ * Check the budget and the eviction of the replicas kept on an engine.
+ */
+public class ReplicaCacheTest {
+
+	private static Replica replica(String object, long bytes) {
+		return new Replica("postgres|" + object, "bigdawg_replica_" + object,
+				"1:1:0:0:0:8192:", bytes);
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		EngineReplicas replicas = new EngineReplicas(null);
+		assertTrue(replicas.add(replica("a", 40), 100).isEmpty());
+		assertTrue(replicas.add(replica("b", 40), 100).isEmpty());
+		/* a is used, so b is the least recently used one */
+		assertNotNull(replicas.get("postgres|a"));
+		List<Replica> evicted = replicas.add(replica("c", 40), 100);
+		assertEquals(1, evicted.size());
+		assertEquals("bigdawg_replica_b", evicted.get(0).getTable());
+		assertNull(replicas.get("postgres|b"));
+		assertEquals(80, replicas.getBytes());
+		assertEquals(2, replicas.size());
+	}
+
+	@Test
+	public void testNewVersionReplacesReplica() {
+		EngineReplicas replicas = new EngineReplicas(null);
+		replicas.add(replica("a", 40), 100);
+		List<Replica> evicted = replicas.add(replica("a", 60), 100);
+		assertEquals(1, evicted.size());
+		assertEquals(40, evicted.get(0).getBytes());
+		assertEquals(60, replicas.getBytes());
+		assertEquals(1, replicas.size());
+		assertEquals(60, replicas.remove("postgres|a").getBytes());
+		assertEquals(0, replicas.getBytes());
+	}
+
+	@Test
+	public void testBudget() {
+		EngineReplicas replicas = new EngineReplicas(null);
+		replicas.add(replica("a", 30), 100);
+		replicas.add(replica("b", 30), 100);
+		/* a replica bigger than the budget evicts everything */
+		List<Replica> evicted = replicas.add(replica("c", 150), 100);
+		assertEquals(3, evicted.size());
+		assertEquals(0, replicas.getBytes());
+		assertEquals(0, replicas.size());
+	}
+}
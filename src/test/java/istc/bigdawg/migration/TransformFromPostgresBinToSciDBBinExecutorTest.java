@@ -0,0 +1,280 @@
+package istc.bigdawg.migration;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import istc.bigdawg.database.AttributeMetaData;
+import istc.bigdawg.database.ObjectMetaData;
+import istc.bigdawg.properties.BigDawgConfigProperties;
+
+/**
+ * Check the transformation from PostgreSQL binary format to SciDB binary
+ * format and compare its speed with the external C++ migrator (if it was
+ * built).
+ */
+public class TransformFromPostgresBinToSciDBBinExecutorTest {
+
+	private static Logger logger = Logger
+			.getLogger(TransformFromPostgresBinToSciDBBinExecutorTest.class);
+
+	private static final byte[] SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y',
+			'\n', (byte) 0xFF, '\r', '\n', 0 };
+
+	private static ObjectMetaData table(AttributeMetaData... attributes) {
+		return new ObjectMetaData() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public String getName() {
+				return "test";
+			}
+
+			@Override
+			public List<AttributeMetaData> getAttributesOrdered() {
+				return Arrays.asList(attributes);
+			}
+		};
+	}
+
+	/** Data in PostgreSQL binary format. */
+	private static class PostgresData {
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private final DataOutputStream out = new DataOutputStream(bytes);
+
+		private PostgresData() throws IOException {
+			out.write(SIGNATURE);
+			out.writeInt(0); /* flags */
+			out.writeInt(0); /* header extension */
+		}
+
+		private PostgresData tuple(int fields) throws IOException {
+			out.writeShort(fields);
+			return this;
+		}
+
+		private PostgresData nullValue() throws IOException {
+			out.writeInt(-1);
+			return this;
+		}
+
+		private PostgresData int4(int value) throws IOException {
+			out.writeInt(4);
+			out.writeInt(value);
+			return this;
+		}
+
+		private PostgresData int8(long value) throws IOException {
+			out.writeInt(8);
+			out.writeLong(value);
+			return this;
+		}
+
+		private PostgresData float8(double value) throws IOException {
+			out.writeInt(8);
+			out.writeDouble(value);
+			return this;
+		}
+
+		private PostgresData bool(boolean value) throws IOException {
+			out.writeInt(1);
+			out.writeByte(value ? 1 : 0);
+			return this;
+		}
+
+		private PostgresData text(String value) throws IOException {
+			byte[] text = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(text.length);
+			out.write(text);
+			return this;
+		}
+
+		/** numeric with digits in base 10000 */
+		private PostgresData numeric(int weight, boolean negative,
+				int... digits) throws IOException {
+			out.writeInt(8 + 2 * digits.length);
+			out.writeShort(digits.length);
+			out.writeShort(weight);
+			out.writeShort(negative ? 0x4000 : 0);
+			out.writeShort(4);
+			for (int digit : digits) {
+				out.writeShort(digit);
+			}
+			return this;
+		}
+
+		private byte[] end() throws IOException {
+			out.writeShort(-1);
+			out.flush();
+			return bytes.toByteArray();
+		}
+	}
+
+	private static byte[] transform(ObjectMetaData table, byte[] data)
+			throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		long count = new TransformFromPostgresBinToSciDBBinExecutor(table,
+				new ByteArrayInputStream(data), output).call();
+		logger.debug("transformed tuples: " + count);
+		return output.toByteArray();
+	}
+
+	@Test
+	public void testTransformation() throws Exception {
+		ObjectMetaData table = table(
+				new AttributeMetaData("a", "integer", false),
+				new AttributeMetaData("b", "double precision", true),
+				new AttributeMetaData("c", "text", true),
+				new AttributeMetaData("d", "boolean", false),
+				new AttributeMetaData("e", "timestamp without time zone",
+						false),
+				new AttributeMetaData("f", "numeric", false),
+				new AttributeMetaData("g", "date", true));
+		String value = "za\u017c\u00f3\u0142\u0107";
+		byte[] data = new PostgresData().tuple(7).int4(-5).float8(1.5)
+				.text(value).bool(true).int8(1000000L)
+				.numeric(0, true, 12, 3400).int4(366).tuple(7).int4(7)
+				.nullValue().nullValue().bool(false).int8(-1L)
+				.numeric(1, false, 1, 2).nullValue().end();
+
+		ByteBuffer expected = ByteBuffer.allocate(200)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		byte[] text = value.getBytes(StandardCharsets.UTF_8);
+		/* first tuple */
+		expected.putInt(-5);
+		expected.put((byte) -1).putDouble(1.5);
+		expected.put((byte) -1).putInt(text.length + 1).put(text)
+				.put((byte) 0);
+		expected.put((byte) 1);
+		expected.putLong(946684801L);
+		expected.putDouble(-12.34);
+		expected.put((byte) -1).putLong(978307200L);
+		/* second tuple */
+		expected.putInt(7);
+		expected.put((byte) 0).putLong(0);
+		expected.put((byte) 0).putInt(0);
+		expected.put((byte) 0);
+		expected.putLong(946684799L);
+		expected.putDouble(10002);
+		expected.put((byte) 0).putLong(0);
+		byte[] expectedBytes = Arrays.copyOf(expected.array(),
+				expected.position());
+
+		assertArrayEquals(expectedBytes, transform(table, data));
+	}
+
+	@Test
+	public void testLongStrings() throws Exception {
+		/* the strings are longer than the buffers */
+		ObjectMetaData table = table(
+				new AttributeMetaData("s", "character varying", false));
+		StringBuilder sb = new StringBuilder();
+		int length = 3 * TransformFromPostgresBinToSciDBBinExecutor.BUFFER_SIZE;
+		for (int i = 0; i < length; ++i) {
+			sb.append((char) ('a' + i % 26));
+		}
+		String value = sb.toString();
+		byte[] data = new PostgresData().tuple(1).text(value).tuple(1)
+				.text("x").end();
+		byte[] result = transform(table, data);
+		ByteBuffer buffer = ByteBuffer.wrap(result)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(value.length() + 1, buffer.getInt());
+		byte[] transformed = new byte[value.length()];
+		buffer.get(transformed);
+		assertEquals(value, new String(transformed, StandardCharsets.UTF_8));
+		assertEquals(0, buffer.get());
+		assertEquals(2, buffer.getInt());
+		assertEquals('x', buffer.get());
+		assertEquals(0, buffer.get());
+		assertEquals(0, buffer.remaining());
+	}
+
+	/**
+	 * Compare the time of the transformation in this JVM and by the external
+	 * C++ migrator for the same data (the external one is skipped if it was
+	 * not built).
+	 */
+	@Test
+	public void testTransformationTime() throws Exception {
+		int rows = 500000;
+		ObjectMetaData table = table(
+				new AttributeMetaData("id", "integer", false),
+				new AttributeMetaData("value", "double precision", true),
+				new AttributeMetaData("name", "text", true),
+				new AttributeMetaData("count", "bigint", true));
+		Random random = new Random(3);
+		PostgresData postgresData = new PostgresData();
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < 100; ++i) {
+			names.add("name_" + random.nextInt(1000000));
+		}
+		for (int i = 0; i < rows; ++i) {
+			postgresData.tuple(4).int4(i).float8(random.nextDouble())
+					.text(names.get(i % names.size()));
+			if (i % 10 == 0) {
+				postgresData.nullValue();
+			} else {
+				postgresData.int8(random.nextLong());
+			}
+		}
+		byte[] data = postgresData.end();
+
+		File input = File.createTempFile("postgres", ".bin");
+		File javaOutput = File.createTempFile("scidb_java", ".bin");
+		File externalOutput = File.createTempFile("scidb_external", ".bin");
+		try {
+			Files.write(input.toPath(), data);
+			/* warm up */
+			transform(table, data);
+			long start = System.nanoTime();
+			long count = new TransformFromPostgresBinToSciDBBinExecutor(table,
+					input.getAbsolutePath(), javaOutput.getAbsolutePath())
+							.call();
+			double javaMs = (System.nanoTime() - start) / 1e6;
+			assertEquals(rows, count);
+			logger.info(String.format(
+					"Transformation of %d rows (%.1f MB) in this JVM: %.1f ms",
+					rows, data.length / 1e6, javaMs));
+
+			String path = BigDawgConfigProperties.INSTANCE.getCmigratorDir();
+			if (!new File(path + "src/main/data-migrator-exe").exists()) {
+				logger.info("The external migrator was not built, "
+						+ "skip the comparison.");
+				return;
+			}
+			start = System.nanoTime();
+			long exitValue = new TransformBinExecutor(input.getAbsolutePath(),
+					externalOutput.getAbsolutePath(),
+					"int32_t,double null,string null,int64 null",
+					TransformBinExecutor.TYPE.FromPostgresToSciDB).call();
+			double externalMs = (System.nanoTime() - start) / 1e6;
+			assertEquals(0, exitValue);
+			logger.info(String.format(
+					"Transformation of %d rows by the external migrator: %.1f ms",
+					rows, externalMs));
+			assertArrayEquals(Files.readAllBytes(externalOutput.toPath()),
+					Files.readAllBytes(javaOutput.toPath()));
+		} finally {
+			input.delete();
+			javaOutput.delete();
+			externalOutput.delete();
+		}
+	}
+}
@@ -3,8 +3,10 @@
  */
 package istc.bigdawg.network;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
@@ -15,8 +17,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -229,6 +233,54 @@ public class DataInOutTest {
 		fileReceive.delete();
 	}
 
+	/**
+	 * Test if CSV data are compressed for the transfer and received without
+	 * changes.
+	 */
+	@Test
+	public void testCompressedDataTransfer() throws Exception {
+		StringBuilder csv = new StringBuilder();
+		Random random = new Random(5);
+		for (int i = 0; i < 100000; ++i) {
+			csv.append(i).append("|").append(random.nextInt(1000))
+					.append("|name_").append(i % 100).append("|2016-03-")
+					.append(10 + i % 20).append("\n");
+		}
+		byte[] data = csv.toString().getBytes(StandardCharsets.UTF_8);
+		File fileSend = File.createTempFile("__test_file_send", ".csv");
+		File fileReceive = File.createTempFile("__test_file_receive", ".csv");
+		try {
+			Files.write(fileSend.toPath(), data);
+			List<Callable<Object>> tasks = new ArrayList<>();
+			tasks.add(() -> DataIn.receive(4444, fileReceive.getPath()));
+			tasks.add(() -> {
+				TimeUnit.SECONDS.sleep(2);
+				return DataOut.send("localhost", 4444, fileSend.getPath(),
+						true);
+			});
+			ExecutorService executor = Executors
+					.newFixedThreadPool(tasks.size());
+			List<Future<Object>> results = TaskExecutor.execute(executor,
+					tasks);
+			DataTransferResult received = (DataTransferResult) results.get(0)
+					.get();
+			DataTransferResult sent = (DataTransferResult) results.get(1)
+					.get();
+			executor.shutdown();
+			logger.debug("sent: " + sent + " received: " + received);
+			assertArrayEquals(data, Files.readAllBytes(fileReceive.toPath()));
+			assertEquals(data.length, sent.getBytesPayload());
+			assertEquals(data.length, received.getBytesPayload());
+			assertEquals(sent.getBytesOnWire(), received.getBytesOnWire());
+			assertTrue(sent.isCompressed());
+			assertTrue("compression ratio: " + sent.getCompressionRatio(),
+					sent.getCompressionRatio() > 2.0);
+		} finally {
+			fileSend.delete();
+			fileReceive.delete();
+		}
+	}
+
 	@Test
 	/** Test transfer of big data via network. */
 	public void testBigDataTransfer() throws Exception {
@@ -0,0 +1,150 @@
+package istc.bigdawg.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import istc.bigdawg.migration.LoadRemoteResult;
+import istc.bigdawg.migration.MigrationPartitionResult;
+import istc.bigdawg.migration.MigrationResult;
+
+/**
+ * Check the binary format of the network messages and compare its speed and
+ * size with the Java serialization.
+ */
+public class NetworkCodecTest {
+
+	private static Logger logger = Logger.getLogger(NetworkCodecTest.class);
+
+	private static MigrationResult getMigrationResult() {
+		MigrationResult result = new MigrationResult(1000000L, 1000000L,
+				1458000000000L, 1458000012345L, 12345L);
+		result.setPartitionResults(Arrays.asList(
+				new MigrationPartitionResult("id < 500000", 500000L, 500000L,
+						6000L),
+				new MigrationPartitionResult("id >= 500000", 500000L, 500000L,
+						null)));
+		result.setNetworkBytes(80000000L, 20000000L);
+		result.setBytesSaved(60000000L);
+		return result;
+	}
+
+	private static byte[] javaSerialize(Object object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Object javaDeserialize(byte[] bytes)
+			throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(bytes))) {
+			return in.readObject();
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		assertNull(NetworkCodec.decode(NetworkCodec.encode(null)));
+		assertTrue(NetworkCodec.decode(
+				NetworkCodec.encode(new HeartBeat())) instanceof HeartBeat);
+		assertEquals("hello", ((DebugMessage) NetworkCodec
+				.decode(NetworkCodec.encode(new DebugMessage("hello"))))
+						.getMessage());
+		assertEquals(true, NetworkCodec.decode(NetworkCodec.encode(true)));
+		assertEquals(-7L, NetworkCodec.decode(NetworkCodec.encode(-7L)));
+		String text = "za\u017c\u00f3\u0142\u0107";
+		assertEquals(text, NetworkCodec.decode(NetworkCodec.encode(text)));
+
+		MigrationResult result = getMigrationResult();
+		MigrationResult decoded = (MigrationResult) NetworkCodec
+				.decode(NetworkCodec.encode(result));
+		assertEquals(result, decoded);
+		assertEquals(result.toString(), decoded.toString());
+
+		MigrationResult failed = MigrationResult
+				.getFailedInstance("no such table");
+		assertEquals(failed.toString(), NetworkCodec
+				.decode(NetworkCodec.encode(failed)).toString());
+
+		LoadRemoteResult loadResult = new LoadRemoteResult(10L, 1L, 3L, 2L,
+				null, "Remote loading was executed correctly.");
+		assertEquals(loadResult.toString(), NetworkCodec
+				.decode(NetworkCodec.encode(loadResult)).toString());
+	}
+
+	@Test
+	public void testJavaObjects() throws Exception {
+		/* objects without their own format go through Java serialization */
+		List<Integer> list = new ArrayList<>(Arrays.asList(1, 2, 3));
+		assertEquals(NetworkCodec.MessageType.JAVA_OBJECT,
+				NetworkCodec.getType(list));
+		assertEquals(list, NetworkCodec.decode(NetworkCodec.encode(list)));
+		Exception exception = (Exception) NetworkCodec
+				.decode(NetworkCodec.encode(new Exception("remote failure")));
+		assertEquals("remote failure", exception.getMessage());
+		/* messages from nodes which still use the Java serialization */
+		assertEquals(getMigrationResult(), NetworkCodec
+				.decode(javaSerialize(getMigrationResult())));
+	}
+
+	@Test(expected = IOException.class)
+	public void testNewerVersion() throws Exception {
+		byte[] bytes = NetworkCodec.encode(new HeartBeat());
+		bytes[2] = (byte) (NetworkCodec.MessageType.HEART_BEAT.getVersion()
+				+ 1);
+		NetworkCodec.decode(bytes);
+	}
+
+	/**
+	 * Compare the time of encoding/decoding and the size of the messages with
+	 * the Java serialization.
+	 */
+	@Test
+	public void testEncodingSpeed() throws Exception {
+		int iterations = 20000;
+		Object[] messages = { new HeartBeat(), true, getMigrationResult(),
+				new LoadRemoteResult(1000000L, 1458000000000L,
+						1458000012345L, 12345L, 80000000L,
+						"Remote loading was executed correctly.") };
+		for (Object message : messages) {
+			byte[] codecBytes = NetworkCodec.encode(message);
+			byte[] javaBytes = javaSerialize(message);
+			/* warm up */
+			for (int i = 0; i < iterations; ++i) {
+				NetworkCodec.decode(NetworkCodec.encode(message));
+				javaDeserialize(javaSerialize(message));
+			}
+			long start = System.nanoTime();
+			for (int i = 0; i < iterations; ++i) {
+				NetworkCodec.decode(NetworkCodec.encode(message));
+			}
+			double codecNs = (System.nanoTime() - start) * 1.0 / iterations;
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; ++i) {
+				javaDeserialize(javaSerialize(message));
+			}
+			double javaNs = (System.nanoTime() - start) * 1.0 / iterations;
+			logger.info(String.format(
+					"%s: codec %d bytes, %.0f ns per encode+decode; "
+							+ "Java serialization %d bytes, %.0f ns",
+					message.getClass().getSimpleName(), codecBytes.length,
+					codecNs, javaBytes.length, javaNs));
+			assertTrue(codecBytes.length < javaBytes.length);
+		}
+	}
+}
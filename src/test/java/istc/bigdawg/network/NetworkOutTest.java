@@ -0,0 +1,125 @@
+/**
+ * 
+ */
+package istc.bigdawg.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import istc.bigdawg.LoggerSetup;
+
+/**
+ * Send many requests at the same time to {@link NetworkIn} running in this
+ * process (on localhost).
+ *
+ * run form maven: mvn -Dtest=NetworkOutTest test -P dev
+ */
+public class NetworkOutTest {
+
+	/** The number of concurrent requests. */
+	private static final int REQUESTS = 8;
+
+	/** How long (in milliseconds) the requests are executed. */
+	private static final int STEP = 100;
+
+	/**
+	 * Return the given value after the given time (so the replies come back in
+	 * a different order than the requests were sent).
+	 */
+	private static class DelayedEcho implements NetworkObject {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int value;
+
+		private final long delay;
+
+		DelayedEcho(int value, long delay) {
+			this.value = value;
+			this.delay = delay;
+		}
+
+		@Override
+		public Object execute() throws Exception {
+			Thread.sleep(delay);
+			return value;
+		}
+
+	}
+
+	private ExecutorService server;
+
+	private ExecutorService clients;
+
+	@Before
+	public void setUp() {
+		LoggerSetup.setLogging();
+		server = Executors.newSingleThreadExecutor();
+		server.submit(new NetworkIn());
+		clients = Executors.newFixedThreadPool(REQUESTS);
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		clients.shutdownNow();
+		NetworkOut.close();
+		server.shutdownNow();
+		server.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	private Future<Object> sendAsync(int value, long delay) {
+		return clients.submit(
+				() -> NetworkOut.send(new DelayedEcho(value, delay), "localhost"));
+	}
+
+	@Test(timeout = 60000)
+	public void testOutOfOrderReplies() throws Exception {
+		/* repeat, so the requests are also sent through the pooled sockets */
+		for (int round = 0; round < 3; ++round) {
+			List<Future<Object>> replies = new ArrayList<>();
+			for (int i = 0; i < REQUESTS; ++i) {
+				/* the last request is answered first */
+				replies.add(sendAsync(i, (REQUESTS - i) * STEP));
+			}
+			for (int i = 0; i < REQUESTS; ++i) {
+				assertEquals(i, replies.get(i).get());
+			}
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void testCloseDuringRequest() throws Exception {
+		assertEquals(0, NetworkOut.send(new DelayedEcho(0, 0), "localhost"));
+		Future<Object> interrupted = sendAsync(1, 10 * STEP);
+		Thread.sleep(3 * STEP);
+		/* the context is terminated only when the request closed its socket */
+		NetworkOut.close();
+		try {
+			interrupted.get();
+		} catch (ExecutionException ex) {
+			/* the request was interrupted by the close */
+		}
+		assertTrue(interrupted.isDone());
+		/* the next requests use a new context */
+		List<Future<Object>> replies = new ArrayList<>();
+		for (int i = 0; i < REQUESTS; ++i) {
+			replies.add(sendAsync(i, (REQUESTS - i) * STEP));
+		}
+		for (int i = 0; i < REQUESTS; ++i) {
+			assertEquals(i, replies.get(i).get());
+		}
+	}
+
+}
@@ -0,0 +1,66 @@
+package istc.bigdawg.planner;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import istc.bigdawg.migration.MigrationResult;
+import istc.bigdawg.migration.MigrationStatistics;
+import istc.bigdawg.postgresql.PostgreSQLConnectionInfo;
+import istc.bigdawg.query.ConnectionInfo;
+
+/**
+ * Check the throughput of the migrations derived from the statistics which
+ * the migrators send to the monitor.
+ */
+public class PlanCostModelTest {
+
+	private final ConnectionInfo from = new PostgreSQLConnectionInfo(
+			"localhost", "5431", "test", "pguser", "test");
+	private final ConnectionInfo to = new PostgreSQLConnectionInfo(
+			"localhost", "5430", "test", "pguser", "test");
+
+	/**
+	 * The statistics of the migration as sent to the monitor by
+	 * FromDatabaseToDatabase.summary.
+	 */
+	private MigrationStatistics getStatistics(MigrationResult result) {
+		return new MigrationStatistics(from, to, "region", "region",
+				result.getStartTimeMigration(), result.getEndTimeMigration(),
+				result.getCountExtractedElements(),
+				result.getCountLoadedElements(), "");
+	}
+
+	@Test
+	public void testThroughputOfMigration() {
+		long start = System.currentTimeMillis();
+		MigrationResult result = new MigrationResult(100000L, 100000L, start,
+				start + 2000, 2000L);
+		assertEquals(50.0, PlanCostModel.getMigrationThroughput(
+				Collections.singletonList(getStatistics(result))), 1e-9);
+	}
+
+	@Test
+	public void testThroughputOfSwappedStatistics() {
+		long start = System.currentTimeMillis();
+		MigrationResult result = new MigrationResult(100000L, 100000L, start,
+				start + 2000, 2000L);
+		/* recorded with the duration as the start time */
+		MigrationStatistics swapped = new MigrationStatistics(from, to,
+				"nation", "nation", 2000L, start, 100000L, null, "");
+		assertEquals(50.0, PlanCostModel.getMigrationThroughput(
+				Arrays.asList(getStatistics(result), swapped)), 1e-9);
+	}
+
+	@Test
+	public void testThroughputWithoutMigrations() {
+		assertEquals(PlanCostModel.DEFAULT_MIGRATION_ROWS_PER_MS,
+				PlanCostModel.getMigrationThroughput(
+						Collections.<MigrationStatistics> emptyList()),
+				1e-9);
+	}
+
+}
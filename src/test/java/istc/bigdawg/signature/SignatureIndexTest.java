@@ -0,0 +1,84 @@
+package istc.bigdawg.signature;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Check that the index finds the same closest signature as comparing the
+ * signature with all of them.
+ */
+public class SignatureIndexTest {
+
+	private static String tree(Random random, int depth) {
+		StringBuilder sb = new StringBuilder("{").append((char) ('a' + random.nextInt(4)));
+		int children = depth > 0 ? random.nextInt(3) : 0;
+		for (int i = 0; i < children; i++) {
+			sb.append(tree(random, depth - 1));
+		}
+		return sb.append("}").toString();
+	}
+
+	private static String list(Random random, String prefix, int max) {
+		List<String> elements = new ArrayList<>();
+		int size = 1 + random.nextInt(max);
+		for (int i = 0; i < size; i++) {
+			elements.add(prefix + random.nextInt(8));
+		}
+		return String.join("&&&&&", elements);
+	}
+
+	private static Signature signature(Random random, int serial) throws Exception {
+		String s = "RELATIONAL|||||" + tree(random, 4) + "|||||" + list(random, "t", 4) + "|||||"
+				+ list(random, "c", 5) + "|||||query" + serial;
+		if (random.nextBoolean()) {
+			s += "|||||" + tree(random, 3) + "&&&&&" + tree(random, 3);
+		}
+		return new Signature(s);
+	}
+
+	@Test
+	public void testClosestSignature() throws Exception {
+		Random random = new Random(42);
+		SignatureIndex index = new SignatureIndex();
+		assertNull(index.getClosest(signature(random, 0)));
+
+		List<Signature> signatures = new ArrayList<>();
+		for (int i = 1; i <= 300; i++) {
+			Signature s = signature(random, i);
+			signatures.add(s);
+			index.add(s);
+		}
+		// adding the same signature again does not change the index
+		index.add(signatures.get(0));
+		assertEquals(signatures.size(), index.size());
+
+		int queries = 20;
+		for (int i = 0; i < queries; i++) {
+			Signature query = signature(random, 1000 + i);
+			double distance = Double.MAX_VALUE;
+			for (Signature s : signatures) {
+				distance = Math.min(distance, query.compare(s));
+			}
+			assertEquals(distance, query.compare(index.getClosest(query)), 1e-12);
+		}
+		assertTrue(index.getComparisons() < queries * signatures.size());
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		SignatureIndex index = new SignatureIndex();
+		Signature s = new Signature("RELATIONAL|||||{a{b}{c}}|||||t1|||||c1|||||query|||||{d{e}}");
+		index.add(s);
+		assertEquals(s, index.getClosest(s));
+		index.remove(s);
+		assertEquals(0, index.size());
+		assertNull(index.getClosest(s));
+	}
+}
@@ -0,0 +1,88 @@
+package istc.bigdawg.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Check that the in-memory pipe passes all the data from the writer to the
+ * reader and that a failure on one end does not block the other one.
+ */
+public class RingBufferPipeTest {
+
+	@Test(timeout = 10000)
+	public void testTransfer() throws Exception {
+		byte[] data = new byte[1000003];
+		new Random(7).nextBytes(data);
+		/* the buffer is much smaller than the data: the writer has to wait */
+		RingBufferPipe pipe = new RingBufferPipe(4099);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> writer = executor.submit(() -> {
+				try (OutputStream output = pipe.getOutputStream()) {
+					int offset = 0;
+					Random random = new Random(11);
+					while (offset < data.length) {
+						int length = Math.min(data.length - offset,
+								1 + random.nextInt(10000));
+						output.write(data, offset, length);
+						offset += length;
+					}
+					output.write(42);
+				}
+				return null;
+			});
+			ByteArrayOutputStream received = new ByteArrayOutputStream();
+			InputStream input = pipe.getInputStream();
+			byte[] chunk = new byte[777];
+			int read;
+			while ((read = input.read(chunk)) != -1) {
+				received.write(chunk, 0, read);
+			}
+			writer.get();
+			byte[] expected = new byte[data.length + 1];
+			System.arraycopy(data, 0, expected, 0, data.length);
+			expected[data.length] = 42;
+			assertArrayEquals(expected, received.toByteArray());
+			assertEquals(-1, input.read());
+		} finally {
+			executor.shutdownNow();
+			executor.awaitTermination(1, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testClosedReaderStopsWriter() throws Exception {
+		RingBufferPipe pipe = new RingBufferPipe(16);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> writer = executor.submit(() -> {
+				pipe.getOutputStream().write(new byte[1000]);
+				return null;
+			});
+			pipe.getInputStream().read(new byte[8]);
+			pipe.getInputStream().close();
+			try {
+				writer.get();
+				fail("The writer should fail when the reader closes the pipe.");
+			} catch (ExecutionException e) {
+				assertEquals(IOException.class, e.getCause().getClass());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}